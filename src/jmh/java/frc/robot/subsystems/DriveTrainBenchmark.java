@@ -0,0 +1,75 @@
+package frc.robot.subsystems;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.swerveio.StubSwerveModule;
+import frc.robot.swerveio.SwerveModuleRegistry;
+
+/**
+ * Benchmarks a full pass of DriveTrain.drive() against stub modules, and
+ * the sensor sampling that runs before it every loop. Together, these
+ * measure the cost of the drive code itself without any time spent
+ * talking to motor controllers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriveTrainBenchmark {
+    /* Must be a power of two, so the index can wrap with a mask. */
+    private static final int INPUT_COUNT = 1024;
+
+    private final double[] fwd = new double[INPUT_COUNT];
+    private final double[] str = new double[INPUT_COUNT];
+    private final double[] rcw = new double[INPUT_COUNT];
+    private final double[] gyro = new double[INPUT_COUNT];
+
+    private DriveTrain driveTrain;
+    private int index;
+
+    @Setup
+    public void setup() {
+        /* Subsystems register with the scheduler, which needs the HAL. */
+        HAL.initialize(500, 0);
+        StubSwerveModule[] stubs = new StubSwerveModule[4];
+        Random random = new Random(6090);
+        for (int i = 0; i < stubs.length; i++) {
+            stubs[i] = new StubSwerveModule();
+            stubs[i].setPivotMotorEncoder(random.nextDouble() * 100);
+        }
+        driveTrain = new DriveTrain(new SwerveModuleRegistry(stubs[0], stubs[1], stubs[2], stubs[3]));
+        driveTrain.periodic();
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            fwd[i] = (random.nextDouble() * 2) - 1;
+            str[i] = (random.nextDouble() * 2) - 1;
+            rcw[i] = (random.nextDouble() * 2) - 1;
+            gyro[i] = (random.nextDouble() * 360) - 180;
+        }
+    }
+
+    @Benchmark
+    public void sampleSensors() {
+        driveTrain.periodic();
+    }
+
+    @Benchmark
+    public void drive() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        driveTrain.drive(fwd[index], str[index], rcw[index], gyro[index]);
+    }
+}
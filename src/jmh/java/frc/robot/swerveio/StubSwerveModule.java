@@ -0,0 +1,160 @@
+package frc.robot.swerveio;
+
+/**
+ * A swerve module that isn't connected to anything. It just remembers
+ * the last values it was given so that the work done by the caller
+ * can't be optimized away. This is used to benchmark the drive code
+ * without any hardware.
+ */
+public class StubSwerveModule extends AbstractSwerveModule {
+    private double pivotSpeed, driveSpeed;
+    private double pivotReference, driveReference;
+    private double pivotEncoder, driveEncoder;
+
+    /**
+     * Set where the pivot encoder reads, so benchmarks can start
+     * from a realistic position.
+     * @param position The new pivot encoder reading.
+     */
+    public void setPivotMotorEncoder(double position) {
+        pivotEncoder = position;
+    }
+
+    @Override
+    public void setPivotMotorSpeed(double speed) {
+        pivotSpeed = speed;
+    }
+
+    @Override
+    public void setDriveMotorSpeed(double speed) {
+        driveSpeed = speed;
+    }
+
+    @Override
+    public double getPivotMotorSpeed() {
+        return pivotSpeed;
+    }
+
+    @Override
+    public double getDriveMotorSpeed() {
+        return driveSpeed;
+    }
+
+    /* The wheels never actually turn. */
+    @Override
+    public double getDriveMotorVelocity() {
+        return 0;
+    }
+
+    @Override
+    public double getPivotMotorEncoder() {
+        return pivotEncoder;
+    }
+
+    @Override
+    public double getDriveMotorEncoder() {
+        return driveEncoder;
+    }
+
+    @Override
+    public void zeroPivotEncoder() {
+        pivotEncoder = 0;
+    }
+
+    @Override
+    public void zeroDriveEncoder() {
+        driveEncoder = 0;
+    }
+
+    @Override
+    public void stopPivotMotor() {
+        pivotSpeed = 0;
+    }
+
+    @Override
+    public void stopDriveMotor() {
+        driveSpeed = 0;
+    }
+
+    @Override
+    public void setPivotClosedLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setPivotOpenLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveClosedLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveOpenLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveReference(double ref) {
+        driveReference = ref;
+    }
+
+    @Override
+    public void setPivotReference(double ref) {
+        pivotReference = ref;
+    }
+
+    /**
+     * Get the last pivot reference this module was given.
+     * @return The last pivot reference.
+     */
+    public double getPivotReference() {
+        return pivotReference;
+    }
+
+    /**
+     * Get the last drive reference this module was given.
+     * @return The last drive reference.
+     */
+    public double getDriveReference() {
+        return driveReference;
+    }
+
+    @Override
+    public void setPivotPidP(double gain) {
+    }
+
+    @Override
+    public void setDrivePidP(double gain) {
+    }
+
+    @Override
+    public void setPivotPidI(double gain) {
+    }
+
+    @Override
+    public void setDrivePidI(double gain) {
+    }
+
+    @Override
+    public void setPivotPidD(double gain) {
+    }
+
+    @Override
+    public void setDrivePidD(double gain) {
+    }
+
+    @Override
+    public void setPivotPidIZone(double iZone) {
+    }
+
+    @Override
+    public void setDrivePidIZone(double iZone) {
+    }
+
+    @Override
+    public void setPivotPidFF(double gain) {
+    }
+
+    @Override
+    public void setDrivePidFF(double gain) {
+    }
+}
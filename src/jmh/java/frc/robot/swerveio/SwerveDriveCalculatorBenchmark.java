@@ -0,0 +1,116 @@
+package frc.robot.swerveio;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the swerve drive calculator. The inputs are cycled
+ * through a table of random joystick values so that the JIT can't
+ * fold the calculations into constants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveDriveCalculatorBenchmark {
+    /* Must be a power of two, so the index can wrap with a mask. */
+    private static final int INPUT_COUNT = 1024;
+
+    /* Cached so that looping over the modules doesn't copy the values() array. */
+    private static final SwerveModule[] MODULES = SwerveModule.values();
+
+    private final double[] fwd = new double[INPUT_COUNT];
+    private final double[] str = new double[INPUT_COUNT];
+    private final double[] rcw = new double[INPUT_COUNT];
+    private final double[] gyro = new double[INPUT_COUNT];
+    private final double[] encoder = new double[INPUT_COUNT];
+
+    private final double[] speeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] angles = new double[SwerveDriveCalculator.MODULE_COUNT];
+
+    private SwerveDriveCalculator calc;
+    private int index;
+
+    @Setup
+    public void setup() {
+        calc = new SwerveDriveCalculator(20, 22);
+        Random random = new Random(6090);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            fwd[i] = (random.nextDouble() * 2) - 1;
+            str[i] = (random.nextDouble() * 2) - 1;
+            rcw[i] = (random.nextDouble() * 2) - 1;
+            gyro[i] = (random.nextDouble() * 360) - 180;
+            encoder[i] = random.nextDouble() * 100;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public double wheelAngleRobotCentric() {
+        int i = next();
+        return calc.getWheelAngle(SwerveModule.FRONT_LEFT, fwd[i], str[i], rcw[i]);
+    }
+
+    @Benchmark
+    public double wheelAngleFieldCentric() {
+        int i = next();
+        return calc.getWheelAngle(SwerveModule.FRONT_LEFT, fwd[i], str[i], rcw[i], gyro[i]);
+    }
+
+    @Benchmark
+    public double wheelSpeed() {
+        int i = next();
+        return calc.getWheelSpeed(SwerveModule.FRONT_LEFT, fwd[i], str[i], rcw[i]);
+    }
+
+    /**
+     * All the modules, one at a time, the way the drive train used to do it.
+     */
+    @Benchmark
+    public void allModulesIndividually(Blackhole blackhole) {
+        int i = next();
+        for (SwerveModule module : MODULES) {
+            blackhole.consume(calc.getWheelSpeed(module, fwd[i], str[i], rcw[i]));
+            blackhole.consume(calc.getWheelAngle(module, fwd[i], str[i], rcw[i], gyro[i]));
+        }
+    }
+
+    /**
+     * All the modules at once, with the batch calculation.
+     */
+    @Benchmark
+    public void allModulesBatch(Blackhole blackhole) {
+        int i = next();
+        calc.getWheelStates(fwd[i], str[i], rcw[i], gyro[i], speeds, angles);
+        blackhole.consume(speeds);
+        blackhole.consume(angles);
+    }
+
+    @Benchmark
+    public double convertToDegrees() {
+        return SwerveDriveCalculator.convertToDegrees(encoder[next()], 17.90471839904785);
+    }
+
+    @Benchmark
+    public double convertFromDegrees() {
+        return SwerveDriveCalculator.convertFromDegrees(gyro[next()], 17.90471839904785);
+    }
+}
@@ -0,0 +1,113 @@
+package frc.robot.swerveio;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for the kinematics, for the four corner base the robot uses
+ * and for a six module base, turning around the center and around a
+ * corner module, and for the forward kinematics the odometry uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveKinematicsBenchmark {
+    /* Must be a power of two, so the index can wrap with a mask. */
+    private static final int INPUT_COUNT = 1024;
+
+    private final double[] fwd = new double[INPUT_COUNT];
+    private final double[] str = new double[INPUT_COUNT];
+    private final double[] rcw = new double[INPUT_COUNT];
+
+    private final double[] speeds = new double[6];
+    private final double[] angles = new double[6];
+
+    private SwerveKinematics fourModules;
+    private SwerveKinematics sixModules;
+    private SwerveKinematics cornerPivot;
+    private SwerveForwardKinematics forwardKinematics;
+    private final double[] measuredSpeeds = new double[INPUT_COUNT * SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] measuredAngles = new double[INPUT_COUNT * SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] moduleSpeeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] moduleAngles = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private int index;
+
+    @Setup
+    public void setup() {
+        fourModules = SwerveKinematics.rectangle(20, 22);
+        double[] x = { 11, 11, 0, 0, -11, -11 };
+        double[] y = { 10, -10, 12, -12, 10, -10 };
+        sixModules = new SwerveKinematics(x, y);
+        cornerPivot = SwerveKinematics.rectangle(20, 22);
+        cornerPivot.setCenterOfRotationToModule(SwerveModule.FRONT_LEFT.ordinal());
+        forwardKinematics = new SwerveForwardKinematics(fourModules);
+        Random random = new Random(6090);
+        for (int i = 0; i < INPUT_COUNT; i++) {
+            fwd[i] = (random.nextDouble() * 2) - 1;
+            str[i] = (random.nextDouble() * 2) - 1;
+            rcw[i] = (random.nextDouble() * 2) - 1;
+        }
+        for (int i = 0; i < measuredSpeeds.length; i++) {
+            measuredSpeeds[i] = (random.nextDouble() * 2) - 1;
+            measuredAngles[i] = (random.nextDouble() * 360) - 180;
+        }
+    }
+
+    private int next() {
+        index = (index + 1) & (INPUT_COUNT - 1);
+        return index;
+    }
+
+    @Benchmark
+    public void fourModules(Blackhole blackhole) {
+        int i = next();
+        fourModules.calculate(fwd[i], str[i], rcw[i], speeds, angles);
+        blackhole.consume(speeds);
+        blackhole.consume(angles);
+    }
+
+    @Benchmark
+    public void sixModules(Blackhole blackhole) {
+        int i = next();
+        sixModules.calculate(fwd[i], str[i], rcw[i], speeds, angles);
+        blackhole.consume(speeds);
+        blackhole.consume(angles);
+    }
+
+    /**
+     * Turning around a corner module, which scales the speeds down much more often.
+     */
+    @Benchmark
+    public void cornerPivot(Blackhole blackhole) {
+        int i = next();
+        cornerPivot.calculate(fwd[i], str[i], rcw[i], speeds, angles);
+        blackhole.consume(speeds);
+        blackhole.consume(angles);
+    }
+
+    /**
+     * Fitting the motion of the robot to four measured modules.
+     */
+    @Benchmark
+    public double forwardKinematics() {
+        int offset = next() * SwerveDriveCalculator.MODULE_COUNT;
+        System.arraycopy(measuredSpeeds, offset, moduleSpeeds, 0, SwerveDriveCalculator.MODULE_COUNT);
+        System.arraycopy(measuredAngles, offset, moduleAngles, 0, SwerveDriveCalculator.MODULE_COUNT);
+        return forwardKinematics.update(moduleSpeeds, moduleAngles);
+    }
+}
@@ -0,0 +1,87 @@
+package frc.robot.swerveio;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times setting up four modules of stand-in motor controllers with the
+ * NeoSwerveModule configurations, one at a time or all at once, and with
+ * or without batching. The time is dominated by waiting on the stand-in
+ * controllers, the same way it is on the robot, so this shows how much
+ * each option saves at startup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class SwerveModuleInitializerBenchmark {
+    /* How long creating a Spark Max takes, in nanoseconds. */
+    private static final long CONSTRUCT_NANOS = 2 * StubMotorController.ROUND_TRIP_NANOS;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    @Param({ "false", "true" })
+    public boolean batched;
+
+    /**
+     * A module made of two stand-in controllers.
+     */
+    private static class StubModule implements ConfigurableSwerveModule {
+        private final StubMotorController drive, pivot;
+
+        StubModule(int driveCanId, int pivotCanId) {
+            LockSupport.parkNanos(2 * CONSTRUCT_NANOS);
+            drive = new StubMotorController(driveCanId);
+            pivot = new StubMotorController(pivotCanId);
+        }
+
+        @Override
+        public ConfigurableMotorController getDriveController() {
+            return drive;
+        }
+
+        @Override
+        public ConfigurableMotorController getPivotController() {
+            return pivot;
+        }
+
+        @Override
+        public MotorConfig getDriveConfig() {
+            return NeoSwerveModule.DRIVE_CONFIG;
+        }
+
+        @Override
+        public MotorConfig getPivotConfig() {
+            return NeoSwerveModule.PIVOT_CONFIG;
+        }
+    }
+
+    @Benchmark
+    public List<StubModule> initialize() {
+        SwerveModuleInitializer<StubModule> initializer = new SwerveModuleInitializer<>(parallel, batched);
+        initializer.add("Front Left", () -> new StubModule(1, 2));
+        initializer.add("Front Right", () -> new StubModule(3, 4));
+        initializer.add("Rear Left", () -> new StubModule(5, 6));
+        initializer.add("Rear Right", () -> new StubModule(7, 8));
+        List<StubModule> modules = initializer.initialize();
+        if (!initializer.isVerified()) {
+            throw new IllegalStateException(initializer.report());
+        }
+        return modules;
+    }
+}
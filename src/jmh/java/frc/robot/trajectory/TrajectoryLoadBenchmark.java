@@ -0,0 +1,74 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares loading a compiled trajectory file with generating the same
+ * trajectory from its path, which is what the robot would otherwise have to
+ * do when it starts. The path is the same S-curve the robot drives, so the
+ * trajectory is a realistic size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrajectoryLoadBenchmark {
+    private static final String PATH = String.join("\n",
+        "maxVelocity 60",
+        "maxAcceleration 60",
+        "maxAngularVelocity 90",
+        "waypoint 0 0 0",
+        "waypoint 50 30 0",
+        "waypoint 100 -30 90",
+        "waypoint 150 0 90");
+
+    private File directory;
+    private File trajectoryFile;
+    private PathDefinition definition;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("trajectories").toFile();
+        File pathFile = new File(directory, "SCurve" + PathDefinition.EXTENSION);
+        Files.write(pathFile.toPath(), PATH.getBytes(StandardCharsets.UTF_8));
+        definition = PathDefinition.read(pathFile);
+        trajectoryFile = new File(directory, "SCurve" + TrajectoryFile.EXTENSION);
+        TrajectoryFile.write(definition.generate(), definition.getChecksum(), trajectoryFile);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Trajectory generate() {
+        return definition.generate();
+    }
+
+    @Benchmark
+    public Trajectory load() throws IOException {
+        return TrajectoryFile.read(trajectoryFile, definition.getChecksum());
+    }
+}
@@ -1,6 +1,8 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.telemetry.StartupPhase;
+import frc.robot.telemetry.StartupProfiler;
 
 /**
  * The JVM entry class. This is the parent of all the robot code.
@@ -10,6 +12,7 @@ import edu.wpi.first.wpilibj.RobotBase;
  */
 public final class Main {
 public static void main(String... args) {
+    StartupProfiler.mark(StartupPhase.JVM);
     RobotBase.startRobot(Robot::new);
   }
 }
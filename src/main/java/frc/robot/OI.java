@@ -1,9 +1,16 @@
 package frc.robot;
 
-import edu.wpi.first.wpilibj.Joystick;
-import edu.wpi.first.wpilibj.buttons.JoystickButton;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.command.Subsystem;
+import frc.robot.input.ButtonDispatcher;
+import frc.robot.input.ButtonEvent;
+import frc.robot.input.DeadbandStage;
+import frc.robot.input.DriveInput;
+import frc.robot.input.InputFilter;
+import frc.robot.input.InputSnapshot;
+import frc.robot.input.ThrottleStage;
 
 /**
  * This class is the glue that binds the controls on the physical operator
@@ -33,29 +40,40 @@ public class OI {
    */
   public static final double THROTTLE_LOWER_BOUND = 0.3d;
 
-  /* Joysticks */
-  private Joystick joystick = new Joystick(JOYSTICK_PORT);
-  private Joystick xBoxJoystick = new Joystick(XBOX_PORT);
+  /**
+   * The joystick I was given was quite crappy, so a small deadband
+   * was added to prevent random values being assigned when the joystick
+   * wasn't being touched.
+   */
+  public static final double DRIVE_DEADBAND = 0.2;
 
-  /* Joystick Buttons */
-  private JoystickButton[] joystickButton = new JoystickButton[JOYSTICK_BUTTON_COUNT + 1];
+  /* Joystick Axes */
+  public static final int JOYSTICK_X_AXIS = 0;
+  public static final int JOYSTICK_Y_AXIS = 1;
+  public static final int JOYSTICK_Z_AXIS = 2;
+  public static final int JOYSTICK_THROTTLE_AXIS = 3;
+
+  /* How many joysticks are read, starting from port 0. */
+  private static final int STICK_COUNT = Math.max(JOYSTICK_PORT, XBOX_PORT) + 1;
+
+  /* Every joystick, read once at the start of the loop. */
+  private final InputSnapshot snapshot = new InputSnapshot(STICK_COUNT);
 
-  private double deadband = 0.0;
+  /* Runs the button actions, using the buttons from the snapshot. */
+  private final ButtonDispatcher buttons = new ButtonDispatcher(STICK_COUNT);
+
+  /* What the joystick axes go through before they drive the drivetrain. */
+  private InputFilter driveFilter = createDriveFilter();
 
   public OI() {
-    /* Instantiate all the buttons for easy use, and less code. */
-    joystickButton[0] = null; /* There is no button on 0. */
-    for (int i = 1; i <= JOYSTICK_BUTTON_COUNT; i++) {
-      joystickButton[i] = new JoystickButton(joystick, i);
-    }
     /*
      * Assign button actions here.
      * UPDATE: This way is DEPRECATED, only put CRUCIAL, INTERNAL actions
      * that will never change across robots here. For external,
      * robot-specific actions, use the registerCommand() method.
      */
-    /* joystickButton[2].whileHeld(new SomeCommand()); */
-    /* joystickButton[9].whenPressed(new AnotherCommand());*/
+    /* registerCommand(2, ActionType.HOLD, new SomeCommand()); */
+    /* registerCommand(9, ActionType.PRESS, new AnotherCommand()); */
   }
 
   /**
@@ -70,12 +88,59 @@ public class OI {
     PRESS, HOLD
   }
 
-  public void setDeadband(double deadband) {
-    this.deadband = deadband;
+  /**
+   * Create the filter that the joystick axes go through before they drive
+   * the drivetrain: the throttle slider is applied, and then an axial deadband.
+   * @return A new drive filter.
+   */
+  public static InputFilter createDriveFilter() {
+    return new InputFilter(new ThrottleStage(THROTTLE_LOWER_BOUND), new DeadbandStage(DRIVE_DEADBAND, false));
+  }
+
+  /**
+   * Read the joysticks, filter the drive axes, and run the button actions.
+   * This should be called once at the start of every loop, before the
+   * scheduler runs, and everything that uses the joysticks during the loop
+   * sees this reading. Commands started by buttons run in this loop.
+   */
+  public void update() {
+    snapshot.capture(DriverStation.getInstance(), Timer.getFPGATimestamp());
+    driveFilter.apply(snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_X_AXIS), snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_Y_AXIS),
+        snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_Z_AXIS), getRawThrottle());
+    buttons.dispatch(snapshot);
+  }
+
+  /**
+   * Get the joysticks as they were read by the last update().
+   * @return The input snapshot.
+   */
+  public InputSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Get the button dispatcher, to run handlers on any button of any
+   * joystick, including the XBox controller.
+   * @return The button dispatcher.
+   */
+  public ButtonDispatcher getButtonDispatcher() {
+    return buttons;
+  }
+
+  /**
+   * Get the drive axes from the last update(), after they went through the drive filter.
+   * @return The filtered drive input.
+   */
+  public DriveInput getDriveInput() {
+    return driveFilter.getOutput();
   }
 
-  public double getDeadband() {
-    return deadband;
+  /**
+   * Change the filter that the drive axes go through. It takes effect on the next update().
+   * @param driveFilter The new drive filter.
+   */
+  public void setDriveFilter(InputFilter driveFilter) {
+    this.driveFilter = driveFilter;
   }
 
   /**
@@ -85,16 +150,25 @@ public class OI {
    * @param command The command to register with the OI.
    */
   public void registerCommand(int button, ActionType actionType, Command command) {
+    checkButton(button);
     switch (actionType) {
       case PRESS:
-        joystickButton[button].whenPressed(command);
+        buttons.register(JOYSTICK_PORT, button, ButtonEvent.PRESSED, command::start);
         break;
       case HOLD:
-        joystickButton[button].whileHeld(command);
+        /* Like a whileHeld() button, start the command again if it finishes while the button is still held. */
+        buttons.register(JOYSTICK_PORT, button, ButtonEvent.HELD, command::start);
+        buttons.register(JOYSTICK_PORT, button, ButtonEvent.RELEASED, command::cancel);
         break;
     }
   }
 
+  private static void checkButton(int button) {
+    if (button < 1 || button > JOYSTICK_BUTTON_COUNT) {
+      throw new IllegalArgumentException("Joystick button " + button + " doesn't exist, buttons go from 1 to " + JOYSTICK_BUTTON_COUNT + ".");
+    }
+  }
+
   /**
    * Registers a runnable interface as a command. This is extremely useful when subsystem
    * API methods need to be called directly from a joystick button, or some other random,
@@ -110,9 +184,21 @@ public class OI {
    * is then passed to the other form of registerCommand(), but this method is specifically designed to allow very
    * small segments of code to run.
    * @param requiredSubsystems If any, the subsystems required to run this runnable. Keep in mind that the code inside
-   *  the runnable is not looped, it is executed once via Command.execute().
+   *  the runnable is not looped, it is executed once via Command.execute(). If there are none, the runnable is run
+   *  straight from the button dispatcher instead, without a command, but like a command, only while the robot is enabled.
    */
   public void registerCommand(int button, ActionType actionType, Runnable runnable, Subsystem... requiredSubsystems) {
+    if (requiredSubsystems.length == 0) {
+      checkButton(button);
+      /* The scheduler doesn't run commands while disabled, so neither does the dispatcher. */
+      DriverStation driverStation = DriverStation.getInstance();
+      buttons.register(JOYSTICK_PORT, button, (actionType == ActionType.HOLD) ? ButtonEvent.HELD : ButtonEvent.PRESSED, () -> {
+        if (driverStation.isEnabled()) {
+          runnable.run();
+        }
+      });
+      return;
+    }
     /**
      * This is honestly quite a hack. It's a nested class that extends the command, implementing the only two
      * required methods, isFinished() and execute(). In execute, Runnable's run function is called, the the
@@ -131,6 +217,12 @@ public class OI {
         this.runnable = runnable;
       }
 
+      /* The same command is started on every press, so it has to be ready to run again. */
+      @Override
+      protected void initialize() {
+        isFinished = false;
+      }
+
       @Override
       protected boolean isFinished() {
         return isFinished;
@@ -150,7 +242,7 @@ public class OI {
    * @return The raw axis value of the slider.
    */
   public double getRawThrottle() {
-    return this.joystick.getRawAxis(3);
+    return snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_THROTTLE_AXIS);
   }
 
   /**
@@ -174,7 +266,7 @@ public class OI {
    * @return The throttle, multiplied by the raw X axis.
    */
   public double getThrottledX() {
-    return getThrottle() * joystick.getX();
+    return getThrottle() * snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_X_AXIS);
   }
 
   /**
@@ -182,7 +274,7 @@ public class OI {
    * @return The throttle, multiplied by the raw Y axis.
    */
   public double getThrottledY() {
-    return getThrottle() * joystick.getY();
+    return getThrottle() * snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_Y_AXIS);
   }
 
   /**
@@ -190,7 +282,7 @@ public class OI {
    * @return The throttle, multiplied by the raw Z axis.
    */
   public double getThrottledZ() {
-    return getThrottle() * joystick.getZ();
+    return getThrottle() * snapshot.getAxis(JOYSTICK_PORT, JOYSTICK_Z_AXIS);
   }
   /**
    * Get the state of the specifed button on the regular joystick.
@@ -198,7 +290,7 @@ public class OI {
    * @return Whether or not the specified button is pressed.
    */
   public boolean getJoystickButton(int button) {
-    return this.joystick.getRawButton(button);
+    return snapshot.getButton(JOYSTICK_PORT, button);
   }
 
   /**
@@ -215,7 +307,7 @@ public class OI {
    * @return A JoystickPovPosition that represents the current POV position.
    */
   public JoystickPovPosition getJoystickPOV() {
-    switch(this.joystick.getPOV()) {
+    switch(snapshot.getPOV(JOYSTICK_PORT)) {
       case -1:
         return JoystickPovPosition.NEUTRAL;
       case 0:
@@ -245,7 +337,7 @@ public class OI {
    * @return Whether or not the A button is pressed.
    */
   public boolean xBoxA() {
-    return this.xBoxJoystick.getRawButton(1);
+    return snapshot.getButton(XBOX_PORT, 1);
   }
 
   /**
@@ -253,7 +345,7 @@ public class OI {
    * @return Whether or not the B button is pressed.
    */
   public boolean xBoxB() {
-    return this.xBoxJoystick.getRawButton(2);
+    return snapshot.getButton(XBOX_PORT, 2);
   }
 
   /**
@@ -261,7 +353,7 @@ public class OI {
    * @return Whether or not the X button is pressed.
    */
   public boolean xBoxX() {
-    return this.xBoxJoystick.getRawButton(3);
+    return snapshot.getButton(XBOX_PORT, 3);
   }
 
   /**
@@ -269,7 +361,7 @@ public class OI {
    * @return Whether or not the Y button is pressed.
    */
   public boolean xBoxY() {
-    return this.xBoxJoystick.getRawButton(4);
+    return snapshot.getButton(XBOX_PORT, 4);
   }
 
   /**
@@ -277,7 +369,7 @@ public class OI {
    * @return Whether or not the left bumper is pressed.
    */
   public boolean xBoxLeftBumper() {
-    return this.xBoxJoystick.getRawButton(5);
+    return snapshot.getButton(XBOX_PORT, 5);
   }
 
   /**
@@ -285,7 +377,7 @@ public class OI {
    * @return Whether or not the right bumper is pressed.
    */
   public boolean xBoxRightBumper() {
-    return this.xBoxJoystick.getRawButton(6);
+    return snapshot.getButton(XBOX_PORT, 6);
   }
 
   /**
@@ -293,7 +385,7 @@ public class OI {
    * @return The current position of the left trigger.
    */
   public double xBoxLeftTrigger() {
-    return this.xBoxJoystick.getRawAxis(2);
+    return snapshot.getAxis(XBOX_PORT, 2);
   }
 
   /**
@@ -301,7 +393,7 @@ public class OI {
    * @return The current position of the right trigger.
    */
   public double xBoxRightTrigger() {
-    return this.xBoxJoystick.getRawAxis(3);
+    return snapshot.getAxis(XBOX_PORT, 3);
   }
 
   /**
@@ -311,7 +403,7 @@ public class OI {
    * horizontal direction.
    */
   public double xBoxLeftJoystickHorizontal() {
-    return this.xBoxJoystick.getRawAxis(0);
+    return snapshot.getAxis(XBOX_PORT, 0);
   }
 
   /**
@@ -321,7 +413,7 @@ public class OI {
    * vertical direction.
    */
   public double xBoxLeftJoystickVertical() {
-    return this.xBoxJoystick.getRawAxis(1);
+    return snapshot.getAxis(XBOX_PORT, 1);
   }
 
   /**
@@ -331,7 +423,7 @@ public class OI {
    * horizontal direction.
    */
   public double xBoxRightJoystickHorizontal() {
-    return this.xBoxJoystick.getRawAxis(4);
+    return snapshot.getAxis(XBOX_PORT, 4);
   }
 
   /**
@@ -341,7 +433,7 @@ public class OI {
    * vertical direction.
    */
   public double xBoxRightJoystickVertical() {
-    return this.xBoxJoystick.getRawAxis(5);
+    return snapshot.getAxis(XBOX_PORT, 5);
   }
 
   /**
@@ -360,8 +452,7 @@ public class OI {
    * @return An XBoxPovPosition that reflects the position of the XBoxPov.
    */
   public XBoxPovPosition xBoxPOV() {
-    //return this.xBoxJoystick.getPOV();
-    switch(this.xBoxJoystick.getPOV()) {
+    switch(snapshot.getPOV(XBOX_PORT)) {
       case -1:
         return XBoxPovPosition.NEUTRAL;
       case 0:
@@ -379,29 +470,13 @@ public class OI {
   }
 
   /**
-   * Calculate a deadband mod.
+   * Calculate a deadband mod, the same way the drive filter's DeadbandStage does.
    * 
    * @param joystickInput The input on the joystick to mod
+   * @param deadband The deadband to apply
    * @return The result of the mod.
    */
-  public double deadbandMod(double joystickInput) {
-    /* This will be our result */
-    double mod;
-    /* Compute the deadband mod */
-    if (joystickInput < 0.0d) {
-        if (joystickInput <= -deadband) {
-            mod = joystickInput + deadband;
-        } else {
-            mod = 0.0d;
-        }
-    } else {
-        if (joystickInput >= deadband) {
-            mod = joystickInput - deadband;
-        } else {
-            mod = 0.0d;
-        }
-    }
-    /* Return the result. */
-    return mod;
+  public static double deadbandMod(double joystickInput, double deadband) {
+    return DeadbandStage.deadband(joystickInput, deadband);
   }
 }
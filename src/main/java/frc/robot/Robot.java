@@ -1,11 +1,25 @@
 package frc.robot;
 
+import java.io.File;
+
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Command;
 import edu.wpi.first.wpilibj.command.Scheduler;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.OI.ActionType;
+import frc.robot.commands.auto.FollowTrajectory;
+import frc.robot.input.InputSnapshot;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.telemetry.LoopStage;
+import frc.robot.telemetry.LoopTimers;
+import frc.robot.telemetry.StartupPhase;
+import frc.robot.telemetry.StartupProfiler;
+import frc.robot.telemetry.TelemetryRecorder;
+import frc.robot.trajectory.Trajectory;
+import frc.robot.trajectory.TrajectoryCache;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -20,16 +34,28 @@ import frc.robot.OI.ActionType;
  * @author Jordan Bancino
  */
 public class Robot extends TimedRobot {
+  /**
+   * How often the loop timings are printed, in seconds.
+   */
+  public static final double LOOP_TIMING_REPORT_PERIOD = 10;
+
   /* The Operator Interface */
   public static OI oi;
 
+  /* Records telemetry to the log directory in the background. */
+  public static TelemetryRecorder recorder;
+
+  private long lastTimingReport = System.nanoTime();
+
   Command autonomousCommand;
   SendableChooser<Command> chooser = new SendableChooser<>();
 
   @Override
   public void robotInit() {
+    StartupProfiler.mark(StartupPhase.ROBOT_BASE);
     System.out.println("Robot Init!");
     oi = new OI();
+    StartupProfiler.mark(StartupPhase.OI);
     /*
      * Button actions are registered on robot init using the registerCommand()
      * method, which is a streamlined, cleaner version than placing commands directly
@@ -37,12 +63,56 @@ public class Robot extends TimedRobot {
      * across robot projects and years. 
      */
 
+    /*
+     * Sample the gyro and the drivetrain sensors in the background, so that
+     * their readings are fresh no matter when the loop runs.
+     */
+    Subsystems.driveTrain.setGyro(Subsystems.gyro::getYaw);
+    Subsystems.driveTrain.startSensorSampler(DriveTrain.SENSOR_SAMPLE_RATE);
+    StartupProfiler.mark(StartupPhase.SENSOR_SAMPLER);
+
+    /* Record the joysticks, the drivetrain and the loop timings to disk for after the match. */
+    recorder = new TelemetryRecorder(new File(Filesystem.getDeployDirectory(), "log"));
+    recorder.start();
+    Subsystems.driveTrain.setRecorder(recorder);
+    StartupProfiler.mark(StartupPhase.TELEMETRY);
+
     /* Zero the drivetrain encoders when button 11 is pressed. */
     oi.registerCommand(11, ActionType.PRESS, () -> Subsystems.driveTrain.zero(), Subsystems.driveTrain);
-
-    //chooser.setDefaultOption("Default Auto", new ExampleCommand());
-    // chooser.addOption("My Auto", new MyAutoCommand());
+    StartupProfiler.mark(StartupPhase.BUTTONS);
+
+    /* Trajectories are compiled when the code is built, so loading them here is quick. */
+    TrajectoryCache trajectories = new TrajectoryCache(Filesystem.getDeployDirectory());
+    StartupProfiler.mark(StartupPhase.TRAJECTORIES);
+    addTrajectoryOption("Drive Off Line", trajectories.get("DriveOffLine"), true);
+    addTrajectoryOption("S-Curve", trajectories.get("SCurve"), false);
+    chooser.addOption("Do Nothing", null);
     SmartDashboard.putData("Auto mode", chooser);
+    StartupProfiler.mark(StartupPhase.DASHBOARD);
+
+    /* Report where the time went while starting up, in the console and in the telemetry log. */
+    System.out.println(StartupProfiler.report());
+    recorder.recordStartupPhases(Timer.getFPGATimestamp());
+  }
+
+  /**
+   * Add an autonomous option that follows a trajectory. If the trajectory
+   * couldn't be loaded, the option is left out, rather than crashing.
+   * @param name The name of the option on the dashboard.
+   * @param trajectory The trajectory to follow.
+   * @param isDefault Whether or not this is the default option.
+   */
+  private void addTrajectoryOption(String name, Trajectory trajectory, boolean isDefault) {
+    if (trajectory == null) {
+      System.err.println("Autonomous option " + name + " is unavailable, its trajectory wasn't loaded");
+      return;
+    }
+    Command command = new FollowTrajectory(Subsystems.driveTrain, trajectory);
+    if (isDefault) {
+      chooser.setDefaultOption(name, command);
+    } else {
+      chooser.addOption(name, command);
+    }
   }
 
   /**
@@ -55,7 +125,34 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void robotPeriodic() {
+    long start = LoopTimers.start();
+    double now = Timer.getFPGATimestamp();
+    /* Record the joystick as it was read at the start of the loop, before it was filtered, so replay can filter it again. */
+    InputSnapshot input = oi.getSnapshot();
+    recorder.recordJoystick(now, input.getAxis(OI.JOYSTICK_PORT, OI.JOYSTICK_X_AXIS), input.getAxis(OI.JOYSTICK_PORT, OI.JOYSTICK_Y_AXIS),
+        input.getAxis(OI.JOYSTICK_PORT, OI.JOYSTICK_Z_AXIS), oi.getRawThrottle());
+    /* The timing of robotPeriodic itself is from the last loop, since this one isn't done yet. */
+    recorder.recordLoopTimings(now);
+    /* Print the loop timings every so often, and start collecting them again. */
+    if (start - lastTimingReport >= (long) (LOOP_TIMING_REPORT_PERIOD * 1e9)) {
+      System.out.println(LoopTimers.report());
+      System.out.println("Telemetry: " + recorder.getRecordedRecords() + " records, " + recorder.getDroppedRecords() + " dropped");
+      LoopTimers.reset();
+      lastTimingReport = start;
+    }
+    LoopTimers.stop(LoopStage.ROBOT_PERIODIC, start);
+  }
 
+  /**
+   * Read the joysticks, and then run the scheduler, timing how long each takes.
+   */
+  private void runScheduler() {
+    long inputStart = LoopTimers.start();
+    oi.update();
+    LoopTimers.stop(LoopStage.INPUT, inputStart);
+    long start = LoopTimers.start();
+    Scheduler.getInstance().run();
+    LoopTimers.stop(LoopStage.SCHEDULER, start);
   }
 
   /**
@@ -69,7 +166,7 @@ public class Robot extends TimedRobot {
 
   @Override
   public void disabledPeriodic() {
-    Scheduler.getInstance().run();
+    runScheduler();
   }
 
   /**
@@ -85,6 +182,8 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousInit() {
+    /* Trajectories are already smooth, so autonomous only needs loose limits to catch sudden corrections. */
+    Subsystems.driveTrain.setSetpointLimits(DriveTrain.AUTONOMOUS_LIMITS);
     autonomousCommand = chooser.getSelected();
 
     /*
@@ -105,7 +204,9 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousPeriodic() {
-    Scheduler.getInstance().run();
+    long start = LoopTimers.start();
+    runScheduler();
+    LoopTimers.stop(LoopStage.AUTONOMOUS_PERIODIC, start);
   }
 
   @Override
@@ -117,6 +218,8 @@ public class Robot extends TimedRobot {
     if (autonomousCommand != null) {
       autonomousCommand.cancel();
     }
+    /* Keep a full stick from breaking the wheels loose. */
+    Subsystems.driveTrain.setSetpointLimits(DriveTrain.TELEOP_LIMITS);
   }
 
   /**
@@ -124,7 +227,9 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void teleopPeriodic() {
-    Scheduler.getInstance().run();
+    long start = LoopTimers.start();
+    runScheduler();
+    LoopTimers.stop(LoopStage.TELEOP_PERIODIC, start);
   }
 
   /**
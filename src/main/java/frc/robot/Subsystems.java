@@ -2,6 +2,8 @@ package frc.robot;
 
 import frc.robot.subsystems.DriveTrain;
 import frc.robot.subsystems.Gyro;
+import frc.robot.telemetry.StartupPhase;
+import frc.robot.telemetry.StartupProfiler;
 
 /**
  * Instantiate all the subsystems here for static reference,
@@ -11,6 +13,7 @@ import frc.robot.subsystems.Gyro;
  * @author Jordan Bancino
  */
 public class Subsystems {
-    public static final DriveTrain driveTrain = new DriveTrain();
-    public static final Gyro gyro = new Gyro();
+    /* Constructing these is timed, since it talks to the hardware. */
+    public static final DriveTrain driveTrain = StartupProfiler.mark(StartupPhase.DRIVE_TRAIN, new DriveTrain());
+    public static final Gyro gyro = StartupProfiler.mark(StartupPhase.GYRO, new Gyro());
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package frc.robot.commands.auto;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.command.Command;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.swerveio.SwerveOdometry;
+import frc.robot.trajectory.Trajectory;
+
+/**
+ * Drive the drivetrain along a trajectory. Every loop, the trajectory is
+ * sampled at the time since the command started, and the drivetrain is
+ * driven at the trajectory's velocity, plus a correction towards where the
+ * trajectory says the robot should be, based on the odometry. The command
+ * ends once the trajectory is over.
+ */
+public class FollowTrajectory extends Command {
+  /**
+   * How strongly position error is corrected, in inches per second for every inch of error.
+   */
+  public static final double POSITION_GAIN = 2.0;
+
+  /**
+   * How strongly heading error is corrected, in degrees per second for every degree of error.
+   */
+  public static final double HEADING_GAIN = 2.0;
+
+  private final DriveTrain driveTrain;
+  private final Trajectory trajectory;
+  private final DoubleSupplier clock;
+  private final boolean resetPose;
+
+  private double startTime;
+
+  /**
+   * Create the command, starting the odometry at the start of the trajectory.
+   * @param driveTrain The drivetrain to drive.
+   * @param trajectory The trajectory to follow.
+   */
+  public FollowTrajectory(DriveTrain driveTrain, Trajectory trajectory) {
+    this(driveTrain, trajectory, true, Timer::getFPGATimestamp);
+  }
+
+  /**
+   * Create the command.
+   * @param driveTrain The drivetrain to drive.
+   * @param trajectory The trajectory to follow.
+   * @param resetPose Whether or not to set the odometry to the start of the
+   * trajectory when the command starts. This should be true for the first
+   * trajectory in autonomous, and false for any that follow it.
+   * @param clock The clock to time the trajectory with, which returns the time in seconds.
+   */
+  public FollowTrajectory(DriveTrain driveTrain, Trajectory trajectory, boolean resetPose, DoubleSupplier clock) {
+    requires(driveTrain);
+    this.driveTrain = driveTrain;
+    this.trajectory = trajectory;
+    this.resetPose = resetPose;
+    this.clock = clock;
+  }
+
+  @Override
+  protected void initialize() {
+    if (resetPose) {
+      trajectory.sample(0);
+      driveTrain.getOdometry().resetPose(trajectory.getX(), trajectory.getY(), trajectory.getHeading());
+    }
+    startTime = clock.getAsDouble();
+  }
+
+  @Override
+  protected void execute() {
+    trajectory.sample(clock.getAsDouble() - startTime);
+    SwerveOdometry odometry = driveTrain.getOdometry();
+    /* Drive along the trajectory, and towards where the robot should be on it. */
+    double velocityX = trajectory.getVelocityX() + (POSITION_GAIN * (trajectory.getX() - odometry.getX()));
+    double velocityY = trajectory.getVelocityY() + (POSITION_GAIN * (trajectory.getY() - odometry.getY()));
+    double headingError = Math.IEEEremainder(trajectory.getHeading() - odometry.getHeading(), 360);
+    double angularVelocity = trajectory.getAngularVelocity() + (HEADING_GAIN * headingError);
+    driveTrain.driveVelocity(velocityX, velocityY, angularVelocity, odometry.getHeading());
+  }
+
+  /**
+   * Finish once the whole trajectory has been followed.
+   */
+  @Override
+  protected boolean isFinished() {
+    return clock.getAsDouble() - startTime >= trajectory.getDuration();
+  }
+
+  /**
+   * Stop where the trajectory left the robot.
+   */
+  @Override
+  protected void end() {
+    driveTrain.stop();
+  }
+
+  @Override
+  protected void interrupted() {
+    end();
+  }
+}
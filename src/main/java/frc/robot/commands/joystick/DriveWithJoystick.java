@@ -1,8 +1,11 @@
 package frc.robot.commands.joystick;
 
+import java.util.function.DoubleSupplier;
+
 import edu.wpi.first.wpilibj.command.Command;
 import frc.robot.Robot;
 import frc.robot.Subsystems;
+import frc.robot.subsystems.DriveTrain;
 
 /**
  * Drive the drivetrain with the joystick. This year is
@@ -10,35 +13,44 @@ import frc.robot.Subsystems;
  * @author Jordan Bancino
  */
 public class DriveWithJoystick extends Command {
+  private final DriveTrain driveTrain;
+  private final DoubleSupplier x, y, z;
+
   /**
    * Create the command, requiring the drivetrain to drive
    * and the gyro to provide field-centric navigation.
    */
   public DriveWithJoystick() {
-    requires(Subsystems.driveTrain);
+    this(Subsystems.driveTrain, () -> Robot.oi.getDriveInput().getX(), () -> Robot.oi.getDriveInput().getY(),
+        () -> Robot.oi.getDriveInput().getZ());
     requires(Subsystems.gyro);
   }
 
-  @Override
-  protected void initialize() {
-    /*
-     * The joystick I was given was quite crappy, so a small deadband
-     * was added to prevent random values being assigned when the joystick
-     * wasn't being touched.
-     */
-    Robot.oi.setDeadband(0.2);
+  /**
+   * Create the command, driving the given drivetrain with the given axes
+   * instead of the joystick on the OI. This is useful for driving the
+   * drivetrain with recorded or simulated inputs.
+   * @param driveTrain The drivetrain to drive.
+   * @param x The X axis, after the throttle and deadband.
+   * @param y The Y axis, after the throttle and deadband.
+   * @param z The Z axis, after the throttle and deadband.
+   */
+  public DriveWithJoystick(DriveTrain driveTrain, DoubleSupplier x, DoubleSupplier y, DoubleSupplier z) {
+    requires(driveTrain);
+    this.driveTrain = driveTrain;
+    this.x = x;
+    this.y = y;
+    this.z = z;
   }
 
   @Override
   protected void execute() {
-    double y = Robot.oi.deadbandMod(Robot.oi.getThrottledY());
-    double x = Robot.oi.deadbandMod(Robot.oi.getThrottledX());
-    double z = Robot.oi.deadbandMod(Robot.oi.getThrottledZ());
     /**
-     * Drive the drivetrain using the axes from the joystick and the gyro
-     * angle.
+     * Drive the drivetrain using the axes from the joystick, which the OI
+     * has already filtered, and the gyro angle, which was sampled along
+     * with the drivetrain sensors.
      */
-    Subsystems.driveTrain.drive(y, x, z, Subsystems.gyro.getYaw());
+    driveTrain.drive(y.getAsDouble(), x.getAsDouble(), z.getAsDouble(), driveTrain.getSensors().getGyroYaw());
   }
 
   /**
@@ -55,7 +67,7 @@ public class DriveWithJoystick extends Command {
    */
   @Override
   protected void end() {
-    Subsystems.driveTrain.stop();
+    driveTrain.stop();
   }
 
   /**
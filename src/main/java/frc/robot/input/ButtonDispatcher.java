@@ -0,0 +1,170 @@
+package frc.robot.input;
+
+import java.util.Arrays;
+
+/**
+ * Runs handlers when joystick buttons are pressed, released or held.
+ * <p>
+ * Instead of an object for every button that is polled on its own, the
+ * dispatcher takes every button of a joystick at once, as the bit mask in
+ * an InputSnapshot, and compares it with the mask from the last loop:
+ * buttons that are down now and weren't before were pressed, buttons that
+ * were down and aren't now were released, and buttons that are down now
+ * are held. Only the bits that have a handler registered for that event
+ * are looked at, so a loop where nothing happened costs a few bit
+ * operations per joystick.
+ * <p>
+ * Handlers are registered up front and run again every time their event
+ * happens, so dispatching doesn't allocate.
+ */
+public class ButtonDispatcher {
+  /**
+   * The most buttons a joystick can have, which is how many fit in the mask.
+   */
+  public static final int MAX_BUTTONS = Integer.SIZE;
+
+  private static final ButtonEvent[] EVENTS = ButtonEvent.values();
+
+  private final int stickCount;
+
+  /* Indexed by stick, then event ordinal, then button bit. Buttons without handlers are null. */
+  private final Runnable[][][][] handlers;
+
+  /* For each stick and event ordinal, the buttons that have handlers. */
+  private final int[][] registered;
+
+  /* The buttons of each stick as of the last dispatch. */
+  private final int[] previous;
+
+  /* The edges from the last dispatch, for each stick. */
+  private final int[] pressed;
+  private final int[] released;
+
+  /**
+   * Create a dispatcher with no handlers.
+   * @param stickCount How many joysticks to dispatch for, starting from port 0.
+   */
+  public ButtonDispatcher(int stickCount) {
+    this.stickCount = stickCount;
+    handlers = new Runnable[stickCount][EVENTS.length][MAX_BUTTONS][];
+    registered = new int[stickCount][EVENTS.length];
+    previous = new int[stickCount];
+    pressed = new int[stickCount];
+    released = new int[stickCount];
+  }
+
+  /**
+   * Run a handler every time a button does something. A button can have
+   * any number of handlers, which run in the order they were registered.
+   * @param stick The port of the joystick.
+   * @param button The button, starting from 1, as they are labeled.
+   * @param event What the button has to do to run the handler.
+   * @param handler The handler to run.
+   */
+  public void register(int stick, int button, ButtonEvent event, Runnable handler) {
+    if (stick < 0 || stick >= stickCount) {
+      throw new IllegalArgumentException("Joystick port " + stick + " is out of range, there are " + stickCount + " joysticks.");
+    }
+    if (button < 1 || button > MAX_BUTTONS) {
+      throw new IllegalArgumentException("Button " + button + " is out of range, buttons go from 1 to " + MAX_BUTTONS + ".");
+    }
+    if (handler == null) {
+      throw new IllegalArgumentException("Cannot register a null button handler.");
+    }
+    int bit = button - 1;
+    Runnable[][] eventHandlers = handlers[stick][event.ordinal()];
+    Runnable[] buttonHandlers = eventHandlers[bit];
+    if (buttonHandlers == null) {
+      buttonHandlers = new Runnable[] { handler };
+    } else {
+      buttonHandlers = Arrays.copyOf(buttonHandlers, buttonHandlers.length + 1);
+      buttonHandlers[buttonHandlers.length - 1] = handler;
+    }
+    eventHandlers[bit] = buttonHandlers;
+    registered[stick][event.ordinal()] |= 1 << bit;
+  }
+
+  /**
+   * Work out what every button did since the last dispatch, and run the
+   * handlers for it. For each joystick, released handlers run first, then
+   * pressed, then held.
+   * @param snapshot The joysticks, as they were read this loop.
+   */
+  public void dispatch(InputSnapshot snapshot) {
+    for (int stick = 0; stick < stickCount; stick++) {
+      int buttons = snapshot.getButtons(stick);
+      int last = previous[stick];
+      previous[stick] = buttons;
+      pressed[stick] = buttons & ~last;
+      released[stick] = ~buttons & last;
+      run(stick, ButtonEvent.RELEASED, released[stick]);
+      run(stick, ButtonEvent.PRESSED, pressed[stick]);
+      run(stick, ButtonEvent.HELD, buttons);
+    }
+  }
+
+  /* Run the handlers for an event, for every button in the mask that has them. */
+  private void run(int stick, ButtonEvent event, int buttons) {
+    int bits = buttons & registered[stick][event.ordinal()];
+    Runnable[][] eventHandlers = handlers[stick][event.ordinal()];
+    while (bits != 0) {
+      int bit = Integer.numberOfTrailingZeros(bits);
+      bits &= bits - 1;
+      for (Runnable handler : eventHandlers[bit]) {
+        handler.run();
+      }
+    }
+  }
+
+  /**
+   * Take the buttons as they are now as the starting point, without running
+   * any handlers. Buttons that are already down then don't count as pressed
+   * on the next dispatch.
+   * @param snapshot The joysticks, as they were read this loop.
+   */
+  public void reset(InputSnapshot snapshot) {
+    for (int stick = 0; stick < stickCount; stick++) {
+      previous[stick] = snapshot.getButtons(stick);
+      pressed[stick] = 0;
+      released[stick] = 0;
+    }
+  }
+
+  /**
+   * Get the buttons that were pressed in the last dispatch.
+   * @param stick The port of the joystick.
+   * @return The buttons as a bit mask, where bit 0 is button 1.
+   */
+  public int getPressed(int stick) {
+    return pressed[stick];
+  }
+
+  /**
+   * Get the buttons that were released in the last dispatch.
+   * @param stick The port of the joystick.
+   * @return The buttons as a bit mask, where bit 0 is button 1.
+   */
+  public int getReleased(int stick) {
+    return released[stick];
+  }
+
+  /**
+   * Get whether or not a button was pressed in the last dispatch.
+   * @param stick The port of the joystick.
+   * @param button The button, starting from 1, as they are labeled.
+   * @return Whether or not the button went down.
+   */
+  public boolean wasPressed(int stick, int button) {
+    return (pressed[stick] & (1 << (button - 1))) != 0;
+  }
+
+  /**
+   * Get whether or not a button was released in the last dispatch.
+   * @param stick The port of the joystick.
+   * @param button The button, starting from 1, as they are labeled.
+   * @return Whether or not the button came up.
+   */
+  public boolean wasReleased(int stick, int button) {
+    return (released[stick] & (1 << (button - 1))) != 0;
+  }
+}
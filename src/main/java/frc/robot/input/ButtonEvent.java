@@ -0,0 +1,22 @@
+package frc.robot.input;
+
+/**
+ * What a button did since the last loop, which a ButtonDispatcher can run
+ * a handler on.
+ */
+public enum ButtonEvent {
+  /**
+   * The button went down this loop.
+   */
+  PRESSED,
+
+  /**
+   * The button came up this loop.
+   */
+  RELEASED,
+
+  /**
+   * The button is down this loop, including the loop it was pressed in.
+   */
+  HELD
+}
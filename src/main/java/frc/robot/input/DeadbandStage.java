@@ -0,0 +1,57 @@
+package frc.robot.input;
+
+/**
+ * Ignores small movements of the joystick, and takes the deadband off of
+ * larger ones, so the output starts from zero at the edge of the deadband.
+ * <p>
+ * An axial deadband applies to each axis on its own, which makes it easy to
+ * drive exactly straight, but hard to drive at a shallow angle. A radial
+ * deadband applies to how far the stick is pushed in any direction, so it
+ * doesn't change the direction of the X and Y axes at all. The Z axis always
+ * has an axial deadband, since it is on its own.
+ */
+public class DeadbandStage implements InputStage {
+  private final double deadband;
+  private final boolean radial;
+
+  /**
+   * Create a deadband stage.
+   * @param deadband The size of the deadband.
+   * @param radial Whether the X and Y axes have a radial deadband, or an axial one.
+   */
+  public DeadbandStage(double deadband, boolean radial) {
+    this.deadband = deadband;
+    this.radial = radial;
+  }
+
+  @Override
+  public void apply(DriveInput input) {
+    double x = input.getX();
+    double y = input.getY();
+    if (radial) {
+      double magnitude = Math.hypot(x, y);
+      double scale = (magnitude > deadband) ? (magnitude - deadband) / magnitude : 0;
+      x *= scale;
+      y *= scale;
+    } else {
+      x = deadband(x, deadband);
+      y = deadband(y, deadband);
+    }
+    input.set(x, y, deadband(input.getZ(), deadband));
+  }
+
+  /**
+   * Apply a deadband to one axis.
+   * @param value The position of the axis.
+   * @param deadband The size of the deadband.
+   * @return 0 inside the deadband, or the value moved toward 0 by the deadband outside it.
+   */
+  public static double deadband(double value, double deadband) {
+    if (value <= -deadband) {
+      return value + deadband;
+    } else if (value >= deadband) {
+      return value - deadband;
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,67 @@
+package frc.robot.input;
+
+/**
+ * The driver's request for how the drivetrain should move, as it passes
+ * through an InputFilter. X and Y are the strafe and forward axes, Z is the
+ * rotation axis, and the throttle starts out as the raw slider position and
+ * becomes a scale factor once a ThrottleStage has applied it.
+ * <p>
+ * One of these is reused by its filter every loop, so it changes each time
+ * the filter is applied.
+ */
+public class DriveInput {
+  private double x, y, z;
+  private double throttle;
+
+  /**
+   * Set all three axes at once.
+   * @param x The X axis.
+   * @param y The Y axis.
+   * @param z The Z axis.
+   */
+  public void set(double x, double y, double z) {
+    this.x = x;
+    this.y = y;
+    this.z = z;
+  }
+
+  /**
+   * Set the throttle.
+   * @param throttle The raw slider position, or the scale factor once the throttle has been applied.
+   */
+  public void setThrottle(double throttle) {
+    this.throttle = throttle;
+  }
+
+  /**
+   * Get the X axis.
+   * @return The X axis, which strafes.
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Get the Y axis.
+   * @return The Y axis, which drives forward and backward.
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Get the Z axis.
+   * @return The Z axis, which rotates.
+   */
+  public double getZ() {
+    return z;
+  }
+
+  /**
+   * Get the throttle.
+   * @return The raw slider position, or the scale factor once the throttle has been applied.
+   */
+  public double getThrottle() {
+    return throttle;
+  }
+}
@@ -0,0 +1,30 @@
+package frc.robot.input;
+
+/**
+ * Curves each axis so small movements of the joystick are finer, without
+ * changing full deflection. The output is a blend of the input and its cube:
+ * an expo of 0 leaves the input alone, and an expo of 1 is the cube.
+ */
+public class ExpoStage implements InputStage {
+  private final double expo;
+
+  /**
+   * Create an expo stage.
+   * @param expo How much of the cube to blend in, from 0 to 1.
+   */
+  public ExpoStage(double expo) {
+    if (expo < 0 || expo > 1) {
+      throw new IllegalArgumentException("Expo must be between 0 and 1, got " + expo);
+    }
+    this.expo = expo;
+  }
+
+  @Override
+  public void apply(DriveInput input) {
+    input.set(curve(input.getX()), curve(input.getY()), curve(input.getZ()));
+  }
+
+  private double curve(double value) {
+    return (expo * value * value * value) + ((1 - expo) * value);
+  }
+}
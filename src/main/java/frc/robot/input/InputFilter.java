@@ -0,0 +1,48 @@
+package frc.robot.input;
+
+/**
+ * A chain of InputStages that the driver's axes are passed through, in
+ * order, every loop. For example, the default drive filter is:
+ * <pre>
+ * new InputFilter(new ThrottleStage(0.3), new DeadbandStage(0.2, false));
+ * </pre>
+ * The filter keeps its output in one DriveInput that is reused every time,
+ * so filtering doesn't allocate.
+ */
+public class InputFilter {
+  private final InputStage[] stages;
+  private final DriveInput output = new DriveInput();
+
+  /**
+   * Create a filter.
+   * @param stages The stages, in the order they are applied.
+   */
+  public InputFilter(InputStage... stages) {
+    this.stages = stages.clone();
+  }
+
+  /**
+   * Pass raw axes through the filter.
+   * @param x The raw X axis.
+   * @param y The raw Y axis.
+   * @param z The raw Z axis.
+   * @param throttle The raw throttle slider.
+   * @return The filtered input, which is overwritten by the next call.
+   */
+  public DriveInput apply(double x, double y, double z, double throttle) {
+    output.set(x, y, z);
+    output.setThrottle(throttle);
+    for (InputStage stage : stages) {
+      stage.apply(output);
+    }
+    return output;
+  }
+
+  /**
+   * Get the output of the last call to apply().
+   * @return The filtered input.
+   */
+  public DriveInput getOutput() {
+    return output;
+  }
+}
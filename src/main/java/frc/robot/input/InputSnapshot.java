@@ -0,0 +1,111 @@
+package frc.robot.input;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Every axis, button and POV of the joysticks, read all at once. The OI
+ * captures one snapshot at the start of every loop, and everything else
+ * reads from it, so the whole loop sees the joysticks from the same moment
+ * instead of reading them again, possibly from a newer driver station
+ * packet, every time they're used.
+ * <p>
+ * The snapshot is allocated up front and overwritten by every capture, so
+ * capturing doesn't allocate.
+ */
+public class InputSnapshot {
+  /**
+   * The most axes that are kept for each joystick.
+   */
+  public static final int MAX_AXES = 12;
+
+  private final int stickCount;
+  private final double[] axes;
+  private final int[] buttons;
+  private final int[] povs;
+  private double timestamp;
+
+  /**
+   * Create an empty snapshot.
+   * @param stickCount How many joysticks to capture, starting from port 0.
+   */
+  public InputSnapshot(int stickCount) {
+    this.stickCount = stickCount;
+    axes = new double[stickCount * MAX_AXES];
+    buttons = new int[stickCount];
+    povs = new int[stickCount];
+  }
+
+  /**
+   * Read every joystick from the driver station. Axes that a joystick
+   * doesn't have read 0, and a joystick without a POV reads -1.
+   * @param driverStation The driver station.
+   * @param timestamp The time of the capture, in seconds.
+   */
+  public void capture(DriverStation driverStation, double timestamp) {
+    for (int stick = 0; stick < stickCount; stick++) {
+      int axisCount = Math.min(driverStation.getStickAxisCount(stick), MAX_AXES);
+      for (int axis = 0; axis < MAX_AXES; axis++) {
+        axes[(stick * MAX_AXES) + axis] = (axis < axisCount) ? driverStation.getStickAxis(stick, axis) : 0;
+      }
+      buttons[stick] = driverStation.getStickButtons(stick);
+      povs[stick] = (driverStation.getStickPOVCount(stick) > 0) ? driverStation.getStickPOV(stick, 0) : -1;
+    }
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Get an axis.
+   * @param stick The port of the joystick.
+   * @param axis The axis, starting from 0.
+   * @return The position of the axis.
+   */
+  public double getAxis(int stick, int axis) {
+    return axes[(stick * MAX_AXES) + axis];
+  }
+
+  /**
+   * Get a button.
+   * @param stick The port of the joystick.
+   * @param button The button, starting from 1, as they are labeled.
+   * @return Whether or not the button is pressed.
+   */
+  public boolean getButton(int stick, int button) {
+    return (buttons[stick] & (1 << (button - 1))) != 0;
+  }
+
+  /**
+   * Get all the buttons of a joystick.
+   * @param stick The port of the joystick.
+   * @return The buttons as a bit mask, where bit 0 is button 1.
+   */
+  public int getButtons(int stick) {
+    return buttons[stick];
+  }
+
+  /**
+   * Set all the buttons of a joystick, for filling in the snapshot from
+   * readings that were taken somewhere else.
+   * @param stick The port of the joystick.
+   * @param buttons The buttons as a bit mask, where bit 0 is button 1.
+   */
+  public void setButtons(int stick, int buttons) {
+    this.buttons[stick] = buttons;
+  }
+
+  /**
+   * Get the POV of a joystick.
+   * @param stick The port of the joystick.
+   * @return The angle of the POV in degrees, or -1 if it isn't pressed.
+   */
+  public int getPOV(int stick) {
+    return povs[stick];
+  }
+
+  /**
+   * Get when the snapshot was captured.
+   * @return The timestamp, in seconds.
+   */
+  public double getTimestamp() {
+    return timestamp;
+  }
+}
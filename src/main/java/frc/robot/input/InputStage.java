@@ -0,0 +1,13 @@
+package frc.robot.input;
+
+/**
+ * One step of an InputFilter. Stages change the input in place, and run
+ * every loop, so they must not allocate.
+ */
+public interface InputStage {
+  /**
+   * Filter the input.
+   * @param input The input from the previous stage, which this stage changes.
+   */
+  public void apply(DriveInput input);
+}
@@ -0,0 +1,28 @@
+package frc.robot.input;
+
+/**
+ * Scales the axes by the throttle slider. The slider goes from -1 to 1,
+ * which is turned into a scale from the lower bound to 1, so the robot can
+ * never be throttled all the way to a stop. After this stage, the throttle
+ * of the input is the scale that was applied.
+ */
+public class ThrottleStage implements InputStage {
+  private final double lowerBound;
+
+  /**
+   * Create a throttle stage.
+   * @param lowerBound The scale when the slider is all the way down.
+   */
+  public ThrottleStage(double lowerBound) {
+    this.lowerBound = lowerBound;
+  }
+
+  @Override
+  public void apply(DriveInput input) {
+    /* Set the scale to go 0 -> 1, and then from the lower bound -> 1. */
+    double throttle = (0.5d * input.getThrottle()) + 0.5d;
+    double scale = ((1 - lowerBound) * throttle) + lowerBound;
+    input.set(input.getX() * scale, input.getY() * scale, input.getZ() * scale);
+    input.setThrottle(scale);
+  }
+}
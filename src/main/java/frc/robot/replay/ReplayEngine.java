@@ -0,0 +1,178 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+
+import frc.robot.OI;
+import frc.robot.commands.joystick.DriveWithJoystick;
+import frc.robot.input.DriveInput;
+import frc.robot.input.InputFilter;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.swerveio.SimClock;
+import frc.robot.swerveio.SwerveDriveCalculator;
+import frc.robot.swerveio.SwerveModuleRegistry;
+import frc.robot.telemetry.TelemetryReader;
+
+/**
+ * Replays recorded matches through the real drive code, to check whether
+ * a change to the drive code changes what it sends to the modules.
+ * <p>
+ * For every loop in a log where the drive train was driven, the recorded
+ * sensor readings are fed into stand-in modules and the gyro, the recorded
+ * joystick axes are passed through the OI's drive filter and fed into a
+ * DriveWithJoystick command, and the command
+ * drives a real DriveTrain just like it would on the robot. The pivot
+ * references and drive outputs that come out are then compared with the
+ * ones the robot recorded. The clock is a SimClock that is set to the time
+ * of each recorded loop, so nothing depends on the wall clock, and a match
+ * replays as fast as the computer allows.
+ * <p>
+ * On the robot, each loop records the gyro, then the setpoint the limiter
+ * starts from, then every module as it is driven, then the joystick at the
+ * end of the loop, so a loop is replayed when its joystick record is read.
+ * The joystick record is the snapshot the OI read at the start of that
+ * loop, so it is exactly what the command saw. The setpoint limiter is
+ * started from its recorded state every loop, so loops that were dropped
+ * from the log don't throw off the ones after them.
+ */
+public class ReplayEngine {
+  /**
+   * The default tolerance for comparing outputs. Replaying the same code
+   * should give exactly the same outputs, so this only allows for rounding.
+   */
+  public static final double DEFAULT_TOLERANCE = 1e-9;
+
+  private final double tolerance;
+  private final SimClock clock = new SimClock();
+  private final ReplaySwerveModule[] modules = new ReplaySwerveModule[SwerveDriveCalculator.MODULE_COUNT];
+  private final DriveTrain driveTrain;
+  private final ReplayDrive command;
+
+  /* The recorded inputs for the loop being replayed, with the joystick filtered the same way the OI does. */
+  private final InputFilter driveFilter = OI.createDriveFilter();
+  private double joystickX, joystickY, joystickZ;
+  private double gyroYaw;
+
+  /* The setpoint limiter's state as the loop being replayed started, and when it was last moved on, if it was recorded. */
+  private final double[] setpoint = new double[6];
+  private double setpointTime;
+  private boolean recordedSetpoint;
+
+  /* The recorded outputs for the loop being replayed. */
+  private final double[] pivotReference = new double[SwerveDriveCalculator.MODULE_COUNT];
+  private final double[] driveOutput = new double[SwerveDriveCalculator.MODULE_COUNT];
+  private int recordedModules;
+  private double frameTime;
+
+  /**
+   * A DriveWithJoystick that can be run one loop at a time, without the scheduler.
+   */
+  private static class ReplayDrive extends DriveWithJoystick {
+    ReplayDrive(ReplayEngine engine) {
+      super(engine.driveTrain, () -> engine.joystickX, () -> engine.joystickY, () -> engine.joystickZ);
+    }
+
+    void step() {
+      execute();
+    }
+  }
+
+  /**
+   * Create a replay engine with the default tolerance.
+   */
+  public ReplayEngine() {
+    this(DEFAULT_TOLERANCE);
+  }
+
+  /**
+   * Create a replay engine.
+   * @param tolerance How far a replayed output can be from the recorded one and still match.
+   */
+  public ReplayEngine(double tolerance) {
+    this.tolerance = tolerance;
+    for (int i = 0; i < modules.length; i++) {
+      modules[i] = new ReplaySwerveModule();
+    }
+    driveTrain = new DriveTrain(new SwerveModuleRegistry(modules[0], modules[1], modules[2], modules[3]), clock);
+    driveTrain.setGyro(() -> gyroYaw);
+    /* Joystick driving is shaped with the teleop limits, just like on the robot. */
+    driveTrain.setSetpointLimits(DriveTrain.TELEOP_LIMITS);
+    command = new ReplayDrive(this);
+  }
+
+  /**
+   * Replay a log file.
+   * @param log The log file, written by the TelemetryRecorder.
+   * @return How closely the replay matched the log.
+   * @throws IOException If the log can't be read.
+   */
+  public ReplayResult replay(File log) throws IOException {
+    ReplayResult result = new ReplayResult(log.getName(), tolerance);
+    recordedModules = 0;
+    recordedSetpoint = false;
+    try (TelemetryReader reader = new TelemetryReader(log)) {
+      while (reader.next()) {
+        switch (reader.getType()) {
+          case GYRO:
+            gyroYaw = reader.getValue(0);
+            break;
+          case SETPOINT:
+            setpointTime = reader.getTimestamp();
+            for (int i = 0; i < setpoint.length; i++) {
+              setpoint[i] = reader.getValue(i);
+            }
+            recordedSetpoint = true;
+            break;
+          case MODULE:
+            int index = reader.getIndex();
+            if (index < 0 || index >= modules.length) {
+              break;
+            }
+            modules[index].setSensors(reader.getValue(0), reader.getValue(1), reader.getValue(2), reader.getValue(3));
+            pivotReference[index] = reader.getValue(4);
+            driveOutput[index] = reader.getValue(5);
+            recordedModules |= 1 << index;
+            /* The drive train times the loop by when the first module was sampled. */
+            if (index == 0) {
+              frameTime = reader.getTimestamp();
+            }
+            break;
+          case JOYSTICK:
+            DriveInput input = driveFilter.apply(reader.getValue(0), reader.getValue(1), reader.getValue(2), reader.getValue(3));
+            joystickX = input.getX();
+            joystickY = input.getY();
+            joystickZ = input.getZ();
+            /* The joystick is recorded at the end of the loop. Only loops that drove can be compared. */
+            if (recordedModules == (1 << modules.length) - 1) {
+              replayFrame(result);
+            }
+            recordedModules = 0;
+            recordedSetpoint = false;
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Run the drive code for one recorded loop, and compare its outputs.
+   */
+  private void replayFrame(ReplayResult result) {
+    if (frameTime > clock.getAsDouble()) {
+      clock.advance(frameTime - clock.getAsDouble());
+    }
+    driveTrain.periodic();
+    /* Pick the setpoint limiter up where it was on the robot, in case the loops before this one weren't recorded. */
+    if (recordedSetpoint) {
+      driveTrain.resetSetpoint(setpointTime, setpoint[0], setpoint[1], setpoint[2], setpoint[3], setpoint[4], setpoint[5]);
+    }
+    command.step();
+    for (int i = 0; i < modules.length; i++) {
+      result.compare(frameTime, modules[i].getPivotReference() - pivotReference[i], modules[i].getDriveOutput() - driveOutput[i]);
+    }
+    result.addFrame();
+  }
+}
@@ -0,0 +1,58 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Replays telemetry logs through the drive code on the desktop, and prints
+ * how closely each one matched. Run it with "gradle replay -Plogs=..." and
+ * pass it log files, or directories of log files. It exits with a non-zero
+ * status if any log didn't match, so it can be used to check a change.
+ */
+public final class ReplayMain {
+  private ReplayMain() {
+  }
+
+  public static void main(String... args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: ReplayMain <log file or directory>...");
+      System.exit(2);
+    }
+    List<File> logs = new ArrayList<>();
+    for (String arg : args) {
+      File file = new File(arg);
+      if (file.isDirectory()) {
+        File[] files = file.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (files != null) {
+          Arrays.sort(files);
+          logs.addAll(Arrays.asList(files));
+        }
+      } else {
+        logs.add(file);
+      }
+    }
+
+    /* The drive train is a subsystem, which registers with the scheduler, which needs the HAL. */
+    HAL.initialize(500, 0);
+    ReplayEngine engine = new ReplayEngine();
+    int failed = 0;
+    long frames = 0;
+    long start = System.nanoTime();
+    for (File log : logs) {
+      ReplayResult result = engine.replay(log);
+      System.out.println(result);
+      frames += result.getFrames();
+      if (!result.matches()) {
+        failed++;
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("Replayed %d loops from %d logs in %.2f s, %d did not match%n", frames, logs.size(), seconds, failed);
+    System.exit(failed == 0 ? 0 : 1);
+  }
+}
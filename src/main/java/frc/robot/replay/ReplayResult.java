@@ -0,0 +1,118 @@
+package frc.robot.replay;
+
+/**
+ * How closely a replay matched what the robot actually did.
+ */
+public class ReplayResult {
+  private final String name;
+  private final double tolerance;
+
+  private long frames;
+  private long mismatches;
+  private double maxPivotError;
+  private double maxDriveError;
+  private double firstMismatchTime = Double.NaN;
+
+  /**
+   * Create an empty result.
+   * @param name What was replayed, such as the log file name.
+   * @param tolerance How far a replayed output can be from the recorded one and still match.
+   */
+  ReplayResult(String name, double tolerance) {
+    this.name = name;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Compare the outputs of one module in one loop.
+   * @param timestamp When the loop happened, in seconds.
+   * @param pivotError The difference between the replayed and recorded pivot references.
+   * @param driveError The difference between the replayed and recorded drive outputs.
+   */
+  void compare(double timestamp, double pivotError, double driveError) {
+    pivotError = Math.abs(pivotError);
+    driveError = Math.abs(driveError);
+    maxPivotError = Math.max(maxPivotError, pivotError);
+    maxDriveError = Math.max(maxDriveError, driveError);
+    /* A NaN on either side is a mismatch too. */
+    if (!(pivotError <= tolerance && driveError <= tolerance)) {
+      if (mismatches == 0) {
+        firstMismatchTime = timestamp;
+      }
+      mismatches++;
+    }
+  }
+
+  /**
+   * Count a loop that was replayed.
+   */
+  void addFrame() {
+    frames++;
+  }
+
+  /**
+   * Get what was replayed.
+   * @return The name of the replay.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get how many loops were replayed.
+   * @return The number of loops.
+   */
+  public long getFrames() {
+    return frames;
+  }
+
+  /**
+   * Get how many module outputs didn't match what the robot sent.
+   * @return The number of mismatched outputs.
+   */
+  public long getMismatches() {
+    return mismatches;
+  }
+
+  /**
+   * Get whether or not every output matched.
+   * @return Whether or not the replay matched the robot.
+   */
+  public boolean matches() {
+    return mismatches == 0;
+  }
+
+  /**
+   * Get the largest difference between a replayed and recorded pivot reference.
+   * @return The largest pivot reference difference, in encoder counts.
+   */
+  public double getMaxPivotError() {
+    return maxPivotError;
+  }
+
+  /**
+   * Get the largest difference between a replayed and recorded drive output.
+   * @return The largest drive output difference.
+   */
+  public double getMaxDriveError() {
+    return maxDriveError;
+  }
+
+  /**
+   * Get when the first mismatch happened.
+   * @return The timestamp of the first mismatch, in seconds, or NaN if everything matched.
+   */
+  public double getFirstMismatchTime() {
+    return firstMismatchTime;
+  }
+
+  @Override
+  public String toString() {
+    String summary = String.format("%s: %d loops, max pivot error %.3g, max drive error %.3g",
+        name, frames, maxPivotError, maxDriveError);
+    if (matches()) {
+      return summary + ", matched";
+    }
+    return summary + String.format(", %d mismatches starting at %.3f s", mismatches, firstMismatchTime);
+  }
+}
@@ -0,0 +1,165 @@
+package frc.robot.replay;
+
+import frc.robot.swerveio.AbstractSwerveModule;
+
+/**
+ * A stand-in for a swerve module during a replay. Its sensors read
+ * whatever was recorded from the real module, and it remembers the
+ * last outputs it was given so they can be compared against what the
+ * real module was sent.
+ */
+public class ReplaySwerveModule extends AbstractSwerveModule {
+  private double pivotEncoder, driveEncoder;
+  private double pivotSpeed, driveVelocity;
+
+  private double pivotReference, driveOutput;
+
+  /**
+   * Set what the sensors read, from a recorded module state.
+   * @param pivotEncoder The pivot encoder reading.
+   * @param driveEncoder The drive encoder reading.
+   * @param pivotSpeed The pivot motor speed.
+   * @param driveVelocity The measured drive motor velocity, in RPM.
+   */
+  public void setSensors(double pivotEncoder, double driveEncoder, double pivotSpeed, double driveVelocity) {
+    this.pivotEncoder = pivotEncoder;
+    this.driveEncoder = driveEncoder;
+    this.pivotSpeed = pivotSpeed;
+    this.driveVelocity = driveVelocity;
+  }
+
+  /**
+   * Get the last pivot reference this module was given.
+   * @return The pivot reference.
+   */
+  public double getPivotReference() {
+    return pivotReference;
+  }
+
+  /**
+   * Get the last drive output this module was given, either as a speed
+   * or as a reference.
+   * @return The drive output.
+   */
+  public double getDriveOutput() {
+    return driveOutput;
+  }
+
+  @Override
+  public void setPivotMotorSpeed(double speed) {
+  }
+
+  @Override
+  public void setDriveMotorSpeed(double speed) {
+    driveOutput = speed;
+  }
+
+  @Override
+  public double getPivotMotorSpeed() {
+    return pivotSpeed;
+  }
+
+  @Override
+  public double getDriveMotorSpeed() {
+    return driveOutput;
+  }
+
+  @Override
+  public double getDriveMotorVelocity() {
+    return driveVelocity;
+  }
+
+  @Override
+  public double getPivotMotorEncoder() {
+    return pivotEncoder;
+  }
+
+  @Override
+  public double getDriveMotorEncoder() {
+    return driveEncoder;
+  }
+
+  /* The encoders read whatever was recorded, so zeroing them does nothing. */
+  @Override
+  public void zeroPivotEncoder() {
+  }
+
+  @Override
+  public void zeroDriveEncoder() {
+  }
+
+  @Override
+  public void stopPivotMotor() {
+  }
+
+  @Override
+  public void stopDriveMotor() {
+    driveOutput = 0;
+  }
+
+  @Override
+  public void setPivotClosedLoopRampRate(double rate) {
+  }
+
+  @Override
+  public void setPivotOpenLoopRampRate(double rate) {
+  }
+
+  @Override
+  public void setDriveClosedLoopRampRate(double rate) {
+  }
+
+  @Override
+  public void setDriveOpenLoopRampRate(double rate) {
+  }
+
+  @Override
+  public void setDriveReference(double ref) {
+    driveOutput = ref;
+  }
+
+  @Override
+  public void setPivotReference(double ref) {
+    pivotReference = ref;
+  }
+
+  @Override
+  public void setPivotPidP(double gain) {
+  }
+
+  @Override
+  public void setDrivePidP(double gain) {
+  }
+
+  @Override
+  public void setPivotPidI(double gain) {
+  }
+
+  @Override
+  public void setDrivePidI(double gain) {
+  }
+
+  @Override
+  public void setPivotPidD(double gain) {
+  }
+
+  @Override
+  public void setDrivePidD(double gain) {
+  }
+
+  @Override
+  public void setPivotPidIZone(double iZone) {
+  }
+
+  @Override
+  public void setDrivePidIZone(double iZone) {
+  }
+
+  @Override
+  public void setPivotPidFF(double gain) {
+  }
+
+  @Override
+  public void setDrivePidFF(double gain) {
+  }
+}
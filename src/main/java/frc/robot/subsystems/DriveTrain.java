@@ -1,24 +1,36 @@
 package frc.robot.subsystems;
 
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
 import frc.robot.RobotMap;
 import frc.robot.commands.joystick.DriveWithJoystick;
 import frc.robot.swerveio.AbstractSwerveModule;
+import frc.robot.swerveio.ChassisSetpointLimiter;
+import frc.robot.swerveio.DeduplicatingSwerveModule;
 import frc.robot.swerveio.NeoSwerveModule;
+import frc.robot.swerveio.PoseHistory;
+import frc.robot.swerveio.SetpointLimits;
 import frc.robot.swerveio.SwerveDrive;
 import frc.robot.swerveio.SwerveDriveCalculator;
 import frc.robot.swerveio.SwerveImplementationException;
-import frc.robot.swerveio.SwerveModule;
-
-import java.util.HashMap;
+import frc.robot.swerveio.SwerveKinematics;
+import frc.robot.swerveio.SwerveModuleInitializer;
+import frc.robot.swerveio.SwerveModuleOptimizer;
+import frc.robot.swerveio.SwerveModuleRegistry;
+import frc.robot.swerveio.SwerveOdometry;
+import frc.robot.telemetry.LoopStage;
+import frc.robot.telemetry.LoopTimers;
+import frc.robot.telemetry.TelemetryRecorder;
 
 /**
  * The Swerve Drive subsystem.
  * 
- * The decision to have the maps be returned as unmodifiable
- * HashMap is so that members outside of this class cannot directly
- * add or remove items to the map, or change the values. That behavior
- * could lead to unpredictable results, so as a safety mechanism, while
- * the values of the map can be operated on, they cannot be modified.
+ * The modules are kept in an immutable SwerveModuleRegistry so that
+ * members outside of this class cannot directly add, remove or replace
+ * modules. That behavior could lead to unpredictable results, so as a
+ * safety mechanism, while the modules can be operated on, the set of
+ * modules cannot be modified.
  * @author Jordan Bancino
  */
 public class DriveTrain extends SwerveDrive {
@@ -32,19 +44,197 @@ public class DriveTrain extends SwerveDrive {
    */
   public static final double PIVOT_REVOLUTION = 17.90471839904785;
 
-  private static final HashMap<SwerveModule, AbstractSwerveModule> modules = createModuleMap();
-
-  public static HashMap<SwerveModule, AbstractSwerveModule> createModuleMap() {
-    HashMap<SwerveModule, AbstractSwerveModule> moduleMap = new HashMap<>();
-    moduleMap.put(SwerveModule.FRONT_LEFT, new NeoSwerveModule(RobotMap.FRONT_LEFT_DRIVE_MOTOR, RobotMap.FRONT_LEFT_PIVOT_MOTOR));
-    moduleMap.put(SwerveModule.FRONT_RIGHT, new NeoSwerveModule(RobotMap.FRONT_RIGHT_DRIVE_MOTOR, RobotMap.FRONT_RIGHT_PIVOT_MOTOR));
-    moduleMap.put(SwerveModule.REAR_LEFT, new NeoSwerveModule(RobotMap.REAR_LEFT_DRIVE_MOTOR, RobotMap.REAR_LEFT_PIVOT_MOTOR));
-    moduleMap.put(SwerveModule.REAR_RIGHT, new NeoSwerveModule(RobotMap.REAR_RIGHT_DRIVE_MOTOR, RobotMap.REAR_RIGHT_PIVOT_MOTOR));
-    for (var module : moduleMap.values()) {
-      module.zeroDriveEncoder();
-      module.zeroPivotEncoder();
+  /**
+   * The diameter of the wheels, in the same units as the base dimensions (inches).
+   */
+  public static final double WHEEL_DIAMETER = 4;
+
+  /**
+   * How many rotations of the drive motor it takes to turn the wheel once.
+   * Like PIVOT_REVOLUTION, this should be checked against the encoder.
+   */
+  public static final double DRIVE_GEAR_RATIO = 8.31;
+
+  /**
+   * How far the robot travels for each count of the drive encoder, in inches.
+   */
+  public static final double DRIVE_DISTANCE_PER_COUNT = (Math.PI * WHEEL_DIAMETER) / DRIVE_GEAR_RATIO;
+
+  /**
+   * How fast the wheels are driven at full speed, in inches per second. This is
+   * kept below the free speed of the wheels (about 143 inches per second) so that
+   * the velocity loop has room to hold this speed as the battery sags.
+   */
+  public static final double MAX_DRIVE_SPEED = 120;
+
+  /**
+   * The drive motor RPM it takes to drive a wheel at one inch per second.
+   */
+  public static final double DRIVE_RPM_PER_INCH_PER_SECOND = (60 * DRIVE_GEAR_RATIO) / (Math.PI * WHEEL_DIAMETER);
+
+  /**
+   * How many times per second the module sensors and the gyro are sampled
+   * in the background.
+   */
+  public static final double SENSOR_SAMPLE_RATE = 200;
+
+  /**
+   * Open loop speeds written to a module that are within this much of the
+   * last speed sent aren't sent again, to save CAN bus bandwidth. Speeds are
+   * a fraction of full output.
+   */
+  public static final double WRITE_SPEED_EPSILON = 1e-4;
+
+  /**
+   * Pivot references within this many pivot encoder counts of the last one
+   * sent aren't sent again. This is a tenth of a degree.
+   */
+  public static final double WRITE_PIVOT_EPSILON = PIVOT_REVOLUTION / 3600;
+
+  /**
+   * Drive references within this many RPM of the last one sent aren't sent
+   * again. This is a hundredth of an inch per second at the wheel.
+   */
+  public static final double WRITE_DRIVE_EPSILON = DRIVE_RPM_PER_INCH_PER_SECOND / 100;
+
+  /**
+   * How many writes in a row can be suppressed before one is sent anyway.
+   * At 50 loops per second, this resends every output about once a second.
+   */
+  public static final int WRITE_REFRESH_INTERVAL = 50;
+
+  /**
+   * How far back, in seconds, the pose history goes.
+   */
+  public static final double POSE_HISTORY_WINDOW = 1.0;
+
+  /**
+   * How many poses the pose history can hold. This leaves room for a
+   * whole window of poses even if the loop runs faster than 50 times a second.
+   */
+  public static final int POSE_HISTORY_CAPACITY = 128;
+
+  /**
+   * How long each loop is supposed to be, in seconds. The setpoint limiter
+   * moves the setpoint on by however long it has actually been since it
+   * last did, going by the sensor timestamps, so a late loop still gets the
+   * acceleration right, and driving twice in one loop doesn't move it on
+   * twice. The first time the drive train is driven after stopping, it is
+   * moved on by this much.
+   */
+  public static final double LOOP_PERIOD = 0.02;
+
+  /**
+   * The longest the setpoint limiter is moved on by at once, in seconds, so
+   * that a long pause between drives doesn't let the setpoint jump.
+   */
+  public static final double MAX_SETPOINT_PERIOD = 5 * LOOP_PERIOD;
+
+  /**
+   * How fast the setpoint can speed the wheels up or slow them down while
+   * driving with the joystick, in inches per second squared. The wheels
+   * overshoot this by about a quarter while their velocity loops catch up,
+   * which still keeps them under what they can grip the carpet with, about
+   * 420 inches per second squared, so a full stick doesn't break them loose.
+   */
+  public static final double TELEOP_ACCELERATION = 320;
+
+  /**
+   * How fast the acceleration can build while driving with the joystick,
+   * in inches per second cubed. At this rate, the setpoint gets to full
+   * acceleration in about a twentieth of a second.
+   */
+  public static final double TELEOP_JERK = 6000;
+
+  /**
+   * How fast the wheels can speed up or slow down in autonomous, in inches
+   * per second squared. Trajectories are already limited well under this,
+   * so this only catches sudden corrections.
+   */
+  public static final double AUTONOMOUS_ACCELERATION = 360;
+
+  /**
+   * How fast the acceleration can build in autonomous, in inches per second cubed.
+   */
+  public static final double AUTONOMOUS_JERK = 7200;
+
+  /**
+   * The setpoint limits for driving with the joystick. This is what the
+   * drive train starts with.
+   */
+  public static final SetpointLimits TELEOP_LIMITS = wheelLimits(TELEOP_ACCELERATION, TELEOP_JERK);
+
+  /**
+   * The setpoint limits for autonomous.
+   */
+  public static final SetpointLimits AUTONOMOUS_LIMITS = wheelLimits(AUTONOMOUS_ACCELERATION, AUTONOMOUS_JERK);
+
+  /* Reused every loop so that driving doesn't allocate. */
+  private final double[] wheelSpeeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+  private final double[] wheelAngles = new double[SwerveDriveCalculator.MODULE_COUNT];
+  private final SwerveModuleOptimizer optimizer = new SwerveModuleOptimizer(PIVOT_REVOLUTION);
+
+  /* Shapes the setpoint that is passed to drive(), so the wheels never get asked for a step in speed. */
+  private final ChassisSetpointLimiter limiter = new ChassisSetpointLimiter(TELEOP_LIMITS);
+  /* When the limiter last moved the setpoint on, by the sensor clock, or NaN if it starts from a stop. */
+  private double setpointTime = Double.NaN;
+
+  /* Where the robot is on the field. This is updated every loop. */
+  private final SwerveOdometry odometry = new SwerveOdometry(PIVOT_REVOLUTION, DRIVE_DISTANCE_PER_COUNT, SwerveKinematics.rectangle(BASE_WIDTH, BASE_LENGTH));
+
+  /* Where the robot has been recently, for matching up late measurements. */
+  private final PoseHistory poseHistory = new PoseHistory(POSE_HISTORY_CAPACITY, POSE_HISTORY_WINDOW);
+
+  /* If this is set, the module states and the gyro are recorded every loop. */
+  private TelemetryRecorder recorder;
+
+  /**
+   * Create the modules in the robot map. All four modules are created,
+   * configured and zeroed at the same time, and how long each one took, and
+   * anything that couldn't be verified, is printed.
+   * @return The modules.
+   */
+  public static SwerveModuleRegistry createModuleRegistry() {
+    SwerveModuleInitializer<NeoSwerveModule> initializer = new SwerveModuleInitializer<>();
+    initializer.add("Front Left", () -> new NeoSwerveModule(RobotMap.FRONT_LEFT_DRIVE_MOTOR, RobotMap.FRONT_LEFT_PIVOT_MOTOR));
+    initializer.add("Front Right", () -> new NeoSwerveModule(RobotMap.FRONT_RIGHT_DRIVE_MOTOR, RobotMap.FRONT_RIGHT_PIVOT_MOTOR));
+    initializer.add("Rear Left", () -> new NeoSwerveModule(RobotMap.REAR_LEFT_DRIVE_MOTOR, RobotMap.REAR_LEFT_PIVOT_MOTOR));
+    initializer.add("Rear Right", () -> new NeoSwerveModule(RobotMap.REAR_RIGHT_DRIVE_MOTOR, RobotMap.REAR_RIGHT_PIVOT_MOTOR));
+    List<NeoSwerveModule> modules = initializer.initialize();
+    if (initializer.isVerified()) {
+      System.out.println(initializer.report());
+    } else {
+      System.err.println(initializer.report());
     }
-    return moduleMap;
+    return new SwerveModuleRegistry(
+      deduplicate(modules.get(0)),
+      deduplicate(modules.get(1)),
+      deduplicate(modules.get(2)),
+      deduplicate(modules.get(3))
+    );
+  }
+
+  /**
+   * Turn limits on how fast the wheels can change speed into setpoint limits.
+   * Both the translation and the rotation are limited by how fast the wheels
+   * change speed: at full rotation, the wheels on the corners drive at full
+   * speed, just like they do at full translation.
+   * @param acceleration The wheel acceleration limit, in inches per second squared.
+   * @param jerk The wheel jerk limit, in inches per second cubed.
+   * @return The setpoint limits.
+   */
+  private static SetpointLimits wheelLimits(double acceleration, double jerk) {
+    return new SetpointLimits(acceleration / MAX_DRIVE_SPEED, jerk / MAX_DRIVE_SPEED, acceleration / MAX_DRIVE_SPEED,
+        jerk / MAX_DRIVE_SPEED);
+  }
+
+  /**
+   * Only send writes to a module that change its output.
+   * @param module The module.
+   * @return The wrapped module.
+   */
+  private static AbstractSwerveModule deduplicate(AbstractSwerveModule module) {
+    return new DeduplicatingSwerveModule(module, WRITE_SPEED_EPSILON, WRITE_PIVOT_EPSILON, WRITE_DRIVE_EPSILON, WRITE_REFRESH_INTERVAL);
   }
 
   /**
@@ -52,45 +242,202 @@ public class DriveTrain extends SwerveDrive {
    * robot map.
    */
   public DriveTrain() {
+    this(createModuleRegistry());
+  }
+
+  /**
+   * Create the SwerveDrive with the default settings, but with the given
+   * modules instead of the ones in the robot map. This is useful for
+   * driving modules that aren't backed by hardware.
+   * @param modules The modules to drive.
+   */
+  public DriveTrain(SwerveModuleRegistry modules) {
     super(BASE_WIDTH, BASE_LENGTH, modules);
   }
 
+  /**
+   * Create the SwerveDrive with the default settings, but with the given
+   * modules, and a clock other than the FPGA to timestamp sensor readings.
+   * This is useful for replaying or simulating the drive train faster than
+   * real time.
+   * @param modules The modules to drive.
+   * @param clock The clock, which returns the time in seconds.
+   */
+  public DriveTrain(SwerveModuleRegistry modules, DoubleSupplier clock) {
+    super(BASE_WIDTH, BASE_LENGTH, modules, clock);
+  }
+
   @Override
   public void drive(double fwd, double str, double rcw, double gyroAngle) throws SwerveImplementationException {
-    for (SwerveModule module : modules.keySet()) {
-      //SwerveModule module = SwerveModule.FRONT_LEFT;
-        if (module != null) {
-          double speed = calc.getWheelSpeed(module, fwd, str, rcw); /* Use the calculator to calculate wheel speed for this module. */
-          double targetAngle = calc.getWheelAngle(module, fwd, str, rcw, gyroAngle); /* Calculate the pivot angle for this module. */
-          AbstractSwerveModule swerveModule = modules.get(module); /* Fetch the module from the module map so we can manipulate it. */
-
-          /**
-           * Convert the target angle from a degree measure to an encoder reference using the
-           * static method in the swerve drive calculator. This takes the angle measure in degrees
-           * and how many encoder counts it takes to go one full revolution to convert the angle
-           * into an encoder count.
-           */
-          double currentPos = swerveModule.getPivotMotorEncoder();
-          double targetPos = SwerveDriveCalculator.convertFromDegrees(targetAngle, PIVOT_REVOLUTION);
-
-          /* Find the distance between where we currently are and where we want to be. */
-          double distance = (targetPos - (currentPos % PIVOT_REVOLUTION));
-          /**
-           * Find the shortest distance possible to get from the current position to
-           * the target position.
-           */
-          if (distance > (PIVOT_REVOLUTION / 2.0) || distance < - (PIVOT_REVOLUTION / 2.0)) {
-            distance = PIVOT_REVOLUTION - Math.abs(distance);
-          }
-          /* The final reference is just an offset of distance from the current position. */
-          double pivotRef = currentPos + distance;
-
-          /* Pass the pivot reference into the pivot motor of the swerve module. */
-          swerveModule.setPivotReference(pivotRef);
-          /* Set the drive motor speed to the calculated speed. */
-          swerveModule.setDriveMotorSpeed(speed);
-        }
-    } 
+    long start = LoopTimers.start();
+    double now = sensors.getTimestamp(0);
+    if (Double.isNaN(setpointTime)) {
+      setpointTime = now - LOOP_PERIOD;
+    }
+    if (recorder != null) {
+      recorder.recordSetpoint(setpointTime, limiter.getFwd(), limiter.getStr(), limiter.getRcw(),
+          limiter.getFwdAcceleration(), limiter.getStrAcceleration(), limiter.getRcwAcceleration());
+    }
+    /* Move the setpoint towards the one that was asked for, no faster than the limits allow, over the time since it last moved. */
+    limiter.calculate(fwd, str, rcw, Math.min(now - setpointTime, MAX_SETPOINT_PERIOD));
+    setpointTime = now;
+    /* Calculate the speeds and angles for all the modules at once. */
+    calc.getWheelStates(limiter.getFwd(), limiter.getStr(), limiter.getRcw(), gyroAngle, wheelSpeeds, wheelAngles);
+    /* The registry is in the same order as the calculator output. */
+    for (int i = 0; i < modules.size(); i++) {
+      double speed = wheelSpeeds[i]; /* The calculated wheel speed for this module. */
+      double targetAngle = wheelAngles[i]; /* The calculated pivot angle for this module. */
+      AbstractSwerveModule swerveModule = modules.get(i); /* Fetch the module from the registry so we can manipulate it. */
+
+      /*
+       * Find the pivot reference that gets the module to the target angle with the
+       * least amount of turning, which may mean driving the module backwards.
+       */
+      double pivotEncoder = sensors.getPivotMotorEncoder(i);
+      optimizer.optimize(pivotEncoder, targetAngle, speed);
+      double pivotRef = optimizer.getReference();
+
+      /* Pass the pivot reference into the pivot motor of the swerve module. */
+      swerveModule.setPivotReference(pivotRef);
+      /*
+       * Turn the calculated speed into a wheel velocity, and have the drive motor
+       * hold that velocity, so the wheel speed doesn't change with the battery.
+       */
+      double driveRef = optimizer.getSpeed() * MAX_DRIVE_SPEED * DRIVE_RPM_PER_INCH_PER_SECOND;
+      swerveModule.setDriveReference(driveRef);
+
+      if (recorder != null) {
+        recorder.recordModule(i, sensors.getTimestamp(i), pivotEncoder, sensors.getDriveMotorEncoder(i),
+            sensors.getPivotMotorSpeed(i), sensors.getDriveMotorVelocity(i), pivotRef, driveRef);
+      }
+    }
+    LoopTimers.stop(LoopStage.DRIVE, start);
+  }
+
+  /**
+   * Drive at the given velocity, relative to the field. This scales the
+   * velocities to the inputs that drive() takes, so that a wheel driving at
+   * full speed moves at MAX_DRIVE_SPEED.
+   * @param velocityX How fast to drive down the field, in inches per second.
+   * @param velocityY How fast to drive across the field, in inches per second.
+   * @param angularVelocity How fast to turn, in degrees per second.
+   * @param heading The current heading of the robot on the field, in degrees.
+   */
+  public void driveVelocity(double velocityX, double velocityY, double angularVelocity, double heading) {
+    /* At full rotation, the wheels on the corners move at full speed around the center of the robot. */
+    double turningRadius = Math.hypot(calc.getBaseWidth(), calc.getBaseLength()) / 2;
+    double rcw = (Math.toRadians(angularVelocity) * turningRadius) / MAX_DRIVE_SPEED;
+    drive(velocityX / MAX_DRIVE_SPEED, velocityY / MAX_DRIVE_SPEED, rcw, heading);
+  }
+
+  /**
+   * Sample the sensors, then use them to update the odometry. The new pose
+   * is recorded in the pose history at the time the sensors were sampled.
+   */
+  @Override
+  public void periodic() {
+    super.periodic();
+    odometry.update(sensors, sensors.getGyroYaw());
+    poseHistory.add(sensors.getTimestamp(0), odometry.getX(), odometry.getY(), odometry.getHeading());
+    if (recorder != null) {
+      recorder.recordGyro(sensors.getGyroTimestamp(), sensors.getGyroYaw());
+    }
+  }
+
+  /**
+   * Stop all the modules. The setpoint starts again from a stop, since
+   * that is what the robot is doing now.
+   */
+  @Override
+  public void stop() {
+    super.stop();
+    limiter.reset();
+    setpointTime = Double.NaN;
+  }
+
+  /**
+   * Set how fast the setpoint can change. Each mode has its own limits,
+   * TELEOP_LIMITS and AUTONOMOUS_LIMITS, and the setpoint carries on from
+   * where it is when they change.
+   * @param limits The limits, or SetpointLimits.UNLIMITED to drive the
+   * modules with exactly what is passed to drive().
+   */
+  public void setSetpointLimits(SetpointLimits limits) {
+    limiter.setLimits(limits);
+  }
+
+  /**
+   * Get the setpoint limiter, to see what the drive train is actually
+   * being driven with.
+   * @return The setpoint limiter.
+   */
+  public ChassisSetpointLimiter getSetpointLimiter() {
+    return limiter;
+  }
+
+  /**
+   * Pick the setpoint limiter up where a recorded one left off. The
+   * arguments are what the drive train records with each setpoint.
+   * @param timestamp When the limiter last moved the setpoint on, by the sensor clock, in seconds.
+   * @param fwd The forward speed.
+   * @param str The strafe speed.
+   * @param rcw The rotation speed.
+   * @param fwdAcceleration How fast the forward speed is changing, per second.
+   * @param strAcceleration How fast the strafe speed is changing, per second.
+   * @param rcwAcceleration How fast the rotation speed is changing, per second.
+   */
+  public void resetSetpoint(double timestamp, double fwd, double str, double rcw, double fwdAcceleration,
+      double strAcceleration, double rcwAcceleration) {
+    limiter.reset(fwd, str, rcw, fwdAcceleration, strAcceleration, rcwAcceleration);
+    setpointTime = timestamp;
+  }
+
+  /**
+   * Zero all the encoders. The odometry keeps its pose, but starts
+   * counting from the new encoder readings.
+   */
+  @Override
+  public void zero() {
+    super.zero();
+    odometry.resync();
+  }
+
+  /**
+   * Reset all the modules, which stops them. The odometry keeps its pose,
+   * but starts counting from the new encoder readings.
+   */
+  @Override
+  public void reset() {
+    super.reset();
+    limiter.reset();
+    setpointTime = Double.NaN;
+    odometry.resync();
+  }
+
+  /**
+   * Get the odometry, which tracks where the robot is on the field.
+   * @return The drive train odometry.
+   */
+  public SwerveOdometry getOdometry() {
+    return odometry;
+  }
+
+  /**
+   * Get the pose history, which can be used to find where the robot was
+   * when a delayed measurement was taken.
+   * @return The drive train pose history.
+   */
+  public PoseHistory getPoseHistory() {
+    return poseHistory;
+  }
+
+  /**
+   * Record the setpoint and the state of every module each time the drive
+   * train is driven, and the gyro every loop.
+   * @param recorder The recorder to write to, or null to stop recording.
+   */
+  public void setRecorder(TelemetryRecorder recorder) {
+    this.recorder = recorder;
   }
 
   @Override
@@ -7,10 +7,14 @@
 
 package frc.robot.subsystems;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import com.kauailabs.navx.frc.AHRS;
 
 import edu.wpi.first.wpilibj.command.Subsystem;
 import edu.wpi.first.wpilibj.SPI;
+import frc.robot.telemetry.LoopStage;
+import frc.robot.telemetry.LoopTimers;
 
 /**
  * Add your docs here.
@@ -24,12 +28,37 @@ public class Gyro extends Subsystem {
   /* Create the AHRS NavX Gyro */
   private final AHRS navxGyro = new AHRS(SPI.Port.kMXP);
 
+  /*
+   * How long the latest yaw read took, in nanoseconds, or -1 if it has
+   * already been recorded. The yaw is normally read on the sensor sampler
+   * thread, but the loop timers can only be recorded to from the main
+   * thread, so the read time is handed over here and recorded in periodic().
+   * An AtomicLong is used so the time can't be torn on the 32 bit roboRIO.
+   */
+  private final AtomicLong lastYawReadTime = new AtomicLong(-1);
+
   public double getAngle() {
     return navxGyro.getAngle();
   }
 
   public double getYaw() {
-    return navxGyro.getYaw();
+    long start = System.nanoTime();
+    double yaw = navxGyro.getYaw();
+    lastYawReadTime.set(System.nanoTime() - start);
+    return yaw;
+  }
+
+  /**
+   * Record how long the latest yaw read took. This runs on the main thread,
+   * once per loop, so when the yaw is read faster than that, only the
+   * latest read of each loop is timed.
+   */
+  @Override
+  public void periodic() {
+    long readTime = lastYawReadTime.getAndSet(-1);
+    if (readTime >= 0) {
+      LoopTimers.record(LoopStage.GYRO, readTime);
+    }
   }
 
   public void zero() {
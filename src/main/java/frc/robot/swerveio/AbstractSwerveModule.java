@@ -37,6 +37,14 @@ public abstract class AbstractSwerveModule {
      */
     public abstract double getDriveMotorSpeed();
 
+    /**
+     * Get the measured velocity of the drive motor. Unlike the speed, which
+     * is only the output that was set, this is how fast the motor is
+     * actually turning.
+     * @return The velocity of the motor, in RPM, the same unit as drive references.
+     */
+    public abstract double getDriveMotorVelocity();
+
     /**
      * Get an encoder reading from the pivot motor.
      * @return A raw encoder reading.
@@ -95,9 +103,12 @@ public abstract class AbstractSwerveModule {
 
     /**
      * Set the drive motor to the given reference. This should act
-     * as the interface for a closed-loop position control. PID constants
-     * should be placed in the actual implementation of the module.
-     * @param ref The reference to set for closed loop control.
+     * as the interface for a closed-loop velocity control, so that the
+     * wheel holds its speed no matter the battery voltage or the load.
+     * PID constants should be placed in the actual implementation of the
+     * module.
+     * @param ref The reference to set for closed loop control, which is the
+     * drive motor velocity in RPM.
      */
     public abstract void setDriveReference(double ref);
 
@@ -162,6 +173,16 @@ public abstract class AbstractSwerveModule {
     public abstract void setPivotPidFF(double gain);
     public abstract void setDrivePidFF(double gain);
 
+    /**
+     * Get whether the sensor getters of this module can be called from
+     * another thread while the main loop is driving it. A
+     * SwerveSensorSampler only samples modules that say they can.
+     * @return Whether the getters are thread safe. By default, they aren't.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     /**
      * Stop the entire module, this just calls the
      * stop function for each motor.
@@ -0,0 +1,218 @@
+package frc.robot.swerveio;
+
+/**
+ * Shapes the (fwd, str, rcw) setpoint of a swerve drive so that it changes
+ * with limited acceleration and jerk, instead of jumping straight to
+ * whatever the driver asks for. A step in the setpoint asks every drive
+ * motor for a step in speed, which breaks the wheels loose and pulls the
+ * battery down; a shaped setpoint gets the robot up to speed without either.
+ * <p>
+ * The whole (fwd, str, rcw) setpoint is limited as one vector, not one
+ * axis at a time. Translation and rotation each have their own limits,
+ * but every loop the acceleration and the change in acceleration are
+ * scaled down by one common factor, set by whichever limit is tightest.
+ * From a steady setpoint, the acceleration always points from the current
+ * setpoint straight at the target, so a robot that is asked to drive
+ * diagonally while turning keeps that direction and that curvature the
+ * whole way up to speed, instead of reaching full speed on one axis, or
+ * finishing its turn, first.
+ * <p>
+ * The acceleration eases off as the setpoint nears the target, at the rate
+ * the jerk limit allows, so it reaches zero when the setpoint arrives
+ * instead of overshooting.
+ * <p>
+ * Like the SwerveModuleOptimizer, the results of the last call to
+ * calculate() are kept until the next call, so nothing is allocated.
+ */
+public class ChassisSetpointLimiter {
+    private SetpointLimits limits;
+
+    /* The shaped setpoint, and how fast it is changing. */
+    private double fwd, str, rcw;
+    private double fwdRate, strRate, rcwRate;
+
+    /**
+     * Create a limiter, starting from a stop.
+     * @param limits The limits to shape the setpoint with.
+     */
+    public ChassisSetpointLimiter(SetpointLimits limits) {
+        setLimits(limits);
+    }
+
+    /**
+     * Change the limits. The setpoint carries on from where it is, so this
+     * can be called while driving.
+     * @param limits The new limits.
+     */
+    public void setLimits(SetpointLimits limits) {
+        if (limits == null) {
+            throw new IllegalArgumentException("Setpoint limits cannot be null, use SetpointLimits.UNLIMITED instead.");
+        }
+        this.limits = limits;
+    }
+
+    /**
+     * Get the limits the setpoint is being shaped with.
+     * @return The limits.
+     */
+    public SetpointLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Move the setpoint one loop closer to the target. Retrieve the results
+     * with getFwd(), getStr() and getRcw().
+     * @param fwd The target forward speed.
+     * @param str The target strafe speed.
+     * @param rcw The target rotation speed.
+     * @param period How long it has been since the last call, in seconds. If
+     * this isn't positive, as when the setpoint is asked for twice in one
+     * loop, no time has passed, so the setpoint stays where it is.
+     */
+    public void calculate(double fwd, double str, double rcw, double period) {
+        if (!(period > 0)) {
+            return;
+        }
+        final double translationAcceleration = limits.getTranslationAcceleration();
+        final double translationJerk = limits.getTranslationJerk();
+        final double rotationAcceleration = limits.getRotationAcceleration();
+        final double rotationJerk = limits.getRotationJerk();
+
+        double errorFwd = fwd - this.fwd;
+        double errorStr = str - this.str;
+        double errorRcw = rcw - this.rcw;
+        double translationError = Math.hypot(errorFwd, errorStr);
+        double rotationError = Math.abs(errorRcw);
+        /*
+         * Accelerate straight at the target, as the error times a common factor. The factor is no larger than
+         * would get there this loop, than either acceleration limit allows, or than either jerk limit allows the
+         * acceleration to ease off by the time it does.
+         */
+        double scale = 1 / period;
+        if (translationError > 0) {
+            scale = Math.min(scale, Math.min(translationAcceleration, Math.sqrt(2 * translationJerk * translationError)) / translationError);
+        }
+        if (rotationError > 0) {
+            scale = Math.min(scale, Math.min(rotationAcceleration, Math.sqrt(2 * rotationJerk * rotationError)) / rotationError);
+        }
+        double desiredFwd = errorFwd * scale;
+        double desiredStr = errorStr * scale;
+        double desiredRcw = errorRcw * scale;
+
+        /* Move the acceleration towards that, as far as both jerk limits allow, again by a common factor. */
+        double changeFwd = desiredFwd - fwdRate;
+        double changeStr = desiredStr - strRate;
+        double changeRcw = desiredRcw - rcwRate;
+        double translationChange = Math.hypot(changeFwd, changeStr);
+        double rotationChange = Math.abs(changeRcw);
+        double changeScale = 1;
+        if (translationChange > translationJerk * period) {
+            changeScale = (translationJerk * period) / translationChange;
+        }
+        if (rotationChange > rotationJerk * period) {
+            changeScale = Math.min(changeScale, (rotationJerk * period) / rotationChange);
+        }
+        fwdRate += changeFwd * changeScale;
+        strRate += changeStr * changeScale;
+        rcwRate += changeRcw * changeScale;
+
+        /* If this loop's step reaches the target, stop there. */
+        double stepFwd = fwdRate * period;
+        double stepStr = strRate * period;
+        double stepRcw = rcwRate * period;
+        double errorSquared = (errorFwd * errorFwd) + (errorStr * errorStr) + (errorRcw * errorRcw);
+        if (errorSquared == 0 || (stepFwd * errorFwd) + (stepStr * errorStr) + (stepRcw * errorRcw) >= errorSquared) {
+            reset(fwd, str, rcw);
+        } else {
+            this.fwd += stepFwd;
+            this.str += stepStr;
+            this.rcw += stepRcw;
+        }
+    }
+
+    /**
+     * Start again from a stop. Call this whenever the drive train is
+     * stopped without going through the limiter, so that the setpoint
+     * matches what the robot is actually doing.
+     */
+    public void reset() {
+        reset(0, 0, 0);
+    }
+
+    /**
+     * Start again from the given setpoint, with no acceleration.
+     * @param fwd The forward speed.
+     * @param str The strafe speed.
+     * @param rcw The rotation speed.
+     */
+    public void reset(double fwd, double str, double rcw) {
+        reset(fwd, str, rcw, 0, 0, 0);
+    }
+
+    /**
+     * Start again from the given setpoint and acceleration. This is useful
+     * for picking up where a recorded limiter left off.
+     * @param fwd The forward speed.
+     * @param str The strafe speed.
+     * @param rcw The rotation speed.
+     * @param fwdAcceleration How fast the forward speed is changing, per second.
+     * @param strAcceleration How fast the strafe speed is changing, per second.
+     * @param rcwAcceleration How fast the rotation speed is changing, per second.
+     */
+    public void reset(double fwd, double str, double rcw, double fwdAcceleration, double strAcceleration, double rcwAcceleration) {
+        this.fwd = fwd;
+        this.str = str;
+        this.rcw = rcw;
+        this.fwdRate = fwdAcceleration;
+        this.strRate = strAcceleration;
+        this.rcwRate = rcwAcceleration;
+    }
+
+    /**
+     * Get the forward speed from the last call to calculate().
+     * @return The shaped forward speed.
+     */
+    public double getFwd() {
+        return fwd;
+    }
+
+    /**
+     * Get the strafe speed from the last call to calculate().
+     * @return The shaped strafe speed.
+     */
+    public double getStr() {
+        return str;
+    }
+
+    /**
+     * Get the rotation speed from the last call to calculate().
+     * @return The shaped rotation speed.
+     */
+    public double getRcw() {
+        return rcw;
+    }
+
+    /**
+     * Get how fast the forward speed is changing, from the last call to calculate().
+     * @return The forward acceleration, per second.
+     */
+    public double getFwdAcceleration() {
+        return fwdRate;
+    }
+
+    /**
+     * Get how fast the strafe speed is changing, from the last call to calculate().
+     * @return The strafe acceleration, per second.
+     */
+    public double getStrAcceleration() {
+        return strRate;
+    }
+
+    /**
+     * Get how fast the rotation speed is changing, from the last call to calculate().
+     * @return The rotational acceleration, per second.
+     */
+    public double getRcwAcceleration() {
+        return rcwRate;
+    }
+}
@@ -0,0 +1,51 @@
+package frc.robot.swerveio;
+
+/**
+ * The parts of a motor controller that are used to set it up. This is all
+ * the SwerveModuleInitializer needs, so initialization can be run and timed
+ * against a stand-in controller on the desktop, as well as a real one.
+ */
+public interface ConfigurableMotorController {
+    /**
+     * Get the CAN ID of the controller, for reporting.
+     * @return The CAN ID.
+     */
+    public int getDeviceId();
+
+    /**
+     * Set how long calls to the controller wait for it to acknowledge them.
+     * With a timeout of 0, calls are sent without waiting at all, so a batch
+     * of them can be sent back to back and checked afterwards.
+     * @param milliseconds The timeout, in milliseconds.
+     */
+    public void setTimeout(int milliseconds);
+
+    /**
+     * Set a parameter.
+     * @param parameter The parameter to set.
+     * @param value The value to set it to.
+     * @return Whether or not the controller accepted it. A call sent without
+     * waiting is always accepted, so it has to be read back to know for sure.
+     */
+    public boolean setParameter(MotorParameter parameter, double value);
+
+    /**
+     * Read a parameter back from the controller.
+     * @param parameter The parameter to read.
+     * @return The value the controller has.
+     */
+    public double getParameter(MotorParameter parameter);
+
+    /**
+     * Set the position of the encoder.
+     * @param position The new position, in counts.
+     * @return Whether or not the controller accepted it.
+     */
+    public boolean setEncoderPosition(double position);
+
+    /**
+     * Read the position of the encoder.
+     * @return The position, in counts.
+     */
+    public double getEncoderPosition();
+}
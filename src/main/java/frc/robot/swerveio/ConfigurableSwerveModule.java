@@ -0,0 +1,33 @@
+package frc.robot.swerveio;
+
+/**
+ * A swerve module whose motor controllers can be configured by the
+ * SwerveModuleInitializer. The module only has to create its controllers;
+ * the initializer sends them their configurations, checks them, and zeroes
+ * the encoders.
+ */
+public interface ConfigurableSwerveModule {
+    /**
+     * Get the drive motor controller.
+     * @return The drive motor controller.
+     */
+    public ConfigurableMotorController getDriveController();
+
+    /**
+     * Get the pivot motor controller.
+     * @return The pivot motor controller.
+     */
+    public ConfigurableMotorController getPivotController();
+
+    /**
+     * Get the configuration for the drive motor controller.
+     * @return The drive motor configuration.
+     */
+    public MotorConfig getDriveConfig();
+
+    /**
+     * Get the configuration for the pivot motor controller.
+     * @return The pivot motor configuration.
+     */
+    public MotorConfig getPivotConfig();
+}
@@ -0,0 +1,297 @@
+package frc.robot.swerveio;
+
+/**
+ * A swerve module that wraps another module and only passes along output
+ * writes that actually change something. Every write to a real module is
+ * a CAN frame, and when the joystick hasn't moved, the drive train sends
+ * the same speeds and references every loop. This module drops a write
+ * when it is within an epsilon of the last value that was actually sent
+ * to the same motor in the same mode.
+ * <p>
+ * Open loop speeds are fractions of full output for both motors, so they
+ * share one epsilon, but the references are in each motor's own unit, such
+ * as a position for the pivot and a velocity for the drive, so each motor
+ * has its own reference epsilon.
+ * <p>
+ * As a safety net, in case a frame is ever lost, a write is always sent
+ * after a set number of writes in a row have been suppressed. Switching
+ * a motor between open loop and closed loop, stopping it, zeroing its
+ * encoder, or changing its configuration always causes the next write
+ * to be sent.
+ * <p>
+ * Everything other than the output writes is passed straight through.
+ */
+public class DeduplicatingSwerveModule extends AbstractSwerveModule {
+    /* The modes that an output can be written in. */
+    private static final int MODE_NONE = 0;
+    private static final int MODE_SPEED = 1;
+    private static final int MODE_REFERENCE = 2;
+
+    private final AbstractSwerveModule module;
+    private final double speedEpsilon;
+    private final int refreshInterval;
+
+    private final Output pivotOutput;
+    private final Output driveOutput;
+
+    private long sentWrites;
+    private long suppressedWrites;
+
+    /**
+     * Wrap a module so that repeated writes are suppressed.
+     * @param module The module to send writes to.
+     * @param speedEpsilon How close an open loop speed must be to the last one sent to be suppressed.
+     * @param pivotReferenceEpsilon How close a pivot reference must be to the last one sent to be suppressed.
+     * @param driveReferenceEpsilon How close a drive reference must be to the last one sent to be suppressed.
+     * @param refreshInterval How many writes in a row can be suppressed before
+     * one is sent anyway. Set this to 0 to never suppress anything.
+     */
+    public DeduplicatingSwerveModule(AbstractSwerveModule module, double speedEpsilon, double pivotReferenceEpsilon, double driveReferenceEpsilon, int refreshInterval) {
+        if (module == null) {
+            throw new SwerveImplementationException("Cannot deduplicate writes to a null module.");
+        }
+        this.module = module;
+        this.speedEpsilon = speedEpsilon;
+        this.refreshInterval = refreshInterval;
+        this.pivotOutput = new Output(pivotReferenceEpsilon);
+        this.driveOutput = new Output(driveReferenceEpsilon);
+    }
+
+    /**
+     * Get the module that writes are sent to.
+     * @return The wrapped module.
+     */
+    public AbstractSwerveModule getModule() {
+        return module;
+    }
+
+    /**
+     * Get how many writes have been sent to the wrapped module.
+     * @return The number of writes sent.
+     */
+    public long getSentWrites() {
+        return sentWrites;
+    }
+
+    /**
+     * Get how many writes have been suppressed because they didn't
+     * change anything.
+     * @return The number of writes suppressed.
+     */
+    public long getSuppressedWrites() {
+        return suppressedWrites;
+    }
+
+    /**
+     * Decide whether a write should be sent, and record it.
+     * @param output The motor output being written.
+     * @param mode The mode the write is in.
+     * @param value The value being written.
+     * @return Whether or not the write should be sent to the wrapped module.
+     */
+    private boolean shouldSend(Output output, int mode, double value) {
+        double epsilon = (mode == MODE_REFERENCE) ? output.referenceEpsilon : speedEpsilon;
+        if (output.mode == mode && Math.abs(value - output.value) <= epsilon && output.suppressed < refreshInterval) {
+            output.suppressed++;
+            suppressedWrites++;
+            return false;
+        }
+        output.mode = mode;
+        output.value = value;
+        output.suppressed = 0;
+        sentWrites++;
+        return true;
+    }
+
+    @Override
+    public void setPivotMotorSpeed(double speed) {
+        if (shouldSend(pivotOutput, MODE_SPEED, speed)) {
+            module.setPivotMotorSpeed(speed);
+        }
+    }
+
+    @Override
+    public void setDriveMotorSpeed(double speed) {
+        if (shouldSend(driveOutput, MODE_SPEED, speed)) {
+            module.setDriveMotorSpeed(speed);
+        }
+    }
+
+    @Override
+    public void setPivotReference(double ref) {
+        if (shouldSend(pivotOutput, MODE_REFERENCE, ref)) {
+            module.setPivotReference(ref);
+        }
+    }
+
+    @Override
+    public void setDriveReference(double ref) {
+        if (shouldSend(driveOutput, MODE_REFERENCE, ref)) {
+            module.setDriveReference(ref);
+        }
+    }
+
+    @Override
+    public double getPivotMotorSpeed() {
+        return module.getPivotMotorSpeed();
+    }
+
+    @Override
+    public double getDriveMotorSpeed() {
+        return module.getDriveMotorSpeed();
+    }
+
+    @Override
+    public double getDriveMotorVelocity() {
+        return module.getDriveMotorVelocity();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The getters are passed straight through, so this is only thread
+     * safe if the wrapped module is.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return module.isThreadSafe();
+    }
+
+    @Override
+    public double getPivotMotorEncoder() {
+        return module.getPivotMotorEncoder();
+    }
+
+    @Override
+    public double getDriveMotorEncoder() {
+        return module.getDriveMotorEncoder();
+    }
+
+    @Override
+    public void zeroPivotEncoder() {
+        pivotOutput.invalidate();
+        module.zeroPivotEncoder();
+    }
+
+    @Override
+    public void zeroDriveEncoder() {
+        driveOutput.invalidate();
+        module.zeroDriveEncoder();
+    }
+
+    @Override
+    public void stopPivotMotor() {
+        pivotOutput.invalidate();
+        module.stopPivotMotor();
+    }
+
+    @Override
+    public void stopDriveMotor() {
+        driveOutput.invalidate();
+        module.stopDriveMotor();
+    }
+
+    @Override
+    public void setPivotClosedLoopRampRate(double rate) {
+        pivotOutput.invalidate();
+        module.setPivotClosedLoopRampRate(rate);
+    }
+
+    @Override
+    public void setPivotOpenLoopRampRate(double rate) {
+        pivotOutput.invalidate();
+        module.setPivotOpenLoopRampRate(rate);
+    }
+
+    @Override
+    public void setDriveClosedLoopRampRate(double rate) {
+        driveOutput.invalidate();
+        module.setDriveClosedLoopRampRate(rate);
+    }
+
+    @Override
+    public void setDriveOpenLoopRampRate(double rate) {
+        driveOutput.invalidate();
+        module.setDriveOpenLoopRampRate(rate);
+    }
+
+    @Override
+    public void setPivotPidP(double gain) {
+        pivotOutput.invalidate();
+        module.setPivotPidP(gain);
+    }
+
+    @Override
+    public void setDrivePidP(double gain) {
+        driveOutput.invalidate();
+        module.setDrivePidP(gain);
+    }
+
+    @Override
+    public void setPivotPidI(double gain) {
+        pivotOutput.invalidate();
+        module.setPivotPidI(gain);
+    }
+
+    @Override
+    public void setDrivePidI(double gain) {
+        driveOutput.invalidate();
+        module.setDrivePidI(gain);
+    }
+
+    @Override
+    public void setPivotPidD(double gain) {
+        pivotOutput.invalidate();
+        module.setPivotPidD(gain);
+    }
+
+    @Override
+    public void setDrivePidD(double gain) {
+        driveOutput.invalidate();
+        module.setDrivePidD(gain);
+    }
+
+    @Override
+    public void setPivotPidIZone(double iZone) {
+        pivotOutput.invalidate();
+        module.setPivotPidIZone(iZone);
+    }
+
+    @Override
+    public void setDrivePidIZone(double iZone) {
+        driveOutput.invalidate();
+        module.setDrivePidIZone(iZone);
+    }
+
+    @Override
+    public void setPivotPidFF(double gain) {
+        pivotOutput.invalidate();
+        module.setPivotPidFF(gain);
+    }
+
+    @Override
+    public void setDrivePidFF(double gain) {
+        driveOutput.invalidate();
+        module.setDrivePidFF(gain);
+    }
+
+    /**
+     * The last write that was sent to a motor.
+     */
+    private static final class Output {
+        private final double referenceEpsilon;
+        private int mode = MODE_NONE;
+        private double value;
+        private int suppressed;
+
+        private Output(double referenceEpsilon) {
+            this.referenceEpsilon = referenceEpsilon;
+        }
+
+        /**
+         * Forget the last write, so the next one is always sent.
+         */
+        private void invalidate() {
+            mode = MODE_NONE;
+        }
+    }
+}
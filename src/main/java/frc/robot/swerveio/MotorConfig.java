@@ -0,0 +1,74 @@
+package frc.robot.swerveio;
+
+import java.util.Arrays;
+
+/**
+ * The settings to configure a motor controller with. A configuration is
+ * immutable: with() returns a new configuration, so configurations can be
+ * shared as constants. Parameters that aren't set are left alone.
+ */
+public final class MotorConfig {
+    private static final MotorParameter[] PARAMETERS = MotorParameter.values();
+
+    /**
+     * A configuration that doesn't set anything.
+     */
+    public static final MotorConfig EMPTY = new MotorConfig(empty());
+
+    /* Indexed by parameter ordinal, with NaN for parameters that aren't set. */
+    private final double[] values;
+
+    private MotorConfig(double[] values) {
+        this.values = values;
+    }
+
+    private static double[] empty() {
+        double[] values = new double[PARAMETERS.length];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+
+    /**
+     * Get a copy of this configuration with one more parameter set.
+     * @param parameter The parameter to set.
+     * @param value The value to set it to.
+     * @return The new configuration.
+     */
+    public MotorConfig with(MotorParameter parameter, double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot set " + parameter + " to NaN.");
+        }
+        double[] copy = values.clone();
+        copy[parameter.ordinal()] = value;
+        return new MotorConfig(copy);
+    }
+
+    /**
+     * Get whether or not a parameter is set.
+     * @param parameter The parameter.
+     * @return Whether or not the configuration sets it.
+     */
+    public boolean isSet(MotorParameter parameter) {
+        return !Double.isNaN(values[parameter.ordinal()]);
+    }
+
+    /**
+     * Get the value of a parameter.
+     * @param parameter The parameter.
+     * @return The value, or NaN if the configuration doesn't set it.
+     */
+    public double get(MotorParameter parameter) {
+        return values[parameter.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (MotorParameter parameter : PARAMETERS) {
+            if (isSet(parameter)) {
+                builder.append((builder.length() > 1) ? ", " : "").append(parameter).append('=').append(get(parameter));
+            }
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.swerveio;
+
+/**
+ * The settings of a motor controller that are configured when a module is
+ * initialized, and read back afterwards to make sure they took.
+ */
+public enum MotorParameter {
+    /** The proportional gain of the closed loop. */
+    P,
+    /** The integral gain of the closed loop. */
+    I,
+    /** The derivative gain of the closed loop. */
+    D,
+    /** How close to the reference the closed loop has to be before it integrates. */
+    I_ZONE,
+    /** The feed-forward gain of the closed loop. */
+    FF,
+    /** The lowest output of the closed loop. */
+    OUTPUT_MIN,
+    /** The highest output of the closed loop. */
+    OUTPUT_MAX,
+    /** How long the closed loop takes to ramp from no output to full output, in seconds. */
+    CLOSED_LOOP_RAMP_RATE,
+    /** Whether the motor brakes (1) or coasts (0) when it isn't driven. */
+    IDLE_MODE_BRAKE
+}
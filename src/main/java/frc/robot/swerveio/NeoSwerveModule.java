@@ -1,5 +1,6 @@
 package frc.robot.swerveio;
 
+import com.revrobotics.CANEncoder;
 import com.revrobotics.CANPIDController;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.ControlType;
@@ -11,10 +12,58 @@ import com.revrobotics.CANSparkMax.IdleMode;
  * motors and Spark Max motor controllers.
  * @author Jordan Bancino
  */
-public class NeoSwerveModule extends AbstractSwerveModule {
+public class NeoSwerveModule extends AbstractSwerveModule implements ConfigurableSwerveModule {
+    /**
+     * The free speed of a Neo, in RPM.
+     */
+    public static final double FREE_SPEED_RPM = 5676;
+
+    /**
+     * The default drive velocity loop gains. These are in the Spark Max's
+     * units, so the error is in RPM. The feed-forward alone gives the output
+     * that would spin a free Neo at the reference speed on a full battery,
+     * and the rest of the loop makes up for voltage sag and load.
+     */
+    public static final double DRIVE_P = 2e-4;
+    public static final double DRIVE_I = 1e-6;
+    public static final double DRIVE_D = 0;
+    public static final double DRIVE_I_ZONE = 1000;
+    public static final double DRIVE_FF = 1 / FREE_SPEED_RPM;
+
+    /**
+     * The configuration of the drive motor controller.
+     */
+    public static final MotorConfig DRIVE_CONFIG = MotorConfig.EMPTY
+        .with(MotorParameter.P, DRIVE_P)
+        .with(MotorParameter.I, DRIVE_I)
+        .with(MotorParameter.D, DRIVE_D)
+        .with(MotorParameter.I_ZONE, DRIVE_I_ZONE)
+        .with(MotorParameter.FF, DRIVE_FF)
+        .with(MotorParameter.OUTPUT_MIN, -1)
+        .with(MotorParameter.OUTPUT_MAX, 1);
+
+    /**
+     * The configuration of the pivot motor controller. The pivot starts out
+     * coasting, so that the modules can be lined up by hand.
+     */
+    public static final MotorConfig PIVOT_CONFIG = MotorConfig.EMPTY
+        .with(MotorParameter.CLOSED_LOOP_RAMP_RATE, 0.4)
+        .with(MotorParameter.IDLE_MODE_BRAKE, 0)
+        .with(MotorParameter.P, 0.1)
+        .with(MotorParameter.I, 1e-4)
+        .with(MotorParameter.D, 1)
+        .with(MotorParameter.I_ZONE, 0)
+        .with(MotorParameter.FF, 0)
+        .with(MotorParameter.OUTPUT_MIN, -1)
+        .with(MotorParameter.OUTPUT_MAX, 1);
+
+    private final SparkMaxController driveController, pivotController;
+
     private CANSparkMax driveMotor, pivotMotor;
 
-    private CANPIDController pivotPid;
+    private CANPIDController pivotPid, drivePid;
+
+    private CANEncoder driveEncoder;
 
     /**
      * The swerve module is constructed to allow the pivot motor
@@ -26,21 +75,39 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     /**
      * Create a new swerve module composed of Neo brushless
-     * motors, this uses spark max motor controllers.
+     * motors, this uses spark max motor controllers. The controllers
+     * aren't configured here; the SwerveModuleInitializer sends them
+     * DRIVE_CONFIG and PIVOT_CONFIG, so that all the modules can be
+     * configured at once.
      */
     public NeoSwerveModule (int driveCanId, int pivotCanId) {
         driveMotor = new CANSparkMax(driveCanId, MotorType.kBrushless);
         pivotMotor = new CANSparkMax(pivotCanId, MotorType.kBrushless);
-        pivotMotor.setClosedLoopRampRate(0.4);
-        pivotMotor.setIdleMode(IdleMode.kCoast);
+        driveController = new SparkMaxController(driveMotor);
+        pivotController = new SparkMaxController(pivotMotor);
+        drivePid = driveController.getPIDController();
+        driveEncoder = driveController.getEncoder();
+        pivotPid = pivotController.getPIDController();
+    }
+
+    @Override
+    public ConfigurableMotorController getDriveController() {
+        return driveController;
+    }
+
+    @Override
+    public ConfigurableMotorController getPivotController() {
+        return pivotController;
+    }
 
-        pivotPid = pivotMotor.getPIDController();
-        setPivotPidP(0.1);
-        setPivotPidI(1e-4);
-        setPivotPidD(1);
-        setPivotPidIZone(0);
-        setPivotPidFF(0);
-        pivotPid.setOutputRange(-1, 1);
+    @Override
+    public MotorConfig getDriveConfig() {
+        return DRIVE_CONFIG;
+    }
+
+    @Override
+    public MotorConfig getPivotConfig() {
+        return PIVOT_CONFIG;
     }
 
     @Override
@@ -68,6 +135,25 @@ public class NeoSwerveModule extends AbstractSwerveModule {
         return driveMotor.get();
     }
 
+    /**
+     * {@inheritDoc}
+     * This is the velocity measured by the drive motor's encoder.
+     */
+    @Override
+    public double getDriveMotorVelocity() {
+        return driveEncoder.getVelocity();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The getters only read the most recent status frames that the Spark
+     * Maxes sent, which the Spark Max library allows from any thread.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public double getPivotMotorEncoder() {
         return pivotMotor.getEncoder().getPosition();
@@ -75,7 +161,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public double getDriveMotorEncoder() {
-        return driveMotor.getEncoder().getPosition();
+        return driveEncoder.getPosition();
     }
 
     @Override
@@ -85,7 +171,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void zeroDriveEncoder() {
-        driveMotor.getEncoder().setPosition(0);
+        driveEncoder.setPosition(0);
 
     }
 
@@ -104,9 +190,13 @@ public class NeoSwerveModule extends AbstractSwerveModule {
         pivotPid.setReference(ref, ControlType.kPosition);
     }
 
+    /**
+     * {@inheritDoc}
+     * The reference is the drive motor velocity, in RPM.
+     */
     @Override
     public void setDriveReference(double ref) {
-        throw new SwerveImplementationException("setDriveReference() is not implemented for NeoSwerveModule!");
+        drivePid.setReference(ref, ControlType.kVelocity);
     }
 
     @Override
@@ -136,7 +226,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void setDrivePidP(double gain) {
-        throw new SwerveImplementationException("Drive motor PID not implemented!");
+        drivePid.setP(gain);
     }
 
     @Override
@@ -146,7 +236,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void setDrivePidI(double gain) {
-        throw new SwerveImplementationException("Drive motor PID not implemented!");
+        drivePid.setI(gain);
     }
 
     @Override
@@ -156,7 +246,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void setDrivePidD(double gain) {
-        throw new SwerveImplementationException("Drive motor PID not implemented!");
+        drivePid.setD(gain);
     }
 
     @Override
@@ -166,7 +256,7 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void setDrivePidIZone(double iZone) {
-        throw new SwerveImplementationException("Drive motor PID not implemented!");
+        drivePid.setIZone(iZone);
     }
 
     @Override
@@ -176,6 +266,6 @@ public class NeoSwerveModule extends AbstractSwerveModule {
 
     @Override
     public void setDrivePidFF(double gain) {
-        throw new SwerveImplementationException("Drive motor PID not implemented!");
+        drivePid.setFF(gain);
     }
 }
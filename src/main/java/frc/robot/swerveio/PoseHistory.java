@@ -0,0 +1,210 @@
+package frc.robot.swerveio;
+
+/**
+ * Remembers where the robot has been over the last few moments, so that
+ * a measurement that arrives late can be matched up with where the robot
+ * was when the measurement was actually taken, instead of where it is now.
+ * <p>
+ * Poses are kept in a ring buffer of primitive arrays, in the order they
+ * were added. Looking up a past pose is a binary search, and a time that
+ * falls between two poses is interpolated: the position linearly, and the
+ * heading along the shortest way around. Headings can be added unwrapped,
+ * but are looked up from -180 to 180 degrees. The results of the last lookup
+ * are kept until the next one, so neither adding nor looking up a pose
+ * allocates.
+ * <p>
+ * Poses older than the history window are dropped, as are poses that don't
+ * fit in the buffer. The capacity should be large enough to hold a whole
+ * window of poses at the rate they are added.
+ */
+public class PoseHistory {
+    private final double window;
+    private final int capacity;
+
+    private final double[] timestamp;
+    private final double[] x;
+    private final double[] y;
+    private final double[] heading;
+
+    /* The index of the oldest pose, and how many poses there are. */
+    private int start = 0;
+    private int size = 0;
+
+    private double resultX, resultY, resultHeading;
+
+    /**
+     * Create an empty pose history.
+     * @param capacity The most poses that can be kept at once.
+     * @param window How far back, in seconds, to keep poses.
+     */
+    public PoseHistory(int capacity, double window) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pose history capacity must be at least 1, got " + capacity);
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("Pose history window must be positive, got " + window);
+        }
+        this.capacity = capacity;
+        this.window = window;
+        this.timestamp = new double[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.heading = new double[capacity];
+    }
+
+    /**
+     * Add a pose to the history. Poses must be added in the order they were
+     * measured; a pose that isn't newer than the last one is ignored.
+     * @param time When the pose was measured, in seconds.
+     * @param x The X position.
+     * @param y The Y position.
+     * @param heading The heading, in degrees.
+     * @return Whether or not the pose was added.
+     */
+    public boolean add(double time, double x, double y, double heading) {
+        if (size > 0 && time <= timestamp[index(size - 1)]) {
+            return false;
+        }
+        if (size == capacity) {
+            /* The buffer is full, so the oldest pose is overwritten. */
+            start = index(1);
+            size--;
+        }
+        int i = index(size);
+        this.timestamp[i] = time;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.heading[i] = heading;
+        size++;
+
+        /* Drop everything that has fallen out of the window. */
+        while (size > 1 && timestamp[start] < time - window) {
+            start = index(1);
+            size--;
+        }
+        return true;
+    }
+
+    /**
+     * Look up where the robot was at a given time. Retrieve the result with
+     * getX(), getY() and getHeading(). A time before the oldest pose gives the
+     * oldest pose, and a time after the newest pose gives the newest pose.
+     * @param time The time to look up, in seconds.
+     * @return Whether or not the time was within the history. If this is false,
+     * the result is the closest pose there is, or the origin if the history
+     * is empty.
+     */
+    public boolean lookup(double time) {
+        if (size == 0) {
+            setResult(0, 0, 0);
+            return false;
+        }
+        int oldest = start;
+        int newest = index(size - 1);
+        if (time <= timestamp[oldest]) {
+            setResult(x[oldest], y[oldest], heading[oldest]);
+            return time == timestamp[oldest];
+        }
+        if (time >= timestamp[newest]) {
+            setResult(x[newest], y[newest], heading[newest]);
+            return time == timestamp[newest];
+        }
+
+        /* Find the newest pose at or before the time. The one after it is strictly after the time. */
+        int low = 0;
+        int high = size - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (timestamp[index(mid)] <= time) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        int before = index(low);
+        int after = index(high);
+        double t = (time - timestamp[before]) / (timestamp[after] - timestamp[before]);
+        double turn = Math.IEEEremainder(heading[after] - heading[before], 360);
+        setResult(
+            x[before] + ((x[after] - x[before]) * t),
+            y[before] + ((y[after] - y[before]) * t),
+            heading[before] + (turn * t)
+        );
+        return true;
+    }
+
+    /**
+     * Forget every pose.
+     */
+    public void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * Get how many poses are in the history.
+     * @return The number of poses.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the time of the oldest pose in the history.
+     * @return The time, in seconds, or NaN if the history is empty.
+     */
+    public double getOldestTimestamp() {
+        return (size == 0) ? Double.NaN : timestamp[start];
+    }
+
+    /**
+     * Get the time of the newest pose in the history.
+     * @return The time, in seconds, or NaN if the history is empty.
+     */
+    public double getNewestTimestamp() {
+        return (size == 0) ? Double.NaN : timestamp[index(size - 1)];
+    }
+
+    /**
+     * Get the X position from the last lookup.
+     * @return The X position.
+     */
+    public double getX() {
+        return resultX;
+    }
+
+    /**
+     * Get the Y position from the last lookup.
+     * @return The Y position.
+     */
+    public double getY() {
+        return resultY;
+    }
+
+    /**
+     * Get the heading from the last lookup.
+     * @return The heading, in degrees, greater than -180 and up to 180.
+     */
+    public double getHeading() {
+        return resultHeading;
+    }
+
+    /**
+     * Convert a position in the history, counting from the oldest pose,
+     * into an index in the arrays.
+     * @param offset How many poses after the oldest.
+     * @return The array index.
+     */
+    private int index(int offset) {
+        int i = start + offset;
+        return (i >= capacity) ? i - capacity : i;
+    }
+
+    private void setResult(double x, double y, double heading) {
+        this.resultX = x;
+        this.resultY = y;
+        /* The remainder is from -180 to 180, both included, so -180 is moved over to 180. */
+        double wrapped = Math.IEEEremainder(heading, 360);
+        this.resultHeading = (wrapped <= -180) ? wrapped + 360 : wrapped;
+    }
+}
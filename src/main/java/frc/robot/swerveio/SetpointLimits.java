@@ -0,0 +1,81 @@
+package frc.robot.swerveio;
+
+/**
+ * How quickly a ChassisSetpointLimiter lets the chassis setpoint change.
+ * Limits are in the same units as the setpoint: if the setpoint is a
+ * fraction of full speed, an acceleration of 2 reaches full speed from a
+ * stop in half a second. Limits are immutable, so they can be shared as
+ * constants, one set for each mode the robot drives in.
+ */
+public final class SetpointLimits {
+    /**
+     * Limits that don't limit anything, so the setpoint passes straight through.
+     */
+    public static final SetpointLimits UNLIMITED = new SetpointLimits(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+        Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    private final double translationAcceleration;
+    private final double translationJerk;
+    private final double rotationAcceleration;
+    private final double rotationJerk;
+
+    /**
+     * Create a set of limits. Any limit can be Double.POSITIVE_INFINITY to
+     * not limit it at all.
+     * @param translationAcceleration How fast the translation can change, per second.
+     * @param translationJerk How fast the translational acceleration can change, per second.
+     * @param rotationAcceleration How fast the rotation can change, per second.
+     * @param rotationJerk How fast the rotational acceleration can change, per second.
+     */
+    public SetpointLimits(double translationAcceleration, double translationJerk, double rotationAcceleration, double rotationJerk) {
+        this.translationAcceleration = check("translation acceleration", translationAcceleration);
+        this.translationJerk = check("translation jerk", translationJerk);
+        this.rotationAcceleration = check("rotation acceleration", rotationAcceleration);
+        this.rotationJerk = check("rotation jerk", rotationJerk);
+    }
+
+    private static double check(String name, double limit) {
+        if (!(limit > 0)) {
+            throw new IllegalArgumentException("The " + name + " limit must be positive, not " + limit + ".");
+        }
+        return limit;
+    }
+
+    /**
+     * Get the translational acceleration limit.
+     * @return How fast the translation can change, per second.
+     */
+    public double getTranslationAcceleration() {
+        return translationAcceleration;
+    }
+
+    /**
+     * Get the translational jerk limit.
+     * @return How fast the translational acceleration can change, per second.
+     */
+    public double getTranslationJerk() {
+        return translationJerk;
+    }
+
+    /**
+     * Get the rotational acceleration limit.
+     * @return How fast the rotation can change, per second.
+     */
+    public double getRotationAcceleration() {
+        return rotationAcceleration;
+    }
+
+    /**
+     * Get the rotational jerk limit.
+     * @return How fast the rotational acceleration can change, per second.
+     */
+    public double getRotationJerk() {
+        return rotationJerk;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SetpointLimits[translation %s/s, %s/s^2; rotation %s/s, %s/s^2]", translationAcceleration,
+            translationJerk, rotationAcceleration, rotationJerk);
+    }
+}
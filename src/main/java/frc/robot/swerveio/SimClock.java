@@ -0,0 +1,48 @@
+package frc.robot.swerveio;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A clock that only moves when it is told to. Simulated modules read
+ * the time from this instead of the FPGA, so a simulation can be run
+ * as fast as the computer allows, or stepped one loop at a time,
+ * without depending on the wall clock at all.
+ */
+public class SimClock implements DoubleSupplier {
+    private double time;
+
+    /**
+     * Create a clock that starts at zero.
+     */
+    public SimClock() {
+        this(0);
+    }
+
+    /**
+     * Create a clock that starts at the given time.
+     * @param time The starting time, in seconds.
+     */
+    public SimClock(double time) {
+        this.time = time;
+    }
+
+    /**
+     * Move the clock forward.
+     * @param seconds How many seconds to move forward. Must not be negative.
+     */
+    public void advance(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("A clock cannot go backwards: " + seconds);
+        }
+        time += seconds;
+    }
+
+    /**
+     * Get the current time.
+     * @return The current time, in seconds.
+     */
+    @Override
+    public double getAsDouble() {
+        return time;
+    }
+}
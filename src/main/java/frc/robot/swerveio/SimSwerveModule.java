@@ -0,0 +1,400 @@
+package frc.robot.swerveio;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A swerve module implementation that isn't backed by any hardware at all.
+ * Each motor is simulated as a motor controller driving a motor with some
+ * inertia: the applied output is slewed by the ramp rate, and the motor
+ * accelerates towards the speed that output would produce with a first
+ * order lag. Closed loop references are handled by a PID loop that works
+ * like the one in a Spark Max, using the configured P, I, D, IZone and FF.
+ * Like a NeoSwerveModule, pivot references are positions, and drive
+ * references are velocities in RPM.
+ * <p>
+ * The speed a motor reaches for a given output scales with the battery
+ * voltage, which can be lowered with setBatteryVoltage() to see how the
+ * drive code copes with a sagging battery.
+ * <p>
+ * Encoder readings are in motor rotations, just like a Spark Max, so this
+ * module can be dropped in anywhere a NeoSwerveModule is used.
+ * <p>
+ * The simulation is driven entirely by the clock given to the constructor.
+ * Every method first brings the simulation up to the current time, so there
+ * is nothing to call each loop; just advance the clock. Using a SimClock lets
+ * a full drive train run many times faster than real time.
+ * <p>
+ * Since even the getters step the simulation, every method holds the
+ * module's lock, so that a SwerveSensorSampler can sample the module on
+ * its own thread while the main loop drives it.
+ */
+public class SimSwerveModule extends AbstractSwerveModule {
+    /**
+     * The free speed of a Neo, in rotations per second.
+     */
+    public static final double NEO_FREE_SPEED = 5676.0 / 60.0;
+
+    /**
+     * The default time it takes the drive motor to get most of the
+     * way to its target speed, in seconds. This accounts for the mass
+     * of the robot.
+     */
+    public static final double DRIVE_TIME_CONSTANT = 0.15;
+
+    /**
+     * The default time it takes the pivot motor to get most of the
+     * way to its target speed, in seconds.
+     */
+    public static final double PIVOT_TIME_CONSTANT = 0.03;
+
+    /**
+     * How often the simulation is stepped, in seconds. This is also the
+     * rate of the simulated PID loops, which matches a Spark Max.
+     */
+    public static final double STEP = 0.001;
+
+    /**
+     * The battery voltage that the free speeds are given at.
+     */
+    public static final double NOMINAL_VOLTAGE = 12;
+
+    private final DoubleSupplier clock;
+    private final SimMotor driveMotor, pivotMotor;
+
+    /* The time the simulation has been stepped up to. */
+    private double simulatedTime;
+
+    private double batteryVoltage = NOMINAL_VOLTAGE;
+
+    /**
+     * Create a simulated module that uses Neo motors.
+     * @param clock The clock that drives the simulation, which returns the time in seconds.
+     */
+    public SimSwerveModule(DoubleSupplier clock) {
+        this(clock, NEO_FREE_SPEED, DRIVE_TIME_CONSTANT, NEO_FREE_SPEED, PIVOT_TIME_CONSTANT);
+    }
+
+    /**
+     * Create a simulated module with the given motor characteristics.
+     * @param clock The clock that drives the simulation, which returns the time in seconds.
+     * @param driveFreeSpeed The free speed of the drive motor, in rotations per second.
+     * @param driveTimeConstant How long the drive motor takes to respond, in seconds.
+     * @param pivotFreeSpeed The free speed of the pivot motor, in rotations per second.
+     * @param pivotTimeConstant How long the pivot motor takes to respond, in seconds.
+     */
+    public SimSwerveModule(DoubleSupplier clock, double driveFreeSpeed, double driveTimeConstant, double pivotFreeSpeed, double pivotTimeConstant) {
+        this.clock = clock;
+        this.driveMotor = new SimMotor(driveFreeSpeed, driveTimeConstant);
+        this.pivotMotor = new SimMotor(pivotFreeSpeed, pivotTimeConstant);
+        this.simulatedTime = clock.getAsDouble();
+
+        /* Start with the same configuration as a NeoSwerveModule. */
+        setPivotClosedLoopRampRate(0.4);
+        setPivotPidP(0.1);
+        setPivotPidI(1e-4);
+        setPivotPidD(1);
+        setPivotPidIZone(0);
+        setPivotPidFF(0);
+        setDrivePidP(NeoSwerveModule.DRIVE_P);
+        setDrivePidI(NeoSwerveModule.DRIVE_I);
+        setDrivePidD(NeoSwerveModule.DRIVE_D);
+        setDrivePidIZone(NeoSwerveModule.DRIVE_I_ZONE);
+        setDrivePidFF(NeoSwerveModule.DRIVE_FF);
+    }
+
+    /**
+     * Step the simulation up to the current time on the clock. This is
+     * called by every other method, so it doesn't need to be called
+     * manually.
+     */
+    public synchronized void update() {
+        double now = clock.getAsDouble();
+        double voltageScale = batteryVoltage / NOMINAL_VOLTAGE;
+        while (simulatedTime + STEP <= now) {
+            driveMotor.step(STEP, voltageScale);
+            pivotMotor.step(STEP, voltageScale);
+            simulatedTime += STEP;
+        }
+    }
+
+    /**
+     * Set the battery voltage. From now on, the motors only reach the
+     * fraction of their free speed that this is of the nominal voltage.
+     * @param volts The battery voltage.
+     */
+    public synchronized void setBatteryVoltage(double volts) {
+        update();
+        batteryVoltage = volts;
+    }
+
+    /**
+     * {@inheritDoc}
+     * In this simulation, this is the speed of the simulated drive motor.
+     */
+    @Override
+    public synchronized double getDriveMotorVelocity() {
+        update();
+        return driveMotor.velocity * 60;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Get the actual speed of the pivot motor.
+     * @return The speed of the pivot motor, in RPM.
+     */
+    public synchronized double getPivotMotorVelocity() {
+        update();
+        return pivotMotor.velocity * 60;
+    }
+
+    /**
+     * {@inheritDoc}
+     * In this simulation, this is the output currently being applied
+     * to the motor, in either open or closed loop.
+     */
+    @Override
+    public synchronized double getPivotMotorSpeed() {
+        update();
+        return pivotMotor.output;
+    }
+
+    /**
+     * {@inheritDoc}
+     * In this simulation, this is the output currently being applied
+     * to the motor, in either open or closed loop.
+     */
+    @Override
+    public synchronized double getDriveMotorSpeed() {
+        update();
+        return driveMotor.output;
+    }
+
+    @Override
+    public synchronized void setPivotMotorSpeed(double speed) {
+        update();
+        pivotMotor.setOpenLoop(speed);
+    }
+
+    @Override
+    public synchronized void setDriveMotorSpeed(double speed) {
+        update();
+        driveMotor.setOpenLoop(speed);
+    }
+
+    @Override
+    public synchronized double getPivotMotorEncoder() {
+        update();
+        return pivotMotor.position;
+    }
+
+    @Override
+    public synchronized double getDriveMotorEncoder() {
+        update();
+        return driveMotor.position;
+    }
+
+    @Override
+    public synchronized void zeroPivotEncoder() {
+        update();
+        pivotMotor.position = 0;
+    }
+
+    @Override
+    public synchronized void zeroDriveEncoder() {
+        update();
+        driveMotor.position = 0;
+    }
+
+    @Override
+    public synchronized void stopPivotMotor() {
+        update();
+        pivotMotor.stop();
+    }
+
+    @Override
+    public synchronized void stopDriveMotor() {
+        update();
+        driveMotor.stop();
+    }
+
+    @Override
+    public synchronized void setPivotClosedLoopRampRate(double rate) {
+        update();
+        pivotMotor.closedLoopRampRate = rate;
+    }
+
+    @Override
+    public synchronized void setPivotOpenLoopRampRate(double rate) {
+        update();
+        pivotMotor.openLoopRampRate = rate;
+    }
+
+    @Override
+    public synchronized void setDriveClosedLoopRampRate(double rate) {
+        update();
+        driveMotor.closedLoopRampRate = rate;
+    }
+
+    @Override
+    public synchronized void setDriveOpenLoopRampRate(double rate) {
+        update();
+        driveMotor.openLoopRampRate = rate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The reference is the drive motor velocity, in RPM.
+     */
+    @Override
+    public synchronized void setDriveReference(double ref) {
+        update();
+        driveMotor.setReference(ref, true);
+    }
+
+    @Override
+    public synchronized void setPivotReference(double ref) {
+        update();
+        pivotMotor.setReference(ref, false);
+    }
+
+    @Override
+    public synchronized void setPivotPidP(double gain) {
+        pivotMotor.p = gain;
+    }
+
+    @Override
+    public synchronized void setDrivePidP(double gain) {
+        driveMotor.p = gain;
+    }
+
+    @Override
+    public synchronized void setPivotPidI(double gain) {
+        pivotMotor.i = gain;
+    }
+
+    @Override
+    public synchronized void setDrivePidI(double gain) {
+        driveMotor.i = gain;
+    }
+
+    @Override
+    public synchronized void setPivotPidD(double gain) {
+        pivotMotor.d = gain;
+    }
+
+    @Override
+    public synchronized void setDrivePidD(double gain) {
+        driveMotor.d = gain;
+    }
+
+    @Override
+    public synchronized void setPivotPidIZone(double iZone) {
+        pivotMotor.iZone = iZone;
+    }
+
+    @Override
+    public synchronized void setDrivePidIZone(double iZone) {
+        driveMotor.iZone = iZone;
+    }
+
+    @Override
+    public synchronized void setPivotPidFF(double gain) {
+        pivotMotor.ff = gain;
+    }
+
+    @Override
+    public synchronized void setDrivePidFF(double gain) {
+        driveMotor.ff = gain;
+    }
+
+    /**
+     * A simulated motor controller and motor.
+     */
+    private static final class SimMotor {
+        private final double freeSpeed;
+        private final double timeConstant;
+
+        /* When not in closed loop, the setpoint is the requested output. */
+        private boolean closedLoop = false;
+        /* In closed loop, whether the setpoint is a velocity in RPM instead of a position. */
+        private boolean velocityControl = false;
+        private double setpoint;
+
+        private double openLoopRampRate, closedLoopRampRate;
+        private double p, i, d, iZone, ff;
+        private double iAccum, prevError;
+
+        private double output;
+        private double position, velocity;
+
+        private SimMotor(double freeSpeed, double timeConstant) {
+            this.freeSpeed = freeSpeed;
+            this.timeConstant = timeConstant;
+        }
+
+        private void setOpenLoop(double speed) {
+            closedLoop = false;
+            setpoint = speed;
+        }
+
+        private void setReference(double ref, boolean velocity) {
+            if (!closedLoop || velocityControl != velocity) {
+                /* Don't carry over anything from the last time the loop ran. */
+                velocityControl = velocity;
+                iAccum = 0;
+                prevError = ref - measure();
+                closedLoop = true;
+            }
+            setpoint = ref;
+        }
+
+        /**
+         * Get what the closed loop is controlling, in the Spark Max's units.
+         */
+        private double measure() {
+            return velocityControl ? velocity * 60 : position;
+        }
+
+        private void stop() {
+            closedLoop = false;
+            setpoint = 0;
+            output = 0;
+        }
+
+        private void step(double dt, double voltageScale) {
+            double target;
+            double rampRate;
+            if (closedLoop) {
+                double error = setpoint - measure();
+                if (iZone == 0 || Math.abs(error) < iZone) {
+                    iAccum += error;
+                } else {
+                    iAccum = 0;
+                }
+                target = (p * error) + (i * iAccum) + (d * (error - prevError)) + (ff * setpoint);
+                prevError = error;
+                rampRate = closedLoopRampRate;
+            } else {
+                target = setpoint;
+                rampRate = openLoopRampRate;
+            }
+            target = Math.max(-1, Math.min(1, target));
+
+            /* The ramp rate is the time to go from 0 to full output. */
+            if (rampRate > 0) {
+                double maxChange = dt / rampRate;
+                output += Math.max(-maxChange, Math.min(maxChange, target - output));
+            } else {
+                output = target;
+            }
+
+            /* The motor lags behind the speed the output would give it. */
+            velocity += ((output * freeSpeed * voltageScale) - velocity) * (dt / timeConstant);
+            position += velocity * dt;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package frc.robot.swerveio;
+
+import com.revrobotics.CANEncoder;
+import com.revrobotics.CANError;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.IdleMode;
+
+/**
+ * Configures a Spark Max through the ConfigurableMotorController interface.
+ */
+public class SparkMaxController implements ConfigurableMotorController {
+    private final CANSparkMax motor;
+    private final CANPIDController pid;
+    private final CANEncoder encoder;
+
+    /*
+     * The Spark Max sets the output range as a pair, so the half that
+     * isn't being set is kept here instead of being read back first.
+     */
+    private double outputMin = -1, outputMax = 1;
+
+    /**
+     * Wrap a Spark Max.
+     * @param motor The Spark Max.
+     */
+    public SparkMaxController(CANSparkMax motor) {
+        this.motor = motor;
+        pid = motor.getPIDController();
+        encoder = motor.getEncoder();
+    }
+
+    /**
+     * Get the Spark Max.
+     * @return The Spark Max.
+     */
+    public CANSparkMax getMotor() {
+        return motor;
+    }
+
+    /**
+     * Get the Spark Max's closed loop controller.
+     * @return The PID controller.
+     */
+    public CANPIDController getPIDController() {
+        return pid;
+    }
+
+    /**
+     * Get the Spark Max's built in encoder.
+     * @return The encoder.
+     */
+    public CANEncoder getEncoder() {
+        return encoder;
+    }
+
+    @Override
+    public int getDeviceId() {
+        return motor.getDeviceId();
+    }
+
+    @Override
+    public void setTimeout(int milliseconds) {
+        motor.setCANTimeout(milliseconds);
+    }
+
+    @Override
+    public boolean setParameter(MotorParameter parameter, double value) {
+        CANError error;
+        switch (parameter) {
+            case P:
+                error = pid.setP(value);
+                break;
+            case I:
+                error = pid.setI(value);
+                break;
+            case D:
+                error = pid.setD(value);
+                break;
+            case I_ZONE:
+                error = pid.setIZone(value);
+                break;
+            case FF:
+                error = pid.setFF(value);
+                break;
+            case OUTPUT_MIN:
+                outputMin = value;
+                error = pid.setOutputRange(outputMin, outputMax);
+                break;
+            case OUTPUT_MAX:
+                outputMax = value;
+                error = pid.setOutputRange(outputMin, outputMax);
+                break;
+            case CLOSED_LOOP_RAMP_RATE:
+                error = motor.setClosedLoopRampRate(value);
+                break;
+            case IDLE_MODE_BRAKE:
+                error = motor.setIdleMode((value != 0) ? IdleMode.kBrake : IdleMode.kCoast);
+                break;
+            default:
+                throw new SwerveImplementationException("Unknown motor parameter: " + parameter);
+        }
+        return error == CANError.kOk;
+    }
+
+    @Override
+    public double getParameter(MotorParameter parameter) {
+        switch (parameter) {
+            case P:
+                return pid.getP();
+            case I:
+                return pid.getI();
+            case D:
+                return pid.getD();
+            case I_ZONE:
+                return pid.getIZone();
+            case FF:
+                return pid.getFF();
+            case OUTPUT_MIN:
+                return pid.getOutputMin();
+            case OUTPUT_MAX:
+                return pid.getOutputMax();
+            case CLOSED_LOOP_RAMP_RATE:
+                return motor.getClosedLoopRampRate();
+            case IDLE_MODE_BRAKE:
+                return (motor.getIdleMode() == IdleMode.kBrake) ? 1 : 0;
+            default:
+                throw new SwerveImplementationException("Unknown motor parameter: " + parameter);
+        }
+    }
+
+    @Override
+    public boolean setEncoderPosition(double position) {
+        return encoder.setPosition(position) == CANError.kOk;
+    }
+
+    @Override
+    public double getEncoderPosition() {
+        return encoder.getPosition();
+    }
+}
@@ -1,7 +1,9 @@
 package frc.robot.swerveio;
 
 import java.util.HashMap;
+import java.util.function.DoubleSupplier;
 
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.command.Subsystem;
 
 /**
@@ -12,11 +14,12 @@ import edu.wpi.first.wpilibj.command.Subsystem;
  */
 public abstract class SwerveDrive extends Subsystem {
     /**
-     * A module map that contains all the swerve modules in this
+     * A registry that contains all the swerve modules in this
      * swerve drive. For internal use only, this can be used to pull
-     * specific modules, and also iterate over all the modules.
+     * specific modules, and also iterate over all the modules in the
+     * same order as the calculator's output arrays.
      */
-    protected HashMap<SwerveModule, AbstractSwerveModule> moduleMap = new HashMap<SwerveModule, AbstractSwerveModule>();
+    protected final SwerveModuleRegistry modules;
     
     /**
      * A calculator is provided by default so that calculations can be
@@ -25,42 +28,27 @@ public abstract class SwerveDrive extends Subsystem {
      */
     protected SwerveDriveCalculator calc;
 
+    /**
+     * The sensor readings of all the modules, sampled once at the start of
+     * every loop. Read module sensors from here instead of from the modules
+     * directly, so that the hardware is only read once per loop.
+     */
+    protected final SwerveSensorSnapshot sensors;
+
+    /* The gyro yaw, which is sampled along with the modules if it is set. */
+    private DoubleSupplier gyro;
+
+    /* If this is set, the sensors are sampled in the background instead of at the start of the loop. */
+    private SwerveSensorSampler sampler;
+
+    /* The clock that sensor readings are timestamped with, whether the loop or the sampler takes them. */
+    private final DoubleSupplier clock;
+
     /**
      * Create the swerve drive with the base dimensions and the modules.
      */
     public SwerveDrive(double baseWidth, double baseLength, AbstractSwerveModule frontLeftModule, AbstractSwerveModule frontRightModule, AbstractSwerveModule rearLeftModule, AbstractSwerveModule rearRightModule) {
-        StringBuilder nullModule = new StringBuilder("The following modules are null: [");
-        boolean haveNullModule = false;
-        if (frontRightModule == null) {
-            nullModule.append(" FrontRight");
-            haveNullModule = true;
-        }
-        if (frontLeftModule == null) {
-            nullModule.append(" FrontLeft");
-            haveNullModule = true;
-        }
-        if (rearLeftModule == null) {
-            nullModule.append(" RearLeft");
-            haveNullModule = true;
-        }
-        if (rearRightModule == null) {
-            nullModule.append(" RearRight");
-            haveNullModule = true;
-        }
-        if (haveNullModule) {
-            nullModule.append("] Please provide an implemented swerve module for these parameters.");
-            throw new SwerveImplementationException(nullModule.toString());
-        } else {
-            moduleMap.put(SwerveModule.FRONT_LEFT, frontLeftModule);
-            moduleMap.put(SwerveModule.FRONT_RIGHT, frontRightModule);
-            moduleMap.put(SwerveModule.REAR_LEFT, rearLeftModule);
-            moduleMap.put(SwerveModule.REAR_RIGHT, rearRightModule);
-            if (baseWidth <= 0 || baseLength <= 0) {
-                this.calc = new SwerveDriveCalculator();
-            } else {
-                this.calc = new SwerveDriveCalculator(baseWidth, baseLength);
-            }
-        }
+        this(baseWidth, baseLength, new SwerveModuleRegistry(frontLeftModule, frontRightModule, rearLeftModule, rearRightModule));
     }
 
     /**
@@ -71,7 +59,104 @@ public abstract class SwerveDrive extends Subsystem {
      * @param moduleMap A raw module map
      */
     public SwerveDrive(double baseWidth, double baseLength, HashMap<SwerveModule, AbstractSwerveModule> moduleMap) {
-        this(baseWidth, baseLength, moduleMap.get(SwerveModule.FRONT_LEFT), moduleMap.get(SwerveModule.FRONT_RIGHT), moduleMap.get(SwerveModule.REAR_LEFT), moduleMap.get(SwerveModule.REAR_RIGHT));
+        this(baseWidth, baseLength, new SwerveModuleRegistry(moduleMap));
+    }
+
+    /**
+     * Create the swerve drive with the base dimensions and a module registry.
+     * @param baseWidth The width of the base
+     * @param baseLength The length of the base
+     * @param modules The modules that make up this swerve drive.
+     */
+    public SwerveDrive(double baseWidth, double baseLength, SwerveModuleRegistry modules) {
+        this(baseWidth, baseLength, modules, Timer::getFPGATimestamp);
+    }
+
+    /**
+     * Create the swerve drive with the base dimensions, a module registry,
+     * and the clock to timestamp sensor readings with. This is useful for
+     * running the drive against a simulated clock.
+     * @param baseWidth The width of the base
+     * @param baseLength The length of the base
+     * @param modules The modules that make up this swerve drive.
+     * @param clock The clock, which returns the time in seconds.
+     */
+    public SwerveDrive(double baseWidth, double baseLength, SwerveModuleRegistry modules, DoubleSupplier clock) {
+        this.modules = modules;
+        this.clock = clock;
+        this.sensors = new SwerveSensorSnapshot(clock);
+        if (baseWidth <= 0 || baseLength <= 0) {
+            this.calc = new SwerveDriveCalculator();
+        } else {
+            this.calc = new SwerveDriveCalculator(baseWidth, baseLength);
+        }
+    }
+
+    /**
+     * Get the modules that make up this swerve drive.
+     * @return The module registry.
+     */
+    public SwerveModuleRegistry getModules() {
+        return modules;
+    }
+
+    /**
+     * Get the sensor readings of the modules from the start of this loop.
+     * @return The sensor snapshot.
+     */
+    public SwerveSensorSnapshot getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Set the gyro that is sampled along with the modules. The yaw is then
+     * available from the sensor snapshot. This must be set before starting
+     * the sensor sampler.
+     * @param gyro The gyro yaw, in degrees.
+     */
+    public void setGyro(DoubleSupplier gyro) {
+        this.gyro = gyro;
+    }
+
+    /**
+     * Start sampling the module sensors and the gyro on a background thread.
+     * Once this is started, each loop copies the most recent sample into the
+     * sensor snapshot instead of reading the hardware itself.
+     * @param rate How many times per second to sample, between
+     * SwerveSensorSampler.MIN_RATE and SwerveSensorSampler.MAX_RATE.
+     * @throws SwerveImplementationException If any of the modules can't be read from another thread.
+     */
+    public synchronized void startSensorSampler(double rate) {
+        stopSensorSampler();
+        SwerveSensorSampler newSampler = new SwerveSensorSampler(modules, gyro, clock, rate);
+        newSampler.start();
+        sampler = newSampler;
+    }
+
+    /**
+     * Stop sampling in the background, and go back to reading the hardware
+     * at the start of each loop.
+     */
+    public synchronized void stopSensorSampler() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Sample all the module sensors. The scheduler calls this at the start of
+     * every loop, before any commands run, so every command sees the same
+     * readings. Subclasses that override this must call it.
+     */
+    @Override
+    public void periodic() {
+        SwerveSensorSampler currentSampler = sampler;
+        if (currentSampler != null) {
+            currentSampler.read(sensors);
+        } else {
+            sensors.sample(modules, gyro);
+        }
     }
 
     /**
@@ -90,8 +175,8 @@ public abstract class SwerveDrive extends Subsystem {
      * Stop all the modules, stopping this swerve drive.
      */
     public void stop() {
-        for (AbstractSwerveModule module : moduleMap.values()) {
-            module.stop();
+        for (int i = 0; i < modules.size(); i++) {
+            modules.get(i).stop();
         }
     }
 
@@ -99,8 +184,8 @@ public abstract class SwerveDrive extends Subsystem {
      * Zero all the pivot and drive encoders in this swerve drive.
      */
     public void zero() {
-        for (AbstractSwerveModule module : moduleMap.values()) {
-            module.zero();
+        for (int i = 0; i < modules.size(); i++) {
+            modules.get(i).zero();
         }
     }
 
@@ -109,8 +194,8 @@ public abstract class SwerveDrive extends Subsystem {
      * module and resetting all the encoders
      */
     public void reset() {
-        for (AbstractSwerveModule module : moduleMap.values()) {
-            module.reset();
+        for (int i = 0; i < modules.size(); i++) {
+            modules.get(i).reset();
         }
     }
     
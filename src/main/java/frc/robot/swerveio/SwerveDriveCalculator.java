@@ -7,11 +7,45 @@ import java.awt.Rectangle;
  * to obtain wheel angles and speeds. The proofs behind why this works is
  * not documented here, but there is plenty online. It is just a little
  * trigonometry.
+ * <p>
+ * This is the four corner, rectangular base configuration of
+ * SwerveKinematics, which does the actual calculations, and gives exactly
+ * the same results this calculator always has.
  * @author Jordan Bancino
  */
 public class SwerveDriveCalculator {
-    private double baseWidth;
-    private double baseLength;
+    /**
+     * The number of modules on the drive base. Arrays passed to
+     * getWheelStates() must be at least this long.
+     */
+    public static final int MODULE_COUNT = SwerveModule.values().length;
+
+    /**
+     * The base dimensions, and everything derived from them, are kept in an
+     * immutable snapshot that is swapped out as a whole whenever the base
+     * changes. The calculations read this field once and use that snapshot
+     * for the entire calculation, so a calculator can be shared between
+     * threads without a calculation ever seeing a width from one base and a
+     * length from another.
+     */
+    private volatile BaseGeometry geometry;
+
+    /**
+     * A snapshot of the base dimensions. The kinematics for the base, with
+     * a module on each corner, are worked out once here, when the base is
+     * set, instead of on every calculation.
+     */
+    private static final class BaseGeometry {
+        private final double baseWidth;
+        private final double baseLength;
+        private final SwerveKinematics kinematics;
+
+        private BaseGeometry(double baseWidth, double baseLength) {
+            this.baseWidth = baseWidth;
+            this.baseLength = baseLength;
+            this.kinematics = SwerveKinematics.rectangle(baseWidth, baseLength);
+        }
+    }
 
     /**
      * Instantiate a calculator with the given base dimensions. Note 
@@ -49,8 +83,8 @@ public class SwerveDriveCalculator {
      * @param baseWidth The new base width to be used in future
      * calculations.
      */
-    public void setBaseWidth(double baseWidth) {
-        this.baseWidth = baseWidth;
+    public synchronized void setBaseWidth(double baseWidth) {
+        geometry = new BaseGeometry(baseWidth, getBaseLength());
     }
 
     /**
@@ -59,7 +93,7 @@ public class SwerveDriveCalculator {
      * @return The base width.
      */
     public double getBaseWidth() {
-        return baseWidth;
+        return geometry.baseWidth;
     }
 
     /**
@@ -68,8 +102,8 @@ public class SwerveDriveCalculator {
      * @param baseLength The new base length to be used in future
      * calculations.
      */
-    public void setBaseLength(double baseLength) {
-        this.baseLength = baseLength;
+    public synchronized void setBaseLength(double baseLength) {
+        geometry = new BaseGeometry(getBaseWidth(), baseLength);
     }
 
     /**
@@ -78,18 +112,28 @@ public class SwerveDriveCalculator {
      * @return The base length.
      */
     public double getBaseLength() {
-        return baseLength;
+        return geometry.baseLength;
     }
 
     /**
-     * Set the base dimensions. This is a convenience method for
-     * setBaseWidth() and setBaseLength().
+     * Set the base dimensions. Unlike calling setBaseWidth() and
+     * setBaseLength() one after another, both dimensions are updated
+     * at the same time, so no calculation can use just one of them.
      * @param baseWidth The width to set.
      * @param baseLength The length to set.
      */
-    public void setBase(double baseWidth, double baseLength) {
-        setBaseWidth(baseWidth);
-        setBaseLength(baseLength);
+    public synchronized void setBase(double baseWidth, double baseLength) {
+        geometry = new BaseGeometry(baseWidth, baseLength);
+    }
+
+    /**
+     * Get the kinematics for the current base. Setting the base replaces the
+     * kinematics, so the center of rotation goes back to the center of the
+     * robot whenever the base changes.
+     * @return The kinematics, with the modules in the order of the SwerveModule enumeration.
+     */
+    public SwerveKinematics getKinematics() {
+        return geometry.kinematics;
     }
 
     /**
@@ -101,8 +145,7 @@ public class SwerveDriveCalculator {
      * @return The angle (in degrees) that the given wheel should be set to.
      */
     public double getWheelAngle(SwerveModule module, double fwd, double str, double rcw) {
-        double[] tmp = getWheelConstants(module, fwd, str, rcw);
-        return Math.toDegrees(Math.atan2(tmp[0], tmp[1]));
+        return geometry.kinematics.getWheelAngle(module.ordinal(), fwd, str, rcw);
     }
 
     /**
@@ -124,7 +167,11 @@ public class SwerveDriveCalculator {
     }
 
     /**
-     * Get the wheel speed for the given degrees.
+     * Get the wheel speed for the given degrees. A module on its own can't
+     * know how fast the others are going, so a speed over 1 is just capped
+     * at 1. When rotating and translating at the same time, that slows the
+     * outer modules without slowing the inner ones, which changes the
+     * motion, so use getWheelStates() to drive all the modules together.
      * @param module The wheel to get the speed of.
      * @param fwd The Y degree (from an input device)
      * @param str The X degree (from an input device)
@@ -133,51 +180,87 @@ public class SwerveDriveCalculator {
      * to.
      */
     public double getWheelSpeed(SwerveModule module, double fwd, double str, double rcw) {
-        double[] tmp = getWheelConstants(module, fwd, str, rcw);
-        double wheelSpeed = Math.sqrt(Math.pow(tmp[0], 2) + Math.pow(tmp[1], 2));
+        double wheelSpeed = geometry.kinematics.getWheelSpeed(module.ordinal(), fwd, str, rcw);
         return (wheelSpeed > 1f) ? 1f : wheelSpeed;
     }
 
     /**
-     * Wheel constants are generated by using the degrees provided, these aren't really
-     * "constants" exactly since they're caculated depending on the provided degree values,
-     * but there's really no other name for them
-     * @param module The wheel to fetch constants for.
-     * @param fwd The Y degree
-     * @param str The X degree
-     * @param rcw the Z degree
-     * @return An array of floats containing the wheel constants. This array will always be of size
-     * 2.
-     */
-    private double[] getWheelConstants(SwerveModule module, double fwd, double str, double rcw) {
-        /* Calculate the ratio constant */
-        final double R =  Math.sqrt(Math.pow(baseLength, 2) + Math.pow(baseWidth, 2));
-        /* Allocate the array */
-        double tmp[] = new double[2];
-        /*
-         * The exact way these are calculated may seem arbitrary, but reading
-         * up on any swerve guide, or looking at any diagram will show you exactly
-         * how these are calcuated, it's just a little basic trig. 
-         */
-        switch (module) {
-            case FRONT_LEFT:
-                tmp[0] = str + rcw * (baseLength / R);
-                tmp[1] = fwd - rcw * (baseWidth / R);
-                break;
-            case FRONT_RIGHT:
-                tmp[0] = str + rcw * (baseLength / R);
-                tmp[1] = fwd + rcw * (baseWidth / R);
-                break;
-            case REAR_RIGHT:
-                tmp[0] = str - rcw * (baseLength / R);
-                tmp[1] = fwd + rcw * (baseWidth / R);
-                break;
-            case REAR_LEFT:
-                tmp[0] = str - rcw * (baseLength / R);
-                tmp[1] = fwd - rcw * (baseWidth / R);
-                break;
-        }
-        return tmp;
+     * Get the wheel speed for the given degrees. This is the field-centric
+     * method that recalculates the values based on the gyro angle, and is the
+     * counterpart to the field-centric getWheelAngle().
+     * @param module The wheel to get the speed of.
+     * @param fwd The Y degree (from an input device)
+     * @param str The X degree (from an input device)
+     * @param rcw The Z degree (from an input device)
+     * @param gyroAngle The gyro angle (in degrees) measured from the zero position (sraight down field)
+     * @return The speed (scaled -1 to 1) that the wheel given wheel should be set
+     * to.
+     */
+    public double getWheelSpeed(SwerveModule module, double fwd, double str, double rcw, double gyroAngle) {
+        double cosAngle = Math.cos(Math.toRadians(gyroAngle));
+        double sinAngle = Math.sin(Math.toRadians(gyroAngle));
+        double modFwd = fwd * cosAngle + str * sinAngle;
+        double modStr = -fwd * sinAngle + str * cosAngle;
+        return getWheelSpeed(module, modFwd, modStr, rcw);
+    }
+
+    /**
+     * Calculate the speed and angle of every module in one pass. The angles
+     * are exactly the same as calling getWheelAngle() for each module, but
+     * the base is only read once, and nothing is allocated, so it is
+     * suitable for calling every loop.
+     * <p>
+     * The speeds are the same as calling getWheelSpeed() for each module as
+     * long as none of them are over 1. If any are, instead of capping each
+     * one on its own, all of them are scaled down together by the fastest
+     * one, with desaturate(). The robot then moves exactly the way it was
+     * asked to, just as fast as the fastest wheel allows.
+     * @param fwd The Y degree (from an input device)
+     * @param str The X degree (from an input device)
+     * @param rcw The Z degree (from an input device)
+     * @param speeds The array to store the wheel speeds in, indexed by {@code SwerveModule.ordinal()}.
+     * It must be at least {@code MODULE_COUNT} long.
+     * @param angles The array to store the wheel angles in, indexed by {@code SwerveModule.ordinal()}.
+     * It must be at least {@code MODULE_COUNT} long.
+     */
+    public void getWheelStates(double fwd, double str, double rcw, double[] speeds, double[] angles) {
+        geometry.kinematics.calculate(fwd, str, rcw, speeds, angles);
+    }
+
+    /**
+     * Scale the wheel speeds of all the modules down together, so that the
+     * fastest one is at the maximum speed. Since every wheel is slowed by
+     * the same amount, the robot still moves in the same direction and
+     * turns around the same point, just slower. If none of the speeds are
+     * over the maximum, they are left alone.
+     * @param speeds The wheel speeds, indexed by {@code SwerveModule.ordinal()}.
+     * It must be at least {@code MODULE_COUNT} long.
+     * @param maxSpeed The fastest a wheel can be driven.
+     * @return How much the speeds were scaled by, which is 1 if they weren't.
+     */
+    public static double desaturate(double[] speeds, double maxSpeed) {
+        return SwerveKinematics.desaturate(speeds, MODULE_COUNT, maxSpeed);
+    }
+
+    /**
+     * Calculate the speed and angle of every module in one pass. This is the
+     * field-centric method that recalculates the values based on the gyro angle.
+     * The gyro rotation is only calculated once for all the modules.
+     * @param fwd The Y degree (from an input device)
+     * @param str The X degree (from an input device)
+     * @param rcw The Z degree (from an input device)
+     * @param gyroAngle The gyro angle (in degrees) measured from the zero position (sraight down field)
+     * @param speeds The array to store the wheel speeds in, indexed by {@code SwerveModule.ordinal()}.
+     * It must be at least {@code MODULE_COUNT} long.
+     * @param angles The array to store the wheel angles in, indexed by {@code SwerveModule.ordinal()}.
+     * It must be at least {@code MODULE_COUNT} long.
+     */
+    public void getWheelStates(double fwd, double str, double rcw, double gyroAngle, double[] speeds, double[] angles) {
+        double cosAngle = Math.cos(Math.toRadians(gyroAngle));
+        double sinAngle = Math.sin(Math.toRadians(gyroAngle));
+        double modFwd = fwd * cosAngle + str * sinAngle;
+        double modStr = -fwd * sinAngle + str * cosAngle;
+        getWheelStates(modFwd, modStr, rcw, speeds, angles);
     }
 
     /**
@@ -0,0 +1,169 @@
+package frc.robot.swerveio;
+
+/**
+ * Works out how the robot is moving from the speed and angle that each
+ * module measured, which is the reverse of SwerveKinematics.
+ * <p>
+ * With four modules there are eight equations, a forward and a strafe one
+ * for each module, and only three unknowns, so unless every module is
+ * exactly where it should be, they can't all be satisfied. The fwd, str
+ * and rcw that fit the modules best, in the least squares sense, are the
+ * pseudo-inverse of the kinematics matrix times the module vectors. The
+ * pseudo-inverse only depends on where the modules are, so the kinematics
+ * work it out once, and each update is just the modules' sines and cosines
+ * and a 3 by 2n multiply. Nothing is allocated.
+ * <p>
+ * Whatever the best fit can't explain is left over as the residual. When
+ * the modules agree it is close to 0, but a wheel that slips, or a module
+ * with a bad encoder, disagrees with the others and shows up as a large
+ * residual, mostly on that module.
+ * <p>
+ * The motion is always of the center of the robot, wherever the center of
+ * rotation of the kinematics is, and in the same units as the kinematics:
+ * an rcw of 1 turns the furthest module at a speed of 1.
+ */
+public class SwerveForwardKinematics {
+    private final SwerveKinematics kinematics;
+    private final int moduleCount;
+    private final double[] pseudoInverse;
+
+    /* How much each module's forward and strafe speeds change for each unit of rcw, about the center of the robot. */
+    private final double[] fwdPerRcw;
+    private final double[] strPerRcw;
+
+    /* The module vectors from the last update, along the robot's forward and strafe axes. */
+    private final double[] moduleFwd;
+    private final double[] moduleStr;
+    private final double[] moduleResidual;
+
+    private double fwd, str, rcw;
+    private double residual;
+
+    /**
+     * Create forward kinematics for the given module positions.
+     * @param kinematics The kinematics, which give where the modules are.
+     * @throws IllegalArgumentException If the modules are all in one place,
+     * so turning can't be told apart from driving.
+     */
+    public SwerveForwardKinematics(SwerveKinematics kinematics) {
+        if (!kinematics.canEstimate()) {
+            throw new IllegalArgumentException("The motion of the robot can't be estimated unless there are at least two modules in different places.");
+        }
+        this.kinematics = kinematics;
+        this.moduleCount = kinematics.getModuleCount();
+        this.pseudoInverse = kinematics.getPseudoInverse();
+        fwdPerRcw = new double[moduleCount];
+        strPerRcw = new double[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            fwdPerRcw[i] = -kinematics.getModuleY(i) / kinematics.getRadius();
+            strPerRcw[i] = kinematics.getModuleX(i) / kinematics.getRadius();
+        }
+        moduleFwd = new double[moduleCount];
+        moduleStr = new double[moduleCount];
+        moduleResidual = new double[moduleCount];
+    }
+
+    /**
+     * Work out the motion of the robot that best fits what the modules
+     * measured. The speeds can be in any unit, such as a distance for
+     * working out how far the robot moved, as long as they're all the same.
+     * @param speeds The speed of each module, indexed the same as the kinematics.
+     * @param angles The angle of each module, in degrees, from forward towards the positive strafe side.
+     * @return The residual, which is also available from getResidual().
+     */
+    public double update(double[] speeds, double[] angles) {
+        final double[] p = pseudoInverse;
+        final int columns = 2 * moduleCount;
+        double fwd = 0, str = 0, rcw = 0;
+        for (int i = 0; i < moduleCount; i++) {
+            double angle = Math.toRadians(angles[i]);
+            double b = speeds[i] * Math.cos(angle);
+            double a = speeds[i] * Math.sin(angle);
+            moduleFwd[i] = b;
+            moduleStr[i] = a;
+            int column = 2 * i;
+            fwd += (p[column] * b) + (p[column + 1] * a);
+            str += (p[columns + column] * b) + (p[columns + column + 1] * a);
+            rcw += (p[(2 * columns) + column] * b) + (p[(2 * columns) + column + 1] * a);
+        }
+        this.fwd = fwd;
+        this.str = str;
+        this.rcw = rcw;
+
+        /* What each module would have measured if it moved exactly with the robot. */
+        double sumSquares = 0;
+        for (int i = 0; i < moduleCount; i++) {
+            double errorFwd = moduleFwd[i] - (fwd + (rcw * fwdPerRcw[i]));
+            double errorStr = moduleStr[i] - (str + (rcw * strPerRcw[i]));
+            double squared = (errorFwd * errorFwd) + (errorStr * errorStr);
+            moduleResidual[i] = Math.sqrt(squared);
+            sumSquares += squared;
+        }
+        residual = Math.sqrt(sumSquares / moduleCount);
+        return residual;
+    }
+
+    /**
+     * Get the forward speed of the robot from the last update.
+     * @return The forward speed.
+     */
+    public double getFwd() {
+        return fwd;
+    }
+
+    /**
+     * Get the strafe speed of the robot from the last update.
+     * @return The strafe speed.
+     */
+    public double getStr() {
+        return str;
+    }
+
+    /**
+     * Get the rotation speed of the robot from the last update.
+     * @return The rotation speed, where 1 turns the furthest module at a speed of 1.
+     */
+    public double getRcw() {
+        return rcw;
+    }
+
+    /**
+     * Get the rotation speed of the robot from the last update as an angle.
+     * This only makes sense if the speeds were in the same distance unit as
+     * the module positions.
+     * @return The rotation speed, in degrees per unit of time of the speeds.
+     */
+    public double getAngularVelocity() {
+        return Math.toDegrees(rcw / kinematics.getRadius());
+    }
+
+    /**
+     * Get how badly the modules disagreed with each other in the last
+     * update: the root mean square, over the modules, of how far each
+     * module's vector was from the one the best fit gives it. It is in the
+     * same unit as the speeds.
+     * @return The residual.
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    /**
+     * Get how far one module's vector was from the one the best fit gives
+     * it in the last update. The module with the largest residual is the one
+     * most likely to have slipped or be failing.
+     * @param module The index of the module.
+     * @return The residual of the module.
+     */
+    public double getModuleResidual(int module) {
+        return moduleResidual[module];
+    }
+
+    /**
+     * Get the kinematics this estimates the motion for.
+     * @return The kinematics.
+     */
+    public SwerveKinematics getKinematics() {
+        return kinematics;
+    }
+}
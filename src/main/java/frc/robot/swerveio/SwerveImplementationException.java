@@ -11,5 +11,9 @@ public class SwerveImplementationException extends RuntimeException {
         super(msg);
 	}
 
+    public SwerveImplementationException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+
 	private static final long serialVersionUID = 6781810448194629607L;
 }
\ No newline at end of file
@@ -0,0 +1,361 @@
+package frc.robot.swerveio;
+
+/**
+ * Works out the speed and angle of every module for a chassis motion, for
+ * any number of modules in any positions.
+ * <p>
+ * Each module is given by its offset from the center of the robot, with x
+ * towards the front and y towards the positive strafe side, in any units.
+ * When the robot drives at (fwd, str) while turning at rcw around a
+ * center of rotation c, a module at p moves at
+ * <pre>
+ *   fwd - rcw * (p.y - c.y) / r
+ *   str + rcw * (p.x - c.x) / r
+ * </pre>
+ * along the forward and strafe axes, where r is the distance from the
+ * center of the robot to the module furthest from it. So at an rcw of 1,
+ * turning around the center, the furthest module drives at full speed,
+ * just like at a fwd or str of 1.
+ * <p>
+ * That is a matrix with two rows for each module, and since only the rcw
+ * column depends on the modules, just that column is worked out, once,
+ * when the center of rotation is set. Solving for all the modules is then
+ * one loop over primitive arrays. The matrix is immutable and swapped out
+ * as a whole when the center of rotation moves, so a calculation never
+ * sees half of an old center and half of a new one.
+ * <p>
+ * The center of rotation can be moved anywhere, including out to a module,
+ * which makes the robot pivot around that corner. Wheel speeds for a moved
+ * center can be over 1, so calculate() scales them all down together.
+ * <p>
+ * Going the other way, from what the modules measured to how the robot
+ * moved, there are two equations for each module and only three unknowns,
+ * so the modules usually won't agree exactly. The best fit is given by the
+ * pseudo-inverse of the matrix about the center of the robot, which only
+ * depends on where the modules are, so it is worked out once, here, and
+ * used by SwerveForwardKinematics.
+ */
+public class SwerveKinematics {
+    private final int moduleCount;
+    private final double[] moduleX;
+    private final double[] moduleY;
+
+    /* The distance from the center of the robot to the furthest module. */
+    private final double radius;
+
+    /*
+     * The Moore-Penrose pseudo-inverse of the matrix about the center of the
+     * robot. It has a row for each of fwd, str and rcw, and in each row a
+     * forward and a strafe column for each module, stored one row after
+     * another. It is null if the modules are all in one place, since then
+     * there's no telling turning from driving.
+     */
+    private final double[] pseudoInverse;
+
+    private volatile Matrix matrix;
+
+    /**
+     * The rcw column of the kinematics matrix, for one center of rotation.
+     */
+    private static final class Matrix {
+        private final double centerX;
+        private final double centerY;
+        /* How much each module's forward and strafe speeds change for each unit of rcw. */
+        private final double[] fwdPerRcw;
+        private final double[] strPerRcw;
+
+        private Matrix(double[] moduleX, double[] moduleY, double radius, double centerX, double centerY) {
+            this.centerX = centerX;
+            this.centerY = centerY;
+            fwdPerRcw = new double[moduleX.length];
+            strPerRcw = new double[moduleX.length];
+            for (int i = 0; i < moduleX.length; i++) {
+                fwdPerRcw[i] = -(moduleY[i] - centerY) / radius;
+                strPerRcw[i] = (moduleX[i] - centerX) / radius;
+            }
+        }
+    }
+
+    /**
+     * Create the kinematics for modules at the given offsets from the center
+     * of the robot, turning around the center of the robot.
+     * @param moduleX How far forward of the center each module is.
+     * @param moduleY How far to the positive strafe side of the center each module is.
+     * @throws IllegalArgumentException If there are no modules, the arrays
+     * aren't the same length, or every module is at the center.
+     */
+    public SwerveKinematics(double[] moduleX, double[] moduleY) {
+        if (moduleX.length != moduleY.length) {
+            throw new IllegalArgumentException("There are " + moduleX.length + " module x offsets but " + moduleY.length + " y offsets.");
+        }
+        if (moduleX.length == 0) {
+            throw new IllegalArgumentException("There must be at least one module.");
+        }
+        this.moduleCount = moduleX.length;
+        this.moduleX = moduleX.clone();
+        this.moduleY = moduleY.clone();
+        double furthest = 0;
+        for (int i = 0; i < moduleCount; i++) {
+            furthest = Math.max(furthest, Math.sqrt((moduleX[i] * moduleX[i]) + (moduleY[i] * moduleY[i])));
+        }
+        if (!(furthest > 0)) {
+            throw new IllegalArgumentException("The modules can't all be at the center of the robot.");
+        }
+        this.radius = furthest;
+        this.pseudoInverse = pseudoInverse(this.moduleX, this.moduleY, furthest);
+        setCenterOfRotation(0, 0);
+    }
+
+    /*
+     * Work out (A^T A)^-1 A^T, where A has the rows (1, 0, -y / r) and
+     * (0, 1, x / r) for each module. A^T A is only 3 by 3, so it is inverted
+     * by its cofactors.
+     */
+    private static double[] pseudoInverse(double[] moduleX, double[] moduleY, double radius) {
+        int count = moduleX.length;
+        double sumA = 0, sumB = 0, sumSquares = 0;
+        for (int i = 0; i < count; i++) {
+            double a = -moduleY[i] / radius;
+            double b = moduleX[i] / radius;
+            sumA += a;
+            sumB += b;
+            sumSquares += (a * a) + (b * b);
+        }
+        /*
+         * A^T A is [[n, 0, sumA], [0, n, sumB], [sumA, sumB, sumSquares]], and
+         * its determinant is n times this, which is n times the spread of the
+         * modules around their middle, so it is only 0 if they're all in one place.
+         */
+        double spread = (count * sumSquares) - (sumA * sumA) - (sumB * sumB);
+        if (!(spread > 1e-9 * count * sumSquares)) {
+            return null;
+        }
+        double det = count * spread;
+        double i00 = ((count * sumSquares) - (sumB * sumB)) / det;
+        double i01 = (sumA * sumB) / det;
+        double i02 = -(count * sumA) / det;
+        double i11 = ((count * sumSquares) - (sumA * sumA)) / det;
+        double i12 = -(count * sumB) / det;
+        double i22 = ((double) count * count) / det;
+
+        int columns = 2 * count;
+        double[] result = new double[3 * columns];
+        for (int i = 0; i < count; i++) {
+            double a = -moduleY[i] / radius;
+            double b = moduleX[i] / radius;
+            /* The forward column is the inverse times (1, 0, a), the strafe column times (0, 1, b). */
+            result[(2 * i)] = i00 + (i02 * a);
+            result[(2 * i) + 1] = i01 + (i02 * b);
+            result[columns + (2 * i)] = i01 + (i12 * a);
+            result[columns + (2 * i) + 1] = i11 + (i12 * b);
+            result[(2 * columns) + (2 * i)] = i02 + (i22 * a);
+            result[(2 * columns) + (2 * i) + 1] = i12 + (i22 * b);
+        }
+        return result;
+    }
+
+    /**
+     * Create the kinematics for a rectangular base with a module on each
+     * corner, in the order of the SwerveModule enumeration.
+     * @param baseWidth The width of the base, from the left modules to the right modules.
+     * @param baseLength The length of the base, from the front modules to the rear modules.
+     * @return The kinematics.
+     */
+    public static SwerveKinematics rectangle(double baseWidth, double baseLength) {
+        double[] x = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] y = new double[SwerveDriveCalculator.MODULE_COUNT];
+        for (SwerveModule module : SwerveModule.values()) {
+            boolean front = (module == SwerveModule.FRONT_LEFT || module == SwerveModule.FRONT_RIGHT);
+            boolean left = (module == SwerveModule.FRONT_LEFT || module == SwerveModule.REAR_LEFT);
+            x[module.ordinal()] = (front ? baseLength : -baseLength) / 2;
+            y[module.ordinal()] = (left ? baseWidth : -baseWidth) / 2;
+        }
+        return new SwerveKinematics(x, y);
+    }
+
+    /**
+     * Get how many modules there are. Arrays passed to calculate() must be at least this long.
+     * @return The number of modules.
+     */
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * Get how far forward of the center of the robot a module is.
+     * @param module The index of the module.
+     * @return The x offset of the module.
+     */
+    public double getModuleX(int module) {
+        return moduleX[module];
+    }
+
+    /**
+     * Get how far to the positive strafe side of the center of the robot a module is.
+     * @param module The index of the module.
+     * @return The y offset of the module.
+     */
+    public double getModuleY(int module) {
+        return moduleY[module];
+    }
+
+    /**
+     * Get the distance from the center of the robot to the furthest module,
+     * which is the distance that moves at full speed at an rcw of 1.
+     * @return The radius.
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Get whether the motion of the robot can be worked out from the
+     * modules, which needs at least two modules in different places.
+     * @return Whether a SwerveForwardKinematics can be made for these kinematics.
+     */
+    public boolean canEstimate() {
+        return pseudoInverse != null;
+    }
+
+    /*
+     * The pseudo-inverse, for SwerveForwardKinematics. It isn't copied, so
+     * it must not be changed.
+     */
+    double[] getPseudoInverse() {
+        return pseudoInverse;
+    }
+
+    /**
+     * Move the point that the robot turns around. The matrix is worked out
+     * again here, so this shouldn't be called every loop.
+     * @param x How far forward of the center of the robot the center of rotation is.
+     * @param y How far to the positive strafe side of the center of the robot the center of rotation is.
+     */
+    public synchronized void setCenterOfRotation(double x, double y) {
+        matrix = new Matrix(moduleX, moduleY, radius, x, y);
+    }
+
+    /**
+     * Move the point that the robot turns around to one of the modules, so
+     * the robot pivots around that wheel.
+     * @param module The index of the module.
+     */
+    public void setCenterOfRotationToModule(int module) {
+        setCenterOfRotation(moduleX[module], moduleY[module]);
+    }
+
+    /**
+     * Get how far forward of the center of the robot the center of rotation is.
+     * @return The x offset of the center of rotation.
+     */
+    public double getCenterOfRotationX() {
+        return matrix.centerX;
+    }
+
+    /**
+     * Get how far to the positive strafe side of the center of the robot the center of rotation is.
+     * @return The y offset of the center of rotation.
+     */
+    public double getCenterOfRotationY() {
+        return matrix.centerY;
+    }
+
+    /**
+     * Get the speed of one module, without scaling it against the others.
+     * @param module The index of the module.
+     * @param fwd The forward speed of the robot.
+     * @param str The strafe speed of the robot.
+     * @param rcw The rotation speed of the robot.
+     * @return The wheel speed, which may be over 1.
+     */
+    public double getWheelSpeed(int module, double fwd, double str, double rcw) {
+        final Matrix m = matrix;
+        double b = fwd + rcw * m.fwdPerRcw[module];
+        double a = str + rcw * m.strPerRcw[module];
+        return Math.sqrt((a * a) + (b * b));
+    }
+
+    /**
+     * Get the angle of one module.
+     * @param module The index of the module.
+     * @param fwd The forward speed of the robot.
+     * @param str The strafe speed of the robot.
+     * @param rcw The rotation speed of the robot.
+     * @return The angle in degrees, from forward towards the positive strafe side.
+     */
+    public double getWheelAngle(int module, double fwd, double str, double rcw) {
+        final Matrix m = matrix;
+        double b = fwd + rcw * m.fwdPerRcw[module];
+        double a = str + rcw * m.strPerRcw[module];
+        return Math.toDegrees(Math.atan2(a, b));
+    }
+
+    /**
+     * Calculate the speed and angle of every module in one pass. If any
+     * speed is over 1, all of them are scaled down together so the fastest
+     * is at 1, so the robot still moves exactly as asked, just slower.
+     * Nothing is allocated, so this is suitable for calling every loop.
+     * @param fwd The forward speed of the robot.
+     * @param str The strafe speed of the robot.
+     * @param rcw The rotation speed of the robot.
+     * @param speeds The array to store the wheel speeds in, indexed by module. It must be at least getModuleCount() long.
+     * @param angles The array to store the wheel angles in, in degrees, indexed by module. It must be at least getModuleCount() long.
+     */
+    public void calculate(double fwd, double str, double rcw, double[] speeds, double[] angles) {
+        final Matrix m = matrix;
+        final double[] fwdPerRcw = m.fwdPerRcw;
+        final double[] strPerRcw = m.strPerRcw;
+        for (int i = 0; i < moduleCount; i++) {
+            double b = fwd + rcw * fwdPerRcw[i];
+            double a = str + rcw * strPerRcw[i];
+            speeds[i] = Math.sqrt((a * a) + (b * b));
+            angles[i] = Math.toDegrees(Math.atan2(a, b));
+        }
+        desaturate(speeds, moduleCount, 1);
+    }
+
+    /**
+     * Calculate the speed and angle of every module in one pass, relative to
+     * the field instead of the robot. The gyro rotation is only calculated
+     * once for all the modules.
+     * @param fwd The speed of the robot down the field.
+     * @param str The speed of the robot across the field.
+     * @param rcw The rotation speed of the robot.
+     * @param gyroAngle The gyro angle (in degrees) measured from the zero position (straight down field)
+     * @param speeds The array to store the wheel speeds in, indexed by module. It must be at least getModuleCount() long.
+     * @param angles The array to store the wheel angles in, in degrees, indexed by module. It must be at least getModuleCount() long.
+     */
+    public void calculate(double fwd, double str, double rcw, double gyroAngle, double[] speeds, double[] angles) {
+        double cosAngle = Math.cos(Math.toRadians(gyroAngle));
+        double sinAngle = Math.sin(Math.toRadians(gyroAngle));
+        double modFwd = fwd * cosAngle + str * sinAngle;
+        double modStr = -fwd * sinAngle + str * cosAngle;
+        calculate(modFwd, modStr, rcw, speeds, angles);
+    }
+
+    /**
+     * Scale the wheel speeds of all the modules down together, so that the
+     * fastest one is at the maximum speed. Since every wheel is slowed by
+     * the same amount, the robot still moves in the same direction and
+     * turns around the same point, just slower. If none of the speeds are
+     * over the maximum, they are left alone.
+     * @param speeds The wheel speeds, indexed by module.
+     * @param count How many modules there are.
+     * @param maxSpeed The fastest a wheel can be driven.
+     * @return How much the speeds were scaled by, which is 1 if they weren't.
+     */
+    public static double desaturate(double[] speeds, int count, double maxSpeed) {
+        double fastest = 0;
+        for (int i = 0; i < count; i++) {
+            fastest = Math.max(fastest, Math.abs(speeds[i]));
+        }
+        if (fastest <= maxSpeed) {
+            return 1;
+        }
+        double scale = maxSpeed / fastest;
+        for (int i = 0; i < count; i++) {
+            speeds[i] *= scale;
+        }
+        return scale;
+    }
+}
@@ -0,0 +1,275 @@
+package frc.robot.swerveio;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Creates and sets up swerve modules, all at once instead of one after
+ * another.
+ * <p>
+ * Each module is set up on its own thread. The module is created, both
+ * encoders are zeroed, and then each of its motor controllers is sent its
+ * configuration as one batch, without waiting for each call to be
+ * acknowledged. Once the batch is sent, every parameter is read back and
+ * checked, and any that didn't take are sent again, this time waiting for
+ * them. Finally, the initializer waits for both encoders to read zero.
+ * <p>
+ * How long each module took, and anything that couldn't be verified, is kept
+ * for the report. Modules that can't be verified are still returned, since a
+ * robot that drives a little worse is better than one that doesn't drive.
+ * @param <T> The type of module.
+ */
+public class SwerveModuleInitializer<T extends ConfigurableSwerveModule> {
+    /**
+     * How long calls that wait for the controller wait, in milliseconds. This
+     * is the Spark Max's default.
+     */
+    public static final int DEFAULT_TIMEOUT = 20;
+
+    /**
+     * How close a parameter has to read back to what was sent, relative to
+     * its value. Controllers store parameters as floats, so they won't come
+     * back exactly.
+     */
+    public static final double VERIFY_TOLERANCE = 1e-6;
+
+    /**
+     * How close to zero an encoder has to read once it is zeroed, in counts.
+     */
+    public static final double ENCODER_ZERO_TOLERANCE = 0.01;
+
+    /**
+     * How long to wait for the encoders to read zero after zeroing them, in
+     * seconds. Encoder positions are sent back periodically, so the first
+     * reading after zeroing may be from before it.
+     */
+    public static final double ENCODER_ZERO_TIMEOUT = 0.1;
+
+    /* How long to wait between encoder readings while waiting for one to read zero. */
+    private static final long ENCODER_POLL_MILLIS = 1;
+
+    private static final MotorParameter[] PARAMETERS = MotorParameter.values();
+
+    private final boolean parallel;
+    private final boolean batched;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<Supplier<T>> factories = new ArrayList<>();
+
+    private double[] initTimes = new double[0];
+    private List<List<String>> failures = new ArrayList<>();
+    private double totalTime;
+
+    /**
+     * Create an initializer that sets up modules in parallel, and batches
+     * their configurations.
+     */
+    public SwerveModuleInitializer() {
+        this(true, true);
+    }
+
+    /**
+     * Create an initializer.
+     * @param parallel Whether or not to set up all the modules at once. If not,
+     * they are set up one at a time.
+     * @param batched Whether or not to send configurations without waiting for
+     * each call. If not, every call waits for the controller.
+     */
+    public SwerveModuleInitializer(boolean parallel, boolean batched) {
+        this.parallel = parallel;
+        this.batched = batched;
+    }
+
+    /**
+     * Add a module to set up.
+     * @param name The name of the module, for the report.
+     * @param factory Creates the module and its motor controllers. This is
+     * called on the module's own thread.
+     */
+    public void add(String name, Supplier<T> factory) {
+        names.add(name);
+        factories.add(factory);
+    }
+
+    /**
+     * Create and set up every module that was added, and wait for them all
+     * to finish.
+     * @return The modules, in the order they were added.
+     * @throws SwerveImplementationException If a module couldn't be created.
+     */
+    public List<T> initialize() {
+        int count = factories.size();
+        initTimes = new double[count];
+        failures = new ArrayList<>(Collections.nCopies(count, Collections.<String>emptyList()));
+        List<T> modules = new ArrayList<>(count);
+        long start = System.nanoTime();
+        if (parallel) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(count, 1), runnable -> {
+                Thread thread = new Thread(runnable, "Swerve module initializer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                List<Future<T>> futures = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int index = i;
+                    futures.add(executor.submit(() -> initializeModule(index)));
+                }
+                for (int i = 0; i < count; i++) {
+                    try {
+                        modules.add(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        throw new SwerveImplementationException("Unable to initialize the " + names.get(i) + " module.", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SwerveImplementationException("Interrupted while initializing the swerve modules.", e);
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                modules.add(initializeModule(i));
+            }
+        }
+        totalTime = (System.nanoTime() - start) / 1e9;
+        return modules;
+    }
+
+    /* Create, configure and zero one module, timing how long it takes. */
+    private T initializeModule(int index) {
+        long start = System.nanoTime();
+        T module = factories.get(index).get();
+        List<String> failed = new ArrayList<>();
+        /* Zero the encoders first, so the new positions are on their way back while the controllers are configured. */
+        module.getDriveController().setEncoderPosition(0);
+        module.getPivotController().setEncoderPosition(0);
+        configure("drive", module.getDriveController(), module.getDriveConfig(), failed);
+        configure("pivot", module.getPivotController(), module.getPivotConfig(), failed);
+        long deadline = System.nanoTime() + (long) (ENCODER_ZERO_TIMEOUT * 1e9);
+        verifyZero("drive", module.getDriveController(), deadline, failed);
+        verifyZero("pivot", module.getPivotController(), deadline, failed);
+        /* Each thread only writes its own slot, and reading them waits for the thread. */
+        initTimes[index] = (System.nanoTime() - start) / 1e9;
+        failures.set(index, failed);
+        return module;
+    }
+
+    /* Send a configuration to a controller, read it back, and send again anything that didn't take. */
+    private void configure(String motor, ConfigurableMotorController controller, MotorConfig config, List<String> failed) {
+        if (batched) {
+            controller.setTimeout(0);
+        }
+        for (MotorParameter parameter : PARAMETERS) {
+            if (config.isSet(parameter)) {
+                controller.setParameter(parameter, config.get(parameter));
+            }
+        }
+        if (batched) {
+            controller.setTimeout(DEFAULT_TIMEOUT);
+        }
+        for (MotorParameter parameter : PARAMETERS) {
+            if (!config.isSet(parameter)) {
+                continue;
+            }
+            double expected = config.get(parameter);
+            double actual = controller.getParameter(parameter);
+            if (!matches(actual, expected)) {
+                controller.setParameter(parameter, expected);
+                actual = controller.getParameter(parameter);
+                if (!matches(actual, expected)) {
+                    failed.add(String.format("%s motor (CAN %d) %s: sent %s, read back %s", motor,
+                        controller.getDeviceId(), parameter, expected, actual));
+                }
+            }
+        }
+    }
+
+    private static boolean matches(double actual, double expected) {
+        return Math.abs(actual - expected) <= VERIFY_TOLERANCE * Math.abs(expected) + 1e-12;
+    }
+
+    /* Wait for a zeroed encoder to read zero. */
+    private void verifyZero(String motor, ConfigurableMotorController controller, long deadline, List<String> failed) {
+        double position;
+        while (Math.abs(position = controller.getEncoderPosition()) > ENCODER_ZERO_TOLERANCE) {
+            if (System.nanoTime() > deadline) {
+                failed.add(String.format("%s motor (CAN %d) encoder: zeroed, still reads %s", motor,
+                    controller.getDeviceId(), position));
+                return;
+            }
+            try {
+                Thread.sleep(ENCODER_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get whether or not every module's configuration was verified, and every
+     * encoder read zero, in the last call to initialize().
+     * @return Whether or not there were no failures.
+     */
+    public boolean isVerified() {
+        for (List<String> failed : failures) {
+            if (!failed.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get how long a module took to set up.
+     * @param index The index of the module, in the order they were added.
+     * @return The time, in seconds.
+     */
+    public double getInitTime(int index) {
+        return initTimes[index];
+    }
+
+    /**
+     * Get how long all the modules took to set up, together.
+     * @return The time, in seconds.
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Get what couldn't be verified for a module.
+     * @param index The index of the module, in the order they were added.
+     * @return A description of each failure, which is empty if there were none.
+     */
+    public List<String> getFailures(int index) {
+        return Collections.unmodifiableList(failures.get(index));
+    }
+
+    /**
+     * Describe how long each module took to set up, and anything that
+     * couldn't be verified.
+     * @return The report.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format("Swerve modules initialized in %.1f ms (%s, %s):",
+            totalTime * 1e3, parallel ? "parallel" : "serial", batched ? "batched" : "unbatched"));
+        for (int i = 0; i < initTimes.length; i++) {
+            List<String> failed = failures.get(i);
+            report.append(String.format("%n  %s: %.1f ms, %s", names.get(i), initTimes[i] * 1e3,
+                failed.isEmpty() ? "verified" : failed.size() + " failed"));
+            for (String failure : failed) {
+                report.append(String.format("%n    %s", failure));
+            }
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package frc.robot.swerveio;
+
+/**
+ * Finds the fastest way for a module to reach the angle and speed that
+ * the calculator asks for. A module pointing in one direction and driving
+ * backwards is doing the same thing as a module pointing the opposite way
+ * and driving forwards, so a module never has to turn more than a quarter
+ * of a revolution: if the target is further away than that, the module
+ * turns to the opposite angle instead, and the drive speed is inverted.
+ * <p>
+ * The pivot encoder is treated as continuous. The reference is always an
+ * offset from where the module currently is, so it doesn't matter how many
+ * times the module has turned, or whether the encoder reading is negative.
+ * <p>
+ * An optimizer can be reused for every module. The results of the last
+ * call to optimize() are kept until the next call, so nothing is allocated.
+ */
+public class SwerveModuleOptimizer {
+    private final double countsPerRevolution;
+
+    private double reference;
+    private double speed;
+
+    /**
+     * Create an optimizer for modules with the given pivot encoder resolution.
+     * @param countsPerRevolution How many pivot encoder counts are in one revolution of the module.
+     */
+    public SwerveModuleOptimizer(double countsPerRevolution) {
+        this.countsPerRevolution = countsPerRevolution;
+    }
+
+    /**
+     * Find the pivot reference and drive speed that get the module to the given
+     * state with the least amount of turning. Retrieve the results with
+     * getReference() and getSpeed().
+     * @param currentPosition The current pivot encoder reading.
+     * @param targetAngle The angle (in degrees) that the module should be pointing.
+     * @param targetSpeed The speed that the module should drive at in that direction.
+     */
+    public void optimize(double currentPosition, double targetAngle, double targetSpeed) {
+        double currentAngle = SwerveDriveCalculator.convertToDegrees(currentPosition, countsPerRevolution);
+        /* The shortest turn to the target angle, between -180 and 180 degrees. */
+        double delta = Math.IEEEremainder(targetAngle - currentAngle, 360);
+        /* If that is more than a quarter turn, turn to the opposite angle and drive backwards. */
+        if (delta > 90) {
+            delta -= 180;
+            targetSpeed = -targetSpeed;
+        } else if (delta < -90) {
+            delta += 180;
+            targetSpeed = -targetSpeed;
+        }
+        reference = currentPosition + SwerveDriveCalculator.convertFromDegrees(delta, countsPerRevolution);
+        speed = targetSpeed;
+    }
+
+    /**
+     * Get the pivot reference from the last call to optimize().
+     * @return The pivot encoder position the module should be set to.
+     */
+    public double getReference() {
+        return reference;
+    }
+
+    /**
+     * Get the drive speed from the last call to optimize().
+     * @return The speed the drive motor should be set to. This is negative
+     * if the module is driving backwards.
+     */
+    public double getSpeed() {
+        return speed;
+    }
+}
@@ -0,0 +1,103 @@
+package frc.robot.swerveio;
+
+import java.util.Map;
+
+/**
+ * An immutable set of the modules that make up a swerve drive. Modules
+ * are stored in an array indexed by {@code SwerveModule.ordinal()}, so
+ * looking one up is just an array access, and iterating over them by
+ * index always goes in the same order as the arrays filled in by
+ * {@code SwerveDriveCalculator.getWheelStates()}. That is, the module
+ * at index {@code i} in this registry is driven by element {@code i}
+ * of the calculator's output.
+ */
+public final class SwerveModuleRegistry {
+    /* Cached so that looking up a module type doesn't copy the values() array. */
+    private static final SwerveModule[] MODULES = SwerveModule.values();
+
+    private final AbstractSwerveModule[] modules = new AbstractSwerveModule[MODULES.length];
+
+    /**
+     * Create a registry with the given modules. Every module must be
+     * provided.
+     * @param frontLeftModule The front left module.
+     * @param frontRightModule The front right module.
+     * @param rearLeftModule The rear left module.
+     * @param rearRightModule The rear right module.
+     * @throws SwerveImplementationException If any of the modules are null.
+     */
+    public SwerveModuleRegistry(AbstractSwerveModule frontLeftModule, AbstractSwerveModule frontRightModule, AbstractSwerveModule rearLeftModule, AbstractSwerveModule rearRightModule) {
+        StringBuilder nullModule = new StringBuilder("The following modules are null: [");
+        boolean haveNullModule = false;
+        if (frontRightModule == null) {
+            nullModule.append(" FrontRight");
+            haveNullModule = true;
+        }
+        if (frontLeftModule == null) {
+            nullModule.append(" FrontLeft");
+            haveNullModule = true;
+        }
+        if (rearLeftModule == null) {
+            nullModule.append(" RearLeft");
+            haveNullModule = true;
+        }
+        if (rearRightModule == null) {
+            nullModule.append(" RearRight");
+            haveNullModule = true;
+        }
+        if (haveNullModule) {
+            nullModule.append("] Please provide an implemented swerve module for these parameters.");
+            throw new SwerveImplementationException(nullModule.toString());
+        }
+        modules[SwerveModule.FRONT_LEFT.ordinal()] = frontLeftModule;
+        modules[SwerveModule.FRONT_RIGHT.ordinal()] = frontRightModule;
+        modules[SwerveModule.REAR_LEFT.ordinal()] = rearLeftModule;
+        modules[SwerveModule.REAR_RIGHT.ordinal()] = rearRightModule;
+    }
+
+    /**
+     * A compatibility constructor that creates a registry from a raw module map.
+     * The map is copied, so changing it afterwards has no effect on this registry.
+     * @param moduleMap A raw module map.
+     * @throws SwerveImplementationException If the map is missing any of the modules.
+     */
+    public SwerveModuleRegistry(Map<SwerveModule, AbstractSwerveModule> moduleMap) {
+        this(moduleMap.get(SwerveModule.FRONT_LEFT), moduleMap.get(SwerveModule.FRONT_RIGHT), moduleMap.get(SwerveModule.REAR_LEFT), moduleMap.get(SwerveModule.REAR_RIGHT));
+    }
+
+    /**
+     * Get the implementation of the given module.
+     * @param module The module to fetch.
+     * @return The swerve module implementation.
+     */
+    public AbstractSwerveModule get(SwerveModule module) {
+        return modules[module.ordinal()];
+    }
+
+    /**
+     * Get the implementation of the module at the given index.
+     * @param index The index of the module, which is its {@code SwerveModule.ordinal()}.
+     * @return The swerve module implementation.
+     */
+    public AbstractSwerveModule get(int index) {
+        return modules[index];
+    }
+
+    /**
+     * Get the module type that is stored at the given index.
+     * @param index The index of the module.
+     * @return The module stored at that index.
+     */
+    public static SwerveModule getModule(int index) {
+        return MODULES[index];
+    }
+
+    /**
+     * Get how many modules are in this registry. This is always
+     * the same as {@code SwerveDriveCalculator.MODULE_COUNT}.
+     * @return The number of modules.
+     */
+    public int size() {
+        return modules.length;
+    }
+}
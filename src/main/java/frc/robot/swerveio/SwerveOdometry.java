@@ -0,0 +1,175 @@
+package frc.robot.swerveio;
+
+/**
+ * Keeps track of where the robot is on the field by adding up how far
+ * each module has driven, and in which direction, every loop.
+ * <p>
+ * Each module's drive encoder delta is turned into a distance, and its
+ * pivot encoder into an angle, which together give the distance that the
+ * module moved along the robot's forward and strafe axes. The forward
+ * kinematics then fit the motion of the robot to all of the modules at
+ * once, which separates how far the robot moved from how much it turned,
+ * and leaves over a residual when the modules don't agree, such as when a
+ * wheel slips. The gyro gives the heading, which rotates that movement
+ * onto the field.
+ * <p>
+ * The pose uses the same axes as the calculator: X is straight down the
+ * field, Y is the strafe direction, and the heading is the gyro angle in
+ * degrees. Positions are in whatever distance unit the drive distance per
+ * count is given in. Updating never allocates.
+ */
+public class SwerveOdometry {
+    private final double pivotCountsPerRevolution;
+    private final double driveDistancePerCount;
+
+    private final SwerveForwardKinematics forwardKinematics;
+    private final double[] moduleDistance = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] moduleAngle = new double[SwerveDriveCalculator.MODULE_COUNT];
+
+    private final double[] lastDriveEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] lastPivotEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private boolean initialized = false;
+
+    private double x, y, heading;
+    private double gyroOffset;
+    private double lastGyroAngle;
+
+    /**
+     * Create odometry that starts at the origin, facing down the field.
+     * @param pivotCountsPerRevolution How many pivot encoder counts are in one revolution of a module.
+     * @param driveDistancePerCount How far a wheel travels for each drive encoder count.
+     */
+    public SwerveOdometry(double pivotCountsPerRevolution, double driveDistancePerCount) {
+        this(pivotCountsPerRevolution, driveDistancePerCount, SwerveKinematics.rectangle(1, 1));
+    }
+
+    /**
+     * Create odometry that starts at the origin, facing down the field, for
+     * a drive base with the given module positions.
+     * @param pivotCountsPerRevolution How many pivot encoder counts are in one revolution of a module.
+     * @param driveDistancePerCount How far a wheel travels for each drive encoder count.
+     * @param kinematics Where the modules are, in the order of the SwerveModule enumeration.
+     */
+    public SwerveOdometry(double pivotCountsPerRevolution, double driveDistancePerCount, SwerveKinematics kinematics) {
+        if (kinematics.getModuleCount() != SwerveDriveCalculator.MODULE_COUNT) {
+            throw new IllegalArgumentException("The odometry needs " + SwerveDriveCalculator.MODULE_COUNT + " modules, but the kinematics have " + kinematics.getModuleCount() + ".");
+        }
+        this.pivotCountsPerRevolution = pivotCountsPerRevolution;
+        this.driveDistancePerCount = driveDistancePerCount;
+        this.forwardKinematics = new SwerveForwardKinematics(kinematics);
+    }
+
+    /**
+     * Update the pose with the latest sensor readings. This should be called
+     * once every loop. The first update after creating the odometry or calling
+     * resync() only records the encoder readings, so the robot doesn't appear
+     * to jump.
+     * @param sensors The sensor readings from this loop.
+     * @param gyroAngle The gyro angle (in degrees) measured from the zero position (straight down field).
+     */
+    public void update(SwerveSensorSnapshot sensors, double gyroAngle) {
+        if (!initialized) {
+            for (int i = 0; i < SwerveDriveCalculator.MODULE_COUNT; i++) {
+                lastDriveEncoder[i] = sensors.getDriveMotorEncoder(i);
+                lastPivotEncoder[i] = sensors.getPivotMotorEncoder(i);
+            }
+            lastGyroAngle = gyroAngle;
+            heading = gyroAngle - gyroOffset;
+            initialized = true;
+            return;
+        }
+
+        /* Work out how far each module moved, and in which direction. */
+        for (int i = 0; i < SwerveDriveCalculator.MODULE_COUNT; i++) {
+            double driveEncoder = sensors.getDriveMotorEncoder(i);
+            moduleDistance[i] = (driveEncoder - lastDriveEncoder[i]) * driveDistancePerCount;
+            lastDriveEncoder[i] = driveEncoder;
+
+            /* The module turned during the loop too, so use its angle halfway through. */
+            double pivotEncoder = sensors.getPivotMotorEncoder(i);
+            double midPivot = (pivotEncoder + lastPivotEncoder[i]) / 2;
+            lastPivotEncoder[i] = pivotEncoder;
+            moduleAngle[i] = SwerveDriveCalculator.convertToDegrees(midPivot, pivotCountsPerRevolution);
+        }
+        /* Fit the movement of the robot to the modules, which takes out the rotation of each one. */
+        forwardKinematics.update(moduleDistance, moduleAngle);
+        double robotFwd = forwardKinematics.getFwd();
+        double robotStr = forwardKinematics.getStr();
+
+        /* Use the heading halfway through the loop, since the robot turned during it. */
+        double newHeading = gyroAngle - gyroOffset;
+        double midHeading = Math.toRadians(heading + (Math.IEEEremainder(newHeading - heading, 360) / 2));
+        double cosAngle = Math.cos(midHeading);
+        double sinAngle = Math.sin(midHeading);
+        x += robotFwd * cosAngle - robotStr * sinAngle;
+        y += robotFwd * sinAngle + robotStr * cosAngle;
+        heading = newHeading;
+        lastGyroAngle = gyroAngle;
+    }
+
+    /**
+     * Set the current pose. The heading is set by offsetting the gyro, so
+     * the gyro doesn't need to be zeroed.
+     * @param x The X position.
+     * @param y The Y position.
+     * @param heading The heading, in degrees.
+     */
+    public void resetPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        this.gyroOffset = lastGyroAngle - heading;
+    }
+
+    /**
+     * Forget the last encoder readings, so that the next update just records
+     * them again. Call this after zeroing the drive encoders, otherwise the
+     * next update will see the encoders jump back to zero.
+     */
+    public void resync() {
+        initialized = false;
+    }
+
+    /**
+     * Get how badly the modules disagreed in the last update, which is the
+     * residual of the forward kinematics. It is normally close to 0, and
+     * jumps when a wheel slips or a module's encoders go wrong.
+     * @return The residual, in the drive distance unit.
+     */
+    public double getResidual() {
+        return forwardKinematics.getResidual();
+    }
+
+    /**
+     * Get the forward kinematics, which have the residual of each module
+     * from the last update.
+     * @return The forward kinematics.
+     */
+    public SwerveForwardKinematics getForwardKinematics() {
+        return forwardKinematics;
+    }
+
+    /**
+     * Get the X position of the robot.
+     * @return How far down the field the robot is.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Get the Y position of the robot.
+     * @return How far across the field the robot is.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Get the heading of the robot.
+     * @return The heading, in degrees.
+     */
+    public double getHeading() {
+        return heading;
+    }
+}
@@ -0,0 +1,211 @@
+package frc.robot.swerveio;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Samples the gyro and every module on a background thread, at a higher
+ * rate than the main loop runs at. This way, sensor readings are never
+ * older than one sampling period, no matter when in the loop they are
+ * used, and the loop itself doesn't spend any time reading hardware.
+ * <p>
+ * Samples are published with a sequence lock. The sampler thread reads all
+ * the hardware into its own arrays first, which takes a while, and only
+ * then makes the sequence number odd, copies the sample into the published
+ * arrays, and makes the sequence number even again. A reader can tell
+ * whether it copied a complete sample by checking that the sequence number
+ * was even and didn't change while it was copying. If it did change, the
+ * reader just copies again. Since the sequence number is only odd for the
+ * length of a plain array copy, a reader that catches it is only ever held
+ * up for that long, never for the hardware reads. Neither side ever waits
+ * on a lock, and nothing is allocated.
+ * <p>
+ * There must only be one reader, which is normally the main loop.
+ * <p>
+ * The modules' getters are called on the sampler thread, while the main
+ * loop keeps driving the same modules, so every module has to be safe to
+ * read from another thread. Modules say so with isThreadSafe(), and the
+ * sampler won't take any module that doesn't.
+ */
+public class SwerveSensorSampler {
+    /**
+     * The slowest rate the sampler can run at, in samples per second.
+     */
+    public static final double MIN_RATE = 100;
+
+    /**
+     * The fastest rate the sampler can run at, in samples per second.
+     */
+    public static final double MAX_RATE = 500;
+
+    private static final VarHandle SEQUENCE;
+
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(SwerveSensorSampler.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final SwerveModuleRegistry modules;
+    private final DoubleSupplier gyro;
+    private final DoubleSupplier clock;
+    private final double rate;
+    private final Notifier notifier;
+
+    /* The sample being read from the hardware. Only the sampler thread uses these. */
+    private final double[] readPivotEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] readDriveEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] readPivotSpeed = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] readDriveVelocity = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] readTimestamp = new double[SwerveDriveCalculator.MODULE_COUNT];
+
+    /* The published sample, guarded by the sequence number. */
+    private final double[] pivotEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] driveEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] pivotSpeed = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] driveVelocity = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] timestamp = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private double gyroYaw;
+    private double gyroTimestamp;
+
+    @SuppressWarnings("unused") /* Accessed through the SEQUENCE VarHandle. */
+    private volatile long sequence;
+
+    private boolean running = false;
+
+    /**
+     * Create a sampler. It doesn't start sampling until start() is called.
+     * @param modules The modules to sample.
+     * @param gyro The gyro yaw, in degrees. If this is null, the gyro isn't sampled.
+     * @param clock The clock used to timestamp samples, which returns the time in seconds.
+     * @param rate How many times per second to sample. This must be between
+     * MIN_RATE and MAX_RATE.
+     * @throws IllegalArgumentException If the rate is out of range.
+     * @throws SwerveImplementationException If any of the modules can't be read from another thread.
+     */
+    public SwerveSensorSampler(SwerveModuleRegistry modules, DoubleSupplier gyro, DoubleSupplier clock, double rate) {
+        if (rate < MIN_RATE || rate > MAX_RATE) {
+            throw new IllegalArgumentException("Sample rate must be between " + MIN_RATE + " and " + MAX_RATE + " Hz, got " + rate);
+        }
+        for (int i = 0; i < modules.size(); i++) {
+            if (!modules.get(i).isThreadSafe()) {
+                throw new SwerveImplementationException("Module " + i + " (" + modules.get(i).getClass().getSimpleName() + ") can't be sampled from another thread.");
+            }
+        }
+        this.modules = modules;
+        this.gyro = gyro;
+        this.clock = clock;
+        this.rate = rate;
+        this.notifier = new Notifier(this::sample);
+    }
+
+    /**
+     * Start sampling in the background. Does nothing if already started.
+     */
+    public synchronized void start() {
+        if (!running) {
+            /* Take the first sample right away so that there is always something to read. */
+            sample();
+            notifier.startPeriodic(1.0 / rate);
+            running = true;
+        }
+    }
+
+    /**
+     * Stop sampling. The last sample can still be read.
+     */
+    public synchronized void stop() {
+        if (running) {
+            notifier.stop();
+            running = false;
+        }
+    }
+
+    /**
+     * Get whether or not the sampler is running.
+     * @return Whether or not the sampler is running.
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Get the rate this sampler runs at.
+     * @return The number of samples taken per second.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Take a sample and publish it. This is run on the sampler thread.
+     */
+    void sample() {
+        /* Read the hardware first, without holding up readers. */
+        int count = modules.size();
+        for (int i = 0; i < count; i++) {
+            AbstractSwerveModule module = modules.get(i);
+            readTimestamp[i] = clock.getAsDouble();
+            readPivotEncoder[i] = module.getPivotMotorEncoder();
+            readDriveEncoder[i] = module.getDriveMotorEncoder();
+            readPivotSpeed[i] = module.getPivotMotorSpeed();
+            readDriveVelocity[i] = module.getDriveMotorVelocity();
+        }
+        double readGyroTimestamp = 0;
+        double readGyroYaw = 0;
+        if (gyro != null) {
+            readGyroTimestamp = clock.getAsDouble();
+            readGyroYaw = gyro.getAsDouble();
+        }
+
+        long seq = (long) SEQUENCE.getOpaque(this);
+        /* Odd means a sample is being published. */
+        SEQUENCE.setVolatile(this, seq + 1);
+        VarHandle.storeStoreFence();
+        System.arraycopy(readTimestamp, 0, timestamp, 0, count);
+        System.arraycopy(readPivotEncoder, 0, pivotEncoder, 0, count);
+        System.arraycopy(readDriveEncoder, 0, driveEncoder, 0, count);
+        System.arraycopy(readPivotSpeed, 0, pivotSpeed, 0, count);
+        System.arraycopy(readDriveVelocity, 0, driveVelocity, 0, count);
+        if (gyro != null) {
+            gyroTimestamp = readGyroTimestamp;
+            gyroYaw = readGyroYaw;
+        }
+        /* Even means the sample is complete. */
+        SEQUENCE.setRelease(this, seq + 2);
+    }
+
+    /**
+     * Copy the most recent complete sample into a snapshot. This never blocks;
+     * if a new sample is being written while copying, the copy is retried.
+     * @param out The snapshot to fill in.
+     */
+    public void read(SwerveSensorSnapshot out) {
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(this);
+            if ((before & 1) != 0) {
+                /* A sample is being copied in right now, which doesn't take long. */
+                Thread.onSpinWait();
+                continue;
+            }
+            for (int i = 0; i < modules.size(); i++) {
+                out.setModule(i, timestamp[i], pivotEncoder[i], driveEncoder[i], pivotSpeed[i], driveVelocity[i]);
+            }
+            if (gyro != null) {
+                out.setGyro(gyroTimestamp, gyroYaw);
+            }
+            VarHandle.loadLoadFence();
+            long after = (long) SEQUENCE.getAcquire(this);
+            if (before == after) {
+                break;
+            }
+        }
+        /* The loop itself didn't read any hardware. */
+        out.recordTick(0);
+    }
+}
@@ -0,0 +1,217 @@
+package frc.robot.swerveio;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A snapshot of every sensor reading from the modules in a swerve drive.
+ * Reading an encoder on a real module is a call into the motor controller
+ * library, so instead of every piece of code reading the same encoder
+ * again in the same loop, the readings are sampled once at the start of
+ * the loop, and everything else reads them from here.
+ * <p>
+ * Readings are stored in preallocated arrays indexed by the module's
+ * index in the SwerveModuleRegistry, so sampling and reading never
+ * allocate. The snapshot can either sample the hardware itself, or be
+ * filled in from a SwerveSensorSampler running on another thread.
+ */
+public class SwerveSensorSnapshot {
+    /* How many hardware reads sampling a single module takes. */
+    private static final int READS_PER_MODULE = 4;
+
+    private final DoubleSupplier clock;
+
+    private final double[] pivotEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] driveEncoder = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] pivotSpeed = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] driveVelocity = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] timestamp = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private double gyroYaw;
+    private double gyroTimestamp;
+
+    private long hardwareReads;
+    private long snapshotReads;
+    private long snapshotReadsLastTick;
+    private long ticks;
+
+    /**
+     * Create an empty snapshot.
+     * @param clock The clock used to timestamp readings, which returns the time in seconds.
+     */
+    public SwerveSensorSnapshot(DoubleSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sample every sensor on every module. This should be called once,
+     * at the start of each loop.
+     * @param modules The modules to sample.
+     */
+    public void sample(SwerveModuleRegistry modules) {
+        sample(modules, null);
+    }
+
+    /**
+     * Sample every sensor on every module, and the gyro. This should be
+     * called once, at the start of each loop.
+     * @param modules The modules to sample.
+     * @param gyro The gyro yaw, in degrees. If this is null, the gyro isn't sampled.
+     */
+    public void sample(SwerveModuleRegistry modules, DoubleSupplier gyro) {
+        int reads = 0;
+        for (int i = 0; i < modules.size(); i++) {
+            AbstractSwerveModule module = modules.get(i);
+            setModule(i, clock.getAsDouble(), module.getPivotMotorEncoder(), module.getDriveMotorEncoder(), module.getPivotMotorSpeed(), module.getDriveMotorVelocity());
+            reads += READS_PER_MODULE;
+        }
+        if (gyro != null) {
+            setGyro(clock.getAsDouble(), gyro.getAsDouble());
+            reads++;
+        }
+        recordTick(reads);
+    }
+
+    /**
+     * Set the readings of a module. This is for filling in the snapshot from
+     * readings that were taken somewhere else.
+     * @param index The index of the module.
+     * @param timestamp When the readings were taken, in seconds.
+     * @param pivotEncoder The pivot encoder reading.
+     * @param driveEncoder The drive encoder reading.
+     * @param pivotSpeed The pivot motor speed.
+     * @param driveVelocity The measured drive motor velocity, in RPM.
+     */
+    public void setModule(int index, double timestamp, double pivotEncoder, double driveEncoder, double pivotSpeed, double driveVelocity) {
+        this.timestamp[index] = timestamp;
+        this.pivotEncoder[index] = pivotEncoder;
+        this.driveEncoder[index] = driveEncoder;
+        this.pivotSpeed[index] = pivotSpeed;
+        this.driveVelocity[index] = driveVelocity;
+    }
+
+    /**
+     * Set the gyro reading. This is for filling in the snapshot from
+     * readings that were taken somewhere else.
+     * @param timestamp When the reading was taken, in seconds.
+     * @param yaw The gyro yaw, in degrees.
+     */
+    public void setGyro(double timestamp, double yaw) {
+        this.gyroTimestamp = timestamp;
+        this.gyroYaw = yaw;
+    }
+
+    /**
+     * Mark the end of filling in the snapshot for this loop.
+     * @param reads How many hardware reads this loop made to fill in the snapshot.
+     */
+    void recordTick(int reads) {
+        hardwareReads += reads;
+        snapshotReadsLastTick = snapshotReads;
+        snapshotReads = 0;
+        ticks++;
+    }
+
+    /**
+     * Get the pivot encoder reading of a module.
+     * @param index The index of the module.
+     * @return The pivot encoder reading from the last sample.
+     */
+    public double getPivotMotorEncoder(int index) {
+        snapshotReads++;
+        return pivotEncoder[index];
+    }
+
+    /**
+     * Get the drive encoder reading of a module.
+     * @param index The index of the module.
+     * @return The drive encoder reading from the last sample.
+     */
+    public double getDriveMotorEncoder(int index) {
+        snapshotReads++;
+        return driveEncoder[index];
+    }
+
+    /**
+     * Get the speed of the pivot motor of a module.
+     * @param index The index of the module.
+     * @return The pivot motor speed from the last sample.
+     */
+    public double getPivotMotorSpeed(int index) {
+        snapshotReads++;
+        return pivotSpeed[index];
+    }
+
+    /**
+     * Get the measured velocity of the drive motor of a module.
+     * @param index The index of the module.
+     * @return The drive motor velocity from the last sample, in RPM.
+     */
+    public double getDriveMotorVelocity(int index) {
+        snapshotReads++;
+        return driveVelocity[index];
+    }
+
+    /**
+     * Get the gyro yaw.
+     * @return The gyro yaw (in degrees) from the last sample.
+     */
+    public double getGyroYaw() {
+        snapshotReads++;
+        return gyroYaw;
+    }
+
+    /**
+     * Get when the gyro was sampled.
+     * @return The time, in seconds, that the gyro was last sampled.
+     */
+    public double getGyroTimestamp() {
+        return gyroTimestamp;
+    }
+
+    /**
+     * Get when a module was sampled.
+     * @param index The index of the module.
+     * @return The time, in seconds, that the module was last sampled.
+     */
+    public double getTimestamp(int index) {
+        return timestamp[index];
+    }
+
+    /**
+     * Get how many times the snapshot has been filled in, either by
+     * sample() or by a background sampler.
+     * @return The number of loops that have been sampled.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Get the total number of hardware reads that sampling has made on
+     * the loop's thread. Reads made by a background sampler aren't counted,
+     * because they don't take any time away from the loop.
+     * @return The number of hardware reads.
+     */
+    public long getHardwareReads() {
+        return hardwareReads;
+    }
+
+    /**
+     * Get how many hardware reads it takes to sample the modules once. This
+     * is a fixed amount no matter how many times the readings are used.
+     * @return The number of hardware reads per loop.
+     */
+    public int getHardwareReadsPerTick() {
+        return SwerveDriveCalculator.MODULE_COUNT * READS_PER_MODULE;
+    }
+
+    /**
+     * Get how many readings were taken from this snapshot during the
+     * last complete loop. Without the snapshot, each of these would have
+     * been a hardware read, so comparing this to getHardwareReadsPerTick()
+     * shows how many reads were saved.
+     * @return The number of reads served from the snapshot last loop.
+     */
+    public long getSnapshotReadsLastTick() {
+        return snapshotReadsLastTick;
+    }
+}
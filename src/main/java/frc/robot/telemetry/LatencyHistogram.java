@@ -0,0 +1,153 @@
+package frc.robot.telemetry;
+
+/**
+ * A histogram of durations with a fixed set of buckets. Durations are
+ * recorded in microseconds. Durations under 16 microseconds each get their
+ * own bucket; above that, every power of two is split into 16 buckets,
+ * so a reported percentile is never off by more than about 6%. Anything
+ * longer than the largest bucket (about 2 minutes) is counted in the
+ * largest bucket, but the maximum is still tracked exactly.
+ * <p>
+ * All the buckets are allocated up front, so recording a duration never
+ * allocates. A histogram should only be recorded to from one thread.
+ */
+public class LatencyHistogram {
+  /* Each power of two is split into 2^SUB_BUCKET_BITS buckets. */
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /* The largest power of two that gets its own buckets. */
+  private static final int MAX_EXPONENT = 26;
+
+  /**
+   * The number of buckets in every histogram.
+   */
+  public static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long count;
+  private long total;
+  private long max;
+  private long last;
+
+  /**
+   * Record a duration.
+   * @param nanos The duration, in nanoseconds.
+   */
+  public void record(long nanos) {
+    long micros = nanos / 1000;
+    if (micros < 0) {
+      micros = 0;
+    }
+    last = micros;
+    counts[getBucket(micros)]++;
+    count++;
+    total += micros;
+    if (micros > max) {
+      max = micros;
+    }
+  }
+
+  /**
+   * Find the bucket a duration belongs in.
+   * @param micros The duration, in microseconds.
+   * @return The index of the bucket.
+   */
+  private static int getBucket(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return ((exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS) + subBucket;
+  }
+
+  /**
+   * Find the largest duration that falls in a bucket.
+   * @param bucket The index of the bucket.
+   * @return The upper bound of the bucket, in microseconds.
+   */
+  private static long getBucketLimit(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return (1L << exponent) + ((subBucket + 1) * width) - 1;
+  }
+
+  /**
+   * Get a percentile of the recorded durations.
+   * @param percentile The percentile to get, from 0 to 100.
+   * @return The duration, in microseconds, that the given percent of
+   * recorded durations were at or below. This is 0 if nothing has been
+   * recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long target = (long) Math.ceil((percentile / 100.0) * count);
+    if (target < 1) {
+      target = 1;
+    }
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        /* Never report more than what was actually recorded. */
+        return Math.min(getBucketLimit(i), max);
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Get the longest recorded duration.
+   * @return The longest duration, in microseconds.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Get the most recently recorded duration.
+   * @return The last duration, in microseconds.
+   */
+  public long getLast() {
+    return last;
+  }
+
+  /**
+   * Get the average of the recorded durations.
+   * @return The average duration, in microseconds.
+   */
+  public double getMean() {
+    return (count == 0) ? 0 : (double) total / count;
+  }
+
+  /**
+   * Get how many durations have been recorded.
+   * @return The number of recorded durations.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Clear all the recorded durations.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = 0;
+    }
+    count = 0;
+    total = 0;
+    max = 0;
+    last = 0;
+  }
+}
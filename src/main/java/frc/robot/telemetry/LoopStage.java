@@ -0,0 +1,30 @@
+package frc.robot.telemetry;
+
+/**
+ * The stages of the robot loop that are timed. Each stage should only
+ * be timed from one thread. The ordinals are written to telemetry logs,
+ * so new stages go at the end.
+ */
+public enum LoopStage {
+  ROBOT_PERIODIC("robotPeriodic"),
+  TELEOP_PERIODIC("teleopPeriodic"),
+  AUTONOMOUS_PERIODIC("autonomousPeriodic"),
+  SCHEDULER("Scheduler.run"),
+  DRIVE("DriveTrain.drive"),
+  GYRO("Gyro.getYaw"),
+  INPUT("OI.update");
+
+  private final String displayName;
+
+  private LoopStage(String displayName) {
+    this.displayName = displayName;
+  }
+
+  /**
+   * Get the name of this stage, as it appears in reports.
+   * @return The name of the stage.
+   */
+  public String getDisplayName() {
+    return displayName;
+  }
+}
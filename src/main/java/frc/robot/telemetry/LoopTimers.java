@@ -0,0 +1,95 @@
+package frc.robot.telemetry;
+
+/**
+ * Times the stages of the robot loop. Wrap a stage like this:
+ * <pre>
+ * long start = LoopTimers.start();
+ * ...
+ * LoopTimers.stop(LoopStage.DRIVE, start);
+ * </pre>
+ * Every stage records into its own preallocated LatencyHistogram, so
+ * timing a stage never allocates. The histograms can be queried at any
+ * time, and report() summarizes all of them.
+ * <p>
+ * Like the histograms, the timers must only be used from the main robot
+ * thread. Code that runs on another thread has to hand its timings over
+ * to the main thread and record them there with record().
+ */
+public final class LoopTimers {
+  /* Cached so that looking up a stage doesn't copy the values() array. */
+  private static final LoopStage[] STAGES = LoopStage.values();
+
+  private static final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+  static {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+  }
+
+  private LoopTimers() {
+  }
+
+  /**
+   * Get the time to start timing a stage from.
+   * @return The current time, in nanoseconds.
+   */
+  public static long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Stop timing a stage, and record how long it took.
+   * @param stage The stage that was timed.
+   * @param start The time returned by start() when the stage began.
+   */
+  public static void stop(LoopStage stage, long start) {
+    histograms[stage.ordinal()].record(System.nanoTime() - start);
+  }
+
+  /**
+   * Record how long a stage took, when it was timed some other way, such as
+   * on another thread.
+   * @param stage The stage that was timed.
+   * @param nanos How long the stage took, in nanoseconds.
+   */
+  public static void record(LoopStage stage, long nanos) {
+    histograms[stage.ordinal()].record(nanos);
+  }
+
+  /**
+   * Get the histogram of a stage.
+   * @param stage The stage to get the histogram of.
+   * @return The histogram of the stage's durations.
+   */
+  public static LatencyHistogram getHistogram(LoopStage stage) {
+    return histograms[stage.ordinal()];
+  }
+
+  /**
+   * Summarize the timings of every stage that has been timed, in microseconds.
+   * This allocates, so it shouldn't be called every loop.
+   * @return A human readable report.
+   */
+  public static String report() {
+    StringBuilder report = new StringBuilder("Loop timings (us):");
+    for (LoopStage stage : STAGES) {
+      LatencyHistogram histogram = histograms[stage.ordinal()];
+      if (histogram.getCount() > 0) {
+        report.append(String.format("%n  %-20s n=%-6d p50=%-6d p99=%-6d max=%d",
+            stage.getDisplayName(), histogram.getCount(), histogram.getPercentile(50),
+            histogram.getPercentile(99), histogram.getMax()));
+      }
+    }
+    return report.toString();
+  }
+
+  /**
+   * Clear the timings of every stage.
+   */
+  public static void reset() {
+    for (LatencyHistogram histogram : histograms) {
+      histogram.reset();
+    }
+  }
+}
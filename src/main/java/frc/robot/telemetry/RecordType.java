@@ -0,0 +1,82 @@
+package frc.robot.telemetry;
+
+/**
+ * The kinds of records that the TelemetryRecorder writes. Each type has a
+ * fixed code that is written into the log, so the codes must never change
+ * once logs have been recorded with them. A code of 0 marks the end of the
+ * records in a log file.
+ */
+public enum RecordType {
+  /**
+   * The joystick axes, as they were read at the start of the loop, before
+   * the OI filtered them. The values are the raw X, Y and Z axes, and the
+   * raw throttle slider.
+   */
+  JOYSTICK(1),
+
+  /**
+   * The state of one module. The index is the module's index in the registry,
+   * and the values are the pivot encoder, drive encoder, pivot motor speed,
+   * measured drive motor velocity (in RPM), pivot reference and drive
+   * reference (in RPM).
+   */
+  MODULE(2),
+
+  /**
+   * The gyro. The value is the yaw, in degrees.
+   */
+  GYRO(3),
+
+  /**
+   * How long one stage of the loop took. The index is the LoopStage ordinal,
+   * and the value is the duration in microseconds.
+   */
+  LOOP_TIMING(4),
+
+  /**
+   * How long one phase of starting up took. The index is the StartupPhase
+   * ordinal, and the values are the duration and when the phase ended
+   * relative to the JVM starting, in microseconds, and 1 if the phase was
+   * slow or 0 if it wasn't.
+   */
+  STARTUP_PHASE(5),
+
+  /**
+   * The chassis setpoint as the loop started, before the setpoint limiter
+   * moved it. The values are the forward, strafe and rotation speeds, and
+   * how fast each of them was changing, per second. The timestamp is when
+   * the limiter last moved the setpoint on, so replay knows how far to
+   * move it on this loop.
+   */
+  SETPOINT(6);
+
+  private static final RecordType[] TYPES = values();
+
+  private final int code;
+
+  private RecordType(int code) {
+    this.code = code;
+  }
+
+  /**
+   * Get the code that identifies this type in a log.
+   * @return The type code.
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * Find the record type with a code.
+   * @param code The type code read from a log.
+   * @return The record type, or null if there isn't one with the code.
+   */
+  public static RecordType fromCode(int code) {
+    for (RecordType type : TYPES) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    return null;
+  }
+}
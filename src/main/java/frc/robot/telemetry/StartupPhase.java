@@ -0,0 +1,43 @@
+package frc.robot.telemetry;
+
+/**
+ * The phases of starting up the robot code, in the order they happen. Each
+ * phase runs from the end of the one before it, so together they cover
+ * everything from when the JVM starts to the end of robotInit().
+ */
+public enum StartupPhase {
+  /** From the JVM starting to Main.main() being called. */
+  JVM("JVM startup"),
+  /** From Main to robotInit(), which initializes the HAL and constructs the Robot. */
+  ROBOT_BASE("HAL and RobotBase"),
+  /** Constructing the OI and its joystick buttons. */
+  OI("OI"),
+  /** Loading the Subsystems class and constructing the DriveTrain, which initializes the modules. */
+  DRIVE_TRAIN("DriveTrain"),
+  /** Constructing the Gyro, which connects to the NavX. */
+  GYRO("Gyro"),
+  /** Starting the drive train sensor sampler. */
+  SENSOR_SAMPLER("Sensor sampler"),
+  /** Opening the telemetry log and starting the recorder. */
+  TELEMETRY("Telemetry recorder"),
+  /** Registering the button commands. */
+  BUTTONS("Button commands"),
+  /** Loading the autonomous trajectories. */
+  TRAJECTORIES("Trajectories"),
+  /** Setting up the autonomous chooser and putting it on the SmartDashboard. */
+  DASHBOARD("SmartDashboard");
+
+  private final String displayName;
+
+  private StartupPhase(String displayName) {
+    this.displayName = displayName;
+  }
+
+  /**
+   * Get the name of this phase, as it appears in reports.
+   * @return The name of the phase.
+   */
+  public String getDisplayName() {
+    return displayName;
+  }
+}
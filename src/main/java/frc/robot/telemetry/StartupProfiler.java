@@ -0,0 +1,138 @@
+package frc.robot.telemetry;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times how long each phase of starting up the robot code takes. Mark the
+ * end of each phase as it happens:
+ * <pre>
+ * oi = new OI();
+ * StartupProfiler.mark(StartupPhase.OI);
+ * </pre>
+ * Each phase is timed from the previous mark, and the first one from when
+ * the JVM started, so no time goes unaccounted for. A phase can also be
+ * marked in a field initializer by wrapping the value it creates:
+ * <pre>
+ * public static final Gyro gyro = StartupProfiler.mark(StartupPhase.GYRO, new Gyro());
+ * </pre>
+ * Phases that take longer than SLOW_PHASE_THRESHOLD are flagged in the
+ * report. Marks must all be made from the same thread, which is normally
+ * the main thread.
+ */
+public final class StartupProfiler {
+  /**
+   * Phases that take longer than this, in seconds, are flagged as slow.
+   */
+  public static final double SLOW_PHASE_THRESHOLD = 0.1;
+
+  /* Cached so that looking up a phase doesn't copy the values() array. */
+  private static final StartupPhase[] PHASES = StartupPhase.values();
+
+  /* When the JVM started, on the System.nanoTime() clock. */
+  private static final long origin;
+
+  private static final long[] durations = new long[PHASES.length];
+
+  /* When each phase ended, in nanoseconds since the JVM started, or -1 if it hasn't. */
+  private static final long[] ends = new long[PHASES.length];
+
+  private static long last;
+
+  static {
+    long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+    origin = System.nanoTime() - (uptime * 1_000_000);
+    last = origin;
+    for (int i = 0; i < ends.length; i++) {
+      ends[i] = -1;
+    }
+  }
+
+  private StartupProfiler() {
+  }
+
+  /**
+   * Mark the end of a phase. The phase is timed from the end of the previous one.
+   * @param phase The phase that just ended.
+   */
+  public static void mark(StartupPhase phase) {
+    long now = System.nanoTime();
+    durations[phase.ordinal()] += now - last;
+    ends[phase.ordinal()] = now - origin;
+    last = now;
+  }
+
+  /**
+   * Mark the end of a phase that created a value, and pass the value through.
+   * @param <T> The type of the value.
+   * @param phase The phase that just ended.
+   * @param value The value the phase created.
+   * @return The value.
+   */
+  public static <T> T mark(StartupPhase phase, T value) {
+    mark(phase);
+    return value;
+  }
+
+  /**
+   * Get how long a phase took.
+   * @param phase The phase.
+   * @return The duration, in seconds, or 0 if the phase hasn't been marked.
+   */
+  public static double getDuration(StartupPhase phase) {
+    return durations[phase.ordinal()] / 1e9;
+  }
+
+  /**
+   * Get when a phase ended.
+   * @param phase The phase.
+   * @return The time, in seconds since the JVM started, or -1 if the phase hasn't been marked.
+   */
+  public static double getEnd(StartupPhase phase) {
+    long end = ends[phase.ordinal()];
+    return (end < 0) ? -1 : end / 1e9;
+  }
+
+  /**
+   * Get whether or not a phase took longer than SLOW_PHASE_THRESHOLD.
+   * @param phase The phase.
+   * @return Whether or not the phase was slow.
+   */
+  public static boolean isSlow(StartupPhase phase) {
+    return getDuration(phase) > SLOW_PHASE_THRESHOLD;
+  }
+
+  /**
+   * Get whether or not a phase has been marked.
+   * @param phase The phase.
+   * @return Whether or not the phase has ended.
+   */
+  public static boolean isMarked(StartupPhase phase) {
+    return ends[phase.ordinal()] >= 0;
+  }
+
+  /**
+   * Get how long it has been from the JVM starting to the last mark.
+   * @return The time, in seconds.
+   */
+  public static double getTotal() {
+    return (last - origin) / 1e9;
+  }
+
+  /**
+   * Summarize how long each phase took, in milliseconds, and when it ended,
+   * relative to the JVM starting.
+   * @return A human readable report.
+   */
+  public static String report() {
+    StringBuilder report = new StringBuilder(String.format("Startup timings (ms), %.1f total:", getTotal() * 1e3));
+    for (StartupPhase phase : PHASES) {
+      if (isMarked(phase)) {
+        report.append(String.format("%n  %-20s %8.1f  at %8.1f%s", phase.getDisplayName(),
+            getDuration(phase) * 1e3, getEnd(phase) * 1e3, isSlow(phase) ? "  SLOW" : ""));
+      } else {
+        report.append(String.format("%n  %-20s not reached", phase.getDisplayName()));
+      }
+    }
+    return report.toString();
+  }
+}
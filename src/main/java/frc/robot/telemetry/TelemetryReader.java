@@ -0,0 +1,119 @@
+package frc.robot.telemetry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records back out of a log file written by the TelemetryRecorder.
+ * The file is mapped into memory, and records are read one at a time:
+ * <pre>
+ * try (TelemetryReader reader = new TelemetryReader(file)) {
+ *   while (reader.next()) {
+ *     ... reader.getType(), reader.getValue(0) ...
+ *   }
+ * }
+ * </pre>
+ * Reading a record doesn't allocate.
+ */
+public class TelemetryReader implements Closeable {
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+
+  /* The offset of the current record, or -1 before the first call to next(). */
+  private int offset = -1;
+  private RecordType type;
+
+  /**
+   * Open a log file.
+   * @param file The log file to read.
+   * @throws IOException If the file can't be read, or isn't a telemetry log
+   * in a format this reader understands.
+   */
+  public TelemetryReader(File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.capacity() < TelemetryRecorder.HEADER_SIZE || buffer.getInt(0) != TelemetryRecorder.MAGIC) {
+        throw new IOException(file + " is not a telemetry log");
+      }
+      int version = buffer.getInt(4);
+      int recordSize = buffer.getInt(8);
+      if (version != TelemetryRecorder.FORMAT_VERSION || recordSize != TelemetryRecorder.RECORD_SIZE) {
+        throw new IOException(file + " is telemetry log version " + version + " with " + recordSize
+            + " byte records, expected version " + TelemetryRecorder.FORMAT_VERSION);
+      }
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Move to the next record.
+   * @return Whether or not there was another record. Once this is false,
+   * the end of the log has been reached.
+   */
+  public boolean next() {
+    int nextOffset = (offset < 0) ? TelemetryRecorder.HEADER_SIZE : offset + TelemetryRecorder.RECORD_SIZE;
+    while (nextOffset + TelemetryRecorder.RECORD_SIZE <= buffer.capacity()) {
+      int code = buffer.getInt(nextOffset);
+      if (code == 0) {
+        break;
+      }
+      type = RecordType.fromCode(code);
+      offset = nextOffset;
+      if (type != null) {
+        return true;
+      }
+      /* Skip record types this reader doesn't know about. */
+      nextOffset += TelemetryRecorder.RECORD_SIZE;
+    }
+    offset = buffer.capacity();
+    type = null;
+    return false;
+  }
+
+  /**
+   * Get the type of the current record.
+   * @return The record type.
+   */
+  public RecordType getType() {
+    return type;
+  }
+
+  /**
+   * Get the index of the current record, which is described by its type.
+   * @return The record index.
+   */
+  public int getIndex() {
+    return buffer.getInt(offset + 4);
+  }
+
+  /**
+   * Get when the current record was taken.
+   * @return The timestamp, in seconds.
+   */
+  public double getTimestamp() {
+    return buffer.getDouble(offset + 8);
+  }
+
+  /**
+   * Get one of the values of the current record, which are described by its type.
+   * @param index Which value to get, from 0 to VALUE_COUNT - 1.
+   * @return The value.
+   */
+  public double getValue(int index) {
+    return buffer.getDouble(offset + TelemetryRecorder.VALUES_OFFSET + (index * 8));
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
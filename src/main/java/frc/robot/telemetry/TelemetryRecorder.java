@@ -0,0 +1,524 @@
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records telemetry to binary log files without ever making the robot loop
+ * wait on the disk.
+ * <p>
+ * The loop writes fixed-size records into a ring buffer that is allocated
+ * off the heap up front. A background thread copies them out of the ring
+ * and into a log file that is mapped into memory, so writing to the file is
+ * just a memory copy, and the operating system writes it to disk on its own.
+ * If the background thread falls so far behind that the ring fills up, new
+ * records are dropped and counted instead of waiting for room.
+ * <p>
+ * Every log file starts with a header of HEADER_SIZE bytes: the MAGIC number,
+ * the FORMAT_VERSION and the RECORD_SIZE, as little endian ints. Every record
+ * after it is RECORD_SIZE bytes: the RecordType code and an index as ints,
+ * the timestamp in seconds as a double, and VALUE_COUNT doubles, which are
+ * described by the RecordType. Files are a fixed size, so the first record
+ * with a type code of 0 marks the end of the log. When a file fills up,
+ * recording continues in a new one.
+ * <p>
+ * Every boot starts new log files, so the log directory is kept under a
+ * maximum total size: before a file is created, the oldest log files are
+ * deleted until the new one fits. The robot's clock isn't set until the
+ * Driver Station connects, if it ever does, so the wall clock can't say
+ * which files are oldest. Instead, a boot counter is kept in the log
+ * directory and counted up once per boot, and log file names start with
+ * the boot number and the number of the file within the boot, which is
+ * the order they are deleted in. The wall clock time the recorder was
+ * created at comes after them, only to help find a log by hand.
+ * <p>
+ * Records must only be written from one thread, which is normally the main
+ * loop. Writing a record never blocks and never allocates.
+ */
+public class TelemetryRecorder {
+  /**
+   * The first int of every log file.
+   */
+  public static final int MAGIC = 0x46524354; /* "FRCT" */
+
+  /**
+   * The version of the log format. Version 2 records the raw joystick axes
+   * instead of the throttled ones.
+   */
+  public static final int FORMAT_VERSION = 2;
+
+  /**
+   * The size of every record, in bytes.
+   */
+  public static final int RECORD_SIZE = 64;
+
+  /**
+   * The size of the header at the start of every log file, in bytes.
+   */
+  public static final int HEADER_SIZE = RECORD_SIZE;
+
+  /**
+   * How many values every record has room for.
+   */
+  public static final int VALUE_COUNT = 6;
+
+  /**
+   * The offset of the first value in a record.
+   */
+  public static final int VALUES_OFFSET = 16;
+
+  /**
+   * The default size of each log file. This holds several minutes of records.
+   */
+  public static final int DEFAULT_FILE_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * The default limit on the total size of the log files in the directory,
+   * in bytes, which is enough for eight full files.
+   */
+  public static final long DEFAULT_MAX_TOTAL_SIZE = 8L * DEFAULT_FILE_SIZE;
+
+  /* Log files are named with this prefix and extension, which is how old ones are found. */
+  private static final String FILE_PREFIX = "telemetry-";
+  private static final String FILE_EXTENSION = ".bin";
+
+  /* After the prefix come the boot number, the file number within the boot, and the wall clock time. */
+  private static final Pattern FILE_NAME = Pattern.compile(Pattern.quote(FILE_PREFIX) + "boot(\\d+)-(\\d+)-.*" + Pattern.quote(FILE_EXTENSION));
+
+  /* The file in the log directory that holds the number of the last boot. */
+  private static final String BOOT_COUNTER_FILE = "boot-counter";
+
+  /**
+   * The default number of records the ring buffer can hold.
+   */
+  public static final int DEFAULT_RING_CAPACITY = 4096;
+
+  /* How long the background thread waits between copying out records. */
+  private static final long FLUSH_PERIOD_MILLIS = 20;
+
+  /* How often the background thread asks for the log file to be written to disk. */
+  private static final long FORCE_PERIOD_MILLIS = 1000;
+
+  /* Cached so that recording the loop timings doesn't copy the values() array. */
+  private static final LoopStage[] STAGES = LoopStage.values();
+
+  private static final VarHandle WRITTEN;
+  private static final VarHandle CONSUMED;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      WRITTEN = lookup.findVarHandle(TelemetryRecorder.class, "written", long.class);
+      CONSUMED = lookup.findVarHandle(TelemetryRecorder.class, "consumed", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final File directory;
+  private final int fileSize;
+  private final long maxTotalSize;
+  private final int ringCapacity;
+  private final ByteBuffer ring;
+  /* The background thread's view of the ring, so that it can move its own position and limit. */
+  private final ByteBuffer ringReader;
+  private final String startTime;
+
+  /* How many records have been put into the ring, and how many have been copied out of it. */
+  @SuppressWarnings("unused") /* Accessed through the WRITTEN VarHandle. */
+  private volatile long written;
+  @SuppressWarnings("unused") /* Accessed through the CONSUMED VarHandle. */
+  private volatile long consumed;
+
+  private long dropped;
+
+  private Thread thread;
+  private volatile boolean running = false;
+
+  /* Only touched by the background thread. */
+  private MappedByteBuffer file;
+  private int fileCount = 0;
+  /* The number of this boot, which is taken from the boot counter when the first file is opened. */
+  private long boot = -1;
+
+  /**
+   * Create a recorder with the default file size, ring capacity and maximum
+   * total size. It doesn't write anything to disk until start() is called.
+   * @param directory The directory to put log files in. It is created if it doesn't exist.
+   */
+  public TelemetryRecorder(File directory) {
+    this(directory, DEFAULT_FILE_SIZE, DEFAULT_RING_CAPACITY, DEFAULT_MAX_TOTAL_SIZE);
+  }
+
+  /**
+   * Create a recorder with the default maximum total size. It doesn't write
+   * anything to disk until start() is called.
+   * @param directory The directory to put log files in. It is created if it doesn't exist.
+   * @param fileSize The size of each log file, in bytes.
+   * @param ringCapacity How many records the ring buffer can hold. This must be a power of two.
+   */
+  public TelemetryRecorder(File directory, int fileSize, int ringCapacity) {
+    this(directory, fileSize, ringCapacity, DEFAULT_MAX_TOTAL_SIZE);
+  }
+
+  /**
+   * Create a recorder. It doesn't write anything to disk until start() is called.
+   * @param directory The directory to put log files in. It is created if it doesn't exist.
+   * @param fileSize The size of each log file, in bytes.
+   * @param ringCapacity How many records the ring buffer can hold. This must be a power of two.
+   * @param maxTotalSize The most bytes of log files to keep in the directory,
+   * counting the ones from earlier boots. This must hold at least one file.
+   */
+  public TelemetryRecorder(File directory, int fileSize, int ringCapacity, long maxTotalSize) {
+    if (ringCapacity < 1 || Integer.bitCount(ringCapacity) != 1) {
+      throw new IllegalArgumentException("Ring capacity must be a power of two, got " + ringCapacity);
+    }
+    if (fileSize < HEADER_SIZE + RECORD_SIZE) {
+      throw new IllegalArgumentException("File size must hold at least one record, got " + fileSize);
+    }
+    if (maxTotalSize < fileSize) {
+      throw new IllegalArgumentException("Maximum total size must hold at least one file of " + fileSize + " bytes, got " + maxTotalSize);
+    }
+    this.directory = directory;
+    this.fileSize = fileSize;
+    this.maxTotalSize = maxTotalSize;
+    this.ringCapacity = ringCapacity;
+    this.ring = ByteBuffer.allocateDirect(ringCapacity * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    this.ringReader = ring.duplicate();
+    this.startTime = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+  }
+
+  /**
+   * Start copying records to disk in the background. Does nothing if already started.
+   */
+  public synchronized void start() {
+    if (!running) {
+      running = true;
+      thread = new Thread(this::run, "TelemetryRecorder");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Stop the background thread, after it has copied out every record in the
+   * ring and written the log file to disk.
+   * @throws InterruptedException If interrupted while waiting for the thread to finish.
+   */
+  public synchronized void stop() throws InterruptedException {
+    if (running) {
+      running = false;
+      thread.join();
+    }
+  }
+
+  /**
+   * Record the joystick axes.
+   * @param timestamp When the axes were read, in seconds.
+   * @param x The raw X axis.
+   * @param y The raw Y axis.
+   * @param z The raw Z axis.
+   * @param throttle The raw throttle slider.
+   * @return Whether or not the record fit in the ring.
+   */
+  public boolean recordJoystick(double timestamp, double x, double y, double z, double throttle) {
+    return record(RecordType.JOYSTICK, 0, timestamp, x, y, z, throttle, 0, 0);
+  }
+
+  /**
+   * Record the state of a module.
+   * @param index The index of the module.
+   * @param timestamp When the module was sampled, in seconds.
+   * @param pivotEncoder The pivot encoder reading.
+   * @param driveEncoder The drive encoder reading.
+   * @param pivotSpeed The pivot motor speed.
+   * @param driveVelocity The measured drive motor velocity, in RPM.
+   * @param pivotReference The pivot reference the module was given.
+   * @param driveOutput The drive output the module was given, which is the drive reference in RPM.
+   * @return Whether or not the record fit in the ring.
+   */
+  public boolean recordModule(int index, double timestamp, double pivotEncoder, double driveEncoder,
+      double pivotSpeed, double driveVelocity, double pivotReference, double driveOutput) {
+    return record(RecordType.MODULE, index, timestamp, pivotEncoder, driveEncoder, pivotSpeed, driveVelocity, pivotReference, driveOutput);
+  }
+
+  /**
+   * Record the chassis setpoint that the setpoint limiter starts the loop
+   * from. With this, replay can pick the limiter up where it was, even if
+   * the loops before were dropped.
+   * @param timestamp When the setpoint limiter last moved the setpoint on, by the sensor clock, in seconds.
+   * @param fwd The forward speed.
+   * @param str The strafe speed.
+   * @param rcw The rotation speed.
+   * @param fwdAcceleration How fast the forward speed was changing, per second.
+   * @param strAcceleration How fast the strafe speed was changing, per second.
+   * @param rcwAcceleration How fast the rotation speed was changing, per second.
+   * @return Whether or not the record fit in the ring.
+   */
+  public boolean recordSetpoint(double timestamp, double fwd, double str, double rcw, double fwdAcceleration,
+      double strAcceleration, double rcwAcceleration) {
+    return record(RecordType.SETPOINT, 0, timestamp, fwd, str, rcw, fwdAcceleration, strAcceleration, rcwAcceleration);
+  }
+
+  /**
+   * Record the gyro yaw.
+   * @param timestamp When the gyro was sampled, in seconds.
+   * @param yaw The yaw, in degrees.
+   * @return Whether or not the record fit in the ring.
+   */
+  public boolean recordGyro(double timestamp, double yaw) {
+    return record(RecordType.GYRO, 0, timestamp, yaw, 0, 0, 0, 0, 0);
+  }
+
+  /**
+   * Record the last duration of every loop stage that has been timed.
+   * @param timestamp The current time, in seconds.
+   */
+  public void recordLoopTimings(double timestamp) {
+    for (LoopStage stage : STAGES) {
+      LatencyHistogram histogram = LoopTimers.getHistogram(stage);
+      if (histogram.getCount() > 0) {
+        record(RecordType.LOOP_TIMING, stage.ordinal(), timestamp, histogram.getLast(), 0, 0, 0, 0, 0);
+      }
+    }
+  }
+
+  /**
+   * Record how long each phase of starting up took, as timed by the
+   * StartupProfiler. Phases that haven't been marked are skipped. This is
+   * meant to be called once, at the end of robotInit().
+   * @param timestamp The time the phases are recorded at, in seconds.
+   */
+  public void recordStartupPhases(double timestamp) {
+    for (StartupPhase phase : StartupPhase.values()) {
+      if (StartupProfiler.isMarked(phase)) {
+        record(RecordType.STARTUP_PHASE, phase.ordinal(), timestamp, StartupProfiler.getDuration(phase) * 1e6,
+            StartupProfiler.getEnd(phase) * 1e6, StartupProfiler.isSlow(phase) ? 1 : 0, 0, 0, 0);
+      }
+    }
+  }
+
+  /**
+   * Put a record into the ring, or count it as dropped if the ring is full.
+   */
+  private boolean record(RecordType type, int index, double timestamp, double v0, double v1, double v2, double v3, double v4, double v5) {
+    long sequence = (long) WRITTEN.getOpaque(this);
+    if (sequence - (long) CONSUMED.getAcquire(this) >= ringCapacity) {
+      dropped++;
+      return false;
+    }
+    int offset = (int) (sequence & (ringCapacity - 1)) * RECORD_SIZE;
+    ring.putInt(offset, type.getCode());
+    ring.putInt(offset + 4, index);
+    ring.putDouble(offset + 8, timestamp);
+    ring.putDouble(offset + VALUES_OFFSET, v0);
+    ring.putDouble(offset + VALUES_OFFSET + 8, v1);
+    ring.putDouble(offset + VALUES_OFFSET + 16, v2);
+    ring.putDouble(offset + VALUES_OFFSET + 24, v3);
+    ring.putDouble(offset + VALUES_OFFSET + 32, v4);
+    ring.putDouble(offset + VALUES_OFFSET + 40, v5);
+    /* Publish the record to the background thread. */
+    WRITTEN.setRelease(this, sequence + 1);
+    return true;
+  }
+
+  /**
+   * Get how many records have been put into the ring.
+   * @return The number of records recorded.
+   */
+  public long getRecordedRecords() {
+    return (long) WRITTEN.getOpaque(this);
+  }
+
+  /**
+   * Get how many records were dropped because the ring was full. This should
+   * only be read from the thread that writes records.
+   * @return The number of dropped records.
+   */
+  public long getDroppedRecords() {
+    return dropped;
+  }
+
+  /**
+   * The background thread. Copies records out of the ring every so often,
+   * until stopped.
+   */
+  private void run() {
+    long lastForce = System.currentTimeMillis();
+    while (running) {
+      drain();
+      long now = System.currentTimeMillis();
+      if (file != null && now - lastForce >= FORCE_PERIOD_MILLIS) {
+        file.force();
+        lastForce = now;
+      }
+      try {
+        Thread.sleep(FLUSH_PERIOD_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    drain();
+    if (file != null) {
+      file.force();
+    }
+  }
+
+  /**
+   * Copy every published record out of the ring and into the log file.
+   */
+  private void drain() {
+    long end = (long) WRITTEN.getAcquire(this);
+    long next = (long) CONSUMED.getOpaque(this);
+    while (next < end) {
+      if (file == null || file.remaining() < RECORD_SIZE) {
+        if (!openNextFile()) {
+          /* Leave the records in the ring; once it fills up, new records are dropped. */
+          return;
+        }
+      }
+      /* Copy as many records as possible at once, without wrapping around the ring or overflowing the file. */
+      int first = (int) (next & (ringCapacity - 1));
+      int count = (int) Math.min(end - next, ringCapacity - first);
+      count = Math.min(count, file.remaining() / RECORD_SIZE);
+      ringReader.limit((first + count) * RECORD_SIZE).position(first * RECORD_SIZE);
+      file.put(ringReader);
+      next += count;
+      /* Hand the space back to the loop. */
+      CONSUMED.setRelease(this, next);
+    }
+  }
+
+  /**
+   * Finish the current log file and start a new one.
+   * @return Whether or not a new file could be opened.
+   */
+  private boolean openNextFile() {
+    if (file != null) {
+      file.force();
+      file = null;
+    }
+    try {
+      directory.mkdirs();
+      if (boot < 0) {
+        boot = countBoot();
+      }
+      deleteOldFiles();
+      File logFile = new File(directory, String.format("%sboot%06d-%03d-%s%s", FILE_PREFIX, boot, fileCount, startTime, FILE_EXTENSION));
+      try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        file = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+      }
+    } catch (IOException e) {
+      System.err.println("Unable to open a telemetry log in " + directory + ": " + e.getMessage());
+      running = false;
+      return false;
+    }
+    fileCount++;
+    file.order(ByteOrder.LITTLE_ENDIAN);
+    file.putInt(MAGIC);
+    file.putInt(FORMAT_VERSION);
+    file.putInt(RECORD_SIZE);
+    file.position(HEADER_SIZE);
+    return true;
+  }
+
+  /**
+   * Count this boot in the boot counter. If the counter is missing or
+   * unreadable, counting carries on from the newest log file instead, so
+   * new logs are never taken for older ones.
+   * @return The number of this boot.
+   * @throws IOException If the counter can't be written.
+   */
+  private long countBoot() throws IOException {
+    File counter = new File(directory, BOOT_COUNTER_FILE);
+    long last = -1;
+    try {
+      last = Long.parseLong(new String(Files.readAllBytes(counter.toPath()), StandardCharsets.US_ASCII).trim());
+    } catch (IOException | NumberFormatException e) {
+      /* There is no counter yet, or it was damaged, so go by the log files alone. */
+    }
+    File[] logFiles = listLogFiles();
+    if (logFiles != null) {
+      for (File logFile : logFiles) {
+        last = Math.max(last, fileNumber(logFile, 1));
+      }
+    }
+    long next = last + 1;
+    /* Replace the counter in one step, so losing power part way through can't leave it empty. */
+    File newCounter = new File(directory, BOOT_COUNTER_FILE + ".new");
+    Files.write(newCounter.toPath(), Long.toString(next).getBytes(StandardCharsets.US_ASCII));
+    Files.move(newCounter.toPath(), counter.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return next;
+  }
+
+  /**
+   * Get every log file in the directory, from this boot or any other.
+   * @return The log files, or null if the directory can't be listed.
+   */
+  private File[] listLogFiles() {
+    return directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_EXTENSION));
+  }
+
+  /**
+   * Get one of the numbers from a log file's name.
+   * @param logFile The log file.
+   * @param group 1 for the boot number, or 2 for the file number within the boot.
+   * @return The number, or -1 if the name doesn't have one, like the logs from before there was a boot counter.
+   */
+  private static long fileNumber(File logFile, int group) {
+    Matcher matcher = FILE_NAME.matcher(logFile.getName());
+    if (!matcher.matches()) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(matcher.group(group));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Delete the oldest log files in the directory until there is room for
+   * one more file under the maximum total size.
+   */
+  private void deleteOldFiles() {
+    File[] logFiles = listLogFiles();
+    if (logFiles == null) {
+      return;
+    }
+    /* Oldest first, by boot and then by file within the boot. Logs without a boot number are older than any with one. */
+    Arrays.sort(logFiles, Comparator.<File>comparingLong(logFile -> fileNumber(logFile, 1))
+        .thenComparingLong(logFile -> fileNumber(logFile, 2))
+        .thenComparing(File::getName));
+    long totalSize = 0;
+    for (File logFile : logFiles) {
+      totalSize += logFile.length();
+    }
+    for (int i = 0; i < logFiles.length && totalSize + fileSize > maxTotalSize; i++) {
+      long length = logFiles[i].length();
+      if (logFiles[i].delete()) {
+        totalSize -= length;
+      } else {
+        System.err.println("Unable to delete old telemetry log " + logFiles[i]);
+      }
+    }
+  }
+}
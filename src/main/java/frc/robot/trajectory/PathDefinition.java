@@ -0,0 +1,155 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A path that the robot can follow, as written in a path file. Path files are
+ * plain text, with one setting or waypoint per line:
+ * <pre>
+ * # Comments start with a hash.
+ * maxVelocity 60
+ * maxAcceleration 60
+ * maxAngularVelocity 90
+ * waypoint 0 0 0
+ * waypoint 60 0 0
+ * </pre>
+ * Each waypoint is an X position, a Y position and a heading, and the limits
+ * are passed to the TrajectoryGenerator. The name of the path is the name of
+ * the file without its extension.
+ * <p>
+ * The checksum of the file is kept, so a trajectory compiled from it can be
+ * checked against it later.
+ */
+public class PathDefinition {
+  /**
+   * The extension of path files.
+   */
+  public static final String EXTENSION = ".path";
+
+  private final String name;
+  private final double maxVelocity;
+  private final double maxAcceleration;
+  private final double maxAngularVelocity;
+  private final double[] x, y, heading;
+  private final long checksum;
+
+  private PathDefinition(String name, double maxVelocity, double maxAcceleration, double maxAngularVelocity,
+      double[] x, double[] y, double[] heading, long checksum) {
+    this.name = name;
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+    this.maxAngularVelocity = maxAngularVelocity;
+    this.x = x;
+    this.y = y;
+    this.heading = heading;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Read a path file.
+   * @param file The path file.
+   * @return The path.
+   * @throws IOException If the file can't be read, or isn't a valid path.
+   */
+  public static PathDefinition read(File file) throws IOException {
+    byte[] contents = Files.readAllBytes(file.toPath());
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+
+    String name = file.getName();
+    if (name.endsWith(EXTENSION)) {
+      name = name.substring(0, name.length() - EXTENSION.length());
+    }
+    double maxVelocity = Double.NaN, maxAcceleration = Double.NaN, maxAngularVelocity = Double.NaN;
+    String[] lines = new String(contents, StandardCharsets.UTF_8).split("\r?\n");
+    double[] x = new double[lines.length];
+    double[] y = new double[lines.length];
+    double[] heading = new double[lines.length];
+    int waypoints = 0;
+    for (int i = 0; i < lines.length; i++) {
+      String line = lines[i].trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      String[] fields = line.split("\\s+");
+      try {
+        switch (fields[0]) {
+          case "maxVelocity":
+            maxVelocity = parse(fields, 1)[0];
+            break;
+          case "maxAcceleration":
+            maxAcceleration = parse(fields, 1)[0];
+            break;
+          case "maxAngularVelocity":
+            maxAngularVelocity = parse(fields, 1)[0];
+            break;
+          case "waypoint":
+            double[] waypoint = parse(fields, 3);
+            x[waypoints] = waypoint[0];
+            y[waypoints] = waypoint[1];
+            heading[waypoints] = waypoint[2];
+            waypoints++;
+            break;
+          default:
+            throw new IllegalArgumentException("unknown setting \"" + fields[0] + "\"");
+        }
+      } catch (IllegalArgumentException e) {
+        throw new IOException(file + " line " + (i + 1) + ": " + e.getMessage());
+      }
+    }
+    if (Double.isNaN(maxVelocity) || Double.isNaN(maxAcceleration) || Double.isNaN(maxAngularVelocity)) {
+      throw new IOException(file + " must set maxVelocity, maxAcceleration and maxAngularVelocity");
+    }
+    if (!(maxVelocity > 0 && maxAcceleration > 0 && maxAngularVelocity > 0)) {
+      throw new IOException(file + " must have positive limits");
+    }
+    if (waypoints < 2) {
+      throw new IOException(file + " must have at least two waypoints");
+    }
+    return new PathDefinition(name, maxVelocity, maxAcceleration, maxAngularVelocity,
+        Arrays.copyOf(x, waypoints), Arrays.copyOf(y, waypoints),
+        Arrays.copyOf(heading, waypoints), crc.getValue());
+  }
+
+  /* Parse the numbers after the setting name, making sure there are exactly as many as expected. */
+  private static double[] parse(String[] fields, int count) {
+    if (fields.length != count + 1) {
+      throw new IllegalArgumentException(fields[0] + " takes " + count + " number" + ((count == 1) ? "" : "s"));
+    }
+    double[] values = new double[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = Double.parseDouble(fields[i + 1]);
+    }
+    return values;
+  }
+
+  /**
+   * Generate the trajectory for this path. This is slow, so it should be done
+   * ahead of time, ideally when the code is built.
+   * @return The trajectory.
+   */
+  public Trajectory generate() {
+    return new TrajectoryGenerator(maxVelocity, maxAcceleration, maxAngularVelocity).generate(x, y, heading);
+  }
+
+  /**
+   * Get the name of the path.
+   * @return The name of the path file, without its extension.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the checksum of the path file.
+   * @return The CRC32 of the path file's contents.
+   */
+  public long getChecksum() {
+    return checksum;
+  }
+}
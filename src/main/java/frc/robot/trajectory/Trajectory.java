@@ -0,0 +1,175 @@
+package frc.robot.trajectory;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A path for the robot to follow, sampled at a fixed time step. Row k of
+ * the trajectory is where the robot should be, and how fast it should be
+ * moving, k time steps after the trajectory starts.
+ * <p>
+ * Each quantity is stored in its own column, which is a DoubleBuffer so that
+ * it can either wrap an array or point straight at a file that was mapped
+ * into memory. Positions are in inches and headings in degrees, on the same
+ * axes as the odometry; velocities are per second, relative to the field.
+ * <p>
+ * Sampling a point in time interpolates between the rows around it, and keeps
+ * the result until the next call, so following a trajectory doesn't allocate.
+ */
+public class Trajectory {
+  private final double timeStep;
+  private final int size;
+  private final DoubleBuffer x, y, heading;
+  private final DoubleBuffer velocityX, velocityY, angularVelocity;
+
+  private double sampleX, sampleY, sampleHeading;
+  private double sampleVelocityX, sampleVelocityY, sampleAngularVelocity;
+
+  /**
+   * Create a trajectory from its columns. Every column must have the same
+   * number of rows, and there must be at least one.
+   * @param timeStep The time between rows, in seconds.
+   * @param x The X position of each row.
+   * @param y The Y position of each row.
+   * @param heading The heading of each row, in degrees.
+   * @param velocityX The X velocity of each row.
+   * @param velocityY The Y velocity of each row.
+   * @param angularVelocity How fast the heading is changing in each row, in degrees per second.
+   */
+  public Trajectory(double timeStep, DoubleBuffer x, DoubleBuffer y, DoubleBuffer heading,
+      DoubleBuffer velocityX, DoubleBuffer velocityY, DoubleBuffer angularVelocity) {
+    if (timeStep <= 0) {
+      throw new IllegalArgumentException("Trajectory time step must be positive, got " + timeStep);
+    }
+    size = x.limit();
+    if (size < 1 || y.limit() != size || heading.limit() != size || velocityX.limit() != size
+        || velocityY.limit() != size || angularVelocity.limit() != size) {
+      throw new IllegalArgumentException("Trajectory columns must all have the same, non-zero number of rows");
+    }
+    this.timeStep = timeStep;
+    this.x = x;
+    this.y = y;
+    this.heading = heading;
+    this.velocityX = velocityX;
+    this.velocityY = velocityY;
+    this.angularVelocity = angularVelocity;
+  }
+
+  /**
+   * Find where the robot should be at a point in time. Retrieve the result with
+   * the getters. Times before the start give the first row, and times after the
+   * end give the last row.
+   * @param time The time since the trajectory started, in seconds.
+   */
+  public void sample(double time) {
+    double position = time / timeStep;
+    if (!(position > 0)) {
+      setSample(0, 0);
+      return;
+    }
+    if (position >= size - 1) {
+      setSample(size - 1, 0);
+      return;
+    }
+    int row = (int) position;
+    setSample(row, position - row);
+  }
+
+  private void setSample(int row, double t) {
+    int next = (t == 0) ? row : row + 1;
+    sampleX = interpolate(x, row, next, t);
+    sampleY = interpolate(y, row, next, t);
+    sampleHeading = heading.get(row) + (Math.IEEEremainder(heading.get(next) - heading.get(row), 360) * t);
+    sampleVelocityX = interpolate(velocityX, row, next, t);
+    sampleVelocityY = interpolate(velocityY, row, next, t);
+    sampleAngularVelocity = interpolate(angularVelocity, row, next, t);
+  }
+
+  private static double interpolate(DoubleBuffer column, int row, int next, double t) {
+    double start = column.get(row);
+    return start + ((column.get(next) - start) * t);
+  }
+
+  /**
+   * Get how long the trajectory takes to follow.
+   * @return The time of the last row, in seconds.
+   */
+  public double getDuration() {
+    return (size - 1) * timeStep;
+  }
+
+  /**
+   * Get the time between rows.
+   * @return The time step, in seconds.
+   */
+  public double getTimeStep() {
+    return timeStep;
+  }
+
+  /**
+   * Get how many rows there are.
+   * @return The number of rows.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Get one of the columns of the trajectory, for saving it. The returned
+   * buffer is read only, so the trajectory can't be changed through it.
+   * @param column Which column to get: 0 through 5 are X, Y, heading, X velocity,
+   * Y velocity and angular velocity.
+   * @return The column.
+   */
+  public DoubleBuffer getColumn(int column) {
+    DoubleBuffer[] columns = { x, y, heading, velocityX, velocityY, angularVelocity };
+    return columns[column].asReadOnlyBuffer();
+  }
+
+  /**
+   * Get the X position from the last sample.
+   * @return The X position, in inches.
+   */
+  public double getX() {
+    return sampleX;
+  }
+
+  /**
+   * Get the Y position from the last sample.
+   * @return The Y position, in inches.
+   */
+  public double getY() {
+    return sampleY;
+  }
+
+  /**
+   * Get the heading from the last sample.
+   * @return The heading, in degrees.
+   */
+  public double getHeading() {
+    return sampleHeading;
+  }
+
+  /**
+   * Get the X velocity from the last sample.
+   * @return The X velocity, in inches per second.
+   */
+  public double getVelocityX() {
+    return sampleVelocityX;
+  }
+
+  /**
+   * Get the Y velocity from the last sample.
+   * @return The Y velocity, in inches per second.
+   */
+  public double getVelocityY() {
+    return sampleVelocityY;
+  }
+
+  /**
+   * Get the angular velocity from the last sample.
+   * @return How fast the heading is changing, in degrees per second.
+   */
+  public double getAngularVelocity() {
+    return sampleAngularVelocity;
+  }
+}
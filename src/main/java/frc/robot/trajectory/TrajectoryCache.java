@@ -0,0 +1,102 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads every trajectory in the deploy directory, by name.
+ * <p>
+ * Paths are read from the PATH_DIRECTORY, and each one's trajectory is
+ * loaded from the trajectory file of the same name that was compiled into
+ * the TRAJECTORY_DIRECTORY when the code was built. Loading a trajectory
+ * file just maps it into memory, which is much faster than generating the
+ * trajectory. If a trajectory file is missing, corrupt or doesn't match its
+ * path, a warning is printed and the trajectory is generated instead, so the
+ * robot always follows the path that was deployed.
+ * <p>
+ * Each trajectory is loaded once and shared, and a trajectory keeps the last
+ * point it was sampled at, so only one command should follow a trajectory at
+ * a time.
+ */
+public class TrajectoryCache {
+  /**
+   * The directory in the deploy directory that path files are read from.
+   */
+  public static final String PATH_DIRECTORY = "paths";
+
+  /**
+   * The directory in the deploy directory that trajectory files are loaded from.
+   */
+  public static final String TRAJECTORY_DIRECTORY = "trajectories";
+
+  private final Map<String, Trajectory> trajectories = new HashMap<>();
+  private int generated;
+
+  /**
+   * Load all of the trajectories.
+   * @param deployDirectory The deploy directory, which contains the path and
+   * trajectory directories.
+   */
+  public TrajectoryCache(File deployDirectory) {
+    long start = System.nanoTime();
+    File pathDirectory = new File(deployDirectory, PATH_DIRECTORY);
+    File trajectoryDirectory = new File(deployDirectory, TRAJECTORY_DIRECTORY);
+    File[] paths = pathDirectory.listFiles((dir, name) -> name.endsWith(PathDefinition.EXTENSION));
+    if (paths == null) {
+      System.err.println("No paths found in " + pathDirectory);
+      return;
+    }
+    Arrays.sort(paths);
+    for (File path : paths) {
+      PathDefinition definition;
+      try {
+        definition = PathDefinition.read(path);
+      } catch (IOException e) {
+        System.err.println("Unable to read path " + path + ": " + e.getMessage());
+        continue;
+      }
+      Trajectory trajectory;
+      try {
+        trajectory = TrajectoryFile.read(new File(trajectoryDirectory, definition.getName() + TrajectoryFile.EXTENSION),
+            definition.getChecksum());
+      } catch (IOException e) {
+        System.err.println("Generating trajectory " + definition.getName() + ", the compiled one can't be used: " + e.getMessage());
+        trajectory = definition.generate();
+        generated++;
+      }
+      trajectories.put(definition.getName(), trajectory);
+    }
+    System.out.printf("Loaded %d trajectories (%d generated) in %.1f ms%n", trajectories.size(), generated,
+        (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Get a trajectory.
+   * @param name The name of the trajectory, which is the name of its path file without the extension.
+   * @return The trajectory, or null if there isn't one with the name, because
+   * its path file is missing or couldn't be read.
+   */
+  public Trajectory get(String name) {
+    return trajectories.get(name);
+  }
+
+  /**
+   * Get how many trajectories were loaded.
+   * @return The number of trajectories.
+   */
+  public int size() {
+    return trajectories.size();
+  }
+
+  /**
+   * Get how many trajectories had to be generated because their trajectory
+   * files couldn't be used.
+   * @return The number of generated trajectories.
+   */
+  public int getGeneratedCount() {
+    return generated;
+  }
+}
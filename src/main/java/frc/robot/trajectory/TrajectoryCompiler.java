@@ -0,0 +1,52 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compiles every path file in a directory into a trajectory file, so the
+ * robot can load trajectories instead of generating them. This runs on the
+ * desktop as part of the build, with "gradle compileTrajectories", and
+ * writes the trajectories into the deploy directory so they are deployed
+ * along with the paths. Trajectory files whose path file no longer exists
+ * are deleted.
+ */
+public final class TrajectoryCompiler {
+  private TrajectoryCompiler() {
+  }
+
+  public static void main(String... args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: TrajectoryCompiler <path directory> <trajectory directory>");
+      System.exit(2);
+    }
+    File pathDirectory = new File(args[0]);
+    File trajectoryDirectory = new File(args[1]);
+    File[] paths = pathDirectory.listFiles((dir, name) -> name.endsWith(PathDefinition.EXTENSION));
+    if (paths == null) {
+      paths = new File[0];
+    }
+    Arrays.sort(paths);
+    if (!trajectoryDirectory.isDirectory() && !trajectoryDirectory.mkdirs()) {
+      throw new IOException("Unable to create " + trajectoryDirectory);
+    }
+
+    for (File path : paths) {
+      PathDefinition definition = PathDefinition.read(path);
+      Trajectory trajectory = definition.generate();
+      File file = new File(trajectoryDirectory, definition.getName() + TrajectoryFile.EXTENSION);
+      TrajectoryFile.write(trajectory, definition.getChecksum(), file);
+      System.out.printf("%s: %d rows, %.2f s%n", file, trajectory.size(), trajectory.getDuration());
+    }
+
+    File[] compiled = trajectoryDirectory.listFiles((dir, name) -> name.endsWith(TrajectoryFile.EXTENSION));
+    for (File file : (compiled == null) ? new File[0] : compiled) {
+      String name = file.getName();
+      String pathName = name.substring(0, name.length() - TrajectoryFile.EXTENSION.length()) + PathDefinition.EXTENSION;
+      if (!new File(pathDirectory, pathName).exists() && file.delete()) {
+        System.out.println(file + ": deleted, its path no longer exists");
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Writes trajectories to compact binary files, and loads them back without
+ * copying them.
+ * <p>
+ * Every file starts with a header of HEADER_SIZE bytes: the MAGIC number, the
+ * FORMAT_VERSION, the number of rows and the number of columns as ints, the
+ * time step as a double, and then the checksum of the path file that the
+ * trajectory was generated from and the CRC32 of the file, as longs. The data
+ * follows the header, one column after another, with each column being every
+ * row's value as a double. Everything is little endian. The CRC32 covers the
+ * header as well as the data, everything except the CRC32 itself.
+ * <p>
+ * Loading a file maps it into memory and points each column of the trajectory
+ * straight at its part of the file. A file is rejected if it isn't in this
+ * format, if its header or data is corrupt, or if it was compiled from a different
+ * version of the path file than the one given, so an out of date trajectory
+ * is never followed.
+ */
+public final class TrajectoryFile {
+  /**
+   * The first int of every trajectory file.
+   */
+  public static final int MAGIC = 0x46525452; /* "FRTR" */
+
+  /**
+   * The version of the trajectory file format.
+   */
+  public static final int FORMAT_VERSION = 2;
+
+  /**
+   * The size of the header at the start of every trajectory file, in bytes.
+   */
+  public static final int HEADER_SIZE = 64;
+
+  /**
+   * How many columns every trajectory has.
+   */
+  public static final int COLUMN_COUNT = 6;
+
+  /**
+   * The extension of trajectory files.
+   */
+  public static final String EXTENSION = ".traj";
+
+  /* Where the CRC32 is in the header. */
+  private static final int CRC_OFFSET = 32;
+
+  private TrajectoryFile() {
+  }
+
+  /**
+   * Write a trajectory to a file, replacing it if it already exists.
+   * @param trajectory The trajectory to write.
+   * @param pathChecksum The checksum of the path file the trajectory was generated from.
+   * @param file The file to write.
+   * @throws IOException If the file can't be written.
+   */
+  public static void write(Trajectory trajectory, long pathChecksum, File file) throws IOException {
+    int rows = trajectory.size();
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + (COLUMN_COUNT * rows * Double.BYTES));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    int offset = HEADER_SIZE;
+    for (int column = 0; column < COLUMN_COUNT; column++) {
+      DoubleBuffer values = trajectory.getColumn(column);
+      for (int row = 0; row < rows; row++) {
+        buffer.putDouble(offset, values.get(row));
+        offset += Double.BYTES;
+      }
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, FORMAT_VERSION);
+    buffer.putInt(8, rows);
+    buffer.putInt(12, COLUMN_COUNT);
+    buffer.putDouble(16, trajectory.getTimeStep());
+    buffer.putLong(24, pathChecksum);
+    buffer.putLong(CRC_OFFSET, checksum(buffer));
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Load a trajectory from a file. The file is mapped into memory, and the
+   * trajectory reads straight from it.
+   * @param file The file to load.
+   * @param pathChecksum The checksum of the path file the trajectory should have been generated from.
+   * @return The trajectory.
+   * @throws IOException If the file can't be read, isn't a trajectory file in
+   * a format this understands, is corrupt, or was generated from a different
+   * path file.
+   */
+  public static Trajectory read(File file, long pathChecksum) throws IOException {
+    MappedByteBuffer buffer;
+    /* The mapping stays valid after the channel is closed. */
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException(file + " is not a trajectory file");
+    }
+    int version = buffer.getInt(4);
+    int rows = buffer.getInt(8);
+    int columns = buffer.getInt(12);
+    if (version != FORMAT_VERSION || columns != COLUMN_COUNT) {
+      throw new IOException(file + " is trajectory file version " + version + " with " + columns
+          + " columns, expected version " + FORMAT_VERSION);
+    }
+    if (rows < 1 || buffer.capacity() != HEADER_SIZE + ((long) COLUMN_COUNT * rows * Double.BYTES)) {
+      throw new IOException(file + " is the wrong size for " + rows + " rows");
+    }
+    if (buffer.getLong(24) != pathChecksum) {
+      throw new IOException(file + " is out of date, it was compiled from a different version of its path");
+    }
+    if (buffer.getLong(CRC_OFFSET) != checksum(buffer)) {
+      throw new IOException(file + " is corrupt");
+    }
+
+    DoubleBuffer[] values = new DoubleBuffer[COLUMN_COUNT];
+    int offset = HEADER_SIZE;
+    for (int column = 0; column < COLUMN_COUNT; column++) {
+      ByteBuffer slice = buffer.duplicate();
+      slice.position(offset).limit(offset + (rows * Double.BYTES));
+      /* Slicing forgets the byte order, so it has to be set again. */
+      values[column] = slice.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+      offset += rows * Double.BYTES;
+    }
+    return new Trajectory(buffer.getDouble(16), values[0], values[1], values[2], values[3], values[4], values[5]);
+  }
+
+  /* The CRC32 of the whole file, leaving out where the CRC itself goes. */
+  private static long checksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    ByteBuffer part = buffer.duplicate();
+    part.position(0).limit(CRC_OFFSET);
+    crc.update(part);
+    part.limit(buffer.capacity()).position(CRC_OFFSET + Long.BYTES);
+    crc.update(part);
+    return crc.getValue();
+  }
+}
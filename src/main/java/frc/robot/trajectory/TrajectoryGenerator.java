@@ -0,0 +1,201 @@
+package frc.robot.trajectory;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Generates trajectories through a list of waypoints.
+ * <p>
+ * The path is a Catmull-Rom spline, which passes through every waypoint and
+ * curves smoothly between them. A swerve drive can face any direction while
+ * it drives, so the heading is separate from the path: it turns from each
+ * waypoint's heading to the next one's, the short way around, over the
+ * course of the segment between them.
+ * <p>
+ * The speed along the path is limited by the maximum velocity, by the maximum
+ * acceleration (which also limits how fast the robot can take a tight curve),
+ * and by the maximum angular velocity (which slows the robot down where it has
+ * to turn a lot in a short distance). The robot starts and ends at rest. The
+ * result is sampled at a fixed time step into a Trajectory.
+ * <p>
+ * Generating allocates, so trajectories should be generated ahead of time,
+ * not while following them.
+ */
+public class TrajectoryGenerator {
+  /**
+   * The default time between rows of a generated trajectory, which is one loop.
+   */
+  public static final double DEFAULT_TIME_STEP = 0.02;
+
+  /* How finely each segment of the path is divided up to find its length and speed limits. */
+  private static final int SAMPLES_PER_SEGMENT = 200;
+
+  private final double maxVelocity;
+  private final double maxAcceleration;
+  private final double maxAngularVelocity;
+  private final double timeStep;
+
+  /**
+   * Create a generator with the default time step.
+   * @param maxVelocity The fastest the robot may drive, in inches per second.
+   * @param maxAcceleration The fastest the robot may speed up, slow down or turn, in inches per second squared.
+   * @param maxAngularVelocity The fastest the heading may change, in degrees per second.
+   */
+  public TrajectoryGenerator(double maxVelocity, double maxAcceleration, double maxAngularVelocity) {
+    this(maxVelocity, maxAcceleration, maxAngularVelocity, DEFAULT_TIME_STEP);
+  }
+
+  /**
+   * Create a generator.
+   * @param maxVelocity The fastest the robot may drive, in inches per second.
+   * @param maxAcceleration The fastest the robot may speed up, slow down or turn, in inches per second squared.
+   * @param maxAngularVelocity The fastest the heading may change, in degrees per second.
+   * @param timeStep The time between rows of generated trajectories, in seconds.
+   */
+  public TrajectoryGenerator(double maxVelocity, double maxAcceleration, double maxAngularVelocity, double timeStep) {
+    if (maxVelocity <= 0 || maxAcceleration <= 0 || maxAngularVelocity <= 0 || timeStep <= 0) {
+      throw new IllegalArgumentException("Trajectory limits and time step must be positive");
+    }
+    this.maxVelocity = maxVelocity;
+    this.maxAcceleration = maxAcceleration;
+    this.maxAngularVelocity = maxAngularVelocity;
+    this.timeStep = timeStep;
+  }
+
+  /**
+   * Generate a trajectory through the given waypoints. Consecutive waypoints
+   * must be at different positions; the robot can't turn in place along a
+   * trajectory.
+   * @param x The X position of each waypoint, in inches.
+   * @param y The Y position of each waypoint, in inches.
+   * @param heading The heading the robot should have at each waypoint, in degrees.
+   * @return The trajectory.
+   */
+  public Trajectory generate(double[] x, double[] y, double[] heading) {
+    int waypoints = x.length;
+    if (waypoints < 2 || y.length != waypoints || heading.length != waypoints) {
+      throw new IllegalArgumentException("A trajectory needs at least two waypoints, each with an X, Y and heading");
+    }
+
+    /* Sample the spline finely, finding the position, heading, direction and speed limit at each point. */
+    int samples = ((waypoints - 1) * SAMPLES_PER_SEGMENT) + 1;
+    double[] px = new double[samples];
+    double[] py = new double[samples];
+    double[] ph = new double[samples];
+    double[] tangentX = new double[samples];
+    double[] tangentY = new double[samples];
+    double[] curvature = new double[samples];
+    double unwrappedHeading = heading[0];
+    for (int segment = 0; segment < waypoints - 1; segment++) {
+      int before = Math.max(segment - 1, 0);
+      int after = Math.min(segment + 2, waypoints - 1);
+      /* Catmull-Rom tangents, which point from the previous waypoint to the next one. */
+      double m0x = (x[segment + 1] - x[before]) / ((segment + 1) - before);
+      double m0y = (y[segment + 1] - y[before]) / ((segment + 1) - before);
+      double m1x = (x[after] - x[segment]) / (after - segment);
+      double m1y = (y[after] - y[segment]) / (after - segment);
+      double turn = Math.IEEEremainder(heading[segment + 1] - heading[segment], 360);
+      int first = (segment == 0) ? 0 : 1;
+      for (int j = first; j <= SAMPLES_PER_SEGMENT; j++) {
+        double u = (double) j / SAMPLES_PER_SEGMENT;
+        int i = (segment * SAMPLES_PER_SEGMENT) + j;
+        /* Cubic Hermite basis functions, and their first and second derivatives. */
+        double u2 = u * u;
+        double u3 = u2 * u;
+        double h00 = (2 * u3) - (3 * u2) + 1, h10 = u3 - (2 * u2) + u, h01 = (-2 * u3) + (3 * u2), h11 = u3 - u2;
+        double d00 = (6 * u2) - (6 * u), d10 = (3 * u2) - (4 * u) + 1, d01 = (-6 * u2) + (6 * u), d11 = (3 * u2) - (2 * u);
+        double s00 = (12 * u) - 6, s10 = (6 * u) - 4, s01 = (-12 * u) + 6, s11 = (6 * u) - 2;
+        px[i] = (h00 * x[segment]) + (h10 * m0x) + (h01 * x[segment + 1]) + (h11 * m1x);
+        py[i] = (h00 * y[segment]) + (h10 * m0y) + (h01 * y[segment + 1]) + (h11 * m1y);
+        double dx = (d00 * x[segment]) + (d10 * m0x) + (d01 * x[segment + 1]) + (d11 * m1x);
+        double dy = (d00 * y[segment]) + (d10 * m0y) + (d01 * y[segment + 1]) + (d11 * m1y);
+        double ddx = (s00 * x[segment]) + (s10 * m0x) + (s01 * x[segment + 1]) + (s11 * m1x);
+        double ddy = (s00 * y[segment]) + (s10 * m0y) + (s01 * y[segment + 1]) + (s11 * m1y);
+        double speed = Math.hypot(dx, dy);
+        if (speed > 0) {
+          tangentX[i] = dx / speed;
+          tangentY[i] = dy / speed;
+          curvature[i] = Math.abs((dx * ddy) - (dy * ddx)) / (speed * speed * speed);
+        }
+        ph[i] = unwrappedHeading + (turn * u);
+      }
+      unwrappedHeading += turn;
+    }
+
+    /* Find the distance along the path, and the fastest the robot can go at each point. */
+    double[] distance = new double[samples];
+    double[] velocity = new double[samples];
+    for (int i = 0; i < samples; i++) {
+      double limit = maxVelocity;
+      if (curvature[i] > 0) {
+        limit = Math.min(limit, Math.sqrt(maxAcceleration / curvature[i]));
+      }
+      if (i > 0) {
+        double ds = Math.hypot(px[i] - px[i - 1], py[i] - py[i - 1]);
+        distance[i] = distance[i - 1] + ds;
+        double headingChange = Math.abs(ph[i] - ph[i - 1]);
+        if (headingChange > 0) {
+          /* Turning this much over this short a distance may mean the robot has to slow down. */
+          limit = Math.min(limit, (maxAngularVelocity * ds) / headingChange);
+          velocity[i - 1] = Math.min(velocity[i - 1], limit);
+        }
+      }
+      velocity[i] = limit;
+    }
+
+    /* Start and end at rest, and never speed up or slow down faster than the maximum acceleration. */
+    velocity[0] = 0;
+    velocity[samples - 1] = 0;
+    for (int i = 1; i < samples; i++) {
+      double ds = distance[i] - distance[i - 1];
+      velocity[i] = Math.min(velocity[i], Math.sqrt((velocity[i - 1] * velocity[i - 1]) + (2 * maxAcceleration * ds)));
+    }
+    for (int i = samples - 2; i >= 0; i--) {
+      double ds = distance[i + 1] - distance[i];
+      velocity[i] = Math.min(velocity[i], Math.sqrt((velocity[i + 1] * velocity[i + 1]) + (2 * maxAcceleration * ds)));
+    }
+
+    /* Find the time the robot reaches each point, assuming constant acceleration between points. */
+    double[] time = new double[samples];
+    for (int i = 1; i < samples; i++) {
+      double ds = distance[i] - distance[i - 1];
+      double averageVelocity = (velocity[i] + velocity[i - 1]) / 2;
+      time[i] = time[i - 1] + ((averageVelocity > 0) ? ds / averageVelocity : 0);
+    }
+
+    /* Resample at the time step. */
+    int rows = (int) Math.ceil(time[samples - 1] / timeStep) + 1;
+    double[] rx = new double[rows];
+    double[] ry = new double[rows];
+    double[] rh = new double[rows];
+    double[] rvx = new double[rows];
+    double[] rvy = new double[rows];
+    double[] rw = new double[rows];
+    int i = 0;
+    for (int row = 0; row < rows; row++) {
+      double t = Math.min(row * timeStep, time[samples - 1]);
+      while (i < samples - 2 && time[i + 1] <= t) {
+        i++;
+      }
+      double span = time[i + 1] - time[i];
+      double f = (span > 0) ? Math.min(Math.max((t - time[i]) / span, 0), 1) : 1;
+      rx[row] = px[i] + ((px[i + 1] - px[i]) * f);
+      ry[row] = py[i] + ((py[i + 1] - py[i]) * f);
+      rh[row] = ph[i] + ((ph[i + 1] - ph[i]) * f);
+      double v = velocity[i] + ((velocity[i + 1] - velocity[i]) * f);
+      rvx[row] = v * (tangentX[i] + ((tangentX[i + 1] - tangentX[i]) * f));
+      rvy[row] = v * (tangentY[i] + ((tangentY[i + 1] - tangentY[i]) * f));
+      double ds = distance[i + 1] - distance[i];
+      rw[row] = (ds > 0) ? v * ((ph[i + 1] - ph[i]) / ds) : 0;
+    }
+    /* Make sure the trajectory comes to rest exactly at the last waypoint. */
+    rx[rows - 1] = px[samples - 1];
+    ry[rows - 1] = py[samples - 1];
+    rh[rows - 1] = ph[samples - 1];
+    rvx[rows - 1] = 0;
+    rvy[rows - 1] = 0;
+    rw[rows - 1] = 0;
+
+    return new Trajectory(timeStep, DoubleBuffer.wrap(rx), DoubleBuffer.wrap(ry), DoubleBuffer.wrap(rh),
+        DoubleBuffer.wrap(rvx), DoubleBuffer.wrap(rvy), DoubleBuffer.wrap(rw));
+  }
+}
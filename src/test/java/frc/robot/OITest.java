@@ -0,0 +1,241 @@
+package frc.robot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.hal.sim.DriverStationSim;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.command.Scheduler;
+import edu.wpi.first.wpilibj.command.Subsystem;
+import frc.robot.OI.ActionType;
+
+/**
+ * Checks the button actions the OI registers, by dispatching snapshots with
+ * the buttons filled in by hand and running the scheduler after each, the
+ * way the robot does every loop.
+ */
+public class OITest {
+  private static final int BUTTON = 2;
+
+  /* How long to wait for the driver station to see a change to the simulated one, in milliseconds. */
+  private static final long DRIVER_STATION_TIMEOUT = 1000;
+
+  private OI oi;
+  private int runs;
+
+  /**
+   * The scheduler and the driver station need the HAL.
+   */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  @Before
+  public void setUp() throws InterruptedException {
+    oi = new OI();
+    runs = 0;
+    setEnabled(true);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    Scheduler.getInstance().removeAll();
+    setEnabled(false);
+  }
+
+  /**
+   * Enable or disable the simulated robot, and wait for the driver station to see it.
+   */
+  private static void setEnabled(boolean enabled) throws InterruptedException {
+    DriverStationSim driverStationSim = new DriverStationSim();
+    driverStationSim.setDsAttached(true);
+    driverStationSim.setEnabled(enabled);
+    driverStationSim.notifyNewData();
+    long deadline = System.currentTimeMillis() + DRIVER_STATION_TIMEOUT;
+    while (DriverStation.getInstance().isEnabled() != enabled) {
+      assertTrue("The driver station never saw the robot " + (enabled ? "enabled" : "disabled"), System.currentTimeMillis() < deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Run one loop: fill in the button instead of reading the joysticks,
+   * dispatch it, then run the scheduler. A command that a button starts is
+   * added at the end of the scheduler's run, so it first runs in the loop after.
+   */
+  private void loop(boolean pressed) {
+    oi.getSnapshot().setButtons(OI.JOYSTICK_PORT, pressed ? 1 << (BUTTON - 1) : 0);
+    oi.getButtonDispatcher().dispatch(oi.getSnapshot());
+    Scheduler.getInstance().run();
+  }
+
+  private void press() {
+    loop(true);
+    loop(false);
+  }
+
+  private static Subsystem subsystem() {
+    return new Subsystem("Test") {
+      @Override
+      protected void initDefaultCommand() {
+      }
+    };
+  }
+
+  /**
+   * Counts what the scheduler does with it, and never finishes on its own.
+   */
+  private static class CountingCommand extends Command {
+    private int initialized, executed, ended, interrupted;
+
+    @Override
+    protected void initialize() {
+      initialized++;
+    }
+
+    @Override
+    protected void execute() {
+      executed++;
+    }
+
+    @Override
+    protected boolean isFinished() {
+      return false;
+    }
+
+    @Override
+    protected void end() {
+      ended++;
+    }
+
+    @Override
+    protected void interrupted() {
+      interrupted++;
+    }
+  }
+
+  /**
+   * The same command is started on every press, so it has to run every time,
+   * not just the first.
+   */
+  @Test
+  public void runnableCommandRunsOnEveryPress() {
+    oi.registerCommand(BUTTON, ActionType.PRESS, () -> runs++, subsystem());
+    for (int press = 1; press <= 5; press++) {
+      press();
+      assertEquals(press, runs);
+      loop(false);
+      assertEquals("Ran again without a press", press, runs);
+    }
+  }
+
+  /**
+   * Held, the command is started again every loop after it finishes, so it
+   * runs every loop from the one after the press, until the release.
+   */
+  @Test
+  public void heldRunnableCommandRunsEveryLoop() {
+    oi.registerCommand(BUTTON, ActionType.HOLD, () -> runs++, subsystem());
+    for (int loop = 0; loop < 10; loop++) {
+      loop(true);
+    }
+    assertEquals(9, runs);
+    loop(false);
+    loop(false);
+    assertEquals(9, runs);
+  }
+
+  @Test
+  public void holdCancelsOnRelease() {
+    CountingCommand command = new CountingCommand();
+    oi.registerCommand(BUTTON, ActionType.HOLD, command);
+    for (int loop = 0; loop < 10; loop++) {
+      loop(true);
+      assertTrue(command.isRunning());
+    }
+    assertEquals(1, command.initialized);
+    assertEquals(9, command.executed);
+
+    /* The release cancels it, and the scheduler interrupts it on its next run, which is the same loop. */
+    loop(false);
+    assertFalse(command.isRunning());
+    assertEquals(1, command.interrupted);
+    assertEquals(0, command.ended);
+    assertEquals(9, command.executed);
+
+    /* And holding it again starts it over. */
+    loop(true);
+    loop(true);
+    assertEquals(2, command.initialized);
+    assertEquals(10, command.executed);
+  }
+
+  @Test
+  public void pressDoesNotCancelOnRelease() {
+    CountingCommand command = new CountingCommand();
+    oi.registerCommand(BUTTON, ActionType.PRESS, command);
+    press();
+    for (int loop = 0; loop < 10; loop++) {
+      loop(false);
+    }
+    assertTrue(command.isRunning());
+    assertEquals(1, command.initialized);
+    assertEquals(0, command.interrupted);
+
+    /* Pressing it again while it runs doesn't start it over. */
+    press();
+    assertEquals(1, command.initialized);
+  }
+
+  /**
+   * A Runnable without subsystems is run straight from the dispatcher, so it
+   * has to skip itself while disabled the way the scheduler skips commands.
+   */
+  @Test
+  public void runnableIsSkippedWhileDisabled() throws InterruptedException {
+    oi.registerCommand(BUTTON, ActionType.PRESS, () -> runs++);
+    press();
+    assertEquals(1, runs);
+
+    setEnabled(false);
+    press();
+    press();
+    assertEquals(1, runs);
+
+    setEnabled(true);
+    press();
+    assertEquals(2, runs);
+  }
+
+  @Test
+  public void heldRunnableIsSkippedWhileDisabled() throws InterruptedException {
+    oi.registerCommand(BUTTON, ActionType.HOLD, () -> runs++);
+    loop(true);
+    loop(true);
+    assertEquals(2, runs);
+
+    setEnabled(false);
+    loop(true);
+    loop(true);
+    assertEquals(2, runs);
+
+    setEnabled(true);
+    loop(true);
+    loop(false);
+    assertEquals(3, runs);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void buttonOutOfRange() {
+    oi.registerCommand(OI.JOYSTICK_BUTTON_COUNT + 1, ActionType.PRESS, () -> runs++);
+  }
+}
@@ -0,0 +1,280 @@
+package frc.robot.commands.joystick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.swerveio.SetpointLimits;
+import frc.robot.swerveio.SimClock;
+import frc.robot.swerveio.SimSwerveModule;
+import frc.robot.swerveio.SwerveDriveCalculator;
+import frc.robot.swerveio.SwerveModuleRegistry;
+
+/**
+ * Slams the joystick on the desktop, with a DriveTrain made of simulated
+ * modules, and checks that with the setpoint shaped by the teleop limits,
+ * the robot gets to the new speed quickly without breaking the wheels
+ * loose or jerking, where without the shaping it slips.
+ * <p>
+ * The simulated modules don't know about the carpet, so the wheels here can
+ * slip: the robot follows the wheels as long as that takes less force than
+ * the tires can grip with, and once they break loose, it only accelerates
+ * at the lower sliding grip until the wheels and the robot are moving at
+ * the same speed again. Turning isn't limited by grip. The drive current
+ * is worked out from each motor's output and speed, to see how hard the
+ * battery is being pulled on.
+ */
+public class SetpointShapingSimulationTest {
+  /* How finely the robot's motion is integrated. */
+  private static final double STEP = SimSwerveModule.STEP;
+
+  /* How hard the tires can push before they slip, and once they are slipping, in inches per second squared. */
+  private static final double STATIC_GRIP = 1.1 * 386;
+  private static final double SLIDING_GRIP = 0.8 * 386;
+
+  /* The current a Neo draws when stalled, in amps. */
+  private static final double NEO_STALL_CURRENT = 105;
+
+  /* How close to the new speed counts as there, as a fraction of the change in speed. */
+  private static final double SETTLED = 0.05;
+
+  /* How fast the robot's acceleration may change from one loop to the next with the shaped setpoint, in inches per second cubed. */
+  private static final double MAX_JERK = DriveTrain.TELEOP_JERK;
+
+  /**
+   * A robot on the carpet, driven with a joystick through a DriveTrain of simulated modules.
+   */
+  private static class Simulation {
+    /* How long to run each slam for, in seconds. */
+    private static final double DURATION = 2;
+
+    private final SimClock clock = new SimClock();
+    private final SimSwerveModule[] modules = new SimSwerveModule[SwerveDriveCalculator.MODULE_COUNT];
+    private final DriveTrain driveTrain;
+    private final SimulatedDrive command;
+
+    /* The joystick axes the command drives with, after the OI's filters. */
+    private double x, y, z;
+
+    /* How the robot is actually moving over the carpet, in inches per second and degrees per second. */
+    private double velocityX, velocityY, angularVelocity;
+    private boolean slipping;
+
+    /* How fast the robot sped up over the last loop, in inches per second squared. */
+    private double loopAccelerationX, loopAccelerationY;
+
+    private double settleTime, peakAcceleration, peakJerk, slipTime, peakCurrent;
+
+    /**
+     * A DriveWithJoystick that can be run one loop at a time, without the scheduler.
+     */
+    private static class SimulatedDrive extends DriveWithJoystick {
+      SimulatedDrive(Simulation simulation) {
+        super(simulation.driveTrain, () -> simulation.x, () -> simulation.y, () -> simulation.z);
+      }
+
+      void step() {
+        execute();
+      }
+    }
+
+    /**
+     * Create a simulated drive train.
+     * @param limits The setpoint limits to drive with.
+     */
+    Simulation(SetpointLimits limits) {
+      for (int i = 0; i < modules.length; i++) {
+        modules[i] = new SimSwerveModule(clock);
+      }
+      driveTrain = new DriveTrain(new SwerveModuleRegistry(modules[0], modules[1], modules[2], modules[3]), clock);
+      driveTrain.setGyro(() -> 0);
+      driveTrain.setSetpointLimits(limits);
+      command = new SimulatedDrive(this);
+    }
+
+    /**
+     * Hold the joystick at one position until the robot is moving steadily,
+     * then slam it to another, and measure how the robot gets there.
+     * @param fromX The X axis to start at.
+     * @param fromY The Y axis to start at.
+     * @param fromZ The Z axis to start at.
+     * @param toX The X axis to slam to.
+     * @param toY The Y axis to slam to.
+     * @param toZ The Z axis to slam to.
+     */
+    void run(double fromX, double fromY, double fromZ, double toX, double toY, double toZ) {
+      drive(fromX, fromY, fromZ, false);
+      double startVelocityX = velocityX, startVelocityY = velocityY, startAngularVelocity = angularVelocity;
+      drive(toX, toY, toZ, false);
+      double targetVelocityX = velocityX, targetVelocityY = velocityY, targetAngularVelocity = angularVelocity;
+
+      /* Now do the slam again, from the same start, and watch it. */
+      drive(fromX, fromY, fromZ, false);
+      settleTime = Double.NaN;
+      peakAcceleration = 0;
+      peakJerk = 0;
+      slipTime = 0;
+      peakCurrent = 0;
+      double changeX = targetVelocityX - startVelocityX, changeY = targetVelocityY - startVelocityY;
+      double changeSquared = (changeX * changeX) + (changeY * changeY);
+      double angularChange = targetAngularVelocity - startAngularVelocity;
+      double start = clock.getAsDouble();
+      x = toX;
+      y = toY;
+      z = toZ;
+      for (int loop = 0; loop < (int) (DURATION / DriveTrain.LOOP_PERIOD); loop++) {
+        driveTrain.periodic();
+        command.step();
+        advance(true);
+        /* How far the robot has got from the old speed to the new one, along the way between them. */
+        double progress = 1, angularProgress = 1;
+        if (changeSquared > 1) {
+          progress = (((velocityX - startVelocityX) * changeX) + ((velocityY - startVelocityY) * changeY)) / changeSquared;
+        }
+        if (Math.abs(angularChange) > 1) {
+          angularProgress = (angularVelocity - startAngularVelocity) / angularChange;
+        }
+        if (Double.isNaN(settleTime) && Math.min(progress, angularProgress) >= 1 - SETTLED) {
+          settleTime = clock.getAsDouble() - start;
+        }
+      }
+    }
+
+    /**
+     * Drive with the joystick held in one place, long enough for the robot to be moving steadily.
+     */
+    private void drive(double x, double y, double z, boolean measure) {
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      for (int loop = 0; loop < (int) (DURATION / DriveTrain.LOOP_PERIOD); loop++) {
+        driveTrain.periodic();
+        command.step();
+        advance(measure);
+      }
+    }
+
+    /**
+     * Run the simulation for one loop, moving the robot the way its wheels are pushing it.
+     */
+    private void advance(boolean measure) {
+      double startVelocityX = velocityX, startVelocityY = velocityY;
+      for (double t = 0; t < DriveTrain.LOOP_PERIOD - (STEP / 2); t += STEP) {
+        clock.advance(STEP);
+        double wheelX = 0, wheelY = 0, turn = 0, radiusSquared = 0, current = 0;
+        for (int i = 0; i < modules.length; i++) {
+          double angle = Math.toRadians(SwerveDriveCalculator.convertToDegrees(modules[i].getPivotMotorEncoder(), DriveTrain.PIVOT_REVOLUTION));
+          double velocity = modules[i].getDriveMotorVelocity() / 60;
+          double speed = velocity * DriveTrain.DRIVE_DISTANCE_PER_COUNT;
+          double vx = speed * Math.cos(angle);
+          double vy = speed * Math.sin(angle);
+          wheelX += vx;
+          wheelY += vy;
+          /* Turning moves each wheel at right angles to the line from the center to the wheel. */
+          double moduleX = ((i == 0 || i == 1) ? 1 : -1) * DriveTrain.BASE_LENGTH / 2;
+          double moduleY = ((i == 0 || i == 2) ? 1 : -1) * DriveTrain.BASE_WIDTH / 2;
+          turn += (moduleX * vy) - (moduleY * vx);
+          radiusSquared += (moduleX * moduleX) + (moduleY * moduleY);
+          /* The motor draws current in proportion to how far its output is ahead of its speed. */
+          current += Math.abs(modules[i].getDriveMotorSpeed() - (velocity / SimSwerveModule.NEO_FREE_SPEED)) * NEO_STALL_CURRENT;
+        }
+        wheelX /= modules.length;
+        wheelY /= modules.length;
+        angularVelocity = Math.toDegrees(turn / radiusSquared);
+
+        /* The robot follows the wheels, unless that takes more grip than the tires have. */
+        double slipX = wheelX - velocityX;
+        double slipY = wheelY - velocityY;
+        double slip = Math.hypot(slipX, slipY);
+        double acceleration = slip / STEP;
+        if (slipping || acceleration > STATIC_GRIP) {
+          acceleration = Math.min(acceleration, SLIDING_GRIP);
+          slipping = acceleration == SLIDING_GRIP;
+        }
+        if (slip > 0) {
+          velocityX += (slipX / slip) * acceleration * STEP;
+          velocityY += (slipY / slip) * acceleration * STEP;
+        }
+        if (measure) {
+          peakAcceleration = Math.max(peakAcceleration, acceleration);
+          peakCurrent = Math.max(peakCurrent, current);
+          if (slipping) {
+            slipTime += STEP;
+          }
+        }
+      }
+      /* The jerk is how much the acceleration over the loop changed from the last loop's. */
+      double accelerationX = (velocityX - startVelocityX) / DriveTrain.LOOP_PERIOD;
+      double accelerationY = (velocityY - startVelocityY) / DriveTrain.LOOP_PERIOD;
+      if (measure) {
+        double jerk = Math.hypot(accelerationX - loopAccelerationX, accelerationY - loopAccelerationY) / DriveTrain.LOOP_PERIOD;
+        peakJerk = Math.max(peakJerk, jerk);
+      }
+      loopAccelerationX = accelerationX;
+      loopAccelerationY = accelerationY;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%.2f s to within %.0f%%, peak acceleration %.0f in/s^2, peak jerk %.0f in/s^3, slipping for %.2f s, peak drive current %.0f A",
+          settleTime, SETTLED * 100, peakAcceleration, peakJerk, slipTime, peakCurrent);
+    }
+  }
+
+  /**
+   * The drive train is a subsystem, which registers with the scheduler, which needs the HAL.
+   */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  /**
+   * Slam the joystick from one position to another, with and without the
+   * teleop limits, and check that the shaped setpoint gets there without
+   * slipping or jerking, where the unshaped one slips.
+   * @param maxSettleTime How quickly the shaped setpoint must get the robot to the new speed, in seconds.
+   * @param unshapedSlips Whether the wheels should slip without the shaping.
+   */
+  private static void slam(double fromX, double fromY, double fromZ, double toX, double toY, double toZ, double maxSettleTime,
+      boolean unshapedSlips) {
+    Simulation unshaped = new Simulation(SetpointLimits.UNLIMITED);
+    unshaped.run(fromX, fromY, fromZ, toX, toY, toZ);
+    Simulation shaped = new Simulation(DriveTrain.TELEOP_LIMITS);
+    shaped.run(fromX, fromY, fromZ, toX, toY, toZ);
+    String result = "unshaped: " + unshaped + ", shaped: " + shaped;
+
+    assertEquals(result, unshapedSlips, unshaped.slipTime > 0);
+    assertFalse(result, Double.isNaN(shaped.settleTime));
+    assertTrue(result, shaped.settleTime <= maxSettleTime);
+    assertEquals(result, 0, shaped.slipTime, 0);
+    assertTrue(result, shaped.peakAcceleration <= STATIC_GRIP);
+    assertTrue(result, shaped.peakJerk <= MAX_JERK);
+    assertTrue(result, shaped.peakCurrent < unshaped.peakCurrent);
+  }
+
+  @Test
+  public void stopToFullForward() {
+    slam(0, 0, 0, 0, 1, 0, 0.5, true);
+  }
+
+  @Test
+  public void stopToFullDiagonal() {
+    slam(0, 0, 0, Math.sqrt(0.5), Math.sqrt(0.5), 0, 0.5, true);
+  }
+
+  @Test
+  public void fullForwardToFullReverse() {
+    slam(0, 1, 0, 0, -1, 0, 0.85, true);
+  }
+
+  @Test
+  public void stopToFullTurn() {
+    slam(0, 0, 0, 0, 0, 1, 0.5, false);
+  }
+}
@@ -0,0 +1,180 @@
+package frc.robot.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Feeds the dispatcher snapshots with the buttons filled in by hand, and
+ * checks that each handler runs on its edge, and only on it.
+ */
+public class ButtonDispatcherTest {
+  private static final int STICK_COUNT = 2;
+
+  private InputSnapshot snapshot;
+  private ButtonDispatcher dispatcher;
+
+  /* Every handler that ran, in order, as "<event> <stick>:<button>". */
+  private final List<String> ran = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    snapshot = new InputSnapshot(STICK_COUNT);
+    dispatcher = new ButtonDispatcher(STICK_COUNT);
+    ran.clear();
+  }
+
+  private void register(int stick, int button, ButtonEvent event) {
+    dispatcher.register(stick, button, event, () -> ran.add(event + " " + stick + ":" + button));
+  }
+
+  private void registerAll(int stick, int button) {
+    for (ButtonEvent event : ButtonEvent.values()) {
+      register(stick, button, event);
+    }
+  }
+
+  /* Dispatch one loop with the buttons of both joysticks, and return what ran. */
+  private List<String> dispatch(int stick0, int stick1) {
+    ran.clear();
+    snapshot.setButtons(0, stick0);
+    snapshot.setButtons(1, stick1);
+    dispatcher.dispatch(snapshot);
+    return new ArrayList<>(ran);
+  }
+
+  private static List<String> list(String... handlers) {
+    List<String> list = new ArrayList<>();
+    for (String handler : handlers) {
+      list.add(handler);
+    }
+    return list;
+  }
+
+  @Test
+  public void pressHoldRelease() {
+    registerAll(0, 3);
+    assertEquals(list(), dispatch(0, 0));
+
+    /* The loop a button goes down, it is both pressed and held. */
+    assertEquals(list("PRESSED 0:3", "HELD 0:3"), dispatch(0b100, 0));
+    assertTrue(dispatcher.wasPressed(0, 3));
+    assertEquals(0b100, dispatcher.getPressed(0));
+
+    for (int loop = 0; loop < 3; loop++) {
+      assertEquals(list("HELD 0:3"), dispatch(0b100, 0));
+      assertFalse(dispatcher.wasPressed(0, 3));
+    }
+
+    assertEquals(list("RELEASED 0:3"), dispatch(0, 0));
+    assertTrue(dispatcher.wasReleased(0, 3));
+    assertEquals(0b100, dispatcher.getReleased(0));
+
+    assertEquals(list(), dispatch(0, 0));
+    assertFalse(dispatcher.wasReleased(0, 3));
+  }
+
+  @Test
+  public void everyPressRunsAgain() {
+    register(0, 1, ButtonEvent.PRESSED);
+    for (int press = 0; press < 5; press++) {
+      assertEquals(list("PRESSED 0:1"), dispatch(1, 0));
+      assertEquals(list(), dispatch(1, 0));
+      assertEquals(list(), dispatch(0, 0));
+    }
+  }
+
+  /**
+   * Released handlers run before pressed, and pressed before held, so one
+   * button's action can be stopped before another's starts in the same loop.
+   */
+  @Test
+  public void releasedThenPressedThenHeld() {
+    registerAll(0, 1);
+    registerAll(0, 2);
+    dispatch(0b01, 0);
+    assertEquals(list("RELEASED 0:1", "PRESSED 0:2", "HELD 0:2"), dispatch(0b10, 0));
+  }
+
+  @Test
+  public void sticksAreSeparate() {
+    registerAll(0, 5);
+    registerAll(1, 5);
+    assertEquals(list("PRESSED 1:5", "HELD 1:5"), dispatch(0, 0b10000));
+    assertEquals(list("PRESSED 0:5", "HELD 0:5", "HELD 1:5"), dispatch(0b10000, 0b10000));
+    assertEquals(list("HELD 0:5", "RELEASED 1:5"), dispatch(0b10000, 0));
+    assertTrue(dispatcher.wasReleased(1, 5));
+    assertFalse(dispatcher.wasReleased(0, 5));
+  }
+
+  @Test
+  public void handlersRunInTheOrderTheyWereRegistered() {
+    dispatcher.register(0, 2, ButtonEvent.PRESSED, () -> ran.add("first"));
+    dispatcher.register(0, 2, ButtonEvent.PRESSED, () -> ran.add("second"));
+    dispatcher.register(0, 2, ButtonEvent.PRESSED, () -> ran.add("third"));
+    assertEquals(list("first", "second", "third"), dispatch(0b10, 0));
+  }
+
+  /**
+   * Buttons without handlers still have their edges worked out, for anything
+   * that asks whether they were pressed.
+   */
+  @Test
+  public void unregisteredButtonsHaveEdges() {
+    register(0, 1, ButtonEvent.PRESSED);
+    assertEquals(list(), dispatch(0b110, 0));
+    assertTrue(dispatcher.wasPressed(0, 2));
+    assertTrue(dispatcher.wasPressed(0, 3));
+    assertEquals(list(), dispatch(0, 0));
+    assertEquals(0b110, dispatcher.getReleased(0));
+  }
+
+  @Test
+  public void highestButton() {
+    registerAll(0, ButtonDispatcher.MAX_BUTTONS);
+    int bit = 1 << (ButtonDispatcher.MAX_BUTTONS - 1);
+    String button = "0:" + ButtonDispatcher.MAX_BUTTONS;
+    assertEquals(list("PRESSED " + button, "HELD " + button), dispatch(bit, 0));
+    assertEquals(list("RELEASED " + button), dispatch(0, 0));
+  }
+
+  /**
+   * A button that is already down when the dispatcher is reset, like one held
+   * through enabling the robot, isn't pressed until it comes up and goes down again.
+   */
+  @Test
+  public void resetDoesNotPress() {
+    registerAll(0, 4);
+    snapshot.setButtons(0, 0b1000);
+    dispatcher.reset(snapshot);
+    assertEquals(list("HELD 0:4"), dispatch(0b1000, 0));
+    assertEquals(list("RELEASED 0:4"), dispatch(0, 0));
+    assertEquals(list("PRESSED 0:4", "HELD 0:4"), dispatch(0b1000, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void stickOutOfRange() {
+    register(STICK_COUNT, 1, ButtonEvent.PRESSED);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void buttonZero() {
+    register(0, 0, ButtonEvent.PRESSED);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void buttonOutOfRange() {
+    register(0, ButtonDispatcher.MAX_BUTTONS + 1, ButtonEvent.PRESSED);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nullHandler() {
+    dispatcher.register(0, 1, ButtonEvent.PRESSED, null);
+  }
+}
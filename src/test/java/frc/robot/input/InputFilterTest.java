@@ -0,0 +1,142 @@
+package frc.robot.input;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import frc.robot.OI;
+
+/**
+ * Checks each input stage on its own, worked out by hand, and the drive
+ * filter the OI builds from them.
+ */
+public class InputFilterTest {
+  private static final double EPSILON = 1e-12;
+
+  private static DriveInput apply(InputStage stage, double x, double y, double z, double throttle) {
+    return new InputFilter(stage).apply(x, y, z, throttle);
+  }
+
+  private static void assertInput(DriveInput input, double x, double y, double z) {
+    assertEquals("X", x, input.getX(), EPSILON);
+    assertEquals("Y", y, input.getY(), EPSILON);
+    assertEquals("Z", z, input.getZ(), EPSILON);
+  }
+
+  @Test
+  public void deadband() {
+    assertEquals(0, DeadbandStage.deadband(0, 0.2), 0);
+    assertEquals(0, DeadbandStage.deadband(0.19, 0.2), 0);
+    assertEquals(0, DeadbandStage.deadband(-0.19, 0.2), 0);
+    /* The output starts from zero at the edge, and full deflection loses the deadband. */
+    assertEquals(0, DeadbandStage.deadband(0.2, 0.2), EPSILON);
+    assertEquals(0.3, DeadbandStage.deadband(0.5, 0.2), EPSILON);
+    assertEquals(-0.3, DeadbandStage.deadband(-0.5, 0.2), EPSILON);
+    assertEquals(0.8, DeadbandStage.deadband(1, 0.2), EPSILON);
+    assertEquals(-0.8, DeadbandStage.deadband(-1, 0.2), EPSILON);
+    /* No deadband leaves the axis alone. */
+    assertEquals(-0.01, DeadbandStage.deadband(-0.01, 0), 0);
+  }
+
+  @Test
+  public void oiDeadbandModMatchesTheStage() {
+    for (double value = -1; value <= 1; value += 0.01) {
+      assertEquals(DeadbandStage.deadband(value, OI.DRIVE_DEADBAND), OI.deadbandMod(value, OI.DRIVE_DEADBAND), 0);
+    }
+  }
+
+  /**
+   * Pushed diagonally, just outside the deadband on each axis, an axial
+   * deadband leaves a little of each axis, where a radial one only takes
+   * the deadband off of how far the stick is pushed.
+   */
+  @Test
+  public void axialDeadbandAppliesToEachAxis() {
+    DeadbandStage stage = new DeadbandStage(0.2, false);
+    assertInput(apply(stage, 0.3, 0.3, 0.1, 0), 0.1, 0.1, 0);
+    /* An axis inside its deadband is dropped, even with the other one pushed all the way, so the robot drives exactly straight. */
+    assertInput(apply(stage, 0.15, -1, -0.5, 0), 0, -0.8, -0.3);
+  }
+
+  @Test
+  public void radialDeadbandKeepsTheDirection() {
+    DeadbandStage stage = new DeadbandStage(0.2, true);
+    double magnitude = Math.hypot(0.3, 0.3);
+    double scale = (magnitude - 0.2) / magnitude;
+    assertInput(apply(stage, 0.3, 0.3, 0.1, 0), 0.3 * scale, 0.3 * scale, 0);
+
+    /* The same off axis push as the axial deadband drops keeps its X axis, in proportion. */
+    DriveInput input = apply(stage, 0.15, -1, -0.5, 0);
+    double angle = Math.atan2(-1, 0.15);
+    assertEquals(angle, Math.atan2(input.getY(), input.getX()), EPSILON);
+    assertEquals(Math.hypot(0.15, 1) - 0.2, Math.hypot(input.getX(), input.getY()), EPSILON);
+    /* Z always has an axial deadband. */
+    assertEquals(-0.3, input.getZ(), EPSILON);
+
+    /* Inside the circle nothing moves, but a diagonal with each axis inside the deadband can be outside the circle. */
+    assertInput(apply(stage, 0.1, 0.15, 0, 0), 0, 0, 0);
+    assertInput(apply(stage, 0.19, 0, 0, 0), 0, 0, 0);
+    input = apply(stage, 0.19, 0.19, 0, 0);
+    assertEquals(Math.hypot(0.19, 0.19) - 0.2, Math.hypot(input.getX(), input.getY()), EPSILON);
+    assertInput(apply(new DeadbandStage(0.2, false), 0.19, 0.19, 0, 0), 0, 0, 0);
+  }
+
+  @Test
+  public void throttle() {
+    ThrottleStage stage = new ThrottleStage(0.3);
+    /* The slider goes from -1 to 1, which is a scale from the lower bound to 1. */
+    DriveInput input = apply(stage, 1, -0.5, 0.25, -1);
+    assertInput(input, 0.3, -0.15, 0.075);
+    assertEquals(0.3, input.getThrottle(), EPSILON);
+
+    input = apply(stage, 1, -0.5, 0.25, 0);
+    assertInput(input, 0.65, -0.325, 0.1625);
+    assertEquals(0.65, input.getThrottle(), EPSILON);
+
+    input = apply(stage, 1, -0.5, 0.25, 1);
+    assertInput(input, 1, -0.5, 0.25);
+    assertEquals(1, input.getThrottle(), EPSILON);
+  }
+
+  @Test
+  public void expo() {
+    /* An expo of 0 leaves the input alone, and 1 is the cube. */
+    assertInput(apply(new ExpoStage(0), 0.5, -0.2, 1, 0), 0.5, -0.2, 1);
+    assertInput(apply(new ExpoStage(1), 0.5, -0.2, 1, 0), 0.125, -0.008, 1);
+    /* In between it is a blend, which keeps full deflection and the sign. */
+    ExpoStage stage = new ExpoStage(0.5);
+    assertInput(apply(stage, 0.5, -0.5, -1, 0), 0.3125, -0.3125, -1);
+    double last = Double.NEGATIVE_INFINITY;
+    for (double value = -1; value <= 1; value += 0.01) {
+      double curved = apply(stage, value, 0, 0, 0).getX();
+      assertTrue(curved > last);
+      assertTrue(Math.abs(curved) <= Math.abs(value) + EPSILON);
+      last = curved;
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void expoOutOfRange() {
+    new ExpoStage(1.5);
+  }
+
+  /**
+   * The OI's drive filter applies the throttle, and then the deadband, so
+   * the deadband is the same size whatever the throttle is.
+   */
+  @Test
+  public void driveFilter() {
+    InputFilter filter = OI.createDriveFilter();
+    DriveInput input = filter.apply(0.5, 0.1, -1, 0);
+    double scale = ((1 - OI.THROTTLE_LOWER_BOUND) * 0.5) + OI.THROTTLE_LOWER_BOUND;
+    assertInput(input, (0.5 * scale) - OI.DRIVE_DEADBAND, 0, -scale + OI.DRIVE_DEADBAND);
+    assertEquals(scale, input.getThrottle(), EPSILON);
+    assertSame(input, filter.getOutput());
+
+    /* A stage applies to what the stage before it left, so the order matters. */
+    InputFilter reversed = new InputFilter(new DeadbandStage(OI.DRIVE_DEADBAND, false), new ThrottleStage(OI.THROTTLE_LOWER_BOUND));
+    assertInput(reversed.apply(0.5, 0.1, -1, 0), (0.5 - OI.DRIVE_DEADBAND) * scale, 0, (-1 + OI.DRIVE_DEADBAND) * scale);
+  }
+}
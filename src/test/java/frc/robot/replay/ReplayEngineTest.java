@@ -0,0 +1,147 @@
+package frc.robot.replay;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.OI;
+import frc.robot.input.DriveInput;
+import frc.robot.input.InputFilter;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.swerveio.SetpointLimits;
+import frc.robot.swerveio.SimClock;
+import frc.robot.swerveio.SimSwerveModule;
+import frc.robot.swerveio.SwerveModuleRegistry;
+import frc.robot.telemetry.TelemetryRecorder;
+
+/**
+ * Records a drive train of simulated modules being driven with the
+ * joystick, the way the robot does, and replays the log. Replaying the
+ * same code has to give back every frame exactly, and replaying it with a
+ * drive constant changed has to say so.
+ */
+public class ReplayEngineTest {
+  private static final int LOOPS = 400;
+
+  /* Big enough to hold every record of a run, so none are dropped however slow the disk is. */
+  private static final int RING_CAPACITY = 1 << 14;
+  private static final int FILE_SIZE = 1024 * 1024;
+
+  /* A fixed seed, so that a failure can be reproduced. */
+  private static final long SEED = 2020;
+
+  private File directory;
+
+  /**
+   * The drive train is a subsystem, which registers with the scheduler, which needs the HAL.
+   */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("replay").toFile();
+  }
+
+  @After
+  public void deleteDirectory() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  /**
+   * Drive a drive train of simulated modules around with a wandering
+   * joystick and record it, the way Robot and DriveWithJoystick do.
+   * @param limits The setpoint limits to drive with.
+   * @param skipFrom The first loop not to record, to stand in for records the robot dropped.
+   * @param skipTo The loop to start recording again at.
+   * @return The log.
+   */
+  private File record(SetpointLimits limits, int skipFrom, int skipTo) throws InterruptedException {
+    SimClock clock = new SimClock();
+    DriveTrain driveTrain = new DriveTrain(new SwerveModuleRegistry(new SimSwerveModule(clock), new SimSwerveModule(clock),
+        new SimSwerveModule(clock), new SimSwerveModule(clock)), clock);
+    double[] yaw = new double[1];
+    driveTrain.setGyro(() -> yaw[0]);
+    driveTrain.setSetpointLimits(limits);
+    TelemetryRecorder recorder = new TelemetryRecorder(directory, FILE_SIZE, RING_CAPACITY);
+    recorder.start();
+
+    InputFilter filter = OI.createDriveFilter();
+    Random random = new Random(SEED);
+    double x = 0, y = 0, z = 0;
+    for (int loop = 0; loop < LOOPS; loop++) {
+      boolean recording = loop < skipFrom || loop >= skipTo;
+      driveTrain.setRecorder(recording ? recorder : null);
+      clock.advance(DriveTrain.LOOP_PERIOD);
+      yaw[0] = Math.IEEEremainder(yaw[0] + (z * 3), 360);
+      x = Math.max(-1, Math.min(1, x + ((random.nextDouble() - 0.5) * 0.2)));
+      y = Math.max(-1, Math.min(1, y + ((random.nextDouble() - 0.5) * 0.2)));
+      z = Math.max(-1, Math.min(1, z + ((random.nextDouble() - 0.5) * 0.2)));
+      double throttle = Math.sin(loop * 0.01);
+
+      driveTrain.periodic();
+      DriveInput input = filter.apply(x, y, z, throttle);
+      driveTrain.drive(input.getY(), input.getX(), input.getZ(), driveTrain.getSensors().getGyroYaw());
+      if (recording) {
+        recorder.recordJoystick(clock.getAsDouble(), x, y, z, throttle);
+        recorder.recordLoopTimings(clock.getAsDouble());
+      }
+    }
+    recorder.stop();
+    assertEquals("Records dropped while recording", 0, recorder.getDroppedRecords());
+
+    File[] logs = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    assertEquals(1, logs.length);
+    return logs[0];
+  }
+
+  @Test
+  public void replayMatchesEveryFrame() throws Exception {
+    ReplayResult result = new ReplayEngine().replay(record(DriveTrain.TELEOP_LIMITS, LOOPS, LOOPS));
+    assertEquals(LOOPS, result.getFrames());
+    assertEquals(result.toString(), 0, result.getMismatches());
+    assertTrue(result.matches());
+    assertEquals(0, result.getMaxPivotError(), 0);
+    assertEquals(0, result.getMaxDriveError(), 0);
+  }
+
+  /**
+   * The setpoint limiter is started from its recorded state every frame,
+   * so a gap in the log doesn't throw off the frames after it.
+   */
+  @Test
+  public void replayMatchesAfterDroppedLoops() throws Exception {
+    ReplayResult result = new ReplayEngine().replay(record(DriveTrain.TELEOP_LIMITS, 150, 175));
+    assertEquals(LOOPS - 25, result.getFrames());
+    assertEquals(result.toString(), 0, result.getMismatches());
+  }
+
+  /**
+   * The engine drives with the teleop limits, so a log recorded with any
+   * other limits stands in for a change to them.
+   */
+  @Test
+  public void changedLimitsAreReported() throws Exception {
+    ReplayResult result = new ReplayEngine().replay(record(DriveTrain.AUTONOMOUS_LIMITS, LOOPS, LOOPS));
+    assertEquals(LOOPS, result.getFrames());
+    assertFalse(result.matches());
+    assertTrue(result.toString(), result.getMismatches() > 0);
+    assertTrue(result.getMaxDriveError() > ReplayEngine.DEFAULT_TOLERANCE);
+  }
+}
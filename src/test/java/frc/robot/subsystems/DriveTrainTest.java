@@ -0,0 +1,101 @@
+package frc.robot.subsystems;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.swerveio.ChassisSetpointLimiter;
+import frc.robot.swerveio.SimClock;
+import frc.robot.swerveio.SimSwerveModule;
+import frc.robot.swerveio.SwerveModuleRegistry;
+
+/**
+ * Checks that the drive train moves its setpoint on by the time that has
+ * actually passed between loops, going by the sensor timestamps.
+ */
+public class DriveTrainTest {
+  private SimClock clock;
+  private DriveTrain driveTrain;
+  /* A limiter stepped by hand, to compare the drive train's with. */
+  private ChassisSetpointLimiter expected;
+
+  /**
+   * The drive train is a subsystem, which registers with the scheduler, which needs the HAL.
+   */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  @Before
+  public void createDriveTrain() {
+    clock = new SimClock();
+    driveTrain = new DriveTrain(new SwerveModuleRegistry(new SimSwerveModule(clock), new SimSwerveModule(clock),
+        new SimSwerveModule(clock), new SimSwerveModule(clock)), clock);
+    expected = new ChassisSetpointLimiter(DriveTrain.TELEOP_LIMITS);
+  }
+
+  /**
+   * Advance the clock by a loop of the given length, and sample the sensors like the scheduler would.
+   */
+  private void loop(double period) {
+    clock.advance(period);
+    driveTrain.periodic();
+  }
+
+  private void assertSetpoint() {
+    ChassisSetpointLimiter limiter = driveTrain.getSetpointLimiter();
+    assertEquals(expected.getFwd(), limiter.getFwd(), 0);
+    assertEquals(expected.getStr(), limiter.getStr(), 0);
+    assertEquals(expected.getRcw(), limiter.getRcw(), 0);
+  }
+
+  @Test
+  public void firstDriveMovesOneLoop() {
+    loop(DriveTrain.LOOP_PERIOD);
+    driveTrain.drive(1, 0.5, 0, 0);
+    expected.calculate(1, 0.5, 0, DriveTrain.LOOP_PERIOD);
+    assertSetpoint();
+  }
+
+  @Test
+  public void lateLoopMovesByMeasuredTime() {
+    double[] periods = { 0.02, 0.02, 0.035, 0.019, 0.06, 0.02 };
+    for (double period : periods) {
+      loop(period);
+      driveTrain.drive(1, 0, 0.5, 0);
+    }
+    /* The first drive has nothing to measure from, so it moves on by one loop. */
+    expected.calculate(1, 0, 0.5, DriveTrain.LOOP_PERIOD);
+    for (int i = 1; i < periods.length; i++) {
+      expected.calculate(1, 0, 0.5, periods[i]);
+    }
+    assertSetpoint();
+  }
+
+  @Test
+  public void drivingTwiceInOneLoopMovesOnce() {
+    loop(DriveTrain.LOOP_PERIOD);
+    driveTrain.drive(1, 0, 0, 0);
+    loop(DriveTrain.LOOP_PERIOD);
+    driveTrain.drive(1, 0, 0, 0);
+    driveTrain.drive(1, 0, 0, 0);
+    expected.calculate(1, 0, 0, DriveTrain.LOOP_PERIOD);
+    expected.calculate(1, 0, 0, DriveTrain.LOOP_PERIOD);
+    assertSetpoint();
+  }
+
+  @Test
+  public void longPauseIsCapped() {
+    loop(DriveTrain.LOOP_PERIOD);
+    driveTrain.drive(0, 1, 0, 0);
+    loop(2);
+    driveTrain.drive(0, 1, 0, 0);
+    expected.calculate(0, 1, 0, DriveTrain.LOOP_PERIOD);
+    expected.calculate(0, 1, 0, DriveTrain.MAX_SETPOINT_PERIOD);
+    assertSetpoint();
+  }
+}
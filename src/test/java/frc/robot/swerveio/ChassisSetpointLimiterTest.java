@@ -0,0 +1,87 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that the setpoint limiter keeps the direction of the whole
+ * (fwd, str, rcw) setpoint, respects each of its limits, and only moves
+ * the setpoint on when time has passed.
+ */
+public class ChassisSetpointLimiterTest {
+    private static final double PERIOD = 0.02;
+
+    /* Rotation is allowed to change faster than translation, so the two limits can't both be the tightest. */
+    private static final SetpointLimits LIMITS = new SetpointLimits(2, 20, 6, 40);
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void directionIsKept() {
+        ChassisSetpointLimiter limiter = new ChassisSetpointLimiter(LIMITS);
+        double fwd = 0.6, str = -0.3, rcw = 0.8;
+        for (int i = 0; i < 200; i++) {
+            limiter.calculate(fwd, str, rcw, PERIOD);
+            /* Every component is the same fraction of the way to the target. */
+            double fraction = limiter.getFwd() / fwd;
+            assertEquals(fraction, limiter.getStr() / str, EPSILON);
+            assertEquals(fraction, limiter.getRcw() / rcw, EPSILON);
+            /* And the acceleration points straight at it. */
+            double rate = limiter.getFwdAcceleration() / fwd;
+            assertEquals(rate, limiter.getStrAcceleration() / str, EPSILON);
+            assertEquals(rate, limiter.getRcwAcceleration() / rcw, EPSILON);
+        }
+        assertEquals(fwd, limiter.getFwd(), 0);
+        assertEquals(str, limiter.getStr(), 0);
+        assertEquals(rcw, limiter.getRcw(), 0);
+    }
+
+    @Test
+    public void limitsAreRespected() {
+        ChassisSetpointLimiter limiter = new ChassisSetpointLimiter(LIMITS);
+        double lastTranslationRate = 0, lastRotationRate = 0;
+        double[][] targets = { { 1, 0, 0 }, { -1, 1, 0.5 }, { 0, 0, -1 }, { 0.2, -0.9, 1 } };
+        for (double[] target : targets) {
+            for (int i = 0; i < 100; i++) {
+                limiter.calculate(target[0], target[1], target[2], PERIOD);
+                double translationRate = Math.hypot(limiter.getFwdAcceleration(), limiter.getStrAcceleration());
+                double rotationRate = Math.abs(limiter.getRcwAcceleration());
+                assertTrue(translationRate <= LIMITS.getTranslationAcceleration() + EPSILON);
+                assertTrue(rotationRate <= LIMITS.getRotationAcceleration() + EPSILON);
+                /* Arriving at the target stops the acceleration outright, so only check the jerk on the way. */
+                if (translationRate > 0) {
+                    assertTrue(Math.abs(translationRate - lastTranslationRate) <= (LIMITS.getTranslationJerk() * PERIOD) + EPSILON);
+                }
+                if (rotationRate > 0) {
+                    assertTrue(Math.abs(rotationRate - lastRotationRate) <= (LIMITS.getRotationJerk() * PERIOD) + EPSILON);
+                }
+                lastTranslationRate = translationRate;
+                lastRotationRate = rotationRate;
+            }
+        }
+    }
+
+    @Test
+    public void noTimeDoesNotMove() {
+        ChassisSetpointLimiter limiter = new ChassisSetpointLimiter(LIMITS);
+        limiter.calculate(1, 1, 1, PERIOD);
+        double fwd = limiter.getFwd(), str = limiter.getStr(), rcw = limiter.getRcw();
+        double fwdAcceleration = limiter.getFwdAcceleration();
+        limiter.calculate(-1, 0, 1, 0);
+        assertEquals(fwd, limiter.getFwd(), 0);
+        assertEquals(str, limiter.getStr(), 0);
+        assertEquals(rcw, limiter.getRcw(), 0);
+        assertEquals(fwdAcceleration, limiter.getFwdAcceleration(), 0);
+    }
+
+    @Test
+    public void unlimitedPassesStraightThrough() {
+        ChassisSetpointLimiter limiter = new ChassisSetpointLimiter(SetpointLimits.UNLIMITED);
+        limiter.calculate(0.5, -1, 0.25, PERIOD);
+        assertEquals(0.5, limiter.getFwd(), 0);
+        assertEquals(-1, limiter.getStr(), 0);
+        assertEquals(0.25, limiter.getRcw(), 0);
+    }
+}
@@ -0,0 +1,160 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks which writes the deduplicating module passes along to a module
+ * that counts them, and that its own counts agree with what got through.
+ */
+public class DeduplicatingSwerveModuleTest {
+    private static final double SPEED_EPSILON = 0.01;
+    private static final double PIVOT_REFERENCE_EPSILON = 0.5;
+    private static final double DRIVE_REFERENCE_EPSILON = 5;
+    private static final int REFRESH_INTERVAL = 3;
+
+    private FakeSwerveModule fake;
+    private DeduplicatingSwerveModule module;
+
+    @Before
+    public void setUp() {
+        fake = new FakeSwerveModule();
+        module = new DeduplicatingSwerveModule(fake, SPEED_EPSILON, PIVOT_REFERENCE_EPSILON, DRIVE_REFERENCE_EPSILON, REFRESH_INTERVAL);
+    }
+
+    private void assertWrites(int pivotWrites, int driveWrites, long suppressed) {
+        assertEquals("Pivot writes", pivotWrites, fake.getPivotWrites());
+        assertEquals("Drive writes", driveWrites, fake.getDriveWrites());
+        assertEquals("Sent", pivotWrites + driveWrites, module.getSentWrites());
+        assertEquals("Suppressed", suppressed, module.getSuppressedWrites());
+    }
+
+    @Test
+    public void repeatsWithinEpsilonAreSuppressed() {
+        module.setDriveMotorSpeed(0.5);
+        module.setDriveMotorSpeed(0.5);
+        module.setDriveMotorSpeed(0.505);
+        assertWrites(0, 1, 2);
+        assertEquals(0.5, fake.getLastDriveWrite(), 0);
+
+        module.setDriveMotorSpeed(0.52);
+        assertWrites(0, 2, 2);
+        assertEquals(0.52, fake.getLastDriveWrite(), 0);
+    }
+
+    /**
+     * Each write is compared with the last one that was sent, not the last
+     * one that was asked for, so a slow creep can't be suppressed forever.
+     */
+    @Test
+    public void creepIsSent() {
+        module.setDriveMotorSpeed(0.5);
+        module.setDriveMotorSpeed(0.508);
+        module.setDriveMotorSpeed(0.516);
+        assertWrites(0, 2, 1);
+        assertEquals(0.516, fake.getLastDriveWrite(), 0);
+    }
+
+    @Test
+    public void eachMotorHasItsOwnReferenceEpsilon() {
+        module.setPivotReference(10);
+        module.setPivotReference(10.4);
+        module.setDriveReference(1000);
+        module.setDriveReference(1004);
+        assertWrites(1, 1, 2);
+
+        module.setPivotReference(10.6);
+        module.setDriveReference(1006);
+        assertWrites(2, 2, 2);
+        assertEquals(10.6, fake.getLastPivotWrite(), 0);
+        assertEquals(1006, fake.getLastDriveWrite(), 0);
+    }
+
+    @Test
+    public void motorsAreSeparate() {
+        module.setPivotMotorSpeed(0.2);
+        module.setDriveMotorSpeed(0.2);
+        module.setPivotMotorSpeed(0.2);
+        module.setDriveMotorSpeed(0.2);
+        assertWrites(1, 1, 2);
+    }
+
+    @Test
+    public void refreshIsSentAfterTheInterval() {
+        for (int i = 0; i < 10; i++) {
+            module.setDriveMotorSpeed(0.5);
+        }
+        /* Sent, three suppressed, sent, three suppressed, sent, one suppressed. */
+        assertWrites(0, 3, 7);
+
+        /* A write that is sent for changing something starts the count over. */
+        module.setDriveMotorSpeed(0.6);
+        module.setDriveMotorSpeed(0.6);
+        module.setDriveMotorSpeed(0.6);
+        module.setDriveMotorSpeed(0.6);
+        assertWrites(0, 4, 10);
+        module.setDriveMotorSpeed(0.6);
+        assertWrites(0, 5, 10);
+    }
+
+    @Test
+    public void stopResendsTheNextWrite() {
+        module.setDriveMotorSpeed(0.5);
+        module.setPivotReference(90);
+        module.stopDriveMotor();
+        module.setDriveMotorSpeed(0.5);
+        module.setPivotReference(90);
+        /* Only the stopped motor's write is sent again. */
+        assertWrites(1, 2, 1);
+
+        module.stopPivotMotor();
+        module.setPivotReference(90);
+        assertWrites(2, 2, 1);
+    }
+
+    @Test
+    public void changingModeResendsTheNextWrite() {
+        module.setDriveMotorSpeed(0.5);
+        module.setDriveReference(0.5);
+        module.setDriveMotorSpeed(0.5);
+        assertWrites(0, 3, 0);
+    }
+
+    @Test
+    public void zeroingAndConfigurationResendTheNextWrite() {
+        module.setPivotReference(45);
+        module.zeroPivotEncoder();
+        module.setPivotReference(45);
+        module.setPivotPidP(0.1);
+        module.setPivotReference(45);
+        module.setPivotClosedLoopRampRate(0.2);
+        module.setPivotReference(45);
+        assertWrites(4, 0, 0);
+
+        module.setDriveReference(3000);
+        module.zeroDriveEncoder();
+        module.setDriveReference(3000);
+        module.setDriveOpenLoopRampRate(0.5);
+        module.setDriveReference(3000);
+        module.setDrivePidFF(0.0002);
+        module.setDriveReference(3000);
+        assertWrites(4, 4, 0);
+    }
+
+    @Test
+    public void zeroIntervalNeverSuppresses() {
+        module = new DeduplicatingSwerveModule(fake, SPEED_EPSILON, PIVOT_REFERENCE_EPSILON, DRIVE_REFERENCE_EPSILON, 0);
+        for (int i = 0; i < 5; i++) {
+            module.setPivotMotorSpeed(0);
+            module.setDriveReference(100);
+        }
+        assertWrites(5, 5, 0);
+    }
+
+    @Test(expected = SwerveImplementationException.class)
+    public void nullModule() {
+        new DeduplicatingSwerveModule(null, SPEED_EPSILON, PIVOT_REFERENCE_EPSILON, DRIVE_REFERENCE_EPSILON, REFRESH_INTERVAL);
+    }
+}
@@ -0,0 +1,187 @@
+package frc.robot.swerveio;
+
+/**
+ * A swerve module for tests. Its sensors read whatever the test sets
+ * them to, it counts the speeds and references it is told to write and
+ * keeps the last of each, and it ignores everything else.
+ */
+public class FakeSwerveModule extends AbstractSwerveModule {
+    private double pivotEncoder, driveEncoder;
+    private double pivotSpeed, driveVelocity;
+
+    private int pivotWrites, driveWrites;
+    private double lastPivotWrite, lastDriveWrite;
+
+    /**
+     * Set what the sensors read.
+     * @param pivotEncoder The pivot encoder reading.
+     * @param driveEncoder The drive encoder reading.
+     * @param pivotSpeed The pivot motor speed.
+     * @param driveVelocity The drive motor velocity.
+     */
+    public void setSensors(double pivotEncoder, double driveEncoder, double pivotSpeed, double driveVelocity) {
+        this.pivotEncoder = pivotEncoder;
+        this.driveEncoder = driveEncoder;
+        this.pivotSpeed = pivotSpeed;
+        this.driveVelocity = driveVelocity;
+    }
+
+    /**
+     * Get how many speeds and references have been written to the pivot motor.
+     * @return The number of writes.
+     */
+    public int getPivotWrites() {
+        return pivotWrites;
+    }
+
+    /**
+     * Get how many speeds and references have been written to the drive motor.
+     * @return The number of writes.
+     */
+    public int getDriveWrites() {
+        return driveWrites;
+    }
+
+    /**
+     * Get the last speed or reference written to the pivot motor.
+     * @return The value written.
+     */
+    public double getLastPivotWrite() {
+        return lastPivotWrite;
+    }
+
+    /**
+     * Get the last speed or reference written to the drive motor.
+     * @return The value written.
+     */
+    public double getLastDriveWrite() {
+        return lastDriveWrite;
+    }
+
+    /* The sensors are only ever set and read from the thread that samples them. */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public void setPivotMotorSpeed(double speed) {
+        pivotWrites++;
+        lastPivotWrite = speed;
+    }
+
+    @Override
+    public void setDriveMotorSpeed(double speed) {
+        driveWrites++;
+        lastDriveWrite = speed;
+    }
+
+    @Override
+    public double getPivotMotorSpeed() {
+        return pivotSpeed;
+    }
+
+    @Override
+    public double getDriveMotorSpeed() {
+        return 0;
+    }
+
+    @Override
+    public double getDriveMotorVelocity() {
+        return driveVelocity;
+    }
+
+    @Override
+    public double getPivotMotorEncoder() {
+        return pivotEncoder;
+    }
+
+    @Override
+    public double getDriveMotorEncoder() {
+        return driveEncoder;
+    }
+
+    @Override
+    public void zeroPivotEncoder() {
+    }
+
+    @Override
+    public void zeroDriveEncoder() {
+    }
+
+    @Override
+    public void stopPivotMotor() {
+    }
+
+    @Override
+    public void stopDriveMotor() {
+    }
+
+    @Override
+    public void setPivotClosedLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setPivotOpenLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveClosedLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveOpenLoopRampRate(double rate) {
+    }
+
+    @Override
+    public void setDriveReference(double ref) {
+        driveWrites++;
+        lastDriveWrite = ref;
+    }
+
+    @Override
+    public void setPivotReference(double ref) {
+        pivotWrites++;
+        lastPivotWrite = ref;
+    }
+
+    @Override
+    public void setPivotPidP(double gain) {
+    }
+
+    @Override
+    public void setDrivePidP(double gain) {
+    }
+
+    @Override
+    public void setPivotPidI(double gain) {
+    }
+
+    @Override
+    public void setDrivePidI(double gain) {
+    }
+
+    @Override
+    public void setPivotPidD(double gain) {
+    }
+
+    @Override
+    public void setDrivePidD(double gain) {
+    }
+
+    @Override
+    public void setPivotPidIZone(double iZone) {
+    }
+
+    @Override
+    public void setDrivePidIZone(double iZone) {
+    }
+
+    @Override
+    public void setPivotPidFF(double gain) {
+    }
+
+    @Override
+    public void setDrivePidFF(double gain) {
+    }
+}
@@ -0,0 +1,210 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the pose history interpolates between the poses around a
+ * time, the heading the short way around, and that it drops poses by age
+ * and by capacity and ignores poses that arrive out of order.
+ */
+public class PoseHistoryTest {
+    /* A fixed seed, so that a failure can be reproduced. */
+    private static final long SEED = 2020;
+    private static final int TRIALS = 10000;
+
+    private static final double EPSILON = 1e-9;
+
+    private static void assertPose(PoseHistory history, double x, double y, double heading) {
+        assertEquals("X", x, history.getX(), EPSILON);
+        assertEquals("Y", y, history.getY(), EPSILON);
+        assertEquals("Heading", heading, history.getHeading(), EPSILON);
+    }
+
+    @Test
+    public void interpolatesBetweenPoses() {
+        PoseHistory history = new PoseHistory(10, 10);
+        assertTrue(history.add(1, 0, 0, 0));
+        assertTrue(history.add(2, 10, -20, 30));
+        assertTrue(history.add(4, 30, -20, 30));
+
+        assertTrue(history.lookup(1.25));
+        assertPose(history, 2.5, -5, 7.5);
+        assertTrue(history.lookup(3.5));
+        assertPose(history, 25, -20, 30);
+
+        /* A time right on a pose gives that pose. */
+        assertTrue(history.lookup(2));
+        assertPose(history, 10, -20, 30);
+        assertTrue(history.lookup(1));
+        assertPose(history, 0, 0, 0);
+        assertTrue(history.lookup(4));
+        assertPose(history, 30, -20, 30);
+    }
+
+    @Test
+    public void outsideTheHistoryGivesTheClosestPose() {
+        PoseHistory history = new PoseHistory(10, 10);
+        assertFalse(history.lookup(1));
+        assertPose(history, 0, 0, 0);
+
+        history.add(1, 5, 6, 7);
+        history.add(2, 8, 9, 10);
+        assertFalse(history.lookup(0.5));
+        assertPose(history, 5, 6, 7);
+        assertFalse(history.lookup(2.5));
+        assertPose(history, 8, 9, 10);
+    }
+
+    @Test
+    public void headingTurnsTheShortWayAcross180() {
+        PoseHistory history = new PoseHistory(10, 10);
+        history.add(0, 0, 0, 170);
+        history.add(1, 0, 0, -170);
+        history.add(2, 0, 0, 170);
+        history.lookup(0.25);
+        assertPose(history, 0, 0, 175);
+        /* Halfway is 180, not -180. */
+        history.lookup(0.5);
+        assertPose(history, 0, 0, 180);
+        history.lookup(0.75);
+        assertPose(history, 0, 0, -175);
+        history.lookup(1.25);
+        assertPose(history, 0, 0, -175);
+        history.lookup(1.5);
+        assertPose(history, 0, 0, 180);
+    }
+
+    @Test
+    public void unwrappedHeadingsAreWrapped() {
+        PoseHistory history = new PoseHistory(10, 10);
+        history.add(0, 0, 0, 350);
+        history.add(1, 0, 0, 370);
+        history.add(2, 0, 0, -540);
+        history.lookup(0.25);
+        assertPose(history, 0, 0, -5);
+        history.lookup(0.5);
+        assertPose(history, 0, 0, 0);
+        history.lookup(1);
+        assertPose(history, 0, 0, 10);
+        history.lookup(2);
+        assertPose(history, 0, 0, 180);
+        history.lookup(3);
+        assertPose(history, 0, 0, 180);
+    }
+
+    @Test
+    public void headingIsAlwaysInRange() {
+        Random random = new Random(SEED);
+        PoseHistory history = new PoseHistory(TRIALS, TRIALS);
+        double heading = 0;
+        for (int i = 0; i < TRIALS; i++) {
+            /* Keep going the same way round sometimes, so the heading winds up past a turn. */
+            heading += (random.nextDouble() - 0.3) * 200;
+            history.add(i, 0, 0, heading);
+        }
+        for (int i = 0; i < TRIALS; i++) {
+            history.lookup(random.nextDouble() * TRIALS);
+            double result = history.getHeading();
+            assertTrue("Heading " + result, result > -180 && result <= 180);
+        }
+    }
+
+    @Test
+    public void oldPosesFallOutOfTheWindow() {
+        PoseHistory history = new PoseHistory(100, 1);
+        for (int i = 0; i <= 12; i++) {
+            history.add(i * 0.25, i, 0, 0);
+        }
+        /* Everything more than a second older than the newest pose is gone, and a pose exactly a second old is kept. */
+        assertEquals(5, history.size());
+        assertEquals(2, history.getOldestTimestamp(), 0);
+        assertEquals(3, history.getNewestTimestamp(), 0);
+        assertFalse(history.lookup(1.5));
+        assertPose(history, 8, 0, 0);
+        assertTrue(history.lookup(2.125));
+        assertPose(history, 8.5, 0, 0);
+    }
+
+    /**
+     * The newest pose is always kept, however old it is compared with the window.
+     */
+    @Test
+    public void newestPoseIsKept() {
+        PoseHistory history = new PoseHistory(10, 1);
+        history.add(0, 1, 2, 3);
+        history.add(100, 4, 5, 6);
+        assertEquals(1, history.size());
+        assertTrue(history.lookup(100));
+        assertPose(history, 4, 5, 6);
+    }
+
+    @Test
+    public void fullBufferWrapsAround() {
+        PoseHistory history = new PoseHistory(4, 100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(history.add(i, i * 2, -i, i * 10));
+            assertEquals(Math.min(i + 1, 4), history.size());
+        }
+        assertEquals(6, history.getOldestTimestamp(), 0);
+        assertEquals(9, history.getNewestTimestamp(), 0);
+        assertFalse(history.lookup(5));
+        assertPose(history, 12, -6, 60);
+
+        /* Every gap, including the one across the end of the arrays, interpolates between the right poses. */
+        for (double time = 6; time <= 9; time += 0.125) {
+            assertTrue(history.lookup(time));
+            assertPose(history, time * 2, -time, time * 10);
+        }
+    }
+
+    @Test
+    public void outOfOrderAndDuplicatePosesAreIgnored() {
+        PoseHistory history = new PoseHistory(10, 10);
+        assertTrue(history.add(1, 1, 1, 1));
+        assertTrue(history.add(2, 2, 2, 2));
+        assertFalse("Duplicate", history.add(2, 5, 5, 5));
+        assertFalse("Out of order", history.add(1.5, 5, 5, 5));
+        assertFalse("Older than everything", history.add(0, 5, 5, 5));
+        assertEquals(2, history.size());
+        assertEquals(2, history.getNewestTimestamp(), 0);
+        history.lookup(2);
+        assertPose(history, 2, 2, 2);
+        history.lookup(1.5);
+        assertPose(history, 1.5, 1.5, 1.5);
+
+        /* A newer pose is still taken afterwards. */
+        assertTrue(history.add(3, 3, 3, 3));
+        assertEquals(3, history.size());
+    }
+
+    @Test
+    public void clear() {
+        PoseHistory history = new PoseHistory(10, 10);
+        history.add(1, 1, 1, 1);
+        history.add(2, 2, 2, 2);
+        history.clear();
+        assertEquals(0, history.size());
+        assertTrue(Double.isNaN(history.getOldestTimestamp()));
+        assertTrue(Double.isNaN(history.getNewestTimestamp()));
+        assertFalse(history.lookup(1.5));
+        assertPose(history, 0, 0, 0);
+        /* After clearing, an older pose than before is taken. */
+        assertTrue(history.add(0, 3, 3, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroCapacity() {
+        new PoseHistory(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroWindow() {
+        new PoseHistory(10, 0);
+    }
+}
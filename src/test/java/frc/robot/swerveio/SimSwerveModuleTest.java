@@ -0,0 +1,61 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that the simulated drive motor's closed loop holds a velocity
+ * reference however far the battery has sagged, and that the measured
+ * velocity is kept apart from the output that was set.
+ */
+public class SimSwerveModuleTest {
+    /* Well under what the motor can reach at the lowest voltage, which is two thirds of its free speed. */
+    private static final double REFERENCE = 3000;
+    private static final double[] VOLTAGES = { SimSwerveModule.NOMINAL_VOLTAGE, 10, 8 };
+
+    /* Long enough for the integral term to take out what the feed forward gets wrong. */
+    private static final double SETTLE_TIME = 3;
+
+    /* How close to the reference the velocity has to settle, in RPM. */
+    private static final double TOLERANCE = REFERENCE * 0.01;
+
+    @Test
+    public void velocityIsHeldAtEveryVoltage() {
+        double lastOutput = 0;
+        for (double volts : VOLTAGES) {
+            SimClock clock = new SimClock();
+            SimSwerveModule module = new SimSwerveModule(clock);
+            module.setBatteryVoltage(volts);
+            module.setDriveReference(REFERENCE);
+            clock.advance(SETTLE_TIME);
+
+            assertEquals("At " + volts + " V", REFERENCE, module.getDriveMotorVelocity(), TOLERANCE);
+            /* It stays there, rather than passing through on the way somewhere else. */
+            clock.advance(0.5);
+            assertEquals("At " + volts + " V", REFERENCE, module.getDriveMotorVelocity(), TOLERANCE);
+
+            /* The speed is the output that was applied, which has to go up as the voltage goes down. */
+            double output = module.getDriveMotorSpeed();
+            assertTrue("At " + volts + " V the output was " + output, output > lastOutput && output < 1);
+            lastOutput = output;
+        }
+    }
+
+    @Test
+    public void openLoopSpeedScalesWithVoltage() {
+        SimClock clock = new SimClock();
+        SimSwerveModule module = new SimSwerveModule(clock);
+        module.setDriveMotorSpeed(0.5);
+        clock.advance(SETTLE_TIME);
+        assertEquals(0.5, module.getDriveMotorSpeed(), 0);
+        assertEquals(0.5 * SimSwerveModule.NEO_FREE_SPEED * 60, module.getDriveMotorVelocity(), 1e-3);
+
+        /* Without the closed loop, a sagging battery slows the wheel down. */
+        module.setBatteryVoltage(9);
+        clock.advance(SETTLE_TIME);
+        assertEquals(0.5, module.getDriveMotorSpeed(), 0);
+        assertEquals(0.5 * SimSwerveModule.NEO_FREE_SPEED * 60 * 0.75, module.getDriveMotorVelocity(), 1e-3);
+    }
+}
@@ -0,0 +1,147 @@
+package frc.robot.swerveio;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stand-in for a motor controller on the CAN bus. It keeps the parameters
+ * it is sent, and takes about as long as a real controller would: a call
+ * that waits for the controller takes a round trip, a call that doesn't
+ * wait takes no time, and the encoder position only changes when the next
+ * periodic status frame would arrive. This is used to time module
+ * initialization without any hardware.
+ * <p>
+ * It can also be made to lose parameters and ignore zeroing its encoder,
+ * like a controller on a busy bus, to check what the initializer does then.
+ */
+public class StubMotorController implements ConfigurableMotorController {
+    /**
+     * How long a call that waits for the controller takes, in nanoseconds.
+     */
+    public static final long ROUND_TRIP_NANOS = 1_000_000;
+
+    /**
+     * How often the controller sends its encoder position, in nanoseconds.
+     * This is the Spark Max's default.
+     */
+    public static final long STATUS_PERIOD_NANOS = 20_000_000;
+
+    private static final MotorParameter[] PARAMETERS = MotorParameter.values();
+
+    private final int deviceId;
+    private final double[] parameters = new double[PARAMETERS.length];
+    private final long roundTripNanos;
+    private int timeout = SwerveModuleInitializer.DEFAULT_TIMEOUT;
+
+    private double encoderPosition = 42;
+    private double pendingPosition;
+    private long pendingTime = Long.MAX_VALUE;
+
+    /* How many more times each parameter will be lost, and how many times each has been sent. */
+    private final int[] drops = new int[PARAMETERS.length];
+    private final int[] sends = new int[PARAMETERS.length];
+    private boolean ignoresZeroing = false;
+
+    /**
+     * Create a stand-in controller with the default round trip time.
+     * @param deviceId The CAN ID to report.
+     */
+    public StubMotorController(int deviceId) {
+        this(deviceId, ROUND_TRIP_NANOS);
+    }
+
+    /**
+     * Create a stand-in controller.
+     * @param deviceId The CAN ID to report.
+     * @param roundTripNanos How long a call that waits for the controller takes, in nanoseconds.
+     */
+    public StubMotorController(int deviceId, long roundTripNanos) {
+        this.deviceId = deviceId;
+        this.roundTripNanos = roundTripNanos;
+    }
+
+    /**
+     * Lose the next few times a parameter is sent. The controller still
+     * says it got them.
+     * @param parameter The parameter to lose.
+     * @param times How many times to lose it, or Integer.MAX_VALUE to always lose it.
+     */
+    public void dropParameter(MotorParameter parameter, int times) {
+        drops[parameter.ordinal()] = times;
+    }
+
+    /**
+     * Get how many times a parameter has been sent, including the times it was lost.
+     * @param parameter The parameter.
+     * @return How many times it was sent.
+     */
+    public int getSends(MotorParameter parameter) {
+        return sends[parameter.ordinal()];
+    }
+
+    /**
+     * Ignore every request to set the encoder position, so it never reads zero.
+     */
+    public void ignoreZeroing() {
+        ignoresZeroing = true;
+    }
+
+    /* Take as long as the call would on the bus. */
+    private void call(boolean waits) {
+        if (waits && roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    @Override
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public void setTimeout(int milliseconds) {
+        timeout = milliseconds;
+    }
+
+    @Override
+    public boolean setParameter(MotorParameter parameter, double value) {
+        call(timeout > 0);
+        int index = parameter.ordinal();
+        sends[index]++;
+        if (drops[index] > 0) {
+            if (drops[index] != Integer.MAX_VALUE) {
+                drops[index]--;
+            }
+            return true;
+        }
+        /* The controller stores parameters as floats. */
+        parameters[index] = (float) value;
+        return true;
+    }
+
+    @Override
+    public double getParameter(MotorParameter parameter) {
+        call(true);
+        return parameters[parameter.ordinal()];
+    }
+
+    @Override
+    public boolean setEncoderPosition(double position) {
+        call(timeout > 0);
+        if (ignoresZeroing) {
+            return true;
+        }
+        pendingPosition = position;
+        pendingTime = System.nanoTime() + STATUS_PERIOD_NANOS;
+        return true;
+    }
+
+    @Override
+    public double getEncoderPosition() {
+        /* The position comes from the last status frame, so reading it doesn't wait. */
+        if (System.nanoTime() >= pendingTime) {
+            encoderPosition = pendingPosition;
+            pendingTime = Long.MAX_VALUE;
+        }
+        return encoderPosition;
+    }
+}
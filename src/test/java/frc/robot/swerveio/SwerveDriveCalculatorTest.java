@@ -0,0 +1,155 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the calculator against the original per-module calculation, which
+ * is kept here as the reference, over a grid of joystick values and gyro
+ * angles. The results must be exactly the same, not just close.
+ */
+public class SwerveDriveCalculatorTest {
+    private static final SwerveModule[] MODULES = SwerveModule.values();
+
+    private static final double[][] BASES = {
+        { 1, 1 },
+        { 20, 22 },
+        { 23.5, 17.25 },
+        { 0.3, 7 }
+    };
+
+    /* The grid goes past 1 in each direction, so wheel speeds over 1 are covered too. */
+    private static final double GRID_MIN = -1.5;
+    private static final double GRID_MAX = 1.5;
+    private static final double GRID_STEP = 0.25;
+    private static final double GYRO_STEP = 22.5;
+
+    /**
+     * The wheel constants the way the calculator originally worked them out,
+     * for every call.
+     */
+    static double[] referenceConstants(double baseWidth, double baseLength, SwerveModule module, double fwd, double str, double rcw) {
+        final double R = Math.sqrt(Math.pow(baseLength, 2) + Math.pow(baseWidth, 2));
+        double tmp[] = new double[2];
+        switch (module) {
+            case FRONT_LEFT:
+                tmp[0] = str + rcw * (baseLength / R);
+                tmp[1] = fwd - rcw * (baseWidth / R);
+                break;
+            case FRONT_RIGHT:
+                tmp[0] = str + rcw * (baseLength / R);
+                tmp[1] = fwd + rcw * (baseWidth / R);
+                break;
+            case REAR_RIGHT:
+                tmp[0] = str - rcw * (baseLength / R);
+                tmp[1] = fwd + rcw * (baseWidth / R);
+                break;
+            case REAR_LEFT:
+                tmp[0] = str - rcw * (baseLength / R);
+                tmp[1] = fwd - rcw * (baseWidth / R);
+                break;
+        }
+        return tmp;
+    }
+
+    static double referenceAngle(double baseWidth, double baseLength, SwerveModule module, double fwd, double str, double rcw) {
+        double[] tmp = referenceConstants(baseWidth, baseLength, module, fwd, str, rcw);
+        return Math.toDegrees(Math.atan2(tmp[0], tmp[1]));
+    }
+
+    private static double referenceSpeed(double baseWidth, double baseLength, SwerveModule module, double fwd, double str, double rcw) {
+        double[] tmp = referenceConstants(baseWidth, baseLength, module, fwd, str, rcw);
+        double wheelSpeed = Math.sqrt(Math.pow(tmp[0], 2) + Math.pow(tmp[1], 2));
+        return (wheelSpeed > 1f) ? 1f : wheelSpeed;
+    }
+
+    private static double fieldFwd(double fwd, double str, double gyroAngle) {
+        return fwd * Math.cos(Math.toRadians(gyroAngle)) + str * Math.sin(Math.toRadians(gyroAngle));
+    }
+
+    private static double fieldStr(double fwd, double str, double gyroAngle) {
+        return -fwd * Math.sin(Math.toRadians(gyroAngle)) + str * Math.cos(Math.toRadians(gyroAngle));
+    }
+
+    private static String describe(double[] base, SwerveModule module, double fwd, double str, double rcw) {
+        return base[0] + "x" + base[1] + " " + module + " fwd=" + fwd + " str=" + str + " rcw=" + rcw;
+    }
+
+    @Test
+    public void perModuleMatchesReference() {
+        for (double[] base : BASES) {
+            SwerveDriveCalculator calc = new SwerveDriveCalculator(base[0], base[1]);
+            for (double fwd = GRID_MIN; fwd <= GRID_MAX; fwd += GRID_STEP) {
+                for (double str = GRID_MIN; str <= GRID_MAX; str += GRID_STEP) {
+                    for (double rcw = GRID_MIN; rcw <= GRID_MAX; rcw += GRID_STEP) {
+                        for (SwerveModule module : MODULES) {
+                            String message = describe(base, module, fwd, str, rcw);
+                            assertEquals(message, referenceAngle(base[0], base[1], module, fwd, str, rcw), calc.getWheelAngle(module, fwd, str, rcw), 0);
+                            assertEquals(message, referenceSpeed(base[0], base[1], module, fwd, str, rcw), calc.getWheelSpeed(module, fwd, str, rcw), 0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fieldCentricMatchesReference() {
+        for (double[] base : BASES) {
+            SwerveDriveCalculator calc = new SwerveDriveCalculator(base[0], base[1]);
+            for (double fwd = GRID_MIN; fwd <= GRID_MAX; fwd += GRID_STEP) {
+                for (double str = GRID_MIN; str <= GRID_MAX; str += GRID_STEP) {
+                    for (double rcw = GRID_MIN; rcw <= GRID_MAX; rcw += GRID_STEP) {
+                        for (double gyro = -180; gyro <= 180; gyro += GYRO_STEP) {
+                            double modFwd = fieldFwd(fwd, str, gyro);
+                            double modStr = fieldStr(fwd, str, gyro);
+                            for (SwerveModule module : MODULES) {
+                                String message = describe(base, module, fwd, str, rcw) + " gyro=" + gyro;
+                                assertEquals(message, referenceAngle(base[0], base[1], module, modFwd, modStr, rcw), calc.getWheelAngle(module, fwd, str, rcw, gyro), 0);
+                                assertEquals(message, referenceSpeed(base[0], base[1], module, modFwd, modStr, rcw), calc.getWheelSpeed(module, fwd, str, rcw, gyro), 0);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The batch angles always match the per-module ones. The batch speeds
+     * match as long as none of them are over 1; past that, the batch
+     * calculation scales them together instead of capping each one.
+     */
+    @Test
+    public void batchMatchesPerModule() {
+        double[] speeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] angles = new double[SwerveDriveCalculator.MODULE_COUNT];
+        for (double[] base : BASES) {
+            SwerveDriveCalculator calc = new SwerveDriveCalculator(base[0], base[1]);
+            for (double fwd = GRID_MIN; fwd <= GRID_MAX; fwd += GRID_STEP) {
+                for (double str = GRID_MIN; str <= GRID_MAX; str += GRID_STEP) {
+                    for (double rcw = GRID_MIN; rcw <= GRID_MAX; rcw += GRID_STEP) {
+                        for (double gyro = -180; gyro <= 180; gyro += GYRO_STEP) {
+                            calc.getWheelStates(fwd, str, rcw, gyro, speeds, angles);
+                            double modFwd = fieldFwd(fwd, str, gyro);
+                            double modStr = fieldStr(fwd, str, gyro);
+                            boolean saturated = false;
+                            for (SwerveModule module : MODULES) {
+                                double[] tmp = referenceConstants(base[0], base[1], module, modFwd, modStr, rcw);
+                                saturated |= Math.sqrt(Math.pow(tmp[0], 2) + Math.pow(tmp[1], 2)) > 1;
+                            }
+                            for (SwerveModule module : MODULES) {
+                                String message = describe(base, module, fwd, str, rcw) + " gyro=" + gyro;
+                                assertEquals(message, calc.getWheelAngle(module, fwd, str, rcw, gyro), angles[module.ordinal()], 0);
+                                if (!saturated) {
+                                    assertEquals(message, calc.getWheelSpeed(module, fwd, str, rcw, gyro), speeds[module.ordinal()], 0);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the forward kinematics recover the motion that the kinematics
+ * drove the modules with, that a module that disagrees with the others
+ * stands out in the residual, and that updating doesn't allocate.
+ */
+public class SwerveForwardKinematicsTest {
+    /* A fixed seed, so that a failure can be reproduced. */
+    private static final long SEED = 2020;
+    private static final int TRIALS = 1000;
+
+    /* How far off the recovered motion can be from rounding alone. */
+    private static final double EPSILON = 1e-12;
+
+    private static final int WARMUP_UPDATES = 200000;
+    private static final int UPDATES = 100000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /* Three modules in a triangle, and six in two rows of three, as well as the usual rectangle. */
+    private static final SwerveKinematics[] LAYOUTS = {
+        SwerveKinematics.rectangle(20, 22),
+        new SwerveKinematics(new double[] { 12, -8, -8 }, new double[] { 0, 10, -10 }),
+        new SwerveKinematics(new double[] { 15, 0, -15, 15, 0, -15 }, new double[] { 9, 9, 9, -9, -9, -9 })
+    };
+
+    /**
+     * Work out the module vectors for a motion with calculate().
+     * @return How much calculate() scaled the motion down by, so no wheel is over full speed.
+     */
+    private static double wheels(SwerveKinematics kinematics, double fwd, double str, double rcw, double[] speeds, double[] angles) {
+        kinematics.calculate(fwd, str, rcw, speeds, angles);
+        double fastest = 0;
+        for (int i = 0; i < speeds.length; i++) {
+            fastest = Math.max(fastest, kinematics.getWheelSpeed(i, fwd, str, rcw));
+        }
+        return Math.min(1, 1 / fastest);
+    }
+
+    @Test
+    public void recoversTheMotion() {
+        Random random = new Random(SEED);
+        for (SwerveKinematics kinematics : LAYOUTS) {
+            SwerveForwardKinematics forward = new SwerveForwardKinematics(kinematics);
+            int count = kinematics.getModuleCount();
+            double[] speeds = new double[count];
+            double[] angles = new double[count];
+            for (int trial = 0; trial < TRIALS; trial++) {
+                double fwd = (random.nextDouble() * 2) - 1;
+                double str = (random.nextDouble() * 2) - 1;
+                double rcw = (random.nextDouble() * 2) - 1;
+                double scale = wheels(kinematics, fwd, str, rcw, speeds, angles);
+                forward.update(speeds, angles);
+                String message = count + " modules, fwd=" + fwd + " str=" + str + " rcw=" + rcw;
+                assertEquals(message, fwd * scale, forward.getFwd(), EPSILON);
+                assertEquals(message, str * scale, forward.getStr(), EPSILON);
+                assertEquals(message, rcw * scale, forward.getRcw(), EPSILON);
+                assertEquals(message, 0, forward.getResidual(), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void recoversTheMotionAroundMovedCenter() {
+        Random random = new Random(SEED);
+        for (SwerveKinematics layout : LAYOUTS) {
+            int count = layout.getModuleCount();
+            double[] x = new double[count];
+            double[] y = new double[count];
+            for (int i = 0; i < count; i++) {
+                x[i] = layout.getModuleX(i);
+                y[i] = layout.getModuleY(i);
+            }
+            /* The center is moved on a copy of the layout; the forward kinematics always give the motion of the center of the robot. */
+            SwerveKinematics kinematics = new SwerveKinematics(x, y);
+            SwerveForwardKinematics forward = new SwerveForwardKinematics(layout);
+            double r = kinematics.getRadius();
+            double[] speeds = new double[count];
+            double[] angles = new double[count];
+            for (int trial = 0; trial < TRIALS; trial++) {
+                double centerX = (random.nextDouble() * 2 - 1) * 30;
+                double centerY = (random.nextDouble() * 2 - 1) * 30;
+                kinematics.setCenterOfRotation(centerX, centerY);
+                double fwd = (random.nextDouble() * 2) - 1;
+                double str = (random.nextDouble() * 2) - 1;
+                double rcw = (random.nextDouble() * 2) - 1;
+                double scale = wheels(kinematics, fwd, str, rcw, speeds, angles);
+                forward.update(speeds, angles);
+                /* Turning around c moves the center of the robot as well, at right angles to the line from c to it. */
+                String message = count + " modules, center (" + centerX + ", " + centerY + "), fwd=" + fwd + " str=" + str + " rcw=" + rcw;
+                assertEquals(message, (fwd + (rcw * centerY / r)) * scale, forward.getFwd(), 1e-11);
+                assertEquals(message, (str - (rcw * centerX / r)) * scale, forward.getStr(), 1e-11);
+                assertEquals(message, rcw * scale, forward.getRcw(), 1e-11);
+                assertEquals(message, 0, forward.getResidual(), 1e-11);
+            }
+        }
+    }
+
+    /**
+     * With only three modules, the fit can lean on a disturbed module enough
+     * that a neighbour ends up with the larger residual, so only the layouts
+     * with four or more modules are checked.
+     */
+    @Test
+    public void disturbedModuleHasLargestResidual() {
+        Random random = new Random(SEED);
+        for (SwerveKinematics kinematics : new SwerveKinematics[] { LAYOUTS[0], LAYOUTS[2] }) {
+            SwerveForwardKinematics forward = new SwerveForwardKinematics(kinematics);
+            int count = kinematics.getModuleCount();
+            double[] speeds = new double[count];
+            double[] angles = new double[count];
+            for (int trial = 0; trial < TRIALS; trial++) {
+                wheels(kinematics, (random.nextDouble() * 2) - 1, (random.nextDouble() * 2) - 1, (random.nextDouble() * 2) - 1, speeds, angles);
+                int disturbed = random.nextInt(count);
+                if (random.nextBoolean()) {
+                    /* The wheel slipped, and spun faster than the robot moved it. */
+                    speeds[disturbed] += 0.3;
+                } else {
+                    /* The pivot encoder is off. */
+                    angles[disturbed] += 25;
+                }
+                forward.update(speeds, angles);
+                assertTrue(forward.getResidual() > EPSILON);
+                for (int i = 0; i < count; i++) {
+                    if (i != disturbed) {
+                        assertTrue(count + " modules, module " + disturbed + " disturbed, but module " + i + " has a larger residual",
+                            forward.getModuleResidual(disturbed) > forward.getModuleResidual(i));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void updateDoesNotAllocate() {
+        assumeTrue("Thread allocation measurement isn't supported on this JVM.",
+            THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+        SwerveKinematics kinematics = SwerveKinematics.rectangle(20, 22);
+        SwerveForwardKinematics forward = new SwerveForwardKinematics(kinematics);
+        double[] speeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] angles = new double[SwerveDriveCalculator.MODULE_COUNT];
+        kinematics.calculate(0.5, -0.25, 0.3, speeds, angles);
+        /* Warm up first, so class loading and compilation aren't counted. */
+        double sum = 0;
+        for (int i = 0; i < WARMUP_UPDATES; i++) {
+            angles[i & 3] += 1e-6;
+            sum += forward.update(speeds, angles);
+        }
+        long overheadStart = allocatedBytes();
+        long overhead = allocatedBytes() - overheadStart;
+
+        long before = allocatedBytes();
+        for (int i = 0; i < UPDATES; i++) {
+            angles[i & 3] += 1e-6;
+            sum += forward.update(speeds, angles);
+        }
+        long allocated = allocatedBytes() - before - overhead;
+
+        assertEquals("Bytes allocated during " + UPDATES + " updates", 0, allocated);
+        assertTrue(sum > 0);
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,196 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the kinematics: that a rectangle drives the same as the original
+ * calculator, that moving the center of rotation gives the wheel vectors
+ * worked out by hand, and that scaling the wheel speeds down keeps every
+ * wheel at or under full speed without changing how the robot moves, over
+ * randomized inputs.
+ */
+public class SwerveKinematicsTest {
+    /* A fixed seed, so that a failure can be reproduced. */
+    private static final long SEED = 2020;
+    private static final int TRIALS = 10000;
+
+    /* How far off a ratio can be from rounding alone. */
+    private static final double EPSILON = 1e-12;
+
+    private static final SwerveModule[] MODULES = SwerveModule.values();
+
+    /* The same bases and grid as the calculator is checked against the reference with. */
+    private static final double[][] BASES = {
+        { 1, 1 },
+        { 20, 22 },
+        { 23.5, 17.25 },
+        { 0.3, 7 }
+    };
+    private static final double GRID_MIN = -1.5;
+    private static final double GRID_MAX = 1.5;
+    private static final double GRID_STEP = 0.25;
+
+    /*
+     * A 20 by 22 base, so the modules are at (11, 10), (11, -10), (-11, 10) and (-11, -10),
+     * and the furthest module from the center is this far from it.
+     */
+    private static final double BASE_WIDTH = 20;
+    private static final double BASE_LENGTH = 22;
+    private static final double R = Math.sqrt((11 * 11) + (10 * 10));
+
+    private static void assertAngle(String message, double expected, double actual) {
+        assertEquals(message, 0, Math.IEEEremainder(expected - actual, 360), 1e-9);
+    }
+
+    private static void assertWheel(SwerveKinematics kinematics, int module, double fwd, double str, double rcw, double expectedFwd, double expectedStr) {
+        String message = "module " + module + " fwd=" + fwd + " str=" + str + " rcw=" + rcw;
+        assertEquals(message, Math.hypot(expectedFwd, expectedStr), kinematics.getWheelSpeed(module, fwd, str, rcw), EPSILON);
+        assertAngle(message, Math.toDegrees(Math.atan2(expectedStr, expectedFwd)), kinematics.getWheelAngle(module, fwd, str, rcw));
+    }
+
+    @Test
+    public void rectangleMatchesReference() {
+        for (double[] base : BASES) {
+            SwerveKinematics kinematics = SwerveKinematics.rectangle(base[0], base[1]);
+            for (double fwd = GRID_MIN; fwd <= GRID_MAX; fwd += GRID_STEP) {
+                for (double str = GRID_MIN; str <= GRID_MAX; str += GRID_STEP) {
+                    for (double rcw = GRID_MIN; rcw <= GRID_MAX; rcw += GRID_STEP) {
+                        for (SwerveModule module : MODULES) {
+                            String message = base[0] + "x" + base[1] + " " + module + " fwd=" + fwd + " str=" + str + " rcw=" + rcw;
+                            /* The reference caps each wheel at 1, so compare against its wheel vector instead. */
+                            double[] reference = SwerveDriveCalculatorTest.referenceConstants(base[0], base[1], module, fwd, str, rcw);
+                            double referenceSpeed = Math.hypot(reference[0], reference[1]);
+                            assertEquals(message, referenceSpeed, kinematics.getWheelSpeed(module.ordinal(), fwd, str, rcw), EPSILON);
+                            /* When the wheel isn't moving, its angle is just rounding. */
+                            if (referenceSpeed > EPSILON) {
+                                assertAngle(message, SwerveDriveCalculatorTest.referenceAngle(base[0], base[1], module, fwd, str, rcw),
+                                    kinematics.getWheelAngle(module.ordinal(), fwd, str, rcw));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pivotAroundFrontLeft() {
+        SwerveKinematics kinematics = SwerveKinematics.rectangle(BASE_WIDTH, BASE_LENGTH);
+        kinematics.setCenterOfRotationToModule(SwerveModule.FRONT_LEFT.ordinal());
+        assertEquals(11, kinematics.getCenterOfRotationX(), 0);
+        assertEquals(10, kinematics.getCenterOfRotationY(), 0);
+
+        /* The front left wheel stays put, and the others swing around it, faster the further they are from it. */
+        assertWheel(kinematics, 0, 0, 0, 1, 0, 0);
+        assertWheel(kinematics, 1, 0, 0, 1, 20 / R, 0);
+        assertWheel(kinematics, 2, 0, 0, 1, 0, -22 / R);
+        assertWheel(kinematics, 3, 0, 0, 1, 20 / R, -22 / R);
+
+        /* Driving while pivoting adds the same (fwd, str) to every wheel. */
+        assertWheel(kinematics, 0, 0.5, -0.25, 0.5, 0.5, -0.25);
+        assertWheel(kinematics, 1, 0.5, -0.25, 0.5, 0.5 + (10 / R), -0.25);
+        assertWheel(kinematics, 2, 0.5, -0.25, 0.5, 0.5, -0.25 - (11 / R));
+        assertWheel(kinematics, 3, 0.5, -0.25, 0.5, 0.5 + (10 / R), -0.25 - (11 / R));
+
+        /* The rear right wheel is twice as far from the pivot as the furthest wheel is from the center, so everything is halved. */
+        double[] speeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] angles = new double[SwerveDriveCalculator.MODULE_COUNT];
+        kinematics.calculate(0, 0, 1, speeds, angles);
+        assertEquals(0, speeds[0], EPSILON);
+        assertEquals(10 / R, speeds[1], EPSILON);
+        assertEquals(11 / R, speeds[2], EPSILON);
+        assertEquals(1, speeds[3], EPSILON);
+    }
+
+    @Test
+    public void turnAroundPointOffTheRobot() {
+        SwerveKinematics kinematics = SwerveKinematics.rectangle(BASE_WIDTH, BASE_LENGTH);
+        /* 30 inches out to the left, level with the center. */
+        kinematics.setCenterOfRotation(0, 30);
+        assertWheel(kinematics, 0, 0, 0, 1, 20 / R, 11 / R);
+        assertWheel(kinematics, 1, 0, 0, 1, 40 / R, 11 / R);
+        assertWheel(kinematics, 2, 0, 0, 1, 20 / R, -11 / R);
+        assertWheel(kinematics, 3, 0, 0, 1, 40 / R, -11 / R);
+
+        /* Moving the center back brings back the turn in place. */
+        kinematics.setCenterOfRotation(0, 0);
+        assertWheel(kinematics, 0, 0, 0, 1, -10 / R, 11 / R);
+        assertWheel(kinematics, 1, 0, 0, 1, 10 / R, 11 / R);
+        assertWheel(kinematics, 2, 0, 0, 1, -10 / R, -11 / R);
+        assertWheel(kinematics, 3, 0, 0, 1, 10 / R, -11 / R);
+    }
+
+    @Test
+    public void desaturateKeepsSpeedsUnderMax() {
+        Random random = new Random(SEED);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            int count = 1 + random.nextInt(6);
+            double maxSpeed = 0.1 + (random.nextDouble() * 5);
+            double[] speeds = new double[count];
+            for (int i = 0; i < count; i++) {
+                /* Some speeds are backwards, and some sets are under the max to begin with. */
+                speeds[i] = (random.nextDouble() * 2 - 1) * maxSpeed * 3 * random.nextDouble();
+            }
+            double[] original = speeds.clone();
+            double fastest = 0;
+            for (double speed : original) {
+                fastest = Math.max(fastest, Math.abs(speed));
+            }
+
+            double scale = SwerveKinematics.desaturate(speeds, count, maxSpeed);
+
+            double newFastest = 0;
+            for (int i = 0; i < count; i++) {
+                assertTrue(Math.abs(speeds[i]) <= maxSpeed * (1 + EPSILON));
+                /* Every speed is scaled by the same amount, so the ratios between them are kept. */
+                assertEquals(original[i] * scale, speeds[i], 0);
+                newFastest = Math.max(newFastest, Math.abs(speeds[i]));
+            }
+            if (fastest <= maxSpeed) {
+                assertEquals(1, scale, 0);
+            } else {
+                assertTrue(scale > 0 && scale < 1);
+                /* And they are only scaled down as far as they have to be. */
+                assertEquals(maxSpeed, newFastest, maxSpeed * EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void calculateKeepsTheMotion() {
+        Random random = new Random(SEED);
+        double[] speeds = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] angles = new double[SwerveDriveCalculator.MODULE_COUNT];
+        double[] raw = new double[SwerveDriveCalculator.MODULE_COUNT];
+        for (int trial = 0; trial < TRIALS; trial++) {
+            SwerveKinematics kinematics = SwerveKinematics.rectangle(1 + (random.nextDouble() * 30), 1 + (random.nextDouble() * 30));
+            if (random.nextBoolean()) {
+                /* Turning around somewhere other than the center makes the wheels further from it go over full speed. */
+                kinematics.setCenterOfRotation((random.nextDouble() * 2 - 1) * 40, (random.nextDouble() * 2 - 1) * 40);
+            }
+            double fwd = (random.nextDouble() * 2 - 1) * 1.5;
+            double str = (random.nextDouble() * 2 - 1) * 1.5;
+            double rcw = (random.nextDouble() * 2 - 1) * 1.5;
+
+            kinematics.calculate(fwd, str, rcw, speeds, angles);
+
+            double fastest = 0;
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = kinematics.getWheelSpeed(i, fwd, str, rcw);
+                fastest = Math.max(fastest, raw[i]);
+            }
+            double scale = Math.min(1, 1 / fastest);
+            for (int i = 0; i < raw.length; i++) {
+                assertTrue(speeds[i] <= 1 + EPSILON);
+                /* Every wheel is slowed by the same amount, and none of them turn, so the robot moves the same way. */
+                assertEquals(raw[i] * scale, speeds[i], EPSILON);
+                assertEquals(kinematics.getWheelAngle(i, fwd, str, rcw), angles[i], 0);
+            }
+        }
+    }
+}
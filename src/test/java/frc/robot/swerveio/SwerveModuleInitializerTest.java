@@ -0,0 +1,163 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks that the initializer sends a parameter again when it doesn't take,
+ * reports one that never takes, and gives up on an encoder that never reads
+ * zero, without holding up the other modules.
+ */
+public class SwerveModuleInitializerTest {
+    /**
+     * A module made of two stand-in controllers that answer right away.
+     */
+    private static class StubModule implements ConfigurableSwerveModule {
+        private final StubMotorController drive, pivot;
+
+        StubModule(int driveCanId, int pivotCanId) {
+            drive = new StubMotorController(driveCanId, 0);
+            pivot = new StubMotorController(pivotCanId, 0);
+        }
+
+        @Override
+        public ConfigurableMotorController getDriveController() {
+            return drive;
+        }
+
+        @Override
+        public ConfigurableMotorController getPivotController() {
+            return pivot;
+        }
+
+        @Override
+        public MotorConfig getDriveConfig() {
+            return NeoSwerveModule.DRIVE_CONFIG;
+        }
+
+        @Override
+        public MotorConfig getPivotConfig() {
+            return NeoSwerveModule.PIVOT_CONFIG;
+        }
+    }
+
+    /* The modules the next initializer will create, so a test can break them before they are set up. */
+    private final StubModule[] modules = {
+        new StubModule(1, 2), new StubModule(3, 4), new StubModule(5, 6), new StubModule(7, 8)
+    };
+
+    private SwerveModuleInitializer<StubModule> initializer(boolean parallel, boolean batched) {
+        SwerveModuleInitializer<StubModule> initializer = new SwerveModuleInitializer<>(parallel, batched);
+        initializer.add("Front Left", () -> modules[0]);
+        initializer.add("Front Right", () -> modules[1]);
+        initializer.add("Rear Left", () -> modules[2]);
+        initializer.add("Rear Right", () -> modules[3]);
+        return initializer;
+    }
+
+    private void assertAllReturned(List<StubModule> initialized) {
+        assertEquals(modules.length, initialized.size());
+        for (int i = 0; i < modules.length; i++) {
+            assertSame(modules[i], initialized.get(i));
+        }
+    }
+
+    @Test
+    public void everythingTakes() {
+        SwerveModuleInitializer<StubModule> initializer = initializer(true, true);
+        assertAllReturned(initializer.initialize());
+        assertTrue(initializer.report(), initializer.isVerified());
+        for (StubModule module : modules) {
+            assertEquals((float) NeoSwerveModule.DRIVE_P, module.drive.getParameter(MotorParameter.P), 0);
+            assertEquals(1, module.drive.getSends(MotorParameter.P));
+            assertEquals(0, module.drive.getEncoderPosition(), 0);
+            assertEquals(0, module.pivot.getEncoderPosition(), 0);
+        }
+    }
+
+    private void parameterLostOnceIsSentAgain(boolean batched) {
+        modules[1].drive.dropParameter(MotorParameter.P, 1);
+        modules[2].pivot.dropParameter(MotorParameter.CLOSED_LOOP_RAMP_RATE, 1);
+        SwerveModuleInitializer<StubModule> initializer = initializer(true, batched);
+        assertAllReturned(initializer.initialize());
+
+        assertTrue(initializer.report(), initializer.isVerified());
+        assertEquals((float) NeoSwerveModule.DRIVE_P, modules[1].drive.getParameter(MotorParameter.P), 0);
+        assertEquals(0.4f, modules[2].pivot.getParameter(MotorParameter.CLOSED_LOOP_RAMP_RATE), 0);
+        /* Lost once, and sent again once. */
+        assertEquals(2, modules[1].drive.getSends(MotorParameter.P));
+        assertEquals(2, modules[2].pivot.getSends(MotorParameter.CLOSED_LOOP_RAMP_RATE));
+        assertEquals(1, modules[0].drive.getSends(MotorParameter.P));
+    }
+
+    @Test
+    public void parameterLostOnceIsSentAgainBatched() {
+        parameterLostOnceIsSentAgain(true);
+    }
+
+    @Test
+    public void parameterLostOnceIsSentAgainUnbatched() {
+        parameterLostOnceIsSentAgain(false);
+    }
+
+    @Test
+    public void parameterAlwaysLostIsReported() {
+        modules[3].drive.dropParameter(MotorParameter.FF, Integer.MAX_VALUE);
+        SwerveModuleInitializer<StubModule> initializer = initializer(true, true);
+        /* The module is still returned, since driving a little worse is better than not driving. */
+        assertAllReturned(initializer.initialize());
+
+        assertTrue(!initializer.isVerified());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(initializer.getFailures(i).isEmpty());
+        }
+        List<String> failures = initializer.getFailures(3);
+        assertEquals(failures.toString(), 1, failures.size());
+        assertTrue(failures.get(0), failures.get(0).startsWith("drive motor (CAN 7) FF"));
+        /* It was only sent again once, so it doesn't hold up starting the robot. */
+        assertEquals(2, modules[3].drive.getSends(MotorParameter.FF));
+        assertTrue(initializer.report(), initializer.report().contains("Rear Right") && initializer.report().contains("1 failed"));
+    }
+
+    @Test
+    public void encoderThatNeverZeroesHitsTheDeadline() {
+        modules[0].pivot.ignoreZeroing();
+        SwerveModuleInitializer<StubModule> initializer = initializer(true, true);
+        assertAllReturned(initializer.initialize());
+
+        assertTrue(!initializer.isVerified());
+        List<String> failures = initializer.getFailures(0);
+        assertEquals(failures.toString(), 1, failures.size());
+        assertTrue(failures.get(0), failures.get(0).startsWith("pivot motor (CAN 2) encoder"));
+        assertTrue("Gave up after " + initializer.getInitTime(0) + " s",
+            initializer.getInitTime(0) >= SwerveModuleInitializer.ENCODER_ZERO_TIMEOUT);
+        /* The other modules didn't wait for it. */
+        for (int i = 1; i < modules.length; i++) {
+            assertTrue(initializer.getFailures(i).isEmpty());
+            assertTrue(initializer.getInitTime(i) < SwerveModuleInitializer.ENCODER_ZERO_TIMEOUT);
+        }
+    }
+
+    @Test
+    public void moduleThatCannotBeCreatedKeepsTheCause() {
+        IllegalStateException cause = new IllegalStateException("No Spark Max on CAN 5");
+        SwerveModuleInitializer<StubModule> initializer = new SwerveModuleInitializer<>();
+        initializer.add("Front Left", () -> modules[0]);
+        initializer.add("Rear Left", () -> {
+            throw cause;
+        });
+        try {
+            initializer.initialize();
+            fail("The initializer should have thrown.");
+        } catch (SwerveImplementationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Rear Left"));
+            assertSame(cause, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the optimizer points each module along its target with at
+ * most a quarter turn, whatever the encoder reads, and that this gets a
+ * simulated module to a new direction faster than the old logic did,
+ * which only ever took the shorter way around.
+ */
+public class SwerveModuleOptimizerTest {
+    /* A fixed seed, so that a failure can be reproduced. */
+    private static final long SEED = 2020;
+    private static final int TRIALS = 10000;
+
+    /* One count per degree, so the angles in the edge cases are exact. */
+    private static final double DEGREE_COUNTS = 360;
+    /* The real pivot gearing. */
+    private static final double PIVOT_REVOLUTION = 17.90471839904785;
+
+    private static final double EPSILON = 1e-9;
+
+    /* How close to the target a module has to stay to have settled, in degrees. */
+    private static final double SETTLED = 3;
+    private static final double LOOP_PERIOD = 0.02;
+    private static final double SETTLE_LIMIT = 5;
+
+    /**
+     * Check where the optimizer sends a module, given where it started.
+     * @return Whether the speed was inverted.
+     */
+    private static boolean assertOptimized(SwerveModuleOptimizer optimizer, double countsPerRevolution, double position, double targetAngle) {
+        optimizer.optimize(position, targetAngle, 0.7);
+        String message = "From " + position + " counts to " + targetAngle + " degrees";
+        double turn = SwerveDriveCalculator.convertToDegrees(optimizer.getReference() - position, countsPerRevolution);
+        assertTrue(message + ", turned " + turn + " degrees", Math.abs(turn) <= 90 + EPSILON);
+
+        boolean inverted = optimizer.getSpeed() < 0;
+        assertEquals(message, inverted ? -0.7 : 0.7, optimizer.getSpeed(), 0);
+        /* The wheel ends up driving along the target either way. */
+        double angle = SwerveDriveCalculator.convertToDegrees(optimizer.getReference(), countsPerRevolution) + (inverted ? 180 : 0);
+        assertEquals(message, 0, Math.IEEEremainder(angle - targetAngle, 360), 1e-6);
+        return inverted;
+    }
+
+    @Test
+    public void negativeAndMultiTurnReadings() {
+        SwerveModuleOptimizer optimizer = new SwerveModuleOptimizer(DEGREE_COUNTS);
+        /* Ten degrees, a revolution and a bit either way, and several revolutions either way. */
+        double[] positions = { 10, 370, -350, 10 + (5 * 360), 10 - (7 * 360) };
+        for (double position : positions) {
+            /* From where it is, each of these is the same as from 10 degrees. */
+            assertEquals(false, assertOptimized(optimizer, DEGREE_COUNTS, position, 40));
+            assertEquals(position + 30, optimizer.getReference(), EPSILON);
+            assertEquals(false, assertOptimized(optimizer, DEGREE_COUNTS, position, -60));
+            assertEquals(position - 70, optimizer.getReference(), EPSILON);
+            /* Pointing the other way is the same as driving backwards. */
+            assertEquals(true, assertOptimized(optimizer, DEGREE_COUNTS, position, 190));
+            assertEquals(position, optimizer.getReference(), EPSILON);
+            assertEquals(true, assertOptimized(optimizer, DEGREE_COUNTS, position, -150));
+            assertEquals(position + 20, optimizer.getReference(), EPSILON);
+        }
+    }
+
+    @Test
+    public void quarterTurnIsTheEdge() {
+        SwerveModuleOptimizer optimizer = new SwerveModuleOptimizer(DEGREE_COUNTS);
+        for (double position : new double[] { 0, -720, 1080 }) {
+            /* Exactly a quarter turn is taken as it is. */
+            assertEquals(false, assertOptimized(optimizer, DEGREE_COUNTS, position, 90));
+            assertEquals(position + 90, optimizer.getReference(), EPSILON);
+            assertEquals(false, assertOptimized(optimizer, DEGREE_COUNTS, position, -90));
+            assertEquals(position - 90, optimizer.getReference(), EPSILON);
+            /* Just past it, the module turns the other way and drives backwards. */
+            assertEquals(true, assertOptimized(optimizer, DEGREE_COUNTS, position, 90.001));
+            assertEquals(position - 89.999, optimizer.getReference(), EPSILON);
+            assertEquals(true, assertOptimized(optimizer, DEGREE_COUNTS, position, -90.001));
+            assertEquals(position + 89.999, optimizer.getReference(), EPSILON);
+        }
+    }
+
+    @Test
+    public void neverTurnsMoreThanAQuarter() {
+        Random random = new Random(SEED);
+        SwerveModuleOptimizer optimizer = new SwerveModuleOptimizer(PIVOT_REVOLUTION);
+        for (int trial = 0; trial < TRIALS; trial++) {
+            double position = (random.nextDouble() * 2 - 1) * 20 * PIVOT_REVOLUTION;
+            double targetAngle = (random.nextDouble() * 2 - 1) * 180;
+            boolean inverted = assertOptimized(optimizer, PIVOT_REVOLUTION, position, targetAngle);
+            /* The speed is only inverted when going straight there would be more than a quarter turn. */
+            double shortest = Math.IEEEremainder(targetAngle - SwerveDriveCalculator.convertToDegrees(position, PIVOT_REVOLUTION), 360);
+            assertEquals("From " + position + " counts to " + targetAngle + " degrees", Math.abs(shortest) > 90, inverted);
+        }
+    }
+
+    /**
+     * The pivot reference that DriveTrain.drive() used before the optimizer,
+     * which turned to the target angle the shorter way around, and never drove backwards.
+     */
+    private static double oldReference(double currentPos, double targetAngle) {
+        double targetPos = SwerveDriveCalculator.convertFromDegrees(targetAngle, PIVOT_REVOLUTION);
+        double distance = (targetPos - (currentPos % PIVOT_REVOLUTION));
+        if (distance > (PIVOT_REVOLUTION / 2.0) || distance < - (PIVOT_REVOLUTION / 2.0)) {
+            distance = PIVOT_REVOLUTION - Math.abs(distance);
+        }
+        return currentPos + distance;
+    }
+
+    /**
+     * Turn a simulated module from straight ahead to a new direction, giving
+     * it a new reference every loop like the drive train does.
+     * @param optimized Whether to use the optimizer, or the old logic.
+     * @return How long the wheel took to point along the target for good, in seconds.
+     */
+    private static double settleTime(double targetAngle, boolean optimized) {
+        SimClock clock = new SimClock();
+        SimSwerveModule module = new SimSwerveModule(clock);
+        SwerveModuleOptimizer optimizer = new SwerveModuleOptimizer(PIVOT_REVOLUTION);
+        double lastUnsettled = 0;
+        for (double time = 0; time < SETTLE_LIMIT; time += LOOP_PERIOD) {
+            double position = module.getPivotMotorEncoder();
+            double direction = SwerveDriveCalculator.convertToDegrees(position, PIVOT_REVOLUTION);
+            if (optimized) {
+                optimizer.optimize(position, targetAngle, 1);
+                module.setPivotReference(optimizer.getReference());
+                if (optimizer.getSpeed() < 0) {
+                    direction += 180;
+                }
+            } else {
+                module.setPivotReference(oldReference(position, targetAngle));
+            }
+            if (Math.abs(Math.IEEEremainder(direction - targetAngle, 360)) > SETTLED) {
+                lastUnsettled = time + LOOP_PERIOD;
+            }
+            clock.advance(LOOP_PERIOD);
+        }
+        assertTrue("The module didn't settle on " + targetAngle + " degrees", lastUnsettled < SETTLE_LIMIT - 1);
+        return lastUnsettled;
+    }
+
+    /**
+     * Within a quarter turn, the optimizer turns the same way the old logic
+     * did. Past it, the optimizer turns less the further the target is, so
+     * over every direction that needs more than a quarter turn, it settles
+     * in about half the time on average.
+     */
+    @Test
+    public void reversalSettlesFaster() {
+        for (double targetAngle = -90; targetAngle <= 90; targetAngle += 15) {
+            assertEquals("Turning to " + targetAngle + " degrees", settleTime(targetAngle, false), settleTime(targetAngle, true), 0);
+        }
+        double totalBefore = 0, totalAfter = 0;
+        for (double targetAngle = 95; targetAngle < 180; targetAngle += 5) {
+            for (double sign : new double[] { 1, -1 }) {
+                double before = settleTime(sign * targetAngle, false);
+                double after = settleTime(sign * targetAngle, true);
+                assertTrue("Turning to " + (sign * targetAngle) + " degrees took " + after + " s, and " + before + " s before",
+                    after < before);
+                totalBefore += before;
+                totalAfter += after;
+            }
+        }
+        assertTrue("On average, settling took " + (totalAfter / totalBefore) + " of the time it used to", totalAfter <= totalBefore * 0.6);
+        /* Turning all the way around takes no turning at all. */
+        assertEquals(0, settleTime(180, true), 0);
+    }
+}
@@ -0,0 +1,276 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the odometry against where the robot actually went.
+ * <p>
+ * The actual motion doesn't come from the odometry's model. The robot is
+ * moved as a rigid body, with a commanded forward, strafe and turn rate,
+ * every millisecond. Each module's wheel is then moved the way a wheel at
+ * that corner of a rigid body has to move: the robot's velocity plus the
+ * turn rate times the module's offset, at right angles to it. The encoders
+ * the odometry reads once a loop are worked out from that, so a sign,
+ * frame or geometry mistake in the odometry shows up as a pose that is
+ * wrong, not one that is wrong in the same way as the truth.
+ */
+public class SwerveOdometryTest {
+    private static final double PIVOT_REVOLUTION = 17.90471839904785;
+    private static final double DRIVE_DISTANCE_PER_COUNT = (Math.PI * 4) / 8.31;
+
+    /* Where each module is, front left, front right, rear left and rear right, on a 20 by 22 inch base. */
+    private static final double[] MODULE_X = { 11, 11, -11, -11 };
+    private static final double[] MODULE_Y = { 10, -10, 10, -10 };
+
+    private static final double LOOP_PERIOD = 0.02;
+    private static final int STEPS_PER_LOOP = 20;
+    private static final double STEP = LOOP_PERIOD / STEPS_PER_LOOP;
+
+    private double time;
+    private SwerveSensorSnapshot sensors;
+    private SwerveOdometry odometry;
+
+    /* Where the robot actually is, in inches and degrees, and how far it has gone. */
+    private double x, y, heading;
+    private double travelled;
+
+    /* Each wheel's distance along the ground and direction, in inches and degrees, without wrapping. */
+    private final double[] wheelDistance = new double[MODULE_X.length];
+    private final double[] wheelAngle = new double[MODULE_X.length];
+
+    /* The module whose wheel is slipping, if any, and how much further its encoder says it went than it did. */
+    private int slippingModule = -1;
+    private double slip;
+
+    /* What is wrong with the gyro: how fast it drifts, in degrees per second, and how noisy it is. */
+    private double gyroDrift;
+    private double gyroNoise;
+    private final Random random = new Random(2020);
+    private double gyroError, maxGyroError;
+
+    @Before
+    public void setUp() {
+        sensors = new SwerveSensorSnapshot(() -> time);
+        odometry = new SwerveOdometry(PIVOT_REVOLUTION, DRIVE_DISTANCE_PER_COUNT, SwerveKinematics.rectangle(20, 22));
+        loop(0, 0, 0);
+    }
+
+    /**
+     * Turn each module to face the way it will move for a motion, without
+     * moving the robot, the way the modules turn before the robot drives.
+     */
+    private void point(double vx, double vy, double omega) {
+        for (int i = 0; i < MODULE_X.length; i++) {
+            double w = Math.toRadians(omega);
+            double moduleVx = vx - (w * MODULE_Y[i]);
+            double moduleVy = vy + (w * MODULE_X[i]);
+            if (Math.hypot(moduleVx, moduleVy) > 0) {
+                double angle = Math.toDegrees(Math.atan2(moduleVy, moduleVx));
+                wheelAngle[i] += Math.IEEEremainder(angle - wheelAngle[i], 360);
+            }
+        }
+        loop(0, 0, 0);
+    }
+
+    /**
+     * Drive with a constant motion for a while.
+     * @param vx How fast to drive forward, in inches per second.
+     * @param vy How fast to strafe, in inches per second.
+     * @param omega How fast to turn, in degrees per second.
+     */
+    private void drive(double vx, double vy, double omega, double seconds) {
+        point(vx, vy, omega);
+        drive(t -> vx, t -> vy, t -> omega, seconds);
+    }
+
+    /**
+     * Drive with a motion that changes over time.
+     */
+    private void drive(DoubleUnaryOperator vx, DoubleUnaryOperator vy, DoubleUnaryOperator omega, double seconds) {
+        double start = time;
+        long loops = Math.round(seconds / LOOP_PERIOD);
+        for (long i = 0; i < loops; i++) {
+            for (int step = 0; step < STEPS_PER_LOOP; step++) {
+                double t = time - start + (STEP / 2);
+                move(vx.applyAsDouble(t), vy.applyAsDouble(t), omega.applyAsDouble(t));
+            }
+            loop();
+        }
+    }
+
+    /**
+     * Move the robot as a rigid body for one step, and each wheel along with it.
+     */
+    private void move(double vx, double vy, double omega) {
+        double w = Math.toRadians(omega);
+        for (int i = 0; i < MODULE_X.length; i++) {
+            double moduleVx = vx - (w * MODULE_Y[i]);
+            double moduleVy = vy + (w * MODULE_X[i]);
+            double speed = Math.hypot(moduleVx, moduleVy);
+            if (speed > 0) {
+                double angle = Math.toDegrees(Math.atan2(moduleVy, moduleVx));
+                wheelAngle[i] += Math.IEEEremainder(angle - wheelAngle[i], 360);
+            }
+            wheelDistance[i] += speed * STEP * ((i == slippingModule) ? 1 + slip : 1);
+        }
+        double h = Math.toRadians(heading + (omega * STEP / 2));
+        x += ((vx * Math.cos(h)) - (vy * Math.sin(h))) * STEP;
+        y += ((vx * Math.sin(h)) + (vy * Math.cos(h))) * STEP;
+        heading += omega * STEP;
+        travelled += Math.hypot(vx, vy) * STEP;
+        time += STEP;
+    }
+
+    private void loop(double vx, double vy, double omega) {
+        for (int step = 0; step < STEPS_PER_LOOP; step++) {
+            move(vx, vy, omega);
+        }
+        loop();
+    }
+
+    /**
+     * Read the encoders and the gyro, and update the odometry, like the robot does every loop.
+     */
+    private void loop() {
+        for (int i = 0; i < MODULE_X.length; i++) {
+            sensors.setModule(i, time, wheelAngle[i] * PIVOT_REVOLUTION / 360, wheelDistance[i] / DRIVE_DISTANCE_PER_COUNT, 0, 0);
+        }
+        gyroError = (gyroDrift * time) + (random.nextGaussian() * gyroNoise);
+        maxGyroError = Math.max(maxGyroError, Math.abs(gyroError));
+        /* Like a real gyro, it wraps around. */
+        odometry.update(sensors, Math.IEEEremainder(heading + gyroError, 360));
+    }
+
+    private double positionError() {
+        return Math.hypot(x - odometry.getX(), y - odometry.getY());
+    }
+
+    private void assertHeading(String message, double expected, double tolerance) {
+        assertEquals(message, 0, Math.IEEEremainder(expected - odometry.getHeading(), 360), tolerance);
+    }
+
+    @Test
+    public void straightLine() {
+        drive(60, 0, 0, 2);
+        assertEquals(120, x, 1e-9);
+        assertEquals(120, odometry.getX(), 1e-6);
+        assertEquals(0, odometry.getY(), 1e-6);
+        assertHeading("Straight line", 0, 1e-9);
+    }
+
+    @Test
+    public void strafe() {
+        drive(0, -60, 0, 2);
+        assertEquals(0, odometry.getX(), 1e-6);
+        assertEquals(-120, odometry.getY(), 1e-6);
+        assertHeading("Strafe", 0, 1e-9);
+    }
+
+    @Test
+    public void spinInPlace() {
+        drive(0, 0, 90, 5);
+        assertEquals("The robot should have stayed where it was.", 0, Math.hypot(odometry.getX(), odometry.getY()), 1e-6);
+        assertHeading("Spin", 450, 1e-9);
+        assertEquals("The modules should agree while spinning.", 0, odometry.getResidual(), 1e-9);
+    }
+
+    /**
+     * Drive forward while turning at a steady rate, which is a circle. After
+     * half of it, the robot is facing back the way it came, a diameter to
+     * the side of where it started. This doesn't depend on the rigid body
+     * motion being integrated right either.
+     */
+    @Test
+    public void halfCircle() {
+        double speed = 50, rate = 30;
+        drive(speed, 0, rate, 180 / rate);
+        double diameter = 2 * speed / Math.toRadians(rate);
+        assertEquals(0, odometry.getX(), 0.05);
+        assertEquals(diameter, odometry.getY(), 0.05);
+        assertHeading("Half circle", 180, 1e-9);
+    }
+
+    /**
+     * Drive, strafe and turn all at once, changing all the time, for a
+     * minute, over five hundred feet, with a gyro that is noisy and drifts.
+     * The odometry can only be as good as the gyro, so the heading is off by
+     * what the gyro is off by, and the position by about as much as that
+     * heading error turns the distance travelled.
+     */
+    @Test
+    public void longDriveWithNoisyDriftingGyro() {
+        gyroDrift = 0.01;
+        gyroNoise = 0.1;
+        DoubleUnaryOperator vx = t -> 150 * Math.sin(0.4 * t);
+        DoubleUnaryOperator vy = t -> 80 * Math.cos(0.7 * t);
+        DoubleUnaryOperator omega = t -> 90 * Math.sin(0.3 * t);
+        point(vx.applyAsDouble(0), vy.applyAsDouble(0), omega.applyAsDouble(0));
+        drive(vx, vy, omega, 60);
+
+        assertTrue("Travelled " + travelled, travelled > 12 * 500);
+        assertHeading("After a minute", heading + gyroError, 1e-9);
+        double bound = (travelled * Math.sin(Math.toRadians(maxGyroError))) + 1;
+        assertTrue("Off by " + positionError() + " in after " + travelled + " in, with the gyro off by up to " + maxGyroError + " degrees",
+            positionError() <= bound);
+
+        /* With a perfect gyro, all that is left is how often the encoders are read. */
+        setUp();
+        gyroDrift = 0;
+        gyroNoise = 0;
+        x = 0;
+        y = 0;
+        heading = 0;
+        travelled = 0;
+        point(vx.applyAsDouble(0), vy.applyAsDouble(0), omega.applyAsDouble(0));
+        drive(vx, vy, omega, 60);
+        assertTrue("Off by " + positionError() + " in after " + travelled + " in with a perfect gyro", positionError() < 0.001 * travelled);
+    }
+
+    /**
+     * One wheel spins faster than the ground goes by for a while. Its module
+     * stands out in the residual, and the fit to the other three keeps the
+     * odometry from believing it outright.
+     */
+    @Test
+    public void slippingWheel() {
+        drive(60, 0, 0, 1);
+        slippingModule = 1;
+        slip = 0.3;
+        double before = wheelDistance[1];
+        drive(60, 0, 0, 2);
+        double slipped = (wheelDistance[1] - before) - 120;
+        SwerveForwardKinematics fit = odometry.getForwardKinematics();
+        for (int i = 0; i < MODULE_X.length; i++) {
+            if (i != 1) {
+                assertTrue("The slipping module should have the largest residual.", fit.getModuleResidual(1) > fit.getModuleResidual(i));
+            }
+        }
+        assertTrue(odometry.getResidual() > 0.1);
+        slippingModule = -1;
+        drive(60, 0, 0, 1);
+
+        /* The slip is shared between the four modules, so only about a quarter of it gets into the pose. */
+        assertEquals(slipped / 4, positionError(), slipped * 0.05);
+        assertHeading("The gyro still has the heading", heading, 1e-9);
+        assertEquals(0, odometry.getResidual(), 1e-9);
+    }
+
+    @Test
+    public void resetPose() {
+        drive(60, 0, 45, 1);
+        odometry.resetPose(10, 20, 30);
+        assertEquals(10, odometry.getX(), 0);
+        assertEquals(20, odometry.getY(), 0);
+        assertEquals(30, odometry.getHeading(), 0);
+        /* The heading carries on from the new one, with the gyro offset. */
+        drive(0, 0, 90, 1);
+        assertHeading("After turning", 120, 1e-9);
+    }
+}
@@ -0,0 +1,121 @@
+package frc.robot.swerveio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.replay.ReplaySwerveModule;
+
+/**
+ * Checks that a reader of the sensor sampler never sees a sample that is
+ * half one sample and half the next, and always sees the newest one.
+ * <p>
+ * Rather than the sampler's Notifier, a thread of the test's own takes the
+ * samples, as fast as it can, so that readers catch it in the middle of
+ * publishing as often as possible. Sample number n reads n from every
+ * sensor and from the fake clock, so a torn sample is one that doesn't
+ * read the same everywhere.
+ */
+public class SwerveSensorSamplerTest {
+    private static final int SAMPLES = 200000;
+
+    private final FakeSwerveModule[] modules = new FakeSwerveModule[SwerveDriveCalculator.MODULE_COUNT];
+    private SwerveSensorSampler sampler;
+    private final SwerveSensorSnapshot snapshot = new SwerveSensorSnapshot(() -> 0);
+
+    /* The fake clock and gyro, which are only touched by whichever thread is sampling. */
+    private double time;
+    private double gyroYaw;
+
+    /**
+     * The sampler's Notifier needs the HAL.
+     */
+    @BeforeClass
+    public static void initializeHal() {
+        HAL.initialize(500, 0);
+    }
+
+    @Before
+    public void createSampler() {
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = new FakeSwerveModule();
+        }
+        SwerveModuleRegistry registry = new SwerveModuleRegistry(modules[0], modules[1], modules[2], modules[3]);
+        sampler = new SwerveSensorSampler(registry, () -> gyroYaw, () -> time, SwerveSensorSampler.MAX_RATE);
+    }
+
+    /**
+     * Take sample number n.
+     */
+    private void publish(int n) {
+        time = n;
+        gyroYaw = n;
+        for (FakeSwerveModule module : modules) {
+            module.setSensors(n, n, n, n);
+        }
+        sampler.sample();
+    }
+
+    /**
+     * Read the newest sample, and check that all of it came from the same one.
+     * @return Which sample it was.
+     */
+    private double read() {
+        sampler.read(snapshot);
+        double n = snapshot.getGyroTimestamp();
+        assertEquals(n, snapshot.getGyroYaw(), 0);
+        for (int i = 0; i < modules.length; i++) {
+            String message = "Module " + i + " of sample " + n;
+            assertEquals(message, n, snapshot.getTimestamp(i), 0);
+            assertEquals(message, n, snapshot.getPivotMotorEncoder(i), 0);
+            assertEquals(message, n, snapshot.getDriveMotorEncoder(i), 0);
+            assertEquals(message, n, snapshot.getPivotMotorSpeed(i), 0);
+            assertEquals(message, n, snapshot.getDriveMotorVelocity(i), 0);
+        }
+        return n;
+    }
+
+    @Test
+    public void readerNeverSeesTornSample() throws InterruptedException {
+        publish(0);
+        Thread writer = new Thread(() -> {
+            for (int n = 1; n <= SAMPLES; n++) {
+                publish(n);
+            }
+        }, "Sampler");
+        writer.start();
+
+        double last = 0;
+        int reads = 0;
+        while (writer.isAlive()) {
+            double n = read();
+            assertTrue("Read sample " + n + " after sample " + last, n >= last);
+            last = n;
+            reads++;
+        }
+        writer.join();
+        assertTrue("Only read " + reads + " times while sampling", reads > 1);
+        /* Once the sampler is done, the last sample it published is what is read. */
+        assertEquals(SAMPLES, read(), 0);
+    }
+
+    @Test
+    public void readerSeesNewestSample() {
+        for (int n = 0; n < 1000; n++) {
+            publish(n);
+            assertEquals(n, read(), 0);
+            /* Reading again without a new sample gives the same one. */
+            assertEquals(n, read(), 0);
+        }
+    }
+
+    @Test(expected = SwerveImplementationException.class)
+    public void moduleThatIsNotThreadSafeIsRejected() {
+        SwerveModuleRegistry registry = new SwerveModuleRegistry(modules[0], modules[1], new ReplaySwerveModule(), modules[3]);
+        new SwerveSensorSampler(registry, null, () -> time, SwerveSensorSampler.MAX_RATE);
+    }
+}
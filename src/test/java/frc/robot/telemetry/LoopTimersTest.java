@@ -0,0 +1,77 @@
+package frc.robot.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks that timing a stage doesn't allocate, by measuring how many bytes
+ * the test thread allocates around the timed path.
+ */
+public class LoopTimersTest {
+  private static final int WARMUP_SAMPLES = 200000;
+  private static final int SAMPLES = 100000;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  @After
+  public void resetTimers() {
+    LoopTimers.reset();
+  }
+
+  private static long allocatedBytes() {
+    return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /* Time a stage, and record durations spread over the whole range of the histogram buckets. */
+  private static void timeStages(int samples) {
+    for (int i = 0; i < samples; i++) {
+      long start = LoopTimers.start();
+      LoopTimers.stop(LoopStage.DRIVE, start);
+      LoopTimers.record(LoopStage.GYRO, (long) i << (i & 31));
+    }
+  }
+
+  @Test
+  public void recordingDoesNotAllocate() {
+    assumeTrue("Thread allocation measurement isn't supported on this JVM.",
+        THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+    /* Warm up first, so class loading and compilation aren't counted. */
+    timeStages(WARMUP_SAMPLES);
+    /* Measure how much just measuring allocates, so it can be taken off. */
+    long overheadStart = allocatedBytes();
+    long overhead = allocatedBytes() - overheadStart;
+
+    long before = allocatedBytes();
+    timeStages(SAMPLES);
+    long allocated = allocatedBytes() - before - overhead;
+
+    assertEquals("Bytes allocated while recording " + SAMPLES + " samples", 0, allocated);
+    assertEquals(WARMUP_SAMPLES + SAMPLES, LoopTimers.getHistogram(LoopStage.DRIVE).getCount());
+  }
+
+  @Test
+  public void histogramRecordingDoesNotAllocate() {
+    assumeTrue("Thread allocation measurement isn't supported on this JVM.",
+        THREADS.isThreadAllocatedMemorySupported() && THREADS.isThreadAllocatedMemoryEnabled());
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < WARMUP_SAMPLES; i++) {
+      histogram.record(i * 997L);
+    }
+    long overheadStart = allocatedBytes();
+    long overhead = allocatedBytes() - overheadStart;
+
+    long before = allocatedBytes();
+    for (int i = 0; i < SAMPLES; i++) {
+      histogram.record(i * 997L);
+    }
+    long allocated = allocatedBytes() - before - overhead;
+
+    assertEquals("Bytes allocated while recording " + SAMPLES + " samples", 0, allocated);
+  }
+}
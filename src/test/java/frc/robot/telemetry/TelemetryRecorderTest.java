@@ -0,0 +1,160 @@
+package frc.robot.telemetry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the recorder keeps the log directory under its maximum size,
+ * deleting the logs of the oldest boots first.
+ */
+public class TelemetryRecorderTest {
+  private static final int FILE_SIZE = 64 * 1024;
+
+  private File directory;
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("telemetry").toFile();
+  }
+
+  @After
+  public void deleteDirectory() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  /* Make a log file that looks like it came from an earlier boot. */
+  private File oldLog(String name) throws IOException {
+    File file = new File(directory, name);
+    Files.write(file.toPath(), new byte[FILE_SIZE]);
+    return file;
+  }
+
+  /* Get the log files in the directory, which leaves out the boot counter. */
+  private File[] logs() {
+    File[] logs = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    Arrays.sort(logs);
+    return logs;
+  }
+
+  /* Record something with a new recorder, like the robot does on every boot. */
+  private void boot(long maxTotalSize) throws InterruptedException {
+    TelemetryRecorder recorder = new TelemetryRecorder(directory, FILE_SIZE, 1024, maxTotalSize);
+    recorder.start();
+    recorder.recordGyro(0, 0);
+    recorder.stop();
+  }
+
+  @Test
+  public void deletesOldestLogsToMakeRoom() throws Exception {
+    File oldest = oldLog("telemetry-boot000003-000-20200101-120000.bin");
+    File older = oldLog("telemetry-boot000003-001-20200101-120000.bin");
+    File newer = oldLog("telemetry-boot000004-000-20200215-090000.bin");
+    File other = new File(directory, "notes.txt");
+    Files.write(other.toPath(), new byte[FILE_SIZE]);
+
+    boot(3L * FILE_SIZE);
+
+    assertFalse("The oldest log should have been deleted.", oldest.exists());
+    assertTrue(older.exists());
+    assertTrue(newer.exists());
+    assertTrue("Files that aren't logs should be left alone.", other.exists());
+    File[] logs = logs();
+    assertEquals(Arrays.toString(logs), 3, logs.length);
+    assertTrue("The new log should follow on from the old ones.", logs[2].getName().startsWith("telemetry-boot000005-000-"));
+  }
+
+  @Test
+  public void keepsUnderMaximumWhileRecording() throws Exception {
+    oldLog("telemetry-boot000001-000-20200101-120000.bin");
+    /* Each file holds a header and 15 records, so 100 records need 7 files, but only 2 fit. */
+    int fileSize = 16 * TelemetryRecorder.RECORD_SIZE;
+    TelemetryRecorder recorder = new TelemetryRecorder(directory, fileSize, 1024, 2L * fileSize);
+    recorder.start();
+    for (int i = 0; i < 100; i++) {
+      recorder.recordGyro(i, i);
+    }
+    recorder.stop();
+
+    long total = 0;
+    for (File log : logs()) {
+      total += log.length();
+    }
+    assertTrue("The logs take up " + total + " bytes.", total <= 2L * fileSize);
+    File[] logs = logs();
+    assertEquals(2, logs.length);
+    /* The last two files of this boot are kept, in order. */
+    assertTrue(logs[0].getName().startsWith("telemetry-boot000002-005-"));
+    assertTrue(logs[1].getName().startsWith("telemetry-boot000002-006-"));
+  }
+
+  @Test
+  public void bootCounterCountsEveryBoot() throws Exception {
+    boot(TelemetryRecorder.DEFAULT_MAX_TOTAL_SIZE);
+    boot(TelemetryRecorder.DEFAULT_MAX_TOTAL_SIZE);
+    boot(TelemetryRecorder.DEFAULT_MAX_TOTAL_SIZE);
+    File[] logs = logs();
+    assertEquals(3, logs.length);
+    assertTrue(logs[0].getName().startsWith("telemetry-boot000000-000-"));
+    assertTrue(logs[1].getName().startsWith("telemetry-boot000001-000-"));
+    assertTrue(logs[2].getName().startsWith("telemetry-boot000002-000-"));
+  }
+
+  /**
+   * Without a time from the Driver Station, the robot's clock can be
+   * anywhere, so a later boot can look like it happened years earlier.
+   */
+  @Test
+  public void deletesByBootNotByWallClock() throws Exception {
+    File first = oldLog("telemetry-boot000007-000-20300101-000000.bin");
+    File second = oldLog("telemetry-boot000008-000-19700101-000012.bin");
+    File third = oldLog("telemetry-boot000009-000-19700101-000005.bin");
+
+    boot(3L * FILE_SIZE);
+
+    assertFalse("The first boot's log should have been deleted.", first.exists());
+    assertTrue(second.exists());
+    assertTrue(third.exists());
+  }
+
+  @Test
+  public void logsFromBeforeTheBootCounterAreOldest() throws Exception {
+    File unnumbered = oldLog("telemetry-20200101-120000-000.bin");
+    File numbered = oldLog("telemetry-boot000000-000-20190101-120000.bin");
+
+    boot(2L * FILE_SIZE);
+
+    assertFalse(unnumbered.exists());
+    assertTrue(numbered.exists());
+    assertTrue(logs()[1].getName().startsWith("telemetry-boot000001-000-"));
+  }
+
+  @Test
+  public void lostBootCounterCarriesOnFromNewestLog() throws Exception {
+    oldLog("telemetry-boot000041-000-20200101-120000.bin");
+    boot(TelemetryRecorder.DEFAULT_MAX_TOTAL_SIZE);
+    assertTrue(new File(directory, "boot-counter").delete());
+    boot(TelemetryRecorder.DEFAULT_MAX_TOTAL_SIZE);
+    File[] logs = logs();
+    assertEquals(3, logs.length);
+    assertTrue(logs[1].getName().startsWith("telemetry-boot000042-000-"));
+    assertTrue(logs[2].getName().startsWith("telemetry-boot000043-000-"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void maximumMustHoldOneFile() {
+    new TelemetryRecorder(directory, FILE_SIZE, 1024, FILE_SIZE - 1);
+  }
+}
@@ -0,0 +1,171 @@
+package frc.robot.trajectory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes trajectories and reads them back, and checks that every way a file
+ * can be wrong gets it rejected instead of followed.
+ */
+public class TrajectoryFileTest {
+  /* The paths and trajectories that are deployed to the robot. */
+  private static final File PATH_DIRECTORY = new File("src/main/deploy/paths");
+  private static final File TRAJECTORY_DIRECTORY = new File("src/main/deploy/trajectories");
+
+  private static final File PATH = new File(PATH_DIRECTORY, "SCurve" + PathDefinition.EXTENSION);
+
+  /* Where the time step is in the header. */
+  private static final int TIME_STEP_OFFSET = 16;
+
+  private File directory;
+  private File file;
+  private PathDefinition definition;
+  private Trajectory trajectory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("trajectory").toFile();
+    file = new File(directory, "SCurve" + TrajectoryFile.EXTENSION);
+    definition = PathDefinition.read(PATH);
+    trajectory = definition.generate();
+    TrajectoryFile.write(trajectory, definition.getChecksum(), file);
+  }
+
+  @After
+  public void deleteDirectory() {
+    for (File file : directory.listFiles()) {
+      file.delete();
+    }
+    directory.delete();
+  }
+
+  private static void assertSameTrajectory(Trajectory expected, Trajectory actual) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.getTimeStep(), actual.getTimeStep(), 0);
+    for (int column = 0; column < TrajectoryFile.COLUMN_COUNT; column++) {
+      DoubleBuffer expectedColumn = expected.getColumn(column);
+      DoubleBuffer actualColumn = actual.getColumn(column);
+      for (int row = 0; row < expected.size(); row++) {
+        /* Compared bit for bit, so nothing is lost on the way through the file. */
+        assertEquals("column " + column + " row " + row, Double.doubleToRawLongBits(expectedColumn.get(row)),
+            Double.doubleToRawLongBits(actualColumn.get(row)));
+      }
+    }
+  }
+
+  /* Change the file on disk, the way a bad deploy or a bad flash might. */
+  private void corrupt(int offset, byte xor) throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    bytes[offset] ^= xor;
+    Files.write(file.toPath(), bytes);
+  }
+
+  private void assertRejected(long pathChecksum, String reason) {
+    try {
+      TrajectoryFile.read(file, pathChecksum);
+      fail("A file with " + reason + " was read");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith(file.toString()));
+    }
+  }
+
+  private void assertRejected(String reason) {
+    assertRejected(definition.getChecksum(), reason);
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    assertSameTrajectory(trajectory, TrajectoryFile.read(file, definition.getChecksum()));
+  }
+
+  @Test
+  public void roundTripOneRow() throws IOException {
+    double[][] columns = new double[TrajectoryFile.COLUMN_COUNT][];
+    for (int column = 0; column < columns.length; column++) {
+      columns[column] = new double[] { -column - 0.5 };
+    }
+    Trajectory single = new Trajectory(0.05, DoubleBuffer.wrap(columns[0]), DoubleBuffer.wrap(columns[1]), DoubleBuffer.wrap(columns[2]),
+        DoubleBuffer.wrap(columns[3]), DoubleBuffer.wrap(columns[4]), DoubleBuffer.wrap(columns[5]));
+    TrajectoryFile.write(single, 42, file);
+    assertSameTrajectory(single, TrajectoryFile.read(file, 42));
+  }
+
+  /**
+   * The deployed trajectories have to be compiled from the deployed paths,
+   * in the current format, or the robot falls back to generating them.
+   */
+  @Test
+  public void deployedTrajectoriesAreUpToDate() throws IOException {
+    File[] paths = PATH_DIRECTORY.listFiles((dir, name) -> name.endsWith(PathDefinition.EXTENSION));
+    Arrays.sort(paths);
+    assertTrue(paths.length > 0);
+    for (File path : paths) {
+      PathDefinition deployed = PathDefinition.read(path);
+      File compiled = new File(TRAJECTORY_DIRECTORY, deployed.getName() + TrajectoryFile.EXTENSION);
+      assertSameTrajectory(deployed.generate(), TrajectoryFile.read(compiled, deployed.getChecksum()));
+    }
+  }
+
+  @Test
+  public void wrongPathChecksum() {
+    assertRejected(definition.getChecksum() + 1, "the wrong path checksum");
+  }
+
+  @Test
+  public void flippedDataByte() throws IOException {
+    corrupt((int) file.length() - 3, (byte) 0x10);
+    assertRejected("a flipped data byte");
+  }
+
+  @Test
+  public void flippedTimeStepByte() throws IOException {
+    corrupt(TIME_STEP_OFFSET, (byte) 0x01);
+    assertRejected("a flipped time step byte");
+  }
+
+  @Test
+  public void flippedReservedHeaderByte() throws IOException {
+    corrupt(TrajectoryFile.HEADER_SIZE - 1, (byte) 0x80);
+    assertRejected("a flipped byte in the rest of the header");
+  }
+
+  @Test
+  public void truncated() throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - Double.BYTES));
+    assertRejected("its last row cut off");
+
+    Files.write(file.toPath(), Arrays.copyOf(bytes, TrajectoryFile.HEADER_SIZE - 1));
+    assertRejected("half a header");
+
+    Files.write(file.toPath(), new byte[0]);
+    assertRejected("nothing in it");
+  }
+
+  @Test
+  public void wrongVersion() throws IOException {
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, TrajectoryFile.FORMAT_VERSION - 1);
+    Files.write(file.toPath(), bytes);
+    assertRejected("an old version");
+  }
+
+  @Test
+  public void wrongMagic() throws IOException {
+    corrupt(0, (byte) 0xff);
+    assertRejected("the wrong magic number");
+  }
+}
@@ -0,0 +1,215 @@
+package frc.robot.trajectory;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.commands.auto.FollowTrajectory;
+import frc.robot.subsystems.DriveTrain;
+import frc.robot.swerveio.SimClock;
+import frc.robot.swerveio.SimSwerveModule;
+import frc.robot.swerveio.SwerveDriveCalculator;
+import frc.robot.swerveio.SwerveModuleRegistry;
+
+/**
+ * Follows every autonomous trajectory end to end on the desktop, with a
+ * DriveTrain made of simulated modules, and checks that the robot tracked
+ * it closely enough.
+ * <p>
+ * The robot's actual motion is worked out from what the simulated wheels
+ * actually do, every millisecond: the average of the wheel velocities is
+ * how fast the robot is moving, and how the wheels on opposite corners
+ * differ is how fast it is turning. The simulated gyro reads that heading,
+ * and the tracking error is the distance between that motion and the
+ * trajectory, so it includes everything from the modules' response to the
+ * odometry.
+ */
+public class TrajectorySimulationTest {
+  /* The paths that are deployed to the robot. */
+  private static final File PATH_DIRECTORY = new File("src/main/deploy/paths");
+
+  /* How far the robot may stray from each trajectory, in inches and degrees. */
+  private static final double MAX_ERROR = 6;
+  private static final double MAX_FINAL_ERROR = 2;
+  private static final double MAX_HEADING_ERROR = 10;
+  /* The simulated modules never slip, so they should always agree with each other. */
+  private static final double MAX_RESIDUAL = 0.5;
+
+  /**
+   * A robot following a trajectory, moving the way its simulated wheels drive it.
+   */
+  private static class Simulation {
+    /* How long each loop is, and how finely the robot's motion is integrated. */
+    private static final double LOOP_PERIOD = 0.02;
+    private static final double STEP = 0.001;
+
+    private final SimClock clock = new SimClock();
+    private final SimSwerveModule[] modules = new SimSwerveModule[SwerveDriveCalculator.MODULE_COUNT];
+    private final DriveTrain driveTrain;
+
+    /* Where each module is relative to the center of the robot, along the forward and strafe axes. */
+    private final double[] moduleX = new double[SwerveDriveCalculator.MODULE_COUNT];
+    private final double[] moduleY = new double[SwerveDriveCalculator.MODULE_COUNT];
+
+    /* The robot's actual pose. */
+    private double x, y, heading;
+
+    private double maxError, sumSquaredError, finalError, maxHeadingError;
+    /* How far the modules disagreed with the odometry's best fit in any one loop. */
+    private double maxResidual;
+    private int loops;
+
+    /**
+     * A FollowTrajectory that can be run one loop at a time, without the scheduler.
+     */
+    private static class SimulatedFollower extends FollowTrajectory {
+      SimulatedFollower(DriveTrain driveTrain, Trajectory trajectory, SimClock clock) {
+        super(driveTrain, trajectory, true, clock);
+      }
+
+      void begin() {
+        initialize();
+      }
+
+      boolean step() {
+        execute();
+        return isFinished();
+      }
+
+      void finish() {
+        end();
+      }
+    }
+
+    /**
+     * Create a simulated drive train.
+     */
+    Simulation() {
+      for (int i = 0; i < modules.length; i++) {
+        modules[i] = new SimSwerveModule(clock);
+      }
+      driveTrain = new DriveTrain(new SwerveModuleRegistry(modules[0], modules[1], modules[2], modules[3]), clock);
+      driveTrain.setGyro(() -> Math.IEEEremainder(heading, 360));
+      driveTrain.setSetpointLimits(DriveTrain.AUTONOMOUS_LIMITS);
+      /* Place the modules the same way the calculator does: front modules forward, left modules on the positive strafe side. */
+      for (int i = 0; i < modules.length; i++) {
+        boolean front = (i == 0 || i == 1);
+        boolean left = (i == 0 || i == 2);
+        moduleX[i] = (front ? 1 : -1) * DriveTrain.BASE_LENGTH / 2;
+        moduleY[i] = (left ? 1 : -1) * DriveTrain.BASE_WIDTH / 2;
+      }
+    }
+
+    /**
+     * Follow a trajectory from start to finish, and then for one more second
+     * so the robot can settle.
+     * @param trajectory The trajectory to follow.
+     */
+    void run(Trajectory trajectory) {
+      trajectory.sample(0);
+      x = trajectory.getX();
+      y = trajectory.getY();
+      heading = trajectory.getHeading();
+      driveTrain.periodic();
+
+      SimulatedFollower follower = new SimulatedFollower(driveTrain, trajectory, clock);
+      follower.begin();
+      boolean finished = false;
+      while (!finished) {
+        advance();
+        driveTrain.periodic();
+        finished = follower.step();
+        measure(trajectory);
+      }
+      follower.finish();
+      /* Let the robot come to rest, to see where it ends up. */
+      for (int i = 0; i < (int) (1 / LOOP_PERIOD); i++) {
+        advance();
+        driveTrain.periodic();
+      }
+      trajectory.sample(trajectory.getDuration());
+      finalError = Math.hypot(trajectory.getX() - x, trajectory.getY() - y);
+    }
+
+    /**
+     * Run the simulation for one loop, moving the robot the way its wheels are driving it.
+     */
+    private void advance() {
+      for (double t = 0; t < LOOP_PERIOD - (STEP / 2); t += STEP) {
+        clock.advance(STEP);
+        double forward = 0, strafe = 0, turn = 0, radiusSquared = 0;
+        for (int i = 0; i < modules.length; i++) {
+          double angle = Math.toRadians(SwerveDriveCalculator.convertToDegrees(modules[i].getPivotMotorEncoder(), DriveTrain.PIVOT_REVOLUTION));
+          double speed = (modules[i].getDriveMotorVelocity() / 60) * DriveTrain.DRIVE_DISTANCE_PER_COUNT;
+          double vx = speed * Math.cos(angle);
+          double vy = speed * Math.sin(angle);
+          forward += vx;
+          strafe += vy;
+          /* Turning moves each wheel at right angles to the line from the center to the wheel. */
+          turn += (moduleX[i] * vy) - (moduleY[i] * vx);
+          radiusSquared += (moduleX[i] * moduleX[i]) + (moduleY[i] * moduleY[i]);
+        }
+        forward /= modules.length;
+        strafe /= modules.length;
+        double omega = turn / radiusSquared;
+        double h = Math.toRadians(heading + (Math.toDegrees(omega * STEP) / 2));
+        x += ((forward * Math.cos(h)) - (strafe * Math.sin(h))) * STEP;
+        y += ((forward * Math.sin(h)) + (strafe * Math.cos(h))) * STEP;
+        heading += Math.toDegrees(omega * STEP);
+      }
+    }
+
+    /**
+     * Compare the robot's actual pose with where the trajectory says it should be.
+     */
+    private void measure(Trajectory trajectory) {
+      double error = Math.hypot(trajectory.getX() - x, trajectory.getY() - y);
+      maxError = Math.max(maxError, error);
+      sumSquaredError += error * error;
+      maxHeadingError = Math.max(maxHeadingError, Math.abs(Math.IEEEremainder(trajectory.getHeading() - heading, 360)));
+      maxResidual = Math.max(maxResidual, driveTrain.getOdometry().getResidual());
+      loops++;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d loops: max error %.2f in, RMS error %.2f in, final error %.2f in, max heading error %.2f deg, max odometry residual %.3f in",
+          loops, maxError, Math.sqrt(sumSquaredError / Math.max(loops, 1)), finalError, maxHeadingError, maxResidual);
+    }
+  }
+
+  /**
+   * The drive train is a subsystem, which registers with the scheduler, which needs the HAL.
+   */
+  @BeforeClass
+  public static void initializeHal() {
+    HAL.initialize(500, 0);
+  }
+
+  /**
+   * Follow the trajectory of every path file in simulation and check how well it was tracked.
+   */
+  @Test
+  public void everyTrajectoryIsTracked() throws IOException {
+    File[] paths = PATH_DIRECTORY.listFiles((dir, name) -> name.endsWith(PathDefinition.EXTENSION));
+    assertTrue("No paths in " + PATH_DIRECTORY, paths != null && paths.length > 0);
+    Arrays.sort(paths);
+    for (File path : paths) {
+      PathDefinition definition = PathDefinition.read(path);
+      Trajectory trajectory = definition.generate();
+      Simulation simulation = new Simulation();
+      simulation.run(trajectory);
+      String result = definition.getName() + ": " + simulation;
+      assertTrue(result, simulation.maxError <= MAX_ERROR);
+      assertTrue(result, simulation.finalError <= MAX_FINAL_ERROR);
+      assertTrue(result, simulation.maxHeadingError <= MAX_HEADING_ERROR);
+      assertTrue(result, simulation.maxResidual <= MAX_RESIDUAL);
+    }
+  }
+}